@@ -0,0 +1,153 @@
+package javagl.core.culling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Matrix4f;
+import org.joml.primitives.AABBf;
+import org.joml.primitives.Rayf;
+import org.joml.primitives.Spheref;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures building, updating, and querying a dynamic BVH, against testing
+ * every item with the flat frustum culler. Items are unit boxes scattered
+ * through a cube that grows with the item count, so the density of the scene
+ * stays the same at every size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DynamicBvhBenchmark {
+    // The number of items in the scene.
+    @Param({"10000", "100000", "1000000"})
+    private int count;
+
+    // The share of items moved by each update.
+    private static final float MOVING = 0.01f;
+
+    // The centre of every item.
+    private float[] x, y, z;
+
+    // The tree of every item, and the leaf of each.
+    private DynamicBvh<Integer> tree;
+    private int[] leaves;
+
+    // The flat culler of every item's bounding sphere, and its results.
+    private FrustumCuller culler;
+    private int[] visible;
+
+    // The camera looking into the scene, and the queries made against it.
+    private Matrix4f viewProjection;
+    private Rayf ray;
+    private Spheref sphere;
+
+    // The items moved by each update, and the random offsets moved by.
+    private int[] moving;
+    private Random random;
+
+    // The box of the item being added or moved, and the query results.
+    private AABBf box;
+    private List<Integer> results;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        random = new Random(42);
+        float size = (float) Math.cbrt(count) * 4;
+
+        x = new float[count];
+        y = new float[count];
+        z = new float[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = (random.nextFloat() - 0.5f) * size;
+            y[i] = (random.nextFloat() - 0.5f) * size;
+            z[i] = (random.nextFloat() - 0.5f) * size;
+        }
+
+        box = new AABBf();
+        results = new ArrayList<Integer>();
+        tree = new DynamicBvh<Integer>();
+        leaves = new int[count];
+        for (int i = 0; i < count; i++) leaves[i] = tree.add(boxOf(i), i);
+
+        culler = new FrustumCuller(count);
+        for (int i = 0; i < count; i++) culler.add(x[i], y[i], z[i], (float) Math.sqrt(3) * 0.5f);
+        visible = new int[count];
+
+        // Looks into the scene from its centre, seeing a fixed distance as a game camera would.
+        viewProjection = new Matrix4f().perspective((float) Math.toRadians(60), 16f / 9f, 0.1f, 100)
+            .lookAt(0, 0, 0, 0, 0, -1, 0, 1, 0);
+        ray = new Rayf(-size, 1, 1, 1, 0.01f, 0.01f);
+        sphere = new Spheref(0, 0, 0, 10);
+
+        moving = new int[(int) (count * MOVING)];
+        for (int i = 0; i < moving.length; i++) moving[i] = random.nextInt(count);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public DynamicBvh<Integer> insert() {
+        DynamicBvh<Integer> built = new DynamicBvh<Integer>();
+        for (int i = 0; i < count; i++) built.add(boxOf(i), i);
+        return built;
+    }
+
+    @Benchmark
+    public int update() {
+        int reinserted = 0;
+        for (int i : moving) {
+            x[i] += random.nextFloat() * 0.2f - 0.1f;
+            y[i] += random.nextFloat() * 0.2f - 0.1f;
+            if (tree.move(leaves[i], boxOf(i))) reinserted++;
+        }
+        return reinserted;
+    }
+
+    @Benchmark
+    public int queryFrustum() {
+        results.clear();
+        tree.queryFrustum(viewProjection, results);
+        return results.size();
+    }
+
+    @Benchmark
+    public int cullFlat() {
+        return culler.cull(viewProjection, visible);
+    }
+
+    @Benchmark
+    public int queryRay() {
+        results.clear();
+        tree.queryRay(ray, Float.POSITIVE_INFINITY, results);
+        return results.size();
+    }
+
+    @Benchmark
+    public int querySphere() {
+        results.clear();
+        tree.querySphere(sphere, results);
+        return results.size();
+    }
+
+    /**
+     * Returns the unit box around an item.
+     *
+     * @param i - The index of the item.
+     * @return - The shared scratch box.
+     */
+    private AABBf boxOf(int i) {
+        box.setMin(x[i] - 0.5f, y[i] - 0.5f, z[i] - 0.5f);
+        box.setMax(x[i] + 0.5f, y[i] + 0.5f, z[i] + 0.5f);
+        return box;
+    }
+}
@@ -0,0 +1,209 @@
+package javagl.core.ecs;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures a frame of three systems over every entity, run on a single thread
+ * against the scheduler splitting each system's loop across cores and running
+ * the movement and ageing systems side by side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SchedulerBenchmark {
+    // The number of entities in the world.
+    @Param({"10000", "100000", "1000000"})
+    private int count;
+
+    // The distance from the origin entities turn back at.
+    private static final float BOUNDS = 100;
+
+    // The stores of every entity.
+    private FloatStore positions, velocities;
+    private IntStore ages;
+
+    // The schedulers running the systems on one thread and across cores.
+    private Scheduler sequential, parallel;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        World world = new World();
+        positions = world.createFloatStore(3);
+        velocities = world.createFloatStore(3);
+        ages = world.createIntStore(1);
+
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            int entity = world.create();
+            positions.add(entity);
+            int velocity = velocities.add(entity);
+            for (int c = 0; c < 3; c++) velocities.set(velocity, c, random.nextFloat() * 2 - 1);
+            ages.add(entity);
+        }
+
+        sequential = createScheduler(false);
+        parallel = createScheduler(true);
+    }
+
+    /**
+     * Creates a scheduler running the movement, bounce, and ageing systems.
+     *
+     * @param split - If the systems run across cores, or on a pool with a single thread.
+     * @return - The scheduler.
+     */
+    private Scheduler createScheduler(boolean split) {
+        Scheduler scheduler = split ? new Scheduler() : new Scheduler(new ForkJoinPool(1));
+        scheduler.add(new MovementSystem(scheduler, split));
+        scheduler.add(new BounceSystem(scheduler, split));
+        scheduler.add(new AgeSystem(scheduler, split));
+        return scheduler;
+    }
+
+    @Benchmark
+    public void sequential() {
+        sequential.update(1 / 60f);
+    }
+
+    @Benchmark
+    public void parallel() {
+        parallel.update(1 / 60f);
+    }
+
+    /** A system running its loop on one thread or across cores. */
+    private abstract static class LoopSystem implements EntitySystem, Scheduler.RangeAction {
+        // The scheduler splitting the loop, and if it is split.
+        private final Scheduler scheduler;
+        private final boolean split;
+
+        // The time step of the running update.
+        protected float delta;
+
+        LoopSystem(Scheduler scheduler, boolean split) {
+            this.scheduler = scheduler;
+            this.split = split;
+        }
+
+        /**
+         * Returns the store whose components are looped over.
+         *
+         * @return - The store.
+         */
+        protected abstract ComponentStore getLoopStore();
+
+        @Override
+        public void update(float delta) {
+            this.delta = delta;
+            if (split) {
+                scheduler.parallelFor(getLoopStore().size(), this);
+            } else {
+                run(0, getLoopStore().size());
+            }
+        }
+    }
+
+    /** Moves every entity by its velocity. */
+    private class MovementSystem extends LoopSystem {
+        MovementSystem(Scheduler scheduler, boolean split) {
+            super(scheduler, split);
+        }
+
+        @Override
+        public ComponentStore[] getReads() {
+            return new ComponentStore[] {velocities};
+        }
+
+        @Override
+        public ComponentStore[] getWrites() {
+            return new ComponentStore[] {positions};
+        }
+
+        @Override
+        protected ComponentStore getLoopStore() {
+            return velocities;
+        }
+
+        @Override
+        public void run(int from, int to) {
+            float[] position = positions.getData(), velocity = velocities.getData();
+            for (int i = from; i < to; i++) {
+                int p = positions.indexOf(velocities.getEntity(i)) * 3, v = i * 3;
+                position[p] += velocity[v] * delta;
+                position[p + 1] += velocity[v + 1] * delta;
+                position[p + 2] += velocity[v + 2] * delta;
+            }
+        }
+    }
+
+    /** Turns entities back once they leave the bounds of the scene, after they have moved. */
+    private class BounceSystem extends LoopSystem {
+        BounceSystem(Scheduler scheduler, boolean split) {
+            super(scheduler, split);
+        }
+
+        @Override
+        public ComponentStore[] getReads() {
+            return new ComponentStore[] {positions};
+        }
+
+        @Override
+        public ComponentStore[] getWrites() {
+            return new ComponentStore[] {velocities};
+        }
+
+        @Override
+        protected ComponentStore getLoopStore() {
+            return velocities;
+        }
+
+        @Override
+        public void run(int from, int to) {
+            float[] position = positions.getData(), velocity = velocities.getData();
+            for (int i = from; i < to; i++) {
+                int p = positions.indexOf(velocities.getEntity(i)) * 3, v = i * 3;
+                for (int c = 0; c < 3; c++) {
+                    if (position[p + c] * velocity[v + c] > 0 && Math.abs(position[p + c]) > BOUNDS) velocity[v + c] = -velocity[v + c];
+                }
+            }
+        }
+    }
+
+    /** Counts the updates every entity has lived through. */
+    private class AgeSystem extends LoopSystem {
+        AgeSystem(Scheduler scheduler, boolean split) {
+            super(scheduler, split);
+        }
+
+        @Override
+        public ComponentStore[] getReads() {
+            return new ComponentStore[0];
+        }
+
+        @Override
+        public ComponentStore[] getWrites() {
+            return new ComponentStore[] {ages};
+        }
+
+        @Override
+        protected ComponentStore getLoopStore() {
+            return ages;
+        }
+
+        @Override
+        public void run(int from, int to) {
+            int[] age = ages.getData();
+            for (int i = from; i < to; i++) age[i]++;
+        }
+    }
+}
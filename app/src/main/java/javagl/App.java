@@ -3,12 +3,20 @@
  */
 package javagl;
 
+import java.util.function.Supplier;
+
+import javagl.core.Logic;
 import javagl.core.managers.EngineManager;
+import javagl.core.managers.HeadlessWindowManager;
 import javagl.core.managers.WindowManager;
+import javagl.core.render.FrameCapture;
 import javagl.core.utils.Constants;
 
 /** The main class for the application. */
 public class App {
+    // The default width and height of the window.
+    private static final int DEFAULT_WIDTH = 1600, DEFAULT_HEIGHT = 1600;
+
     // The window object of the app.
     private static WindowManager window;
 
@@ -16,13 +24,57 @@ public class App {
     private static EngineManager engine;
 
     // The current game object to run in the window.
-    private static TestGame game;
+    private static Logic game;
 
-    /** Begins the runtime of the app. */
+    /** 
+     * Begins the runtime of the app, running the test game. The benchmarks
+     * needing a window are run from javagl.bench.Main instead.
+     * 
+     * Passing "--size WIDTHxHEIGHT" changes the size of the window, and passing
+     * "--headless" renders offscreen without a visible window, stopping after
+     * the number of frames given by "--frames N" if it is passed. Passing
+     * "--capture DIRECTORY" writes every frame to that directory as a PNG, and
+     * passing "--threaded" updates the game logic on its own simulation thread.
+     * Frames are capped at the monitor's refresh rate unless "--fps N" is
+     * passed, where 0 renders as fast as possible.
+     */
     public static void main(String[] args) {
-        window = new WindowManager(Constants.TITLE, 1600, 1600, false);
-        game = new TestGame();
-        engine = new EngineManager();
+        run(args, TestGame::new);
+    }
+
+    /**
+     * Opens the window described by the command line arguments and runs a game
+     * in it until the window is closed.
+     * 
+     * @param args - The command line arguments, with the options described by main.
+     * @param logic - Creates the game once the window exists.
+     */
+    public static void run(String[] args, Supplier<Logic> logic) {
+        int width = DEFAULT_WIDTH, height = DEFAULT_HEIGHT;
+        String size = getArgument(args, "--size");
+        if (size != null) {
+            String[] dimensions = size.split("x");
+            width = Integer.parseInt(dimensions[0]);
+            height = Integer.parseInt(dimensions[1]);
+        }
+
+        if (hasArgument(args, "--headless")) {
+            String frames = getArgument(args, "--frames");
+            window = new HeadlessWindowManager(Constants.TITLE, width, height, frames != null ? Integer.parseInt(frames) : 0);
+        } else {
+            window = new WindowManager(Constants.TITLE, width, height, false);
+        }
+
+        String captureDirectory = getArgument(args, "--capture");
+        if (captureDirectory != null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            window.setFrameCapture(new FrameCapture(captureDirectory, threads, threads * 2));
+        }
+
+        game = logic.get();
+        engine = new EngineManager(hasArgument(args, "--threaded"));
+        String frameRate = getArgument(args, "--fps");
+        if (frameRate != null) engine.setFrameRate(Float.parseFloat(frameRate));
 
         try {
             engine.start();
@@ -45,7 +97,35 @@ public class App {
      * 
      * @return - The game environment.
      */
-    public static TestGame getGame() {
+    public static Logic getGame() {
         return game;
     }
+
+    /**
+     * Checks if a command line argument was passed to the app.
+     * 
+     * @param args - The command line arguments.
+     * @param argument - The argument to look for.
+     * @return - If the argument was passed.
+     */
+    private static boolean hasArgument(String[] args, String argument) {
+        for (String arg : args) {
+            if (arg.equals(argument)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value following a command line argument.
+     * 
+     * @param args - The command line arguments.
+     * @param argument - The argument to look for.
+     * @return - The value after the argument, or null if it was not passed.
+     */
+    private static String getArgument(String[] args, String argument) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(argument)) return args[i + 1];
+        }
+        return null;
+    }
 }
@@ -5,25 +5,32 @@ import java.io.File;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.opengl.GL11;
 
-import javagl.core.Logic;
 import javagl.core.ObjectLoader;
-import javagl.core.entity.Model;
+import javagl.core.ThreadedLogic;
 import javagl.core.entity.Texture;
 import javagl.core.managers.RenderManager;
 import javagl.core.managers.WindowManager;
+import javagl.core.shader.ShaderCache;
 import javagl.core.ui.UI;
 import javagl.core.ui.UITemplate;
 
-public class TestGame implements Logic {
-    private int direction = 0;
+public class TestGame implements ThreadedLogic<TestGame.Snapshot> {
+    /** The state of the game needed to render a frame. */
+    public static class Snapshot {
+        private float color;
+    }
+
+    // The time each frame can spend uploading textures that finished loading in the background.
+    private static final long UPLOAD_BUDGET = 2_000_000;
+
+    // The direction is written by input on the GL thread and read by update on the simulation thread.
+    private volatile int direction = 0;
     private float color = 0.0f;
 
     private final RenderManager renderer;
     private final WindowManager window;
     private final ObjectLoader loader;
 
-    private Model model;
-
     UI ui;
 
     public TestGame() {
@@ -31,7 +38,7 @@ public class TestGame implements Logic {
         window = App.getWindow();
         loader = new ObjectLoader();
 
-        ui = new UI(loader);
+        ui = new UI();
     }
 
     @Override
@@ -41,8 +48,12 @@ public class TestGame implements Logic {
         // model = loader.loadModel(vertices, textureCoords, indices);
         // model.setTexture(new Texture(loader.loadTexture("C:\\Users\\ianga\\Desktop\\Codespaces\\javagl\\app\\src\\main\\resources\\textures\\cobblestone.png")));
 
-        model = ui.renderUI(new UITemplate(0.4f, 0.1f, 0.2f, 0.6f));
+        ui.init(renderer.getShaderCache());
+        ui.add(new UITemplate(0.4f, 0.1f, 0.2f, 0.6f));
 
+        ShaderCache shaders = renderer.getShaderCache();
+        System.out.printf("shaders: %d from binaries, %d compiled in %.2f ms%n",
+            shaders.getHits(), shaders.getMisses(), shaders.getLoadTime() / 1e6);
         System.out.println("initialized");
     }
 
@@ -65,20 +76,49 @@ public class TestGame implements Logic {
         if (color < 0.0f) color = 0.0f;
     }
 
+    @Override
+    public Snapshot createSnapshot() {
+        return new Snapshot();
+    }
+
+    @Override
+    public void writeSnapshot(Snapshot snapshot) {
+        snapshot.color = color;
+    }
+
     @Override 
     public void render() {
+        renderColor(color);
+    }
+
+    @Override
+    public void render(Snapshot snapshot, float alpha) {
+        renderColor(snapshot.color);
+    }
+
+    /**
+     * Renders the game with the specified background color.
+     * 
+     * @param color - The brightness of the background color.
+     */
+    private void renderColor(float color) {
         if (window.getResize()) {
             GL11.glViewport(0, 0, window.getWidth(), window.getHeight());
-            window.setResize(true);
+            window.setResize(false);
         }
 
+        loader.processUploads(UPLOAD_BUDGET);
+
         window.setClearColor(color * 0.15f, color * 0.15f, color * 0.3f, 0.0f);
-        renderer.render(model);
+        renderer.clear();
+        ui.render(renderer);
+        renderer.flush();
     }
 
     @Override
     public void cleanup() {
         renderer.cleanup();
+        ui.cleanup();
         loader.cleanup();
     }
 
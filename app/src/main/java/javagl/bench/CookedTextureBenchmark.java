@@ -0,0 +1,104 @@
+package javagl.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL11;
+
+import javagl.App;
+import javagl.core.Logic;
+import javagl.core.ObjectLoader;
+import javagl.core.texture.Image;
+import javagl.core.texture.TextureFile;
+import javagl.tools.TextureCooker;
+
+/**
+ * A benchmark comparing an image loaded at runtime against the same image
+ * cooked offline. The image is cooked into a temporary file for every format
+ * the GPU supports, then the load time and GPU memory of each texture are
+ * reported next to decoding the image and generating its mipmaps at runtime.
+ */
+public class CookedTextureBenchmark implements Logic {
+    // The formats the image is cooked in.
+    private static final int[] FORMATS = {
+        TextureFile.FORMAT_RGBA8, TextureFile.FORMAT_BC1, TextureFile.FORMAT_BC3
+    };
+
+    // The number of times each texture is loaded, with the average being reported.
+    private static final int RUNS = 10;
+
+    // The image to load.
+    private final String filename;
+
+    private final ObjectLoader loader;
+
+    public CookedTextureBenchmark(String filename) {
+        this.filename = filename;
+        loader = new ObjectLoader();
+    }
+
+    @Override
+    public void init() throws Exception {
+        File directory = Files.createTempDirectory("javagl-cooked").toFile();
+        directory.deleteOnExit();
+
+        Image image = Image.load(filename);
+        System.out.printf("%s: %dx%d%n", filename, image.getWidth(), image.getHeight());
+
+        try {
+            int id = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) id = loader.loadTexture(filename);
+            GL11.glFinish();
+            report("runtime", System.nanoTime() - start, loader.getTextureMemory(id));
+
+            for (int format : FORMATS) {
+                String name = TextureFile.getFormatName(format);
+                if (!TextureFile.isSupported(format)) {
+                    System.out.printf("  %-8s not supported by the GPU%n", name);
+                    continue;
+                }
+
+                Path path = new File(directory, "texture_" + name + ".jglt").toPath();
+                path.toFile().deleteOnExit();
+                TextureCooker.cook(image, path, format);
+
+                start = System.nanoTime();
+                for (int i = 0; i < RUNS; i++) id = loader.loadCookedTexture(path.toString());
+                GL11.glFinish();
+                report(name, System.nanoTime() - start, loader.getTextureMemory(id));
+            }
+        } finally {
+            image.free();
+        }
+
+        GLFW.glfwSetWindowShouldClose(App.getWindow().getWindow(), true);
+    }
+
+    /**
+     * Prints the average load time and the memory of a texture.
+     *
+     * @param name - The name of the method the texture was loaded with.
+     * @param nanos - The time taken by every run together.
+     * @param bytes - The GPU memory used by one texture.
+     */
+    private static void report(String name, long nanos, long bytes) {
+        System.out.printf("  %-8s %8.2f ms %10d bytes%n", name, nanos / 1e6 / RUNS, bytes);
+    }
+
+    @Override
+    public void input() {}
+
+    @Override
+    public void update() {}
+
+    @Override
+    public void render() {}
+
+    @Override
+    public void cleanup() {
+        loader.cleanup();
+    }
+}
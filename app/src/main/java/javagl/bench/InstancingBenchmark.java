@@ -0,0 +1,139 @@
+package javagl.bench;
+
+import org.joml.Matrix4f;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL11;
+
+import javagl.App;
+import javagl.core.Logic;
+import javagl.core.ObjectLoader;
+import javagl.core.entity.Entity;
+import javagl.core.entity.Model;
+import javagl.core.managers.RenderManager;
+import javagl.core.managers.WindowManager;
+import javagl.core.render.InstanceBuffer;
+import javagl.core.render.InstanceRenderer;
+
+/**
+ * A benchmark comparing a loop of single-model draws through the RenderManager
+ * against one instanced draw of the same model. Each path is timed over a fixed
+ * number of frames, with glFinish making sure the GPU work is included.
+ */
+public class InstancingBenchmark implements Logic {
+    // The number of copies of the model drawn each frame.
+    private static final int INSTANCES = 10000;
+
+    // The number of frames to skip before timing and the number of frames to time.
+    private static final int WARMUP_FRAMES = 30;
+    private static final int TIMED_FRAMES = 120;
+
+    private final RenderManager renderer;
+    private final InstanceRenderer instanceRenderer;
+    private final WindowManager window;
+    private final ObjectLoader loader;
+
+    private Model model;
+    private InstanceBuffer instances;
+
+    // The same grid of copies as entities, for the looped path.
+    private Entity[] entities;
+
+    // The current frame and the total time spent in each path.
+    private int frame;
+    private long loopedTime, instancedTime;
+
+    public InstancingBenchmark() {
+        renderer = new RenderManager();
+        instanceRenderer = new InstanceRenderer();
+        window = App.getWindow();
+        loader = new ObjectLoader();
+    }
+
+    @Override
+    public void init() throws Exception {
+        renderer.init();
+        instanceRenderer.init(renderer.getShaderCache());
+
+        float[] vertices = {
+            -0.005f, 0.005f, 0f,
+            -0.005f, -0.005f, 0f,
+            0.005f, -0.005f, 0f,
+            0.005f, 0.005f, 0f,
+        };
+        float[] textureCoords = {0, 0, 0, 1, 1, 1, 1, 0};
+        int[] indices = {0, 1, 3, 3, 1, 2};
+        model = loader.loadModel(vertices, textureCoords, indices);
+
+        // Spreads the instances over a grid covering the screen.
+        int side = (int) Math.ceil(Math.sqrt(INSTANCES));
+        Matrix4f transform = new Matrix4f();
+        instances = new InstanceBuffer(INSTANCES);
+        entities = new Entity[INSTANCES];
+        for (int i = 0; i < INSTANCES; i++) {
+            float x = (i % side) / (float) side * 2 - 1;
+            float y = (i / side) / (float) side * 2 - 1;
+            instances.add(transform.translation(x, y, 0), 1, 1, 1, 1);
+
+            entities[i] = new Entity(model);
+            entities[i].setPosition(x, y, 0);
+        }
+
+        // Backs the camera away far enough for the whole grid to be in view.
+        renderer.getCamera().setPosition(0, 0, 2);
+    }
+
+    @Override
+    public void input() {}
+
+    @Override
+    public void update() {}
+
+    @Override
+    public void render() {
+        int total = WARMUP_FRAMES + TIMED_FRAMES;
+        boolean instanced = frame >= total;
+        int phaseFrame = frame % total;
+
+        renderer.clear();
+        long start = System.nanoTime();
+
+        if (instanced) {
+            instanceRenderer.render(model, instances);
+        } else {
+            for (Entity entity : entities) renderer.submit(entity);
+            renderer.flush();
+        }
+
+        GL11.glFinish();
+        long elapsed = System.nanoTime() - start;
+
+        if (phaseFrame >= WARMUP_FRAMES) {
+            if (instanced) instancedTime += elapsed;
+            else loopedTime += elapsed;
+        }
+
+        if (++frame == total * 2) {
+            report();
+            GLFW.glfwSetWindowShouldClose(window.getWindow(), true);
+        }
+    }
+
+    /** Prints the average frame time of both paths. */
+    private void report() {
+        double looped = loopedTime / (double) TIMED_FRAMES / 1e6;
+        double instanced = instancedTime / (double) TIMED_FRAMES / 1e6;
+
+        System.out.printf("%d instances over %d frames%n", INSTANCES, TIMED_FRAMES);
+        System.out.printf("  looped:    %.3f ms/frame (%d draw calls)%n", looped, INSTANCES);
+        System.out.printf("  instanced: %.3f ms/frame (1 draw call)%n", instanced);
+        System.out.printf("  speedup:   %.1fx%n", looped / instanced);
+    }
+
+    @Override
+    public void cleanup() {
+        instances.cleanup();
+        instanceRenderer.cleanup();
+        renderer.cleanup();
+        loader.cleanup();
+    }
+}
@@ -0,0 +1,179 @@
+package javagl.bench;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL11;
+
+import javagl.App;
+import javagl.core.Logic;
+import javagl.core.ObjectLoader;
+import javagl.core.entity.Entity;
+import javagl.core.entity.LodModel;
+import javagl.core.managers.RenderManager;
+import javagl.core.managers.WindowManager;
+import javagl.core.mesh.MeshData;
+import javagl.core.mesh.VertexFormat;
+
+/**
+ * A benchmark drawing a field of dense spheres at full detail, then with
+ * levels of detail picked from their size on screen, once without hysteresis
+ * and once with it. The camera sways back and forth the whole time, so spheres
+ * near a threshold keep crossing it, and the number of level changes shows
+ * how well the hysteresis holds them steady.
+ */
+public class LodBenchmark implements Logic {
+    // The rings and segments of the sphere, and its levels of detail.
+    private static final int RINGS = 128;
+    private static final int SEGMENTS = 256;
+    private static final int LEVELS = 4;
+
+    // The number of spheres along each side of the field, and the spacing between them.
+    private static final int SIDE = 24;
+    private static final float SPACING = 6;
+
+    // The number of frames to skip before timing and the number of frames to time in each phase.
+    private static final int WARMUP_FRAMES = 30;
+    private static final int TIMED_FRAMES = 240;
+
+    // The names of the phases.
+    private static final String[] PHASES = {"full detail", "lod, no hysteresis", "lod"};
+
+    private final RenderManager renderer;
+    private final WindowManager window;
+    private final ObjectLoader loader;
+
+    private LodModel model;
+    private Entity[] entities;
+
+    // The current frame and the totals of each phase.
+    private int frame;
+    private final long[] time, triangles, saved, levelChanges;
+
+    public LodBenchmark() {
+        renderer = new RenderManager();
+        window = App.getWindow();
+        loader = new ObjectLoader();
+        time = new long[PHASES.length];
+        triangles = new long[PHASES.length];
+        saved = new long[PHASES.length];
+        levelChanges = new long[PHASES.length];
+    }
+
+    @Override
+    public void init() throws Exception {
+        renderer.init();
+
+        MeshData sphere = createSphere(RINGS, SEGMENTS);
+        long start = System.nanoTime();
+        try {
+            model = loader.loadLodModel(sphere, VertexFormat.POSITION_UV_NORMAL, LEVELS);
+        } finally {
+            sphere.free();
+        }
+        System.out.printf("generated %d levels in %.2f ms:", LEVELS, (System.nanoTime() - start) / 1e6);
+        for (int i = 0; i < LEVELS; i++) System.out.printf(" %d", model.getLevel(i).getVertexCount() / 3);
+        System.out.println(" triangles");
+
+        // Spreads the spheres over a field stretching away from the camera.
+        entities = new Entity[SIDE * SIDE];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = new Entity(model.getLevel(0));
+            entities[i].setPosition((i % SIDE - SIDE / 2f) * SPACING, -2, -(i / SIDE) * SPACING - 4);
+        }
+    }
+
+    @Override
+    public void input() {}
+
+    @Override
+    public void update() {}
+
+    @Override
+    public void render() {
+        int perPhase = WARMUP_FRAMES + TIMED_FRAMES;
+        int phase = frame / perPhase;
+        int phaseFrame = frame % perPhase;
+
+        // Switches the spheres to the level of detail model and sets the phase's hysteresis.
+        if (phaseFrame == 0 && phase > 0) {
+            model.setHysteresis(phase == 1 ? 0 : LodModel.DEFAULT_HYSTERESIS);
+            for (Entity entity : entities) entity.setModel(model);
+        }
+        renderer.getCamera().setPosition(0, 0, (float) Math.sin(frame * 0.05) * SPACING);
+
+        renderer.clear();
+        long start = System.nanoTime();
+
+        int changes = 0;
+        for (Entity entity : entities) {
+            int level = entity.getLodLevel();
+            renderer.submit(entity);
+            if (level >= 0 && level != entity.getLodLevel()) changes++;
+        }
+        renderer.flush();
+
+        GL11.glFinish();
+        long elapsed = System.nanoTime() - start;
+
+        if (phaseFrame >= WARMUP_FRAMES) {
+            time[phase] += elapsed;
+            triangles[phase] += renderer.getStats().getTriangles();
+            saved[phase] += renderer.getStats().getLodSavedTriangles();
+            levelChanges[phase] += changes;
+        }
+
+        if (++frame == perPhase * PHASES.length) {
+            report();
+            GLFW.glfwSetWindowShouldClose(window.getWindow(), true);
+        }
+    }
+
+    /** Prints the frame time, triangles, and level changes of every phase. */
+    private void report() {
+        System.out.printf("%d spheres over %d frames%n", entities.length, TIMED_FRAMES);
+        for (int i = 0; i < PHASES.length; i++) {
+            long full = triangles[i] + saved[i];
+            System.out.printf("  %-19s %.3f ms/frame, %d triangles/frame (%.1f%% fewer), %d level changes%n", PHASES[i] + ":",
+                time[i] / (double) TIMED_FRAMES / 1e6, triangles[i] / TIMED_FRAMES, 100.0 * saved[i] / full, levelChanges[i]);
+        }
+    }
+
+    /**
+     * Creates a unit UV sphere.
+     *
+     * @param rings - The number of rings from pole to pole.
+     * @param segments - The number of segments around each ring.
+     * @return - The mesh data, which must be freed.
+     */
+    static MeshData createSphere(int rings, int segments) {
+        MeshData mesh = new MeshData((rings + 1) * (segments + 1), rings * segments * 6);
+        for (int r = 0; r <= rings; r++) {
+            double theta = Math.PI * r / rings;
+            for (int s = 0; s <= segments; s++) {
+                double phi = 2 * Math.PI * s / segments;
+                float x = (float) (Math.sin(theta) * Math.cos(phi));
+                float y = (float) Math.cos(theta);
+                float z = (float) (Math.sin(theta) * Math.sin(phi));
+                mesh.addVertex(x, y, z, s / (float) segments, r / (float) rings, x, y, z);
+            }
+        }
+
+        for (int r = 0; r < rings; r++) {
+            for (int s = 0; s < segments; s++) {
+                int a = r * (segments + 1) + s, b = a + segments + 1;
+                mesh.addIndex(a);
+                mesh.addIndex(b);
+                mesh.addIndex(a + 1);
+                mesh.addIndex(a + 1);
+                mesh.addIndex(b);
+                mesh.addIndex(b + 1);
+            }
+        }
+        return mesh;
+    }
+
+    @Override
+    public void cleanup() {
+        renderer.cleanup();
+        loader.cleanup();
+    }
+}
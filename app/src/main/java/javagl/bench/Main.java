@@ -0,0 +1,67 @@
+package javagl.bench;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import javagl.App;
+import javagl.core.Logic;
+
+/**
+ * The entry point of the benchmarks that need a window and a GL context. Each
+ * benchmark runs in place of the test game, taking the same window options as
+ * the app after its name and argument.
+ *
+ * Usage: Main BENCHMARK [ARGUMENT] [--size WIDTHxHEIGHT] [--headless] [--frames N] [--capture DIRECTORY] [--threaded] [--fps N]
+ *
+ * "instancing" compares instanced drawing against a draw per entity,
+ * "meshload FILE" compares loading a source mesh against its precompiled
+ * formats, "textures N" loads N generated images, "cooked IMAGE" compares
+ * loading an image against loading it cooked, "shaders" compares cold and warm
+ * startups of the shader cache, and "lod" compares drawing at full detail
+ * against levels of detail. Benchmarks render without a frame cap unless
+ * "--fps N" is passed.
+ */
+public class Main {
+    // The usage printed when the arguments name no benchmark.
+    private static final String USAGE = "Usage: Main (instancing | meshload FILE | textures N | cooked IMAGE | shaders | lod)"
+        + " [--size WIDTHxHEIGHT] [--headless] [--frames N] [--capture DIRECTORY] [--threaded] [--fps N]";
+
+    public static void main(String[] args) {
+        if (args.length < 1) exit(USAGE);
+
+        // The benchmarks reading a file or count take it as the argument after their name.
+        String argument = args.length > 1 ? args[1] : null;
+        boolean hasArgument = args[0].equals("meshload") || args[0].equals("textures") || args[0].equals("cooked");
+        if (hasArgument && argument == null) exit(USAGE);
+
+        Supplier<Logic> benchmark;
+        switch (args[0]) {
+            case "instancing": benchmark = InstancingBenchmark::new; break;
+            case "meshload": benchmark = () -> new MeshLoadBenchmark(argument); break;
+            case "textures": benchmark = () -> new TextureLoadBenchmark(Integer.parseInt(argument)); break;
+            case "cooked": benchmark = () -> new CookedTextureBenchmark(argument); break;
+            case "shaders": benchmark = ShaderCacheBenchmark::new; break;
+            case "lod": benchmark = LodBenchmark::new; break;
+            default: exit("Unknown benchmark " + args[0] + "\n" + USAGE); return;
+        }
+
+        // Renders as fast as possible unless a frame cap is passed, so the monitor's rate doesn't hide the cost of a frame.
+        String[] options = Arrays.copyOfRange(args, hasArgument ? 2 : 1, args.length);
+        if (!Arrays.asList(options).contains("--fps")) {
+            options = Arrays.copyOf(options, options.length + 2);
+            options[options.length - 2] = "--fps";
+            options[options.length - 1] = "0";
+        }
+        App.run(options, benchmark);
+    }
+
+    /**
+     * Prints an error and exits with a failure status.
+     *
+     * @param message - The error to print.
+     */
+    private static void exit(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,104 @@
+package javagl.bench;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL11;
+
+import javagl.App;
+import javagl.core.Logic;
+import javagl.core.ObjectLoader;
+import javagl.core.mesh.MeshData;
+import javagl.core.mesh.MeshFile;
+import javagl.tools.MeshConverter;
+
+/**
+ * A benchmark comparing model load times. A source mesh is parsed into float
+ * arrays and loaded through the original float[] path, then converted into
+ * binary mesh files which are loaded once cold and then repeatedly while warm.
+ */
+public class MeshLoadBenchmark implements Logic {
+    // The number of loads that are averaged for each warm measurement.
+    private static final int WARM_LOADS = 20;
+
+    // The source mesh to load.
+    private final String filename;
+
+    private final ObjectLoader loader;
+
+    public MeshLoadBenchmark(String filename) {
+        this.filename = filename;
+        loader = new ObjectLoader();
+    }
+
+    @Override
+    public void init() throws Exception {
+        // Times parsing the source and uploading it from Java arrays, as a hand-built model would be.
+        long start = System.nanoTime();
+        MeshData mesh = MeshConverter.load(filename);
+        float[] positions = new float[mesh.getVertexCount() * 3];
+        float[] textureCoords = new float[mesh.getVertexCount() * 2];
+        int[] indices = new int[mesh.getIndexCount()];
+        mesh.getPositions().get(positions);
+        mesh.getTextureCoords().get(textureCoords);
+        mesh.getIndices().get(indices);
+        loader.loadModel(positions, textureCoords, indices);
+        GL11.glFinish();
+        long source = System.nanoTime() - start;
+
+        System.out.printf("%s: %d vertices, %d indices%n", filename, mesh.getVertexCount(), mesh.getIndexCount());
+        System.out.printf("  float[] path:  %.2f ms%n", source / 1e6);
+
+        String[] names = {"uncompressed", "lz4", "zstd"};
+        int[] modes = {MeshFile.COMPRESSION_NONE, MeshFile.COMPRESSION_LZ4, MeshFile.COMPRESSION_ZSTD};
+
+        try {
+            for (int i = 0; i < modes.length; i++) {
+                File file = File.createTempFile("javagl", ".jglm");
+                file.deleteOnExit();
+                Path path = file.toPath();
+                MeshFile.write(mesh, path, modes[i]);
+
+                // The first load pays for faulting the file in; later loads hit the page cache.
+                double cold = timeLoad(path.toString());
+                double warm = 0;
+                for (int j = 0; j < WARM_LOADS; j++) warm += timeLoad(path.toString());
+
+                System.out.printf("  %-13s %.2f ms cold, %.2f ms warm, %d bytes%n",
+                    names[i] + ":", cold, warm / WARM_LOADS, file.length());
+            }
+        } finally {
+            mesh.free();
+        }
+    }
+
+    /**
+     * Loads a mesh file and waits for the upload to finish.
+     *
+     * @param path - The path of the mesh file.
+     * @return - The time taken in milliseconds.
+     */
+    private double timeLoad(String path) throws Exception {
+        long start = System.nanoTime();
+        loader.loadMeshFile(path);
+        GL11.glFinish();
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    @Override
+    public void input() {}
+
+    @Override
+    public void update() {}
+
+    @Override
+    public void render() {
+        GLFW.glfwSetWindowShouldClose(App.getWindow().getWindow(), true);
+    }
+
+    @Override
+    public void cleanup() {
+        loader.cleanup();
+    }
+}
@@ -0,0 +1,97 @@
+package javagl.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.lwjgl.glfw.GLFW;
+
+import javagl.App;
+import javagl.core.Logic;
+import javagl.core.managers.ShaderManager;
+import javagl.core.shader.ShaderCache;
+
+/**
+ * A benchmark comparing a cold startup, where every shader program is compiled
+ * from source, against a warm startup loading the binaries the cold startup
+ * saved. Each program is also loaded with several sets of defines, standing in
+ * for the variants a larger renderer would compile.
+ */
+public class ShaderCacheBenchmark implements Logic {
+    // The vertex and fragment shader of every program.
+    private static final String[][] PROGRAMS = {
+        {"/shaders/vertex.vs", "/shaders/fragment.fs"},
+        {"/shaders/array.vs", "/shaders/array.fs"},
+        {"/shaders/instanced.vs", "/shaders/instanced.fs"},
+        {"/shaders/ui.vs", "/shaders/ui.fs"},
+    };
+
+    // The number of define variants of each program.
+    private static final int VARIANTS = 8;
+
+    @Override
+    public void init() throws Exception {
+        Path directory = Files.createTempDirectory("javagl-shaders");
+        directory.toFile().deleteOnExit();
+
+        ShaderCache cold = new ShaderCache(directory);
+        if (!cold.isSupported()) System.out.println("Program binaries are not supported by the driver");
+        report("cold", cold, loadAll(cold));
+        cold.cleanup();
+
+        ShaderCache warm = new ShaderCache(directory);
+        report("warm", warm, loadAll(warm));
+        warm.cleanup();
+
+        for (File file : directory.toFile().listFiles()) file.deleteOnExit();
+        GLFW.glfwSetWindowShouldClose(App.getWindow().getWindow(), true);
+    }
+
+    /**
+     * Loads every variant of every program through a cache, then deletes them.
+     *
+     * @param cache - The cache to load through.
+     * @return - The number of programs loaded.
+     * @throws Exception - An exception caused by compiling or linking a program.
+     */
+    private static int loadAll(ShaderCache cache) throws Exception {
+        List<ShaderManager> shaders = new ArrayList<ShaderManager>();
+        for (String[] program : PROGRAMS) {
+            for (int variant = 0; variant < VARIANTS; variant++) {
+                Map<String, String> defines = Collections.singletonMap("VARIANT", Integer.toString(variant));
+                shaders.add(cache.load(program[0], program[1], defines));
+            }
+        }
+
+        for (ShaderManager shader : shaders) shader.cleanup();
+        return shaders.size();
+    }
+
+    /**
+     * Prints the time a cache spent loading and where its programs came from.
+     *
+     * @param name - The name of the startup.
+     * @param cache - The cache the programs were loaded through.
+     * @param programs - The number of programs loaded.
+     */
+    private static void report(String name, ShaderCache cache, int programs) {
+        System.out.printf("%s: %d programs in %.2f ms (%d from binaries, %d compiled, %d binaries rejected)%n",
+            name, programs, cache.getLoadTime() / 1e6, cache.getHits(), cache.getMisses(), cache.getRejected());
+    }
+
+    @Override
+    public void input() {}
+
+    @Override
+    public void update() {}
+
+    @Override
+    public void render() {}
+
+    @Override
+    public void cleanup() {}
+}
@@ -0,0 +1,115 @@
+package javagl.bench;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.stb.STBImageWrite;
+
+import javagl.App;
+import javagl.core.Logic;
+import javagl.core.ObjectLoader;
+import javagl.core.entity.Texture;
+import javagl.core.memory.NativeAllocator;
+
+/**
+ * A benchmark comparing blocking texture loads against the asynchronous loader.
+ * A set of noise images is written to a temporary directory, loaded one after
+ * another on the GL thread, then loaded again in the background while frames
+ * keep rendering with a fixed upload budget.
+ */
+public class TextureLoadBenchmark implements Logic {
+    // The size of each generated image and the upload budget of each frame.
+    private static final int IMAGE_SIZE = 256;
+    private static final long UPLOAD_BUDGET = 4_000_000;
+
+    // The number of images to load.
+    private final int count;
+
+    private final ObjectLoader loader;
+
+    // The generated image files and the futures of their asynchronous loads.
+    private final List<String> files;
+    private final List<CompletableFuture<Texture>> futures;
+
+    // The time the asynchronous loads started, the last frame time, and the frame statistics.
+    private long asyncStart, lastFrame, worstFrame;
+    private int frames;
+
+    public TextureLoadBenchmark(int count) {
+        this.count = count;
+        loader = new ObjectLoader();
+        files = new ArrayList<String>();
+        futures = new ArrayList<CompletableFuture<Texture>>();
+    }
+
+    @Override
+    public void init() throws Exception {
+        File directory = Files.createTempDirectory("javagl-textures").toFile();
+        directory.deleteOnExit();
+
+        // Writes noise images, which compress poorly and so take a realistic time to decode.
+        Random random = new Random(1);
+        ByteBuffer pixels = NativeAllocator.malloc(IMAGE_SIZE * IMAGE_SIZE * 4);
+        try {
+            for (int i = 0; i < count; i++) {
+                for (int p = 0; p < pixels.capacity(); p++) pixels.put(p, (byte) random.nextInt(256));
+
+                File file = new File(directory, "texture_" + i + ".png");
+                file.deleteOnExit();
+                STBImageWrite.stbi_write_png(file.getPath(), IMAGE_SIZE, IMAGE_SIZE, 4, pixels, IMAGE_SIZE * 4);
+                files.add(file.getPath());
+            }
+        } finally {
+            NativeAllocator.free(pixels);
+        }
+
+        // Loads every texture on the GL thread, which is how long a blocking startup would freeze.
+        long start = System.nanoTime();
+        for (String file : files) loader.loadTexture(file);
+        GL11.glFinish();
+        System.out.printf("%d textures of %dx%d%n", count, IMAGE_SIZE, IMAGE_SIZE);
+        System.out.printf("  blocking: %.2f ms with no frames drawn%n", (System.nanoTime() - start) / 1e6);
+
+        asyncStart = System.nanoTime();
+        for (String file : files) futures.add(loader.loadTextureAsync(file));
+        lastFrame = System.nanoTime();
+    }
+
+    @Override
+    public void input() {}
+
+    @Override
+    public void update() {}
+
+    @Override
+    public void render() {
+        loader.processUploads(UPLOAD_BUDGET);
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+
+        long now = System.nanoTime();
+        worstFrame = Math.max(worstFrame, now - lastFrame);
+        lastFrame = now;
+        frames++;
+
+        for (CompletableFuture<Texture> future : futures) {
+            if (!future.isDone()) return;
+        }
+
+        GL11.glFinish();
+        System.out.printf("  async:    %.2f ms over %d frames, worst frame %.2f ms%n",
+            (System.nanoTime() - asyncStart) / 1e6, frames, worstFrame / 1e6);
+        GLFW.glfwSetWindowShouldClose(App.getWindow().getWindow(), true);
+    }
+
+    @Override
+    public void cleanup() {
+        loader.cleanup();
+    }
+}
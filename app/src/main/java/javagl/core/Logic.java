@@ -12,12 +12,22 @@ public interface Logic {
     /** Handles input to the game window. */
     void input();
 
-    /** Updates the window every frame. */
+    /** Updates the game state once per fixed timestep. */
     void update();
 
     /** Renders elements to the screen. */
     void render();
 
+    /**
+     * Renders elements to the screen, interpolated between the last two updates.
+     * By default the interpolation is ignored.
+     * 
+     * @param alpha - How far the frame is between the last update and the next one, from 0 to 1.
+     */
+    default void render(float alpha) {
+        render();
+    }
+
     /** Cleans up the window on close or crash. */
     void cleanup();
 }
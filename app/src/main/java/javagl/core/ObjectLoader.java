@@ -3,29 +3,59 @@ package javagl.core;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import org.joml.primitives.AABBf;
+import org.joml.primitives.Spheref;
 import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
-import org.lwjgl.stb.STBImage;
-import org.lwjgl.system.MemoryStack;
 
+import javagl.core.culling.Bounds;
+import javagl.core.entity.DynamicModel;
+import javagl.core.entity.LodModel;
 import javagl.core.entity.Model;
+import javagl.core.entity.Texture;
+import javagl.core.memory.NativeAllocator;
+import javagl.core.memory.ScratchArena;
+import javagl.core.mesh.AssimpImporter;
+import javagl.core.mesh.MeshData;
+import javagl.core.mesh.MeshFile;
+import javagl.core.mesh.MeshOptimizer;
+import javagl.core.mesh.MeshSimplifier;
+import javagl.core.mesh.ObjParser;
+import javagl.core.mesh.VertexFormat;
+import javagl.core.texture.AtlasRegion;
+import javagl.core.texture.Image;
+import javagl.core.texture.TextureArray;
+import javagl.core.texture.TextureAtlas;
+import javagl.core.texture.TextureFile;
+import javagl.core.texture.TextureLoader;
 import javagl.core.utils.Utils;
 
 /** The main class for loading objects, such as VAOs, VBOs, and textures. */
 public class ObjectLoader {
-    // A list of VAOs (vertex array objects).
-    private List<Integer> vaos = new ArrayList<Integer>();
+    // The VAOs (vertex array objects) and the VBOs (vertex buffer objects) each one owns.
+    private Map<Integer, List<Integer>> vaos = new LinkedHashMap<Integer, List<Integer>>();
 
-    // A list of VBOs (vertex buffer objects).
-    private List<Integer> vbos = new ArrayList<Integer>();
+    // The GPU memory used by the buffers of each VAO, in bytes.
+    private Map<Integer, Long> modelMemory = new LinkedHashMap<Integer, Long>();
 
-    // A list of texture IDs.
-    private List<Integer> textures = new ArrayList<Integer>();
+    // The GPU memory used by each loaded texture, in bytes.
+    private Map<Integer, Long> textureMemory = new LinkedHashMap<Integer, Long>();
+
+    // The background loader for textures, created on first use.
+    private TextureLoader textureLoader;
+
+    // A list of models whose geometry is rewritten every frame.
+    private List<DynamicModel> dynamicModels = new ArrayList<DynamicModel>();
 
     /**
      * Loads a model from a set of vertices and a set
@@ -33,82 +63,551 @@ public class ObjectLoader {
      * render specific vertices.
      * 
      * @param vertices - The list of vertices. 
+     * @param textureCoords - The texture coordinate of each vertex.
      * @param indices - The order of vertices to render in the "vertices" array.
      * @return - The completed Model object.
      */
     public Model loadModel(float[] vertices, float[] textureCoords, int[] indices) {
-        // Creates a new VAO with a new ID.
-        int id = createVAO();
+        return loadModel(VertexFormat.POSITION_UV, new float[][] {vertices, textureCoords}, indices);
+    }
+
+    /**
+     * Loads a model textured from one region of a texture atlas. The texture
+     * coordinates cover the region's image from 0 to 1 and are remapped into
+     * the atlas, so models from the same atlas share one texture binding.
+     * 
+     * @param vertices - The list of vertices.
+     * @param textureCoords - The texture coordinate of each vertex within the image.
+     * @param indices - The order of vertices to render.
+     * @param atlas - The built atlas the image was packed into.
+     * @param region - The region of the image in the atlas.
+     * @return - The completed Model object, textured with the atlas.
+     */
+    public Model loadModel(float[] vertices, float[] textureCoords, int[] indices, TextureAtlas atlas, AtlasRegion region) {
+        Model model = loadModel(vertices, region.remap(textureCoords), indices);
+        return new Model(model, atlas.getTexture());
+    }
+
+    /**
+     * Loads a model textured from one layer of a texture array. The layer is
+     * stored in the texture coordinates, so the model must be drawn with the
+     * RenderManager's array shader.
+     * 
+     * @param vertices - The list of vertices.
+     * @param textureCoords - The texture coordinate of each vertex within the layer.
+     * @param indices - The order of vertices to render.
+     * @param array - The texture array holding the image.
+     * @param layer - The layer of the image.
+     * @return - The completed Model object, textured with the array.
+     */
+    public Model loadModel(float[] vertices, float[] textureCoords, int[] indices, TextureArray array, int layer) {
+        float[][] attributes = {vertices, TextureArray.remap(textureCoords, layer)};
+        Model model = loadModel(VertexFormat.POSITION_UV_LAYER, attributes, indices);
+        return new Model(model, array.getTexture());
+    }
+
+    /**
+     * Loads a model with any vertex format. The attributes are interleaved
+     * and encoded into a single VBO according to the format.
+     * 
+     * @param format - The vertex format of the model.
+     * @param attributes - The data of each attribute of the format, in order.
+     * @param indices - The order of vertices to render.
+     * @return - The completed Model object.
+     */
+    public Model loadModel(VertexFormat format, float[][] attributes, int[] indices) {
+        FloatBuffer[] sources = new FloatBuffer[attributes.length];
+        for (int i = 0; i < attributes.length; i++) sources[i] = FloatBuffer.wrap(attributes[i]);
+
+        int vertexCount = attributes[0].length / format.getAttribute(0).getComponents();
+        try (ScratchArena arena = ScratchArena.stackPush()) {
+            return loadModel(format, sources, vertexCount, Utils.storeDataInIntBuffer(arena, indices));
+        }
+    }
+
+    /**
+     * Loads a model from off-heap mesh data, uploading its positions,
+     * texture coordinates, and normals to attributes 0, 1, and 2.
+     * 
+     * @param mesh - The mesh data to upload.
+     * @return - The completed Model object.
+     */
+    public Model loadModel(MeshData mesh) {
+        return loadModel(mesh, VertexFormat.POSITION_UV_NORMAL);
+    }
+
+    /**
+     * Loads a model from off-heap mesh data with a specific vertex format. The
+     * format's attributes take the positions, texture coordinates, and normals
+     * of the mesh in that order, so a format with two attributes drops the normals.
+     * 
+     * @param mesh - The mesh data to upload.
+     * @param format - The vertex format of the model.
+     * @return - The completed Model object.
+     */
+    public Model loadModel(MeshData mesh, VertexFormat format) {
+        return loadModel(format, getSources(mesh, format), mesh.getVertexCount(), mesh.getIndices());
+    }
+
+    /**
+     * Loads a model from off-heap mesh data along with simpler levels of detail,
+     * made by clustering its vertices into coarser and coarser grids. Every level
+     * shares the vertices of the full mesh and is stored in a single index buffer.
+     * 
+     * @param mesh - The mesh data to upload.
+     * @param format - The vertex format of the model.
+     * @param levels - The number of levels of detail, including the full mesh.
+     * @return - The completed LodModel object.
+     */
+    public LodModel loadLodModel(MeshData mesh, VertexFormat format, int levels) {
+        if (levels < 1) throw new IllegalArgumentException("A model needs at least one level of detail");
+
+        IntBuffer[] simplified = new IntBuffer[levels];
+        int[] indexCounts = new int[levels];
+        IntBuffer indices = null;
+        try {
+            int total = 0;
+            for (int i = 0; i < levels; i++) {
+                simplified[i] = i == 0 ? mesh.getIndices() : MeshSimplifier.simplify(mesh.getPositions(), mesh.getIndices(),
+                    mesh.getVertexCount(), MeshSimplifier.getGridSize(mesh.getVertexCount(), i));
+                indexCounts[i] = simplified[i].remaining();
+                total += indexCounts[i];
+            }
+
+            // Stores every level one after another, so each is a range of the same buffer.
+            indices = NativeAllocator.mallocInt(total);
+            for (IntBuffer level : simplified) indices.put(level.duplicate());
+            indices.flip();
+
+            FloatBuffer[] sources = getSources(mesh, format);
+            int id = upload(format, sources, mesh.getVertexCount(), indices, indexCounts);
+            LodModel model = new LodModel(id, format, getIndexType(mesh.getVertexCount()), indexCounts);
+            setBounds(model, format, sources, mesh.getVertexCount());
+            return model;
+        } finally {
+            for (int i = 1; i < levels; i++) if (simplified[i] != null) NativeAllocator.free(simplified[i]);
+            if (indices != null) NativeAllocator.free(indices);
+        }
+    }
+
+    /**
+     * Returns the attributes of mesh data that a vertex format takes. The
+     * format's attributes take the positions, texture coordinates, and normals
+     * of the mesh in that order.
+     * 
+     * @param mesh - The mesh data.
+     * @param format - The vertex format.
+     * @return - The data of each attribute of the format.
+     */
+    private static FloatBuffer[] getSources(MeshData mesh, VertexFormat format) {
+        FloatBuffer[] available = {mesh.getPositions(), mesh.getTextureCoords(), mesh.getNormals()};
+        if (format.getAttributeCount() > available.length) throw new IllegalArgumentException("Mesh data only has three attributes");
+
+        FloatBuffer[] sources = new FloatBuffer[format.getAttributeCount()];
+        System.arraycopy(available, 0, sources, 0, sources.length);
+        return sources;
+    }
+
+    /**
+     * Packs attribute data into an interleaved buffer and uploads it.
+     * 
+     * @param format - The vertex format of the model.
+     * @param sources - The data of each attribute of the format, in order.
+     * @param vertexCount - The number of vertices.
+     * @param indices - The order of vertices to render.
+     * @return - The completed Model object.
+     */
+    private Model loadModel(VertexFormat format, FloatBuffer[] sources, int vertexCount, IntBuffer indices) {
+        // Returns a new model with the proper amount of vertices, bounded by its positions.
+        int id = upload(format, sources, vertexCount, indices, new int[] {indices.remaining()});
+        Model model = new Model(id, indices.remaining(), format, getIndexType(vertexCount));
+        setBounds(model, format, sources, vertexCount);
+        return model;
+    }
+
+    /**
+     * Packs attribute data into an interleaved buffer and uploads it with its
+     * indices into a new VAO. The triangles of each draw range are reordered
+     * for the vertex cache and the vertices into the order they are drawn, and
+     * the indices are stored as shorts when every vertex fits in 16 bits.
+     * 
+     * @param format - The vertex format of the model.
+     * @param sources - The data of each attribute of the format, in order.
+     * @param vertexCount - The number of vertices.
+     * @param indices - The order of vertices to render, which is left unchanged.
+     * @param ranges - The number of indices of each range drawn on its own, one after another.
+     * @return - The ID of the VAO.
+     */
+    private int upload(VertexFormat format, FloatBuffer[] sources, int vertexCount, IntBuffer indices, int[] ranges) {
+        try (ScratchArena arena = ScratchArena.stackPush()) {
+            ByteBuffer vertices = arena.malloc(vertexCount * format.getStride());
+            format.pack(sources, vertexCount, vertices);
+            vertices.flip();
+
+            // Optimizes a copy of the indices, since the caller still owns them.
+            IntBuffer optimized = arena.mallocInt(indices.remaining());
+            optimized.put(indices.duplicate()).flip();
+            int start = 0;
+            for (int count : ranges) {
+                MeshOptimizer.optimizeVertexCache(optimized.duplicate().position(start).limit(start + count), vertexCount);
+                start += count;
+            }
+            MeshOptimizer.optimizeVertexFetch(optimized, vertices, format.getStride(), vertexCount);
+
+            // Creates a new VAO and stores the indices and interleaved vertices in it.
+            int id = createVAO();
+            if (getIndexType(vertexCount) == GL11.GL_UNSIGNED_SHORT) {
+                ByteBuffer shorts = arena.malloc(optimized.remaining() * Short.BYTES);
+                for (int i = 0; i < optimized.remaining(); i++) shorts.putShort((short) optimized.get(i));
+                shorts.flip();
+                storeIndicesBuffer(id, shorts);
+            } else {
+                storeIndicesBuffer(id, optimized);
+            }
+            storeVertexBuffer(id, format, vertices);
+            unbind();
+            return id;
+        }
+    }
+
+    /**
+     * Picks the smallest index type that can address every vertex, since
+     * 16-bit indices halve the size of the index buffer and the bandwidth
+     * spent reading it.
+     * 
+     * @param vertexCount - The number of vertices.
+     * @return - GL_UNSIGNED_SHORT if every index fits in 16 bits, otherwise GL_UNSIGNED_INT.
+     */
+    private static int getIndexType(int vertexCount) {
+        return vertexCount <= 1 << 16 ? GL11.GL_UNSIGNED_SHORT : GL11.GL_UNSIGNED_INT;
+    }
+
+    /**
+     * Computes the bounds of a model from the positions it was packed from.
+     * 
+     * @param model - The model.
+     * @param format - The vertex format of the model, whose first attribute is the position.
+     * @param sources - The data of each attribute of the format, in order.
+     * @param vertexCount - The number of vertices.
+     */
+    private static void setBounds(Model model, VertexFormat format, FloatBuffer[] sources, int vertexCount) {
+        AABBf bounds = new AABBf();
+        Spheref sphere = new Spheref();
+        Bounds.compute(sources[0], format.getAttribute(0).getComponents(), vertexCount, bounds, sphere);
+        model.setBounds(bounds, sphere);
+    }
+
+    /**
+     * Loads a model from a Wavefront OBJ file. The file is parsed straight into
+     * off-heap buffers, with repeated vertices shared through the index buffer.
+     * 
+     * @param filename - The path of the OBJ file.
+     * @return - The completed Model object.
+     * @throws Exception - Any exception thrown while reading or parsing the file.
+     */
+    public Model loadObj(String filename) throws Exception {
+        MeshData mesh = ObjParser.parse(filename);
+        try {
+            return loadModel(mesh);
+        } finally {
+            mesh.free();
+        }
+    }
+
+    /**
+     * Loads a model from the contents of a Wavefront OBJ file that are already in memory.
+     * 
+     * @param contents - The contents of the OBJ file.
+     * @return - The completed Model object.
+     * @throws Exception - Any exception thrown while parsing the file.
+     */
+    public Model loadObj(ByteBuffer contents) throws Exception {
+        MeshData mesh = ObjParser.parse(contents);
+        try {
+            return loadModel(mesh);
+        } finally {
+            mesh.free();
+        }
+    }
+
+    /**
+     * Loads every mesh in a file of any format that Assimp can read.
+     * 
+     * @param filename - The path of the file.
+     * @return - A list with one Model for each mesh in the file.
+     * @throws Exception - Any exception thrown while importing the file.
+     */
+    public List<Model> loadMeshes(String filename) throws Exception {
+        List<MeshData> meshes = AssimpImporter.load(filename);
+        List<Model> models = new ArrayList<Model>(meshes.size());
+
+        try {
+            for (MeshData mesh : meshes) models.add(loadModel(mesh));
+        } finally {
+            for (MeshData mesh : meshes) mesh.free();
+        }
+        return models;
+    }
+
+    /**
+     * Loads a model from a precompiled binary mesh file. Uncompressed files are
+     * memory-mapped and passed straight to glBufferData without any copies, and
+     * the interleaved vertices are uploaded into a single VBO.
+     * 
+     * @param filename - The path of the mesh file.
+     * @return - The completed Model object.
+     * @throws Exception - Any exception thrown while reading the file.
+     */
+    public Model loadMeshFile(String filename) throws Exception {
+        return loadMeshFile(MeshFile.open(Paths.get(filename)));
+    }
+
+    /**
+     * Loads a model from the contents of a precompiled binary mesh file that
+     * are already in memory.
+     * 
+     * @param contents - The contents of the mesh file.
+     * @param name - The name of the file, for errors.
+     * @return - The completed Model object.
+     * @throws Exception - Any exception thrown while reading the file.
+     */
+    public Model loadMeshFile(ByteBuffer contents, String name) throws Exception {
+        return loadMeshFile(MeshFile.read(contents, name));
+    }
+
+    /**
+     * Uploads the vertices and indices of an opened mesh file and closes it.
+     * 
+     * @param file - The mesh file.
+     * @return - The completed Model object.
+     * @throws Exception - An exception caused by an unsupported vertex layout.
+     */
+    private Model loadMeshFile(MeshFile file) throws Exception {
+        try {
+            VertexFormat format = VertexFormat.POSITION_UV_NORMAL;
+            if (file.getStride() != format.getStride()) throw new Exception("Unsupported vertex stride " + file.getStride());
 
-        // Stores the indices in a buffer and then makes an attribute list. 
-        storeIndicesBuffer(indices);
-        storeDataInAttributeList(0, 3, vertices);
-        storeDataInAttributeList(1, 2, textureCoords);
-        unbind();
+            int id = createVAO();
+            storeIndicesBuffer(id, file.getIndices());
+            storeVertexBuffer(id, format, file.getVertices());
+            unbind();
 
-        // Returns a new model with the proper amount of vertices.
-        return new Model(id, indices.length);
+            Model model = new Model(id, file.getIndexCount(), format);
+            AABBf bounds = new AABBf();
+            Spheref sphere = new Spheref();
+            Bounds.compute(file.getVertices(), file.getStride(), file.getVertexCount(), bounds, sphere);
+            model.setBounds(bounds, sphere);
+            return model;
+        } finally {
+            file.close();
+        }
     }
 
     /**
-     * Loads a new texture from the specified filename. 
+     * Creates a model whose geometry can be rewritten every frame through
+     * streaming buffers, instead of being uploaded once into static VBOs.
      * 
-     * Note that the texture has to be located 
-     * absolutely in the filepath as of right now due to 
-     * stbi_load's implementation.
+     * @param format - The vertex format of the model.
+     * @param maxVertices - The largest number of vertices written in a frame.
+     * @param maxIndices - The largest number of indices written in a frame.
+     * @return - The new dynamic model, with nothing to draw until it is updated.
+     */
+    public DynamicModel createDynamicModel(VertexFormat format, int maxVertices, int maxIndices) {
+        DynamicModel model = new DynamicModel(format, maxVertices, maxIndices);
+        dynamicModels.add(model);
+        return model;
+    }
+
+    /**
+     * Loads a new texture from the specified filename. The name
+     * can be a file path or a resource on the classpath, such as
+     * "/textures/cobblestone.png". This blocks until the image is
+     * decoded and uploaded; use loadTextureAsync to load without
+     * stalling the frame.
      * 
      * @param filename - The filename of the texture to load.
      * @return - The ID of the texture loaded.
      * @throws Exception - Any exception thrown during loading the file or allocating memory.
      */
     public int loadTexture(String filename) throws Exception {
-        // The width and height of the texture.
-        int width, height;
-
-        // A buffer for storing the bytes of the image.
-        ByteBuffer buffer;
-
-        // Attempts to allocate memory for texture dimensions and channels.
-        try (
-            MemoryStack stack = MemoryStack.stackPush()
-        ) {
-            // Stores the width, height, and channels of the texture.
-            IntBuffer w = stack.mallocInt(1);
-            IntBuffer h = stack.mallocInt(1);
-            IntBuffer c = stack.mallocInt(1);
-
-            // Attempts to load the bytes from the filename.
-            buffer = STBImage.stbi_load(filename, w, h, c, 4);
-            if (buffer == null) throw new Exception("Image file " + filename + " unable to be loaded");
-
-            // Fetches the width and height of the texture from their respective buffers.
-            width = w.get();
-            height = h.get();
+        // Reads the bytes of the file and decodes them into RGBA pixels.
+        ByteBuffer data = Utils.loadBinaryResource(filename);
+        try {
+            return loadTexture(data, filename);
+        } finally {
+            NativeAllocator.free(data);
         }
+    }
 
-        // Generates a new texture ID for the new texture.
-        int id = GL11.glGenTextures();
-        textures.add(id);
-        
-        // Binds the texture to the GL11 context.
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
-        GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+    /**
+     * Loads a texture from the contents of an image file that are already in memory.
+     * 
+     * @param contents - The contents of the image file.
+     * @param name - The name of the file, for errors.
+     * @return - The ID of the texture loaded.
+     * @throws Exception - An exception caused by decoding the image.
+     */
+    public int loadTexture(ByteBuffer contents, String name) throws Exception {
+        Image image = Image.decode(contents, name);
 
-        // Generates a new texture from the width, height, and buffer contents.
-        GL11.glTexImage2D(
-            GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, 
-            width, height, 0, 
-            GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buffer
-        );
+        // Uploads the pixels into a new mipmapped texture and frees them.
+        try {
+            int id = TextureLoader.upload(image);
 
-        // Generates mipmaps for the new texture.
-        GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
+            // A full mip chain adds a third to the size of the first level.
+            textureMemory.put(id, (long) image.getWidth() * image.getHeight() * 4 * 4 / 3);
+            return id;
+        } finally {
+            image.free();
+        }
+    }
 
-        // Frees up the memory of the image buffer.
-        STBImage.stbi_image_free(buffer);
+    /**
+     * Loads a texture cooked by the TextureCooker tool. Every level of the mip
+     * chain is stored in the file already, compressed or not, so the levels are
+     * uploaded as they are with no decoding or mipmap generation.
+     * 
+     * @param filename - The file path or classpath resource of the texture file.
+     * @return - The ID of the texture loaded.
+     * @throws Exception - An exception caused by reading the file or by a format the GPU cannot sample.
+     */
+    public int loadCookedTexture(String filename) throws Exception {
+        return loadCookedTexture(TextureFile.open(filename), filename);
+    }
 
-        // Returns the new ID of the texture.
-        return id;
+    /**
+     * Loads a cooked texture from the contents of a texture file that are already in memory.
+     * 
+     * @param contents - The contents of the texture file.
+     * @param name - The name of the file, for errors.
+     * @return - The ID of the texture loaded.
+     * @throws Exception - An exception caused by reading the file or by a format the GPU cannot sample.
+     */
+    public int loadCookedTexture(ByteBuffer contents, String name) throws Exception {
+        return loadCookedTexture(TextureFile.read(contents, name), name);
+    }
+
+    /**
+     * Uploads every level of an opened texture file and closes it.
+     * 
+     * @param file - The texture file.
+     * @param name - The name of the file, for errors.
+     * @return - The ID of the texture loaded.
+     * @throws Exception - An exception caused by a format the GPU cannot sample.
+     */
+    private int loadCookedTexture(TextureFile file, String name) throws Exception {
+        try {
+            int format = file.getFormat();
+            if (!TextureFile.isSupported(format)) {
+                throw new Exception("Texture format " + TextureFile.getFormatName(format) + " of " + name + " is not supported by the GPU");
+            }
+
+            int id = GL11.glGenTextures();
+            GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
+
+            for (int level = 0; level < file.getLevelCount(); level++) {
+                int width = file.getLevelWidth(level);
+                int height = file.getLevelHeight(level);
+                if (format == TextureFile.FORMAT_RGBA8) {
+                    GL11.glTexImage2D(GL11.GL_TEXTURE_2D, level, GL11.GL_RGBA8, width, height, 0,
+                        GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, file.getLevel(level));
+                } else {
+                    GL13.glCompressedTexImage2D(GL11.GL_TEXTURE_2D, level, TextureFile.getGlFormat(format),
+                        width, height, 0, file.getLevel(level));
+                }
+            }
+
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, file.getLevelCount() - 1);
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER,
+                file.getLevelCount() > 1 ? GL11.GL_LINEAR_MIPMAP_LINEAR : GL11.GL_LINEAR);
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+            GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+
+            textureMemory.put(id, (long) file.getDataSize());
+            return id;
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Deletes a model's VAO and the buffers it owns, freeing its GPU memory
+     * before the loader is cleaned up. The model must not be drawn afterwards.
+     * 
+     * @param model - A model loaded by this loader.
+     */
+    public void deleteModel(Model model) {
+        List<Integer> buffers = vaos.remove(model.getId());
+        if (buffers == null) return;
+
+        for (int vbo : buffers) GL15.glDeleteBuffers(vbo);
+        GL30.glDeleteVertexArrays(model.getId());
+        modelMemory.remove(model.getId());
+    }
+
+    /**
+     * Deletes a texture loaded by this loader, freeing its GPU memory before
+     * the loader is cleaned up.
+     * 
+     * @param id - The ID of the texture.
+     */
+    public void deleteTexture(int id) {
+        if (textureMemory.remove(id) != null) GL11.glDeleteTextures(id);
+    }
+
+    /**
+     * Returns the GPU memory used by the buffers of a model loaded by this loader.
+     * 
+     * @param model - The model.
+     * @return - The size of the model's vertex and index buffers in bytes, or 0 if the model is unknown.
+     */
+    public long getModelMemory(Model model) {
+        return modelMemory.getOrDefault(model.getId(), 0L);
+    }
+
+    /**
+     * Returns the GPU memory used by a texture loaded by this loader.
+     * 
+     * @param id - The ID of the texture.
+     * @return - The size of every level of the texture in bytes, or 0 if the texture is unknown.
+     */
+    public long getTextureMemory(int id) {
+        return textureMemory.getOrDefault(id, 0L);
+    }
+
+    /**
+     * Returns the GPU memory used by every texture loaded by this loader.
+     * 
+     * @return - The total size of the textures in bytes.
+     */
+    public long getTextureMemory() {
+        long total = 0;
+        for (long bytes : textureMemory.values()) total += bytes;
+        return total;
+    }
+
+    /**
+     * Starts loading a texture on a background thread. The image is read
+     * and decoded off the GL thread, then uploaded by processUploads, which
+     * completes the returned future with the new texture.
+     * 
+     * @param filename - The file path or classpath resource of the texture.
+     * @return - A future that completes with the texture once it is uploaded.
+     */
+    public CompletableFuture<Texture> loadTextureAsync(String filename) {
+        if (textureLoader == null) textureLoader = new TextureLoader(Math.max(Runtime.getRuntime().availableProcessors() - 1, 1));
+        return textureLoader.load(filename);
+    }
+
+    /**
+     * Uploads textures that have finished decoding, stopping once the
+     * time budget is spent. This should be called once per frame.
+     * 
+     * @param budgetNanos - The time that can be spent uploading, in nanoseconds.
+     * @return - The number of textures uploaded.
+     */
+    public int processUploads(long budgetNanos) {
+        return textureLoader != null ? textureLoader.processUploads(budgetNanos) : 0;
     }
 
     /**
@@ -119,47 +618,70 @@ public class ObjectLoader {
      */
     private int createVAO() {
         int id = GL30.glGenVertexArrays();
-        vaos.add(id);
+        vaos.put(id, new ArrayList<Integer>(2));
+        modelMemory.put(id, 0L);
         GL30.glBindVertexArray(id);
         return id;
     }
 
     /**
-     * Stores an array of indices into a vertex
-     * buffer object and then stores the buffer into
-     * an element array.
+     * Stores a buffer of indices into a vertex buffer
+     * object and then stores the buffer into an 
+     * element array.
      * 
-     * @param indices - The array of indices to store.
+     * @param vao - The VAO the buffer belongs to.
+     * @param buffer - The buffer of indices to store.
      */
-    private void storeIndicesBuffer(int[] indices) {
-        int vbo = GL15.glGenBuffers();
-        vbos.add(vbo);
+    private void storeIndicesBuffer(int vao, IntBuffer buffer) {
+        int vbo = createVBO(vao, (long) buffer.remaining() * Integer.BYTES);
         GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vbo);
+        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
+    }
 
-        IntBuffer buffer = Utils.storeDataInIntBuffer(indices);
+    /**
+     * Stores a buffer of raw index bytes into an element array.
+     * 
+     * @param vao - The VAO the buffer belongs to.
+     * @param buffer - The bytes of the indices to store.
+     */
+    private void storeIndicesBuffer(int vao, ByteBuffer buffer) {
+        int vbo = createVBO(vao, buffer.remaining());
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vbo);
         GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
     }
 
     /**
-     * Creates a new attribute list with a VBO and then stores
-     * the attribute number and vertex count in tandem with the array
-     * of float data.
+     * Creates a single VBO holding interleaved vertices and points every
+     * attribute of the format at its offset within a vertex.
      * 
-     * @param attributeNumber - The attribute number of the vertex.
-     * @param vertexCount - The numbers of vertices.
-     * @param data - The vertex data.
+     * @param vao - The VAO the buffer belongs to.
+     * @param format - The vertex format of the data.
+     * @param vertices - The interleaved vertex data.
      */
-    private void storeDataInAttributeList(int attributeNumber, int vertexCount, float[] data) {
-        int vbo = GL15.glGenBuffers();
-        vbos.add(vbo);
+    private void storeVertexBuffer(int vao, VertexFormat format, ByteBuffer vertices) {
+        int vbo = createVBO(vao, vertices.remaining());
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, vertices, GL15.GL_STATIC_DRAW);
 
-        FloatBuffer buffer = Utils.storeDataInFloatBuffer(data);
-        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
-        GL20.glVertexAttribPointer(attributeNumber, vertexCount, GL11.GL_FLOAT, false, 0, 0);
+        // Enables the attributes inside the VAO so they do not need to be toggled per draw.
+        format.setup(0);
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
     }
 
+    /**
+     * Creates a new vertex buffer object owned by a VAO.
+     * 
+     * @param vao - The VAO the buffer belongs to.
+     * @param size - The size of the data the buffer will hold, in bytes.
+     * @return - The id of the new VBO.
+     */
+    private int createVBO(int vao, long size) {
+        int vbo = GL15.glGenBuffers();
+        vaos.get(vao).add(vbo);
+        modelMemory.merge(vao, size, Long::sum);
+        return vbo;
+    }
+
     /** Unbinds the vertex array. */
     private void unbind() {
         GL30.glBindVertexArray(0);
@@ -167,8 +689,15 @@ public class ObjectLoader {
 
     /** Deletes all active VAO, VBO, and texture objects. */
     public void cleanup() {
-        for (int vao : vaos) GL30.glDeleteVertexArrays(vao);
-        for (int vbo : vbos) GL30.glDeleteBuffers(vbo);
-        for (int tex : textures) GL11.glDeleteTextures(tex);
+        for (Map.Entry<Integer, List<Integer>> vao : vaos.entrySet()) {
+            for (int vbo : vao.getValue()) GL15.glDeleteBuffers(vbo);
+            GL30.glDeleteVertexArrays(vao.getKey());
+        }
+        for (int tex : textureMemory.keySet()) GL11.glDeleteTextures(tex);
+        vaos.clear();
+        modelMemory.clear();
+        textureMemory.clear();
+        for (DynamicModel model : dynamicModels) model.cleanup();
+        if (textureLoader != null) textureLoader.cleanup();
     }
 }
@@ -0,0 +1,35 @@
+package javagl.core;
+
+/**
+ * An interface for game logic that can run its updates on a separate simulation
+ * thread. After each batch of updates the simulation copies everything the renderer
+ * needs into a snapshot, and the GL thread only ever renders from snapshots.
+ * 
+ * Input is still handled on the GL thread, so any state written by input()
+ * and read by update() must be safe to share between threads.
+ * 
+ * @param <S> - The type of the snapshot holding the renderable state.
+ */
+public interface ThreadedLogic<S> extends Logic {
+    /**
+     * Creates a new, empty snapshot. This is called once for each snapshot buffer.
+     * 
+     * @return - A new snapshot.
+     */
+    S createSnapshot();
+
+    /**
+     * Copies the current game state into a snapshot. This is called on the simulation thread.
+     * 
+     * @param snapshot - The snapshot to write into.
+     */
+    void writeSnapshot(S snapshot);
+
+    /**
+     * Renders a snapshot to the screen. This is called on the GL thread.
+     * 
+     * @param snapshot - The latest complete snapshot.
+     * @param alpha - How far the frame is past the snapshot, in fixed steps from 0 to 1.
+     */
+    void render(S snapshot, float alpha);
+}
@@ -0,0 +1,111 @@
+package javagl.core.asset;
+
+/**
+ * A shared, reference-counted handle to a GPU resource cached by an AssetManager.
+ * Every load of the same content returns the same handle with its count raised,
+ * and every load must be matched by one release. Once nothing references the
+ * handle its resource stays cached until the manager evicts it.
+ *
+ * @param <T> - The type of the resource, such as a Model or a Texture.
+ */
+public class AssetHandle<T> {
+    // The manager owning the resource.
+    private final AssetManager manager;
+
+    // The content hash of the source file, and the name it was first loaded from.
+    private final long hash;
+    private final String name;
+
+    // The resource and the GPU memory it uses, in bytes.
+    private final T resource;
+    private final long size;
+
+    // The number of loads not yet released, and if the resource has not been evicted.
+    private int references;
+    private boolean resident;
+
+    AssetHandle(AssetManager manager, long hash, String name, T resource, long size) {
+        this.manager = manager;
+        this.hash = hash;
+        this.name = name;
+        this.resource = resource;
+        this.size = size;
+        this.resident = true;
+    }
+
+    /**
+     * Returns the resource of the handle.
+     *
+     * @return - The resource.
+     * @throws IllegalStateException - If the resource has been evicted.
+     */
+    public T get() {
+        if (!resident) throw new IllegalStateException("Asset " + name + " has been evicted");
+        return resource;
+    }
+
+    /** Releases one reference to the resource, letting it be evicted once none are left. */
+    public void release() {
+        manager.release(this);
+    }
+
+    /** Adds a reference to the handle. */
+    void retain() {
+        references++;
+    }
+
+    /**
+     * Removes a reference from the handle.
+     *
+     * @return - The number of references left.
+     */
+    int drop() {
+        if (references == 0) throw new IllegalStateException("Asset " + name + " released more times than it was loaded");
+        return --references;
+    }
+
+    /** Marks the resource as deleted. */
+    void evict() {
+        resident = false;
+    }
+
+    /**
+     * The getter method for the hash.
+     * @return - The xxHash of the file the resource was loaded from.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * The getter method for the name.
+     * @return - The name the resource was first loaded from.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The getter method for the size.
+     * @return - The GPU memory used by the resource, in bytes.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * The getter method for the references.
+     * @return - The number of loads of the resource not yet released.
+     */
+    public int getReferences() {
+        return references;
+    }
+
+    /**
+     * The getter method for the residency.
+     * @return - If the resource is still on the GPU.
+     */
+    public boolean isResident() {
+        return resident;
+    }
+}
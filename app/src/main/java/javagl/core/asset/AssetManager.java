@@ -0,0 +1,353 @@
+package javagl.core.asset;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.lwjgl.util.xxhash.XXHash;
+
+import javagl.core.ObjectLoader;
+import javagl.core.entity.Model;
+import javagl.core.entity.Texture;
+import javagl.core.memory.NativeAllocator;
+import javagl.core.mesh.MeshFile;
+import javagl.core.texture.TextureFile;
+import javagl.core.utils.Utils;
+
+/**
+ * A cache of meshes and textures keyed by the xxHash of their file contents, so
+ * the same content is only uploaded once no matter which name it is loaded from.
+ * Each file's size and modification time are remembered with its hash, so
+ * loading an unchanged file again finds its resource without reading it, and
+ * new content is decoded from the bytes already read to hash it.
+ * Loads hand out shared reference-counted handles. Resources nothing references
+ * are kept until the GPU memory of the cache goes over its budget, and are then
+ * deleted starting with the one released the longest ago.
+ *
+ * The manager deletes GL objects, so it must only be used on the GL thread.
+ */
+public class AssetManager {
+    // The seed of every content hash.
+    private static final long SEED = 0;
+
+    // The loader creating and deleting the GPU resources.
+    private final ObjectLoader loader;
+
+    // The cached meshes and textures, keyed by content hash.
+    private final Map<Long, AssetHandle<Model>> meshes;
+    private final Map<Long, AssetHandle<Texture>> textures;
+
+    // The size, modification time, and content hash of every file read so far, by name.
+    private final Map<String, FileStamp> stamps;
+
+    // The handles nothing references, from least to most recently released.
+    private final LinkedHashSet<AssetHandle<?>> unreferenced;
+
+    // The GPU memory the cache may keep, and the memory it currently uses, in bytes.
+    private long budget, residentBytes;
+
+    // The number of loads served from the cache, loads that uploaded, and resources evicted.
+    private int hits, misses, evictions;
+
+    /**
+     * Initializes a new asset manager.
+     *
+     * @param loader - The loader the resources are created with.
+     * @param budget - The GPU memory the cache may keep, in bytes.
+     */
+    public AssetManager(ObjectLoader loader, long budget) {
+        this.loader = loader;
+        this.budget = budget;
+        meshes = new HashMap<Long, AssetHandle<Model>>();
+        textures = new HashMap<Long, AssetHandle<Texture>>();
+        stamps = new HashMap<String, FileStamp>();
+        unreferenced = new LinkedHashSet<AssetHandle<?>>();
+    }
+
+    /**
+     * Loads a mesh, or adds a reference to it if the same content is cached.
+     * Precompiled mesh files are recognised by their header and anything else
+     * is read as a Wavefront OBJ file.
+     *
+     * @param filename - The path of the mesh file.
+     * @return - A handle to the model, which must be released once it is no longer drawn.
+     * @throws Exception - Any exception thrown while reading or parsing the file.
+     */
+    public AssetHandle<Model> loadMesh(String filename) throws Exception {
+        FileStamp stamp = stat(filename);
+        AssetHandle<Model> handle = meshes.get(findHash(filename, stamp));
+        if (handle != null) {
+            hits++;
+            return acquire(handle);
+        }
+
+        ByteBuffer contents = Utils.loadBinaryResource(filename);
+        try {
+            long hash = hash(filename, stamp, contents);
+            handle = meshes.get(hash);
+            if (handle == null) {
+                Model model = readMagic(contents) == MeshFile.MAGIC ? loader.loadMeshFile(contents, filename) : loader.loadObj(contents);
+                handle = new AssetHandle<Model>(this, hash, filename, model, loader.getModelMemory(model));
+                meshes.put(hash, handle);
+                add(handle);
+            } else {
+                hits++;
+            }
+        } finally {
+            NativeAllocator.free(contents);
+        }
+
+        return acquire(handle);
+    }
+
+    /**
+     * Loads a texture, or adds a reference to it if the same content is cached.
+     * Cooked texture files are recognised by their header and anything else is
+     * decoded as an image.
+     *
+     * @param filename - The file path or classpath resource of the texture.
+     * @return - A handle to the texture, which must be released once it is no longer drawn.
+     * @throws Exception - Any exception thrown while reading or decoding the file.
+     */
+    public AssetHandle<Texture> loadTexture(String filename) throws Exception {
+        FileStamp stamp = stat(filename);
+        AssetHandle<Texture> handle = textures.get(findHash(filename, stamp));
+        if (handle != null) {
+            hits++;
+            return acquire(handle);
+        }
+
+        ByteBuffer contents = Utils.loadBinaryResource(filename);
+        try {
+            long hash = hash(filename, stamp, contents);
+            handle = textures.get(hash);
+            if (handle == null) {
+                int id = readMagic(contents) == TextureFile.MAGIC ? loader.loadCookedTexture(contents, filename) : loader.loadTexture(contents, filename);
+                handle = new AssetHandle<Texture>(this, hash, filename, new Texture(id), loader.getTextureMemory(id));
+                textures.put(hash, handle);
+                add(handle);
+            } else {
+                hits++;
+            }
+        } finally {
+            NativeAllocator.free(contents);
+        }
+
+        return acquire(handle);
+    }
+
+    /**
+     * Reads the size and modification time of a file. Classpath resources
+     * can't change while the game runs, so they all get the same stamp.
+     *
+     * @param filename - The file path or classpath resource.
+     * @return - The stamp of the file, without a hash.
+     * @throws Exception - An exception caused by reading the file's attributes.
+     */
+    private static FileStamp stat(String filename) throws Exception {
+        Path path = Paths.get(filename);
+        if (!Files.isRegularFile(path)) return new FileStamp(-1, -1, 0);
+
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return new FileStamp(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), 0);
+    }
+
+    /**
+     * Finds the hash a file had when it was last read, if it hasn't changed since.
+     *
+     * @param filename - The file path or classpath resource.
+     * @param stamp - The current stamp of the file.
+     * @return - The hash of the file's contents, or null if it is unknown or the file has changed.
+     */
+    private Long findHash(String filename, FileStamp stamp) {
+        FileStamp known = stamps.get(filename);
+        return known != null && known.size == stamp.size && known.modified == stamp.modified ? known.hash : null;
+    }
+
+    /**
+     * Hashes the contents of a file and remembers the hash along with the file's stamp.
+     *
+     * @param filename - The file path or classpath resource.
+     * @param stamp - The stamp of the file when it was read.
+     * @param contents - The contents of the file.
+     * @return - The hash of the contents.
+     */
+    private long hash(String filename, FileStamp stamp, ByteBuffer contents) {
+        long hash = XXHash.XXH64(contents, SEED);
+        stamps.put(filename, new FileStamp(stamp.size, stamp.modified, hash));
+        return hash;
+    }
+
+    /**
+     * Adds a reference to a handle, taking it out of the eviction order.
+     *
+     * @param handle - The handle being loaded.
+     * @return - The handle.
+     */
+    private <T> AssetHandle<T> acquire(AssetHandle<T> handle) {
+        handle.retain();
+        unreferenced.remove(handle);
+        return handle;
+    }
+
+    /**
+     * Counts a newly uploaded resource against the budget.
+     *
+     * @param handle - The handle of the new resource.
+     */
+    private void add(AssetHandle<?> handle) {
+        residentBytes += handle.getSize();
+        misses++;
+        evict();
+    }
+
+    /**
+     * Releases one reference to a handle, and evicts resources if nothing references it and the cache is over budget.
+     *
+     * @param handle - The handle to release.
+     */
+    void release(AssetHandle<?> handle) {
+        if (!handle.isResident()) throw new IllegalStateException("Asset " + handle.getName() + " has been evicted");
+        if (handle.drop() > 0) return;
+
+        unreferenced.add(handle);
+        evict();
+    }
+
+    /** Deletes unreferenced resources, least recently released first, until the cache fits its budget. */
+    private void evict() {
+        Iterator<AssetHandle<?>> iterator = unreferenced.iterator();
+        while (residentBytes > budget && iterator.hasNext()) {
+            AssetHandle<?> handle = iterator.next();
+            iterator.remove();
+            delete(handle);
+            evictions++;
+        }
+    }
+
+    /**
+     * Deletes the resource of a handle and removes it from the cache.
+     *
+     * @param handle - The handle to delete.
+     */
+    private void delete(AssetHandle<?> handle) {
+        Object resource = handle.get();
+        if (resource instanceof Model) {
+            meshes.remove(handle.getHash());
+            loader.deleteModel((Model) resource);
+        } else {
+            textures.remove(handle.getHash());
+            loader.deleteTexture(((Texture) resource).getId());
+        }
+
+        residentBytes -= handle.getSize();
+        handle.evict();
+    }
+
+    /**
+     * Reads the magic number at the start of a file.
+     *
+     * @param contents - The contents of the file.
+     * @return - The first little-endian int of the file, or 0 if it is too short.
+     */
+    private static int readMagic(ByteBuffer contents) {
+        return contents.remaining() < Integer.BYTES ? 0 : contents.order(ByteOrder.LITTLE_ENDIAN).getInt(contents.position());
+    }
+
+    /**
+     * Changes the GPU memory the cache may keep, evicting resources if it is now over budget.
+     *
+     * @param budget - The new budget, in bytes.
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+        evict();
+    }
+
+    /**
+     * The getter method for the budget.
+     * @return - The GPU memory the cache may keep, in bytes.
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * The getter method for the resident bytes.
+     * @return - The GPU memory of every cached resource, referenced or not, in bytes.
+     */
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * The getter method for the resident count.
+     * @return - The number of cached resources.
+     */
+    public int getResidentCount() {
+        return meshes.size() + textures.size();
+    }
+
+    /**
+     * The getter method for the hits.
+     * @return - The number of loads that reused a cached resource.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * The getter method for the misses.
+     * @return - The number of loads that uploaded a new resource.
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * The getter method for the evictions.
+     * @return - The number of resources deleted to stay within the budget.
+     */
+    public int getEvictions() {
+        return evictions;
+    }
+
+    /** Deletes every cached resource, including those still referenced. */
+    public void cleanup() {
+        for (AssetHandle<Model> handle : new ArrayList<AssetHandle<Model>>(meshes.values())) delete(handle);
+        for (AssetHandle<Texture> handle : new ArrayList<AssetHandle<Texture>>(textures.values())) delete(handle);
+        unreferenced.clear();
+        stamps.clear();
+    }
+
+    /** The size and modification time of a file when it was read, and the hash of its contents. */
+    private static class FileStamp {
+        // The size of the file in bytes and its modification time in nanoseconds, or -1 for classpath resources.
+        private final long size, modified;
+
+        // The hash of the file's contents.
+        private final long hash;
+
+        /**
+         * Initializes a new stamp.
+         *
+         * @param size - The size of the file in bytes.
+         * @param modified - The modification time of the file in nanoseconds.
+         * @param hash - The hash of the file's contents.
+         */
+        FileStamp(long size, long modified, long hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+}
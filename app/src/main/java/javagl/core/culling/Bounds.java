@@ -0,0 +1,163 @@
+package javagl.core.culling;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.joml.Matrix4fc;
+import org.joml.primitives.AABBf;
+import org.joml.primitives.AABBfc;
+import org.joml.primitives.Spheref;
+
+/**
+ * Helpers for computing and transforming bounding volumes. Boxes are computed
+ * from every vertex, and spheres are centred on the box with the radius of the
+ * furthest vertex, which is tighter than the box's half diagonal.
+ */
+public class Bounds {
+    private Bounds() {}
+
+    /**
+     * Computes the bounds of a set of positions.
+     *
+     * @param positions - The positions, from index 0.
+     * @param components - The number of components of each position, 2 or 3.
+     * @param vertexCount - The number of positions.
+     * @param box - The box to store the bounds in.
+     * @param sphere - The sphere to store the bounds in.
+     */
+    public static void compute(FloatBuffer positions, int components, int vertexCount, AABBf box, Spheref sphere) {
+        box.setMin(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        box.setMax(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < vertexCount; i++) {
+            int p = i * components;
+            box.union(positions.get(p), positions.get(p + 1), components > 2 ? positions.get(p + 2) : 0);
+        }
+
+        setCenter(box, sphere);
+        float radius = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            int p = i * components;
+            radius = Math.max(radius, distanceSquared(sphere, positions.get(p), positions.get(p + 1), components > 2 ? positions.get(p + 2) : 0));
+        }
+        sphere.r = (float) Math.sqrt(radius);
+    }
+
+    /**
+     * Computes the bounds of interleaved vertices whose first attribute is a three float position.
+     *
+     * @param vertices - The interleaved vertices, from their position.
+     * @param stride - The size of each vertex in bytes.
+     * @param vertexCount - The number of vertices.
+     * @param box - The box to store the bounds in.
+     * @param sphere - The sphere to store the bounds in.
+     */
+    public static void compute(ByteBuffer vertices, int stride, int vertexCount, AABBf box, Spheref sphere) {
+        int base = vertices.position();
+        box.setMin(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        box.setMax(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < vertexCount; i++) {
+            int p = base + i * stride;
+            box.union(vertices.getFloat(p), vertices.getFloat(p + 4), vertices.getFloat(p + 8));
+        }
+
+        setCenter(box, sphere);
+        float radius = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            int p = base + i * stride;
+            radius = Math.max(radius, distanceSquared(sphere, vertices.getFloat(p), vertices.getFloat(p + 4), vertices.getFloat(p + 8)));
+        }
+        sphere.r = (float) Math.sqrt(radius);
+    }
+
+    /**
+     * Transforms a sphere into a new space. The radius is scaled by the largest
+     * scale of the matrix, so the sphere still contains its contents under
+     * non-uniform scaling.
+     *
+     * @param sphere - The sphere to transform.
+     * @param matrix - The transform, without projection.
+     * @param dest - The sphere to store the result in, which may be the same sphere.
+     * @return - The destination sphere.
+     */
+    public static Spheref transform(Spheref sphere, Matrix4fc matrix, Spheref dest) {
+        float x = sphere.x, y = sphere.y, z = sphere.z;
+        float scaleX = matrix.m00() * matrix.m00() + matrix.m01() * matrix.m01() + matrix.m02() * matrix.m02();
+        float scaleY = matrix.m10() * matrix.m10() + matrix.m11() * matrix.m11() + matrix.m12() * matrix.m12();
+        float scaleZ = matrix.m20() * matrix.m20() + matrix.m21() * matrix.m21() + matrix.m22() * matrix.m22();
+
+        dest.x = matrix.m00() * x + matrix.m10() * y + matrix.m20() * z + matrix.m30();
+        dest.y = matrix.m01() * x + matrix.m11() * y + matrix.m21() * z + matrix.m31();
+        dest.z = matrix.m02() * x + matrix.m12() * y + matrix.m22() * z + matrix.m32();
+        dest.r = sphere.r * (float) Math.sqrt(Math.max(scaleX, Math.max(scaleY, scaleZ)));
+        return dest;
+    }
+
+    /**
+     * Transforms a box into a new space, producing the box around the transformed
+     * corners without transforming each corner.
+     *
+     * @param box - The box to transform.
+     * @param matrix - The transform, without projection.
+     * @param dest - The box to store the result in, which must not be the same box.
+     * @return - The destination box.
+     */
+    public static AABBf transform(AABBfc box, Matrix4fc matrix, AABBf dest) {
+        dest.setMin(matrix.m30(), matrix.m31(), matrix.m32());
+        dest.setMax(matrix.m30(), matrix.m31(), matrix.m32());
+
+        // Each output axis gets the smaller and larger product of every input axis.
+        for (int column = 0; column < 3; column++) {
+            for (int row = 0; row < 3; row++) {
+                float m = get(matrix, column, row);
+                float a = m * box.getMin(column), b = m * box.getMax(column);
+                float low = Math.min(a, b), high = Math.max(a, b);
+                if (row == 0) { dest.minX += low; dest.maxX += high; }
+                else if (row == 1) { dest.minY += low; dest.maxY += high; }
+                else { dest.minZ += low; dest.maxZ += high; }
+            }
+        }
+        return dest;
+    }
+
+    /**
+     * Returns an element of the upper 3x3 part of a matrix.
+     *
+     * @param matrix - The matrix.
+     * @param column - The column of the element.
+     * @param row - The row of the element.
+     * @return - The element.
+     */
+    private static float get(Matrix4fc matrix, int column, int row) {
+        switch (column * 3 + row) {
+            case 0: return matrix.m00();
+            case 1: return matrix.m01();
+            case 2: return matrix.m02();
+            case 3: return matrix.m10();
+            case 4: return matrix.m11();
+            case 5: return matrix.m12();
+            case 6: return matrix.m20();
+            case 7: return matrix.m21();
+            default: return matrix.m22();
+        }
+    }
+
+    /**
+     * Moves a sphere to the centre of a box.
+     *
+     * @param box - The box.
+     * @param sphere - The sphere to move.
+     */
+    private static void setCenter(AABBf box, Spheref sphere) {
+        sphere.x = (box.minX + box.maxX) * 0.5f;
+        sphere.y = (box.minY + box.maxY) * 0.5f;
+        sphere.z = (box.minZ + box.maxZ) * 0.5f;
+    }
+
+    /**
+     * Returns the squared distance from the centre of a sphere to a point.
+     */
+    private static float distanceSquared(Spheref sphere, float x, float y, float z) {
+        float dx = x - sphere.x, dy = y - sphere.y, dz = z - sphere.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
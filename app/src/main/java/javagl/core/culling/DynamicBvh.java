@@ -0,0 +1,703 @@
+package javagl.core.culling;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4fc;
+import org.joml.Vector2f;
+import org.joml.primitives.AABBf;
+import org.joml.primitives.AABBfc;
+import org.joml.primitives.Intersectionf;
+import org.joml.primitives.Rayf;
+import org.joml.primitives.Spheref;
+
+/**
+ * A bounding volume hierarchy whose leaves can be added, moved, and removed at
+ * any time. Each leaf stores a fat box, its item's box grown by a margin, so an
+ * item moving a little stays inside its leaf and costs nothing. Only items that
+ * leave their fat box are removed and reinserted, and the tree is kept shallow
+ * by rotating nodes on the way back up, as in Box2D's dynamic tree.
+ *
+ * Leaves are inserted next to the sibling that grows the total surface area the
+ * least. Nodes are stored in flat arrays and referred to by index, and removed
+ * nodes are recycled through a free list, so the tree allocates nothing once
+ * it has grown to its largest size. Queries are not thread-safe, as they share
+ * a traversal stack.
+ *
+ * @param <T> - The type of the items stored in the leaves.
+ */
+public class DynamicBvh<T> {
+    // The index used for a missing node.
+    private static final int NULL = -1;
+
+    // The distance the fat box of every leaf extends past its item's box.
+    private final float margin;
+
+    // The box of each node, as min x, y, z followed by max x, y, z.
+    private float[] bounds;
+
+    // The parent and children of each node. Free nodes store the next free node as their parent.
+    private int[] parent, child1, child2;
+
+    // The height of each node above the leaves, or -1 for free nodes.
+    private int[] height;
+
+    // The item of each leaf.
+    private Object[] items;
+
+    // The root node, the first free node, and the number of nodes allocated.
+    private int root, freeList, nodeCount;
+
+    // The number of leaves in the tree.
+    private int leafCount;
+
+    // The stack of nodes left to visit during a query.
+    private int[] stack;
+
+    // The entry and exit distances of a ray.
+    private final Vector2f hit;
+
+    /** Initializes a new empty tree with a margin of a tenth of a unit. */
+    public DynamicBvh() {
+        this(0.1f, 256);
+    }
+
+    /**
+     * Initializes a new empty tree.
+     *
+     * @param margin - The distance the fat box of every leaf extends past its item's box.
+     * @param capacity - The number of nodes to allocate room for, which grows as needed.
+     */
+    public DynamicBvh(float margin, int capacity) {
+        this.margin = margin;
+        capacity = Math.max(capacity, 16);
+        bounds = new float[capacity * 6];
+        parent = new int[capacity];
+        child1 = new int[capacity];
+        child2 = new int[capacity];
+        height = new int[capacity];
+        items = new Object[capacity];
+        stack = new int[64];
+        hit = new Vector2f();
+
+        root = NULL;
+        freeList = NULL;
+        addFreeNodes(0, capacity);
+    }
+
+    /**
+     * Adds an item to the tree.
+     *
+     * @param box - The box around the item.
+     * @param item - The item.
+     * @return - The id of the item's leaf, which is used to move or remove it.
+     */
+    public int add(AABBfc box, T item) {
+        int leaf = allocateNode();
+        setFatBounds(leaf, box);
+        items[leaf] = item;
+        height[leaf] = 0;
+        insertLeaf(leaf);
+        leafCount++;
+        return leaf;
+    }
+
+    /**
+     * Moves an item to a new box. The leaf is only reinserted if the new box
+     * is no longer inside its fat box.
+     *
+     * @param id - The id of the item's leaf.
+     * @param box - The new box around the item.
+     * @return - If the leaf was reinserted.
+     */
+    public boolean move(int id, AABBfc box) {
+        checkLeaf(id);
+        int b = id * 6;
+        if (bounds[b] <= box.minX() && bounds[b + 1] <= box.minY() && bounds[b + 2] <= box.minZ()
+            && bounds[b + 3] >= box.maxX() && bounds[b + 4] >= box.maxY() && bounds[b + 5] >= box.maxZ()) return false;
+
+        removeLeaf(id);
+        setFatBounds(id, box);
+        insertLeaf(id);
+        return true;
+    }
+
+    /**
+     * Removes an item from the tree.
+     *
+     * @param id - The id of the item's leaf, which may be reused by later items.
+     */
+    public void remove(int id) {
+        checkLeaf(id);
+        removeLeaf(id);
+        freeNode(id);
+        leafCount--;
+    }
+
+    /** Removes every item from the tree. */
+    public void clear() {
+        Arrays.fill(items, 0, nodeCount, null);
+        root = NULL;
+        freeList = NULL;
+        nodeCount = 0;
+        leafCount = 0;
+        addFreeNodes(0, parent.length);
+    }
+
+    /**
+     * Finds the items whose fat boxes are at least partly inside a frustum.
+     * Subtrees entirely inside the frustum are added without testing their leaves.
+     *
+     * @param viewProjection - The projection matrix multiplied by the view matrix.
+     * @param results - The list to add the items to.
+     */
+    public void queryFrustum(Matrix4fc viewProjection, List<? super T> results) {
+        queryFrustum(new FrustumIntersection(viewProjection, false), results);
+    }
+
+    /**
+     * Finds the items whose fat boxes are at least partly inside a frustum.
+     * Subtrees entirely inside the frustum are added without testing their leaves.
+     *
+     * @param frustum - The frustum.
+     * @param results - The list to add the items to.
+     */
+    public void queryFrustum(FrustumIntersection frustum, List<? super T> results) {
+        if (root == NULL) return;
+
+        int top = push(0, root);
+        while (top > 0) {
+            int node = stack[--top];
+            int b = node * 6;
+            int result = frustum.intersectAab(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], bounds[b + 4], bounds[b + 5]);
+            if (result == FrustumIntersection.INSIDE) {
+                addLeaves(node, top, results);
+            } else if (result == FrustumIntersection.INTERSECT) {
+                if (isLeaf(node)) {
+                    results.add(getItem(node));
+                } else {
+                    top = push(top, child1[node]);
+                    top = push(top, child2[node]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the items whose fat boxes a ray passes through.
+     *
+     * @param ray - The ray, whose direction does not need to be normalized.
+     * @param maxDistance - The furthest distance along the ray to test, in multiples of its direction.
+     * @param results - The list to add the items to.
+     */
+    public void queryRay(Rayf ray, float maxDistance, List<? super T> results) {
+        if (root == NULL) return;
+
+        int top = push(0, root);
+        while (top > 0) {
+            int node = stack[--top];
+            int b = node * 6;
+            if (!Intersectionf.intersectRayAab(ray.oX, ray.oY, ray.oZ, ray.dX, ray.dY, ray.dZ,
+                bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], bounds[b + 4], bounds[b + 5], hit)) continue;
+            if (hit.x > maxDistance) continue;
+
+            if (isLeaf(node)) {
+                results.add(getItem(node));
+            } else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+    }
+
+    /**
+     * Finds the items whose fat boxes overlap a sphere.
+     *
+     * @param sphere - The sphere.
+     * @param results - The list to add the items to.
+     */
+    public void querySphere(Spheref sphere, List<? super T> results) {
+        if (root == NULL) return;
+
+        float radiusSquared = sphere.r * sphere.r;
+        int top = push(0, root);
+        while (top > 0) {
+            int node = stack[--top];
+            int b = node * 6;
+            if (!Intersectionf.testAabSphere(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], bounds[b + 4], bounds[b + 5],
+                sphere.x, sphere.y, sphere.z, radiusSquared)) continue;
+
+            if (isLeaf(node)) {
+                results.add(getItem(node));
+            } else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+    }
+
+    /**
+     * Returns the item of a leaf.
+     *
+     * @param id - The id of the leaf.
+     * @return - The item the leaf was added with.
+     */
+    @SuppressWarnings("unchecked")
+    public T getItem(int id) {
+        return (T) items[id];
+    }
+
+    /**
+     * Copies the fat box of a leaf.
+     *
+     * @param id - The id of the leaf.
+     * @param dest - The box to store the fat box in.
+     * @return - The destination box.
+     */
+    public AABBf getFatBounds(int id, AABBf dest) {
+        int b = id * 6;
+        dest.setMin(bounds[b], bounds[b + 1], bounds[b + 2]);
+        dest.setMax(bounds[b + 3], bounds[b + 4], bounds[b + 5]);
+        return dest;
+    }
+
+    /**
+     * The getter method for the item count.
+     * @return - The number of items in the tree.
+     */
+    public int size() {
+        return leafCount;
+    }
+
+    /**
+     * The getter method for the height.
+     * @return - The number of levels below the root, or 0 for an empty tree.
+     */
+    public int getHeight() {
+        return root == NULL ? 0 : height[root];
+    }
+
+    /**
+     * Checks the structure of the tree, as Box2D's tree validation does: every
+     * child points back at its parent, every node's box and height match its
+     * children, and every node is either in the tree or on the free list.
+     *
+     * @throws IllegalStateException - If the tree is inconsistent.
+     */
+    void validate() {
+        int reachable = 0, leaves = 0;
+        if (root != NULL) {
+            if (parent[root] != NULL) throw new IllegalStateException("Root " + root + " has a parent");
+
+            int top = push(0, root);
+            while (top > 0) {
+                int node = stack[--top];
+                reachable++;
+                if (height[node] < 0) throw new IllegalStateException("Node " + node + " is in the tree and free");
+
+                if (isLeaf(node)) {
+                    if (child2[node] != NULL || height[node] != 0) throw new IllegalStateException("Leaf " + node + " is malformed");
+                    leaves++;
+                    continue;
+                }
+
+                int c1 = child1[node], c2 = child2[node];
+                if (parent[c1] != node || parent[c2] != node) throw new IllegalStateException("Children of " + node + " have another parent");
+                if (height[node] != 1 + Math.max(height[c1], height[c2])) throw new IllegalStateException("Node " + node + " has the wrong height");
+
+                int b = node * 6, b1 = c1 * 6, b2 = c2 * 6;
+                for (int i = 0; i < 3; i++) {
+                    if (bounds[b + i] != Math.min(bounds[b1 + i], bounds[b2 + i])
+                        || bounds[b + 3 + i] != Math.max(bounds[b1 + 3 + i], bounds[b2 + 3 + i])) {
+                        throw new IllegalStateException("Node " + node + " does not fit its children");
+                    }
+                }
+                top = push(top, c1);
+                top = push(top, c2);
+            }
+        }
+        if (leaves != leafCount) throw new IllegalStateException("Found " + leaves + " leaves but counted " + leafCount);
+
+        int free = 0;
+        for (int node = freeList; node != NULL; node = parent[node]) {
+            if (height[node] != -1) throw new IllegalStateException("Free node " + node + " is in use");
+            free++;
+        }
+        if (reachable + free != parent.length) throw new IllegalStateException("Lost " + (parent.length - reachable - free) + " nodes");
+    }
+
+    /**
+     * Adds every leaf below a node to a list, using the stack above its top.
+     *
+     * @param node - The node.
+     * @param top - The top of the stack, which is left as it was.
+     * @param results - The list to add the items to.
+     */
+    private void addLeaves(int node, int top, List<? super T> results) {
+        int start = top;
+        top = push(top, node);
+        while (top > start) {
+            node = stack[--top];
+            if (isLeaf(node)) {
+                results.add(getItem(node));
+            } else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+    }
+
+    /**
+     * Inserts a leaf next to the sibling that grows the tree's surface area the
+     * least, then refits and rebalances its ancestors.
+     *
+     * @param leaf - The leaf, whose fat box is already set.
+     */
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[leaf] = NULL;
+            return;
+        }
+
+        // Descends while moving the leaf further down is cheaper than pairing it with the current node.
+        int index = root;
+        while (!isLeaf(index)) {
+            int c1 = child1[index], c2 = child2[index];
+            float area = area(index);
+            float combinedArea = unionArea(index, leaf);
+
+            // The cost of a new parent here, and the growth every ancestor below this node inherits.
+            float cost = 2 * combinedArea;
+            float inheritance = 2 * (combinedArea - area);
+            float cost1 = descendCost(c1, leaf) + inheritance;
+            float cost2 = descendCost(c2, leaf) + inheritance;
+
+            if (cost < cost1 && cost < cost2) break;
+            index = cost1 < cost2 ? c1 : c2;
+        }
+
+        // Pairs the leaf with the sibling under a new parent.
+        int sibling = index;
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        items[newParent] = null;
+        height[newParent] = height[sibling] + 1;
+        union(sibling, leaf, newParent);
+
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+        if (oldParent == NULL) {
+            root = newParent;
+        } else if (child1[oldParent] == sibling) {
+            child1[oldParent] = newParent;
+        } else {
+            child2[oldParent] = newParent;
+        }
+
+        refit(parent[leaf]);
+    }
+
+    /**
+     * Removes a leaf from the tree, replacing its parent with its sibling.
+     *
+     * @param leaf - The leaf, which is kept allocated.
+     */
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+
+        int oldParent = parent[leaf];
+        int grandParent = parent[oldParent];
+        int sibling = child1[oldParent] == leaf ? child2[oldParent] : child1[oldParent];
+
+        if (grandParent == NULL) {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(oldParent);
+            return;
+        }
+
+        if (child1[grandParent] == oldParent) {
+            child1[grandParent] = sibling;
+        } else {
+            child2[grandParent] = sibling;
+        }
+        parent[sibling] = grandParent;
+        freeNode(oldParent);
+        refit(grandParent);
+    }
+
+    /**
+     * Rebalances a node and every ancestor, recomputing their boxes and heights.
+     *
+     * @param index - The lowest node to refit.
+     */
+    private void refit(int index) {
+        while (index != NULL) {
+            index = balance(index);
+            int c1 = child1[index], c2 = child2[index];
+            height[index] = 1 + Math.max(height[c1], height[c2]);
+            union(c1, c2, index);
+            index = parent[index];
+        }
+    }
+
+    /**
+     * Rotates the taller child of a node above it if the node's children differ
+     * in height by more than one.
+     *
+     * @param a - The node to balance.
+     * @return - The node now in its place.
+     */
+    private int balance(int a) {
+        if (isLeaf(a) || height[a] < 2) return a;
+
+        int b = child1[a], c = child2[a];
+        int difference = height[c] - height[b];
+
+        // Rotates c up.
+        if (difference > 1) {
+            int f = child1[c], g = child2[c];
+            child1[c] = a;
+            replaceChild(a, c);
+
+            if (height[f] > height[g]) {
+                child2[c] = f;
+                child2[a] = g;
+                parent[g] = a;
+                union(b, g, a);
+                union(a, f, c);
+                height[a] = 1 + Math.max(height[b], height[g]);
+                height[c] = 1 + Math.max(height[a], height[f]);
+            } else {
+                child2[c] = g;
+                child2[a] = f;
+                parent[f] = a;
+                union(b, f, a);
+                union(a, g, c);
+                height[a] = 1 + Math.max(height[b], height[f]);
+                height[c] = 1 + Math.max(height[a], height[g]);
+            }
+            return c;
+        }
+
+        // Rotates b up.
+        if (difference < -1) {
+            int d = child1[b], e = child2[b];
+            child1[b] = a;
+            replaceChild(a, b);
+
+            if (height[d] > height[e]) {
+                child2[b] = d;
+                child1[a] = e;
+                parent[e] = a;
+                union(c, e, a);
+                union(a, d, b);
+                height[a] = 1 + Math.max(height[c], height[e]);
+                height[b] = 1 + Math.max(height[a], height[d]);
+            } else {
+                child2[b] = e;
+                child1[a] = d;
+                parent[d] = a;
+                union(c, d, a);
+                union(a, e, b);
+                height[a] = 1 + Math.max(height[c], height[d]);
+                height[b] = 1 + Math.max(height[a], height[e]);
+            }
+            return b;
+        }
+
+        return a;
+    }
+
+    /**
+     * Puts a child of a node in the node's place, making the node its child.
+     *
+     * @param node - The node moving down.
+     * @param child - The child moving up.
+     */
+    private void replaceChild(int node, int child) {
+        int grandParent = parent[node];
+        parent[child] = grandParent;
+        parent[node] = child;
+
+        if (grandParent == NULL) {
+            root = child;
+        } else if (child1[grandParent] == node) {
+            child1[grandParent] = child;
+        } else {
+            child2[grandParent] = child;
+        }
+    }
+
+    /**
+     * Returns the cost of descending into a child to insert a leaf below it.
+     *
+     * @param child - The child.
+     * @param leaf - The leaf being inserted.
+     * @return - The surface area a new parent would add below the child.
+     */
+    private float descendCost(int child, int leaf) {
+        float combined = unionArea(child, leaf);
+        return isLeaf(child) ? combined : combined - area(child);
+    }
+
+    /**
+     * Returns the surface area of a node's box.
+     *
+     * @param node - The node.
+     * @return - The surface area.
+     */
+    private float area(int node) {
+        int b = node * 6;
+        float x = bounds[b + 3] - bounds[b], y = bounds[b + 4] - bounds[b + 1], z = bounds[b + 5] - bounds[b + 2];
+        return 2 * (x * y + y * z + z * x);
+    }
+
+    /**
+     * Returns the surface area of the box around two nodes.
+     *
+     * @param n1 - The first node.
+     * @param n2 - The second node.
+     * @return - The surface area.
+     */
+    private float unionArea(int n1, int n2) {
+        int b1 = n1 * 6, b2 = n2 * 6;
+        float x = Math.max(bounds[b1 + 3], bounds[b2 + 3]) - Math.min(bounds[b1], bounds[b2]);
+        float y = Math.max(bounds[b1 + 4], bounds[b2 + 4]) - Math.min(bounds[b1 + 1], bounds[b2 + 1]);
+        float z = Math.max(bounds[b1 + 5], bounds[b2 + 5]) - Math.min(bounds[b1 + 2], bounds[b2 + 2]);
+        return 2 * (x * y + y * z + z * x);
+    }
+
+    /**
+     * Stores the box around two nodes in a third.
+     *
+     * @param n1 - The first node.
+     * @param n2 - The second node.
+     * @param dest - The node to store the box in.
+     */
+    private void union(int n1, int n2, int dest) {
+        int b1 = n1 * 6, b2 = n2 * 6, d = dest * 6;
+        for (int i = 0; i < 3; i++) {
+            bounds[d + i] = Math.min(bounds[b1 + i], bounds[b2 + i]);
+            bounds[d + 3 + i] = Math.max(bounds[b1 + 3 + i], bounds[b2 + 3 + i]);
+        }
+    }
+
+    /**
+     * Sets the box of a leaf to an item's box grown by the margin.
+     *
+     * @param leaf - The leaf.
+     * @param box - The box around the item.
+     */
+    private void setFatBounds(int leaf, AABBfc box) {
+        int b = leaf * 6;
+        bounds[b] = box.minX() - margin;
+        bounds[b + 1] = box.minY() - margin;
+        bounds[b + 2] = box.minZ() - margin;
+        bounds[b + 3] = box.maxX() + margin;
+        bounds[b + 4] = box.maxY() + margin;
+        bounds[b + 5] = box.maxZ() + margin;
+    }
+
+    /**
+     * Checks if a node is a leaf.
+     *
+     * @param node - The node.
+     * @return - If the node has no children.
+     */
+    private boolean isLeaf(int node) {
+        return child1[node] == NULL;
+    }
+
+    /**
+     * Throws if an id does not refer to a leaf in the tree.
+     *
+     * @param id - The id of the leaf.
+     */
+    private void checkLeaf(int id) {
+        if (id < 0 || id >= nodeCount || height[id] != 0) throw new IllegalArgumentException("No leaf with id " + id);
+    }
+
+    /**
+     * Pushes a node onto the traversal stack, growing it if needed.
+     *
+     * @param top - The top of the stack.
+     * @param node - The node to push.
+     * @return - The new top of the stack.
+     */
+    private int push(int top, int node) {
+        if (top == stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+        stack[top] = node;
+        return top + 1;
+    }
+
+    /**
+     * Takes a node from the free list, growing the arrays if it is empty.
+     *
+     * @return - The index of the node, with no children.
+     */
+    private int allocateNode() {
+        if (freeList == NULL) {
+            int capacity = parent.length;
+            grow(capacity * 2);
+            addFreeNodes(capacity, capacity * 2);
+        }
+
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL;
+        child1[node] = NULL;
+        child2[node] = NULL;
+        height[node] = 0;
+        nodeCount = Math.max(nodeCount, node + 1);
+        return node;
+    }
+
+    /**
+     * Returns a node to the free list.
+     *
+     * @param node - The node.
+     */
+    private void freeNode(int node) {
+        parent[node] = freeList;
+        height[node] = -1;
+        items[node] = null;
+        freeList = node;
+    }
+
+    /**
+     * Links a range of nodes onto the front of the free list, in order.
+     *
+     * @param from - The first node.
+     * @param to - The node after the last.
+     */
+    private void addFreeNodes(int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            parent[i] = freeList;
+            height[i] = -1;
+            freeList = i;
+        }
+    }
+
+    /**
+     * Grows the node arrays.
+     *
+     * @param capacity - The new number of nodes to allocate room for.
+     */
+    private void grow(int capacity) {
+        bounds = Arrays.copyOf(bounds, capacity * 6);
+        parent = Arrays.copyOf(parent, capacity);
+        child1 = Arrays.copyOf(child1, capacity);
+        child2 = Arrays.copyOf(child2, capacity);
+        height = Arrays.copyOf(height, capacity);
+        items = Arrays.copyOf(items, capacity);
+    }
+}
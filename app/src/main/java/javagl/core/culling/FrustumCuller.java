@@ -0,0 +1,217 @@
+package javagl.core.culling;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.joml.Matrix4fc;
+import org.joml.Vector4f;
+import org.joml.primitives.Spheref;
+
+/**
+ * A culler testing bounding spheres against the view frustum. The spheres are
+ * stored as a structure of arrays, and each plane is tested against every
+ * sphere in turn with a branchless loop over plain float arrays, which the JIT
+ * compiles to SIMD instructions. Large sets of spheres are split into ranges
+ * tested in parallel on the common fork join pool.
+ */
+public class FrustumCuller {
+    // The number of spheres each parallel task tests.
+    private static final int CHUNK_SIZE = 16384;
+
+    // The smallest number of spheres worth testing in parallel.
+    private static final int PARALLEL_THRESHOLD = 4 * CHUNK_SIZE;
+
+    // The centres and radii of the spheres in world space.
+    private float[] x, y, z, r;
+
+    // The nearest signed distance of each sphere's surface to any plane, negative when outside.
+    private float[] distances;
+
+    // The number of spheres added.
+    private int count;
+
+    // The six planes of the frustum, as a, b, c, d, with normals pointing inwards.
+    private final float[] planes;
+
+    /** Initializes a new frustum culler. */
+    public FrustumCuller() {
+        this(1024);
+    }
+
+    /**
+     * Initializes a new frustum culler with room for a number of spheres.
+     *
+     * @param capacity - The number of spheres to allocate room for, which grows as needed.
+     */
+    public FrustumCuller(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        z = new float[capacity];
+        r = new float[capacity];
+        distances = new float[capacity];
+        planes = new float[6 * 4];
+    }
+
+    /**
+     * Adds a sphere to be tested.
+     *
+     * @param sphere - The sphere in world space.
+     * @return - The index of the sphere, which culled results refer to.
+     */
+    public int add(Spheref sphere) {
+        return add(sphere.x, sphere.y, sphere.z, sphere.r);
+    }
+
+    /**
+     * Adds a sphere to be tested.
+     *
+     * @param cx - The x position of the centre.
+     * @param cy - The y position of the centre.
+     * @param cz - The z position of the centre.
+     * @param radius - The radius, or infinity for a sphere that is never culled.
+     * @return - The index of the sphere, which culled results refer to.
+     */
+    public int add(float cx, float cy, float cz, float radius) {
+        if (count == x.length) grow(count * 2);
+        set(count, cx, cy, cz, radius);
+        return count++;
+    }
+
+    /**
+     * Moves a sphere that was already added.
+     *
+     * @param index - The index of the sphere.
+     * @param cx - The x position of the centre.
+     * @param cy - The y position of the centre.
+     * @param cz - The z position of the centre.
+     * @param radius - The radius, or infinity for a sphere that is never culled.
+     */
+    public void set(int index, float cx, float cy, float cz, float radius) {
+        x[index] = cx;
+        y[index] = cy;
+        z[index] = cz;
+        r[index] = radius;
+    }
+
+    /** Removes every sphere. */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * The getter method for the sphere count.
+     * @return - The number of spheres added.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Tests every sphere against the frustum of a view projection matrix.
+     *
+     * @param viewProjection - The projection matrix multiplied by the view matrix.
+     * @param visible - The array to store the indices of the visible spheres in, at least as long as the sphere count.
+     * @return - The number of visible spheres.
+     */
+    public int cull(Matrix4fc viewProjection, int[] visible) {
+        if (visible.length < count) throw new IllegalArgumentException("Expected room for " + count + " indices");
+        extractPlanes(viewProjection);
+
+        if (count >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new CullTask(this, 0, count));
+        } else {
+            test(0, count);
+        }
+
+        // Compacts the visible indices, which keeps them in the order the spheres were added.
+        int visibleCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (distances[i] >= 0) visible[visibleCount++] = i;
+        }
+        return visibleCount;
+    }
+
+    /**
+     * Extracts the normalized planes of a frustum.
+     *
+     * @param viewProjection - The projection matrix multiplied by the view matrix.
+     */
+    private void extractPlanes(Matrix4fc viewProjection) {
+        Vector4f plane = new Vector4f();
+        for (int i = 0; i < 6; i++) {
+            viewProjection.frustumPlane(Matrix4fc.PLANE_NX + i, plane);
+            planes[i * 4] = plane.x;
+            planes[i * 4 + 1] = plane.y;
+            planes[i * 4 + 2] = plane.z;
+            planes[i * 4 + 3] = plane.w;
+        }
+    }
+
+    /**
+     * Tests a range of spheres against every plane, one plane at a time.
+     *
+     * @param from - The index of the first sphere.
+     * @param to - The index after the last sphere.
+     */
+    private void test(int from, int to) {
+        Arrays.fill(distances, from, to, Float.POSITIVE_INFINITY);
+
+        float[] x = this.x, y = this.y, z = this.z, r = this.r, distances = this.distances;
+        for (int p = 0; p < planes.length; p += 4) {
+            float a = planes[p], b = planes[p + 1], c = planes[p + 2], d = planes[p + 3];
+            for (int i = from; i < to; i++) {
+                distances[i] = Math.min(distances[i], a * x[i] + b * y[i] + c * z[i] + d + r[i]);
+            }
+        }
+    }
+
+    /**
+     * Grows the arrays of spheres.
+     *
+     * @param capacity - The new number of spheres to allocate room for.
+     */
+    private void grow(int capacity) {
+        capacity = Math.max(capacity, 16);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        r = Arrays.copyOf(r, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+    }
+
+    /** A task testing a range of spheres, split in half until it fits in a chunk. */
+    private static class CullTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // The culler the spheres belong to.
+        private final FrustumCuller culler;
+
+        // The range of spheres to test.
+        private final int from, to;
+
+        /**
+         * Initializes a new task over a range of spheres.
+         *
+         * @param culler - The culler the spheres belong to.
+         * @param from - The index of the first sphere.
+         * @param to - The index after the last sphere.
+         */
+        CullTask(FrustumCuller culler, int from, int to) {
+            this.culler = culler;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                culler.test(from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new CullTask(culler, from, middle), new CullTask(culler, middle, to));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package javagl.core.culling;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4fc;
+import org.joml.primitives.AABBf;
+import org.joml.primitives.AABBfc;
+import org.joml.primitives.Rayf;
+import org.joml.primitives.Spheref;
+
+import javagl.core.entity.Entity;
+
+/**
+ * A spatial index of the entities in a scene, answering frustum, ray, and
+ * sphere queries without visiting every entity. Entities are stored in a
+ * dynamic BVH by the world box of their model's bounds, which must be updated
+ * after an entity moves. Entities whose models have no bounds can't be placed
+ * in the tree, so they are returned by every frustum query and by no other.
+ */
+public class SceneIndex {
+    // The tree of bounded entities.
+    private final DynamicBvh<Entity> tree;
+
+    // The leaf of every bounded entity.
+    private final Map<Entity, Integer> leaves;
+
+    // The entities whose models have no bounds.
+    private final List<Entity> unbounded;
+
+    // The world box of the entity being added or moved.
+    private final AABBf worldBox;
+
+    // The frustum of the last frustum query, reused between queries.
+    private final FrustumIntersection frustum;
+
+    /** Initializes a new empty scene index. */
+    public SceneIndex() {
+        this(new DynamicBvh<Entity>());
+    }
+
+    /**
+     * Initializes a new empty scene index over a specific tree.
+     *
+     * @param tree - The empty tree to store the entities in.
+     */
+    public SceneIndex(DynamicBvh<Entity> tree) {
+        this.tree = tree;
+        leaves = new IdentityHashMap<Entity, Integer>();
+        unbounded = new ArrayList<Entity>();
+        worldBox = new AABBf();
+        frustum = new FrustumIntersection();
+    }
+
+    /**
+     * Adds an entity to the index.
+     *
+     * @param entity - The entity, which must not already be in the index.
+     */
+    public void add(Entity entity) {
+        if (getWorldBox(entity)) {
+            leaves.put(entity, tree.add(worldBox, entity));
+        } else {
+            unbounded.add(entity);
+        }
+    }
+
+    /**
+     * Updates an entity after it moved or its model changed. This is cheap for
+     * entities that stay inside the margin of their leaf.
+     *
+     * @param entity - The entity, which must be in the index.
+     * @return - If the entity's place in the tree changed.
+     */
+    public boolean update(Entity entity) {
+        Integer leaf = leaves.get(entity);
+        boolean bounded = getWorldBox(entity);
+
+        if (leaf != null && bounded) return tree.move(leaf, worldBox);
+
+        // The entity's model gained or lost its bounds, so it moves between the tree and the unbounded list.
+        remove(entity);
+        add(entity);
+        return true;
+    }
+
+    /**
+     * Updates every entity in the index, for scenes where most entities move each frame.
+     *
+     * @return - The number of entities whose place in the tree changed.
+     */
+    public int refit() {
+        int moved = 0;
+        for (Map.Entry<Entity, Integer> leaf : leaves.entrySet()) {
+            if (getWorldBox(leaf.getKey()) && tree.move(leaf.getValue(), worldBox)) moved++;
+        }
+        return moved;
+    }
+
+    /**
+     * Removes an entity from the index.
+     *
+     * @param entity - The entity.
+     * @return - If the entity was in the index.
+     */
+    public boolean remove(Entity entity) {
+        Integer leaf = leaves.remove(entity);
+        if (leaf != null) {
+            tree.remove(leaf);
+            return true;
+        }
+        return unbounded.remove(entity);
+    }
+
+    /** Removes every entity from the index. */
+    public void clear() {
+        tree.clear();
+        leaves.clear();
+        unbounded.clear();
+    }
+
+    /**
+     * Finds the entities that may be inside a frustum, along with every unbounded entity.
+     *
+     * @param viewProjection - The projection matrix multiplied by the view matrix.
+     * @param results - The list to add the entities to.
+     */
+    public void queryFrustum(Matrix4fc viewProjection, List<Entity> results) {
+        frustum.set(viewProjection, false);
+        tree.queryFrustum(frustum, results);
+        results.addAll(unbounded);
+    }
+
+    /**
+     * Finds the entities whose bounds a ray may pass through, for picking.
+     *
+     * @param ray - The ray in world space.
+     * @param maxDistance - The furthest distance along the ray to test, in multiples of its direction.
+     * @param results - The list to add the entities to.
+     */
+    public void queryRay(Rayf ray, float maxDistance, List<Entity> results) {
+        tree.queryRay(ray, maxDistance, results);
+    }
+
+    /**
+     * Finds the entities whose bounds may overlap a sphere, for proximity checks.
+     *
+     * @param sphere - The sphere in world space.
+     * @param results - The list to add the entities to.
+     */
+    public void querySphere(Spheref sphere, List<Entity> results) {
+        tree.querySphere(sphere, results);
+    }
+
+    /**
+     * The getter method for the entity count.
+     * @return - The number of entities in the index.
+     */
+    public int size() {
+        return leaves.size() + unbounded.size();
+    }
+
+    /**
+     * The getter method for the tree.
+     * @return - The tree of bounded entities.
+     */
+    public DynamicBvh<Entity> getTree() {
+        return tree;
+    }
+
+    /**
+     * Computes the world box of an entity into the scratch box.
+     *
+     * @param entity - The entity.
+     * @return - If the entity's model has bounds.
+     */
+    private boolean getWorldBox(Entity entity) {
+        AABBfc bounds = entity.getModel().getBounds();
+        if (bounds == null) return false;
+
+        Bounds.transform(bounds, entity.getTransform(), worldBox);
+        return true;
+    }
+}
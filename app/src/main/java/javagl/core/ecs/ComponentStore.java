@@ -0,0 +1,178 @@
+package javagl.core.ecs;
+
+import java.util.Arrays;
+
+/**
+ * A sparse set of components, one per entity. The components are packed
+ * densely with no gaps, so systems loop over plain arrays in memory order,
+ * while the sparse array finds an entity's component in constant time.
+ * Removing a component moves the last component into its place, so the dense
+ * order is not the order components were added in. The sparse array is indexed
+ * by the index part of entity ids, and lookups compare the full id, so a
+ * destroyed entity's id never finds the component of an entity reusing its index.
+ *
+ * Stores are not thread-safe. Systems may read and write the components of a
+ * store in parallel, but adding and removing components must not overlap with
+ * any other access.
+ */
+public abstract class ComponentStore {
+    // The dense index of entities without a component.
+    public static final int ABSENT = -1;
+
+    // The number of primitive values in each component.
+    protected final int components;
+
+    // The dense index of each entity index's component, or ABSENT.
+    private int[] sparse;
+
+    // The full id, generation included, of the entity of each dense component.
+    private int[] entities;
+
+    // The number of components in the store.
+    private int size;
+
+    /**
+     * Initializes a new empty store.
+     *
+     * @param components - The number of primitive values in each component.
+     * @param capacity - The number of components to allocate room for, which grows as needed.
+     */
+    protected ComponentStore(int components, int capacity) {
+        if (components < 1) throw new IllegalArgumentException("Components must have at least one value");
+        this.components = components;
+        capacity = Math.max(capacity, 16);
+        sparse = new int[capacity];
+        Arrays.fill(sparse, ABSENT);
+        entities = new int[capacity];
+    }
+
+    /**
+     * Adds a zeroed component to an entity, or finds the one it already has.
+     * A component left behind by an older entity with the same index is removed.
+     *
+     * @param entity - The entity.
+     * @return - The dense index of the entity's component.
+     */
+    public int add(int entity) {
+        if (entity < 0) throw new IllegalArgumentException("No entity with id " + entity);
+        int index = indexOf(entity);
+        if (index != ABSENT) return index;
+
+        int slot = World.getIndex(entity);
+        if (slot >= sparse.length) {
+            int length = sparse.length;
+            sparse = Arrays.copyOf(sparse, Math.max(slot + 1, length * 2));
+            Arrays.fill(sparse, length, sparse.length, ABSENT);
+        } else if (sparse[slot] != ABSENT) {
+            remove(entities[sparse[slot]]);
+        }
+        if (size == entities.length) {
+            entities = Arrays.copyOf(entities, size * 2);
+            resize(size * 2);
+        }
+
+        entities[size] = entity;
+        sparse[slot] = size;
+        clear(size);
+        return size++;
+    }
+
+    /**
+     * Removes the component of an entity, moving the last component into its place.
+     *
+     * @param entity - The entity.
+     * @return - If the entity had a component.
+     */
+    public boolean remove(int entity) {
+        int index = indexOf(entity);
+        if (index == ABSENT) return false;
+
+        int last = --size;
+        if (index != last) {
+            int moved = entities[last];
+            entities[index] = moved;
+            sparse[World.getIndex(moved)] = index;
+            copy(last, index);
+        }
+        sparse[World.getIndex(entity)] = ABSENT;
+        return true;
+    }
+
+    /** Removes every component. */
+    public void clear() {
+        for (int i = 0; i < size; i++) sparse[World.getIndex(entities[i])] = ABSENT;
+        size = 0;
+    }
+
+    /**
+     * Finds the component of an entity.
+     *
+     * @param entity - The entity.
+     * @return - The dense index of the entity's component, or ABSENT, also for destroyed entities whose index was reused.
+     */
+    public int indexOf(int entity) {
+        int slot = World.getIndex(entity);
+        if (entity < 0 || slot >= sparse.length) return ABSENT;
+
+        int index = sparse[slot];
+        return index != ABSENT && entities[index] == entity ? index : ABSENT;
+    }
+
+    /**
+     * Checks if an entity has a component in the store.
+     *
+     * @param entity - The entity.
+     * @return - If the entity has a component.
+     */
+    public boolean has(int entity) {
+        return indexOf(entity) != ABSENT;
+    }
+
+    /**
+     * Returns the entity a component belongs to.
+     *
+     * @param index - The dense index of the component.
+     * @return - The entity.
+     */
+    public int getEntity(int index) {
+        return entities[index];
+    }
+
+    /**
+     * The getter method for the size.
+     * @return - The number of components in the store.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The getter method for the component width.
+     * @return - The number of primitive values in each component.
+     */
+    public int getComponents() {
+        return components;
+    }
+
+    /**
+     * Grows the component data.
+     *
+     * @param capacity - The new number of components to allocate room for.
+     */
+    protected abstract void resize(int capacity);
+
+    /**
+     * Copies a component over another.
+     *
+     * @param from - The dense index of the component to copy.
+     * @param to - The dense index to copy it to.
+     */
+    protected abstract void copy(int from, int to);
+
+    /**
+     * Zeroes a component.
+     *
+     * @param index - The dense index of the component.
+     */
+    protected abstract void clear(int index);
+}
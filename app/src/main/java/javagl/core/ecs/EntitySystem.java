@@ -0,0 +1,30 @@
+package javagl.core.ecs;
+
+/**
+ * A piece of game logic updating the components of many entities at once.
+ * Each system declares the stores it reads and writes, so the scheduler can
+ * run systems that share no written stores at the same time.
+ */
+public interface EntitySystem {
+    /**
+     * Returns the stores the system only reads from.
+     *
+     * @return - The stores read by the system.
+     */
+    ComponentStore[] getReads();
+
+    /**
+     * Returns the stores the system writes to, which it may also read from.
+     *
+     * @return - The stores written by the system.
+     */
+    ComponentStore[] getWrites();
+
+    /**
+     * Updates the components of every entity the system handles. This may be
+     * called on a worker thread, alongside other systems that don't conflict.
+     *
+     * @param delta - The time step of the update, in seconds.
+     */
+    void update(float delta);
+}
@@ -0,0 +1,72 @@
+package javagl.core.ecs;
+
+import java.util.Arrays;
+
+/**
+ * A store of components made of floats, such as positions or velocities. The
+ * values of every component are interleaved in a single array, so the values
+ * of component i start at i * getComponents().
+ */
+public class FloatStore extends ComponentStore {
+    // The values of every component, in dense order.
+    private float[] data;
+
+    /**
+     * Initializes a new empty store.
+     *
+     * @param components - The number of floats in each component.
+     * @param capacity - The number of components to allocate room for, which grows as needed.
+     */
+    public FloatStore(int components, int capacity) {
+        super(components, capacity);
+        data = new float[Math.max(capacity, 16) * components];
+    }
+
+    /**
+     * Returns a value of a component.
+     *
+     * @param index - The dense index of the component.
+     * @param component - The value within the component.
+     * @return - The value.
+     */
+    public float get(int index, int component) {
+        return data[index * components + component];
+    }
+
+    /**
+     * Sets a value of a component.
+     *
+     * @param index - The dense index of the component.
+     * @param component - The value within the component.
+     * @param value - The new value.
+     */
+    public void set(int index, int component, float value) {
+        data[index * components + component] = value;
+    }
+
+    /**
+     * Returns the values of every component, for systems looping over the store
+     * directly. The array is replaced when the store grows, so it must be
+     * fetched again after adding components.
+     *
+     * @return - The values, with getComponents() floats per component in dense order.
+     */
+    public float[] getData() {
+        return data;
+    }
+
+    @Override
+    protected void resize(int capacity) {
+        data = Arrays.copyOf(data, capacity * components);
+    }
+
+    @Override
+    protected void copy(int from, int to) {
+        System.arraycopy(data, from * components, data, to * components, components);
+    }
+
+    @Override
+    protected void clear(int index) {
+        Arrays.fill(data, index * components, (index + 1) * components, 0);
+    }
+}
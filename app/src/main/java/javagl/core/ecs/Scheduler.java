@@ -0,0 +1,273 @@
+package javagl.core.ecs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a list of systems once per update, in parallel where possible. The
+ * systems are split into stages, where no two systems in a stage conflict, so
+ * each stage runs its systems at the same time on a fork join pool. Systems
+ * that conflict always run in the order they were added, so the result is the
+ * same as running every system in order on one thread.
+ *
+ * Two systems conflict if either one writes a store the other reads or writes.
+ */
+public class Scheduler {
+    // The number of entities below which a range isn't split any further.
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    // The pool the stages and ranges run on.
+    private final ForkJoinPool pool;
+
+    // The systems in the order they were added.
+    private final List<EntitySystem> systems;
+
+    // The systems of each stage, rebuilt after systems are added.
+    private final List<EntitySystem[]> stages;
+    private boolean dirty;
+
+    /** An action run over a range of dense component indices. */
+    public interface RangeAction {
+        /**
+         * Runs the action over a range.
+         *
+         * @param from - The first index.
+         * @param to - The index after the last.
+         */
+        void run(int from, int to);
+    }
+
+    /** Initializes a new scheduler running on the common fork join pool. */
+    public Scheduler() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Initializes a new scheduler running on a specific pool.
+     *
+     * @param pool - The pool the systems run on.
+     */
+    public Scheduler(ForkJoinPool pool) {
+        this.pool = pool;
+        systems = new ArrayList<EntitySystem>();
+        stages = new ArrayList<EntitySystem[]>();
+    }
+
+    /**
+     * Adds a system to run after every system added before it that it conflicts with.
+     *
+     * @param system - The system.
+     */
+    public void add(EntitySystem system) {
+        systems.add(system);
+        dirty = true;
+    }
+
+    /**
+     * Runs every system once, one stage at a time.
+     *
+     * @param delta - The time step of the update, in seconds.
+     */
+    public void update(float delta) {
+        if (dirty) buildStages();
+
+        // Handing work to a pool with one thread only adds the cost of waking it, so it runs here instead.
+        boolean inline = pool.getParallelism() == 1;
+        for (EntitySystem[] stage : stages) {
+            if (stage.length == 1 || inline) {
+                for (EntitySystem system : stage) system.update(delta);
+            } else {
+                pool.invoke(new StageTask(stage, delta));
+            }
+        }
+    }
+
+    /**
+     * Runs an action over a range of indices, split into chunks run in
+     * parallel on the scheduler's pool. Systems use this to spread their loop
+     * over the components of a store across every core.
+     *
+     * @param count - The number of indices, from 0.
+     * @param chunkSize - The largest number of indices run by one task.
+     * @param action - The action, which must be safe to run on several ranges at once.
+     */
+    public void parallelFor(int count, int chunkSize, RangeAction action) {
+        if (count <= chunkSize || pool.getParallelism() == 1) {
+            action.run(0, count);
+            return;
+        }
+
+        RangeTask task = new RangeTask(action, 0, count, Math.max(chunkSize, 1));
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    /**
+     * Runs an action over a range of indices in parallel, with the default chunk size.
+     *
+     * @param count - The number of indices, from 0.
+     * @param action - The action, which must be safe to run on several ranges at once.
+     */
+    public void parallelFor(int count, RangeAction action) {
+        parallelFor(count, DEFAULT_CHUNK_SIZE, action);
+    }
+
+    /**
+     * The getter method for the stage count.
+     * @return - The number of stages the systems run in.
+     */
+    public int getStageCount() {
+        if (dirty) buildStages();
+        return stages.size();
+    }
+
+    /**
+     * Splits the systems into stages, putting each system in the stage after
+     * the latest earlier system it conflicts with.
+     */
+    private void buildStages() {
+        int[] stageOf = new int[systems.size()];
+        List<List<EntitySystem>> built = new ArrayList<List<EntitySystem>>();
+
+        for (int i = 0; i < systems.size(); i++) {
+            int stage = 0;
+            for (int j = 0; j < i; j++) {
+                if (conflicts(systems.get(i), systems.get(j))) stage = Math.max(stage, stageOf[j] + 1);
+            }
+
+            stageOf[i] = stage;
+            if (stage == built.size()) built.add(new ArrayList<EntitySystem>());
+            built.get(stage).add(systems.get(i));
+        }
+
+        stages.clear();
+        for (List<EntitySystem> stage : built) stages.add(stage.toArray(new EntitySystem[0]));
+        dirty = false;
+    }
+
+    /**
+     * Checks if two systems can't run at the same time.
+     *
+     * @param a - The first system.
+     * @param b - The second system.
+     * @return - If either system writes a store the other one uses.
+     */
+    private static boolean conflicts(EntitySystem a, EntitySystem b) {
+        return overlaps(a.getWrites(), b.getWrites()) || overlaps(a.getWrites(), b.getReads()) || overlaps(b.getWrites(), a.getReads());
+    }
+
+    /**
+     * Checks if two arrays of stores share a store.
+     *
+     * @param a - The first stores.
+     * @param b - The second stores.
+     * @return - If any store is in both arrays.
+     */
+    private static boolean overlaps(ComponentStore[] a, ComponentStore[] b) {
+        for (ComponentStore store : a) {
+            for (ComponentStore other : b) {
+                if (store == other) return true;
+            }
+        }
+        return false;
+    }
+
+    /** A task running every system of a stage at once. */
+    private static class StageTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // The systems of the stage.
+        private final EntitySystem[] stage;
+
+        // The time step of the update.
+        private final float delta;
+
+        /**
+         * Initializes a new task for a stage.
+         *
+         * @param stage - The systems of the stage.
+         * @param delta - The time step of the update, in seconds.
+         */
+        StageTask(EntitySystem[] stage, float delta) {
+            this.stage = stage;
+            this.delta = delta;
+        }
+
+        @Override
+        protected void compute() {
+            SystemTask[] tasks = new SystemTask[stage.length];
+            for (int i = 0; i < stage.length; i++) tasks[i] = new SystemTask(stage[i], delta);
+            invokeAll(tasks);
+        }
+    }
+
+    /** A task running a single system. */
+    private static class SystemTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // The system to run.
+        private final EntitySystem system;
+
+        // The time step of the update.
+        private final float delta;
+
+        /**
+         * Initializes a new task for a system.
+         *
+         * @param system - The system to run.
+         * @param delta - The time step of the update, in seconds.
+         */
+        SystemTask(EntitySystem system, float delta) {
+            this.system = system;
+            this.delta = delta;
+        }
+
+        @Override
+        protected void compute() {
+            system.update(delta);
+        }
+    }
+
+    /** A task running an action over a range, split in half until it fits in a chunk. */
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // The action to run.
+        private final RangeAction action;
+
+        // The range of indices, and the largest range run without splitting.
+        private final int from, to, chunkSize;
+
+        /**
+         * Initializes a new task over a range.
+         *
+         * @param action - The action to run.
+         * @param from - The first index.
+         * @param to - The index after the last.
+         * @param chunkSize - The largest range run without splitting.
+         */
+        RangeTask(RangeAction action, int from, int to, int chunkSize) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                action.run(from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(action, from, middle, chunkSize), new RangeTask(action, middle, to, chunkSize));
+        }
+    }
+}
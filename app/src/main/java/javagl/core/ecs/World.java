@@ -0,0 +1,151 @@
+package javagl.core.ecs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The entities of a scene and the stores holding their components. Entities
+ * are plain int ids with no objects behind them. The low bits of an id are
+ * an index, which destroyed entities hand on to later ones, and the high bits
+ * are a generation, which changes every time the index is reused, so an id
+ * kept after its entity was destroyed never matches the entity that replaced it.
+ */
+public class World {
+    // The number of low bits of an id holding its index, and the bits left for its generation.
+    public static final int INDEX_BITS = 22;
+    public static final int GENERATION_BITS = Integer.SIZE - 1 - INDEX_BITS;
+
+    // The masks of the index and generation, keeping every id positive.
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << GENERATION_BITS) - 1;
+
+    // Every store created by the world, which destroyed entities are removed from.
+    private final List<ComponentStore> stores;
+
+    // If each index belongs to a living entity.
+    private boolean[] alive;
+
+    // The current generation of each index.
+    private int[] generations;
+
+    // The indices of destroyed entities, ready to be reused.
+    private int[] free;
+    private int freeCount;
+
+    // The next index never used, and the number of living entities.
+    private int nextIndex, count;
+
+    /** Initializes a new empty world. */
+    public World() {
+        stores = new ArrayList<ComponentStore>();
+        alive = new boolean[1024];
+        generations = new int[1024];
+        free = new int[64];
+    }
+
+    /**
+     * Creates a new entity with no components.
+     *
+     * @return - The id of the entity.
+     */
+    public int create() {
+        int index;
+        if (freeCount > 0) {
+            index = free[--freeCount];
+        } else {
+            if (nextIndex > INDEX_MASK) throw new IllegalStateException("A world holds at most " + (INDEX_MASK + 1) + " entities");
+            index = nextIndex++;
+            if (index == alive.length) {
+                alive = Arrays.copyOf(alive, alive.length * 2);
+                generations = Arrays.copyOf(generations, generations.length * 2);
+            }
+        }
+
+        alive[index] = true;
+        count++;
+        return generations[index] << INDEX_BITS | index;
+    }
+
+    /**
+     * Destroys an entity, removing its components from every store.
+     *
+     * @param entity - The id of the entity, whose index may be reused by later entities.
+     */
+    public void destroy(int entity) {
+        if (!isAlive(entity)) throw new IllegalArgumentException("No entity with id " + entity);
+
+        for (int i = 0; i < stores.size(); i++) stores.get(i).remove(entity);
+        int index = getIndex(entity);
+        alive[index] = false;
+        generations[index] = generations[index] + 1 & GENERATION_MASK;
+        count--;
+
+        if (freeCount == free.length) free = Arrays.copyOf(free, free.length * 2);
+        free[freeCount++] = index;
+    }
+
+    /**
+     * Checks if an entity exists. Ids of destroyed entities stay dead after
+     * their index is reused, until the generation wraps around.
+     *
+     * @param entity - The id of the entity.
+     * @return - If the entity was created and has not been destroyed.
+     */
+    public boolean isAlive(int entity) {
+        int index = getIndex(entity);
+        return entity >= 0 && index < nextIndex && alive[index] && generations[index] == getGeneration(entity);
+    }
+
+    /**
+     * Finds the index part of an entity id.
+     *
+     * @param entity - The id of the entity.
+     * @return - The index, which is only unique among living entities.
+     */
+    public static int getIndex(int entity) {
+        return entity & INDEX_MASK;
+    }
+
+    /**
+     * Finds the generation part of an entity id.
+     *
+     * @param entity - The id of the entity.
+     * @return - The number of entities that had the same index before it, wrapping around.
+     */
+    public static int getGeneration(int entity) {
+        return entity >>> INDEX_BITS & GENERATION_MASK;
+    }
+
+    /**
+     * Creates a store of float components attached to the world.
+     *
+     * @param components - The number of floats in each component.
+     * @return - The new store.
+     */
+    public FloatStore createFloatStore(int components) {
+        FloatStore store = new FloatStore(components, alive.length);
+        stores.add(store);
+        return store;
+    }
+
+    /**
+     * Creates a store of int components attached to the world.
+     *
+     * @param components - The number of ints in each component.
+     * @return - The new store.
+     */
+    public IntStore createIntStore(int components) {
+        IntStore store = new IntStore(components, alive.length);
+        stores.add(store);
+        return store;
+    }
+
+    /**
+     * The getter method for the entity count.
+     * @return - The number of living entities.
+     */
+    public int size() {
+        return count;
+    }
+}
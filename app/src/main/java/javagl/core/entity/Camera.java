@@ -0,0 +1,116 @@
+package javagl.core.entity;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+
+/**
+ * A camera with a position and a pitch, yaw, and roll rotation. The view matrix
+ * is cached and only rebuilt after the camera moves, in place and without
+ * allocating.
+ */
+public class Camera {
+    // The position of the camera and its rotation around the x, y, and z axes in radians.
+    private final Vector3f position, rotation;
+
+    // The cached view matrix, and if it needs to be rebuilt.
+    private final Matrix4f view;
+    private boolean dirty;
+
+    /** Initializes a new camera at the origin, looking down the negative z axis. */
+    public Camera() {
+        position = new Vector3f();
+        rotation = new Vector3f();
+        view = new Matrix4f();
+        dirty = true;
+    }
+
+    /**
+     * Sets the position of the camera.
+     *
+     * @param x - The x position.
+     * @param y - The y position.
+     * @param z - The z position.
+     */
+    public void setPosition(float x, float y, float z) {
+        position.set(x, y, z);
+        dirty = true;
+    }
+
+    /**
+     * Moves the camera relative to the direction it is facing, so a negative z
+     * offset moves it forward and a positive x offset moves it right.
+     *
+     * @param x - The distance to move to the right.
+     * @param y - The distance to move up.
+     * @param z - The distance to move backward.
+     */
+    public void movePosition(float x, float y, float z) {
+        if (z != 0) {
+            position.x += (float) Math.sin(rotation.y) * -z;
+            position.z += (float) Math.cos(rotation.y) * z;
+        }
+        if (x != 0) {
+            position.x += (float) Math.sin(rotation.y - Math.PI / 2) * -x;
+            position.z += (float) Math.cos(rotation.y - Math.PI / 2) * x;
+        }
+        position.y += y;
+        dirty = true;
+    }
+
+    /**
+     * Sets the rotation of the camera.
+     *
+     * @param pitch - The rotation around the x axis in radians.
+     * @param yaw - The rotation around the y axis in radians.
+     * @param roll - The rotation around the z axis in radians.
+     */
+    public void setRotation(float pitch, float yaw, float roll) {
+        rotation.set(pitch, yaw, roll);
+        dirty = true;
+    }
+
+    /**
+     * Adds to the rotation of the camera.
+     *
+     * @param pitch - The rotation to add around the x axis in radians.
+     * @param yaw - The rotation to add around the y axis in radians.
+     * @param roll - The rotation to add around the z axis in radians.
+     */
+    public void moveRotation(float pitch, float yaw, float roll) {
+        rotation.add(pitch, yaw, roll);
+        dirty = true;
+    }
+
+    /**
+     * Returns the view matrix, rebuilding it first if the camera has moved.
+     *
+     * @return - The view matrix, which must not be modified.
+     */
+    public Matrix4f getViewMatrix() {
+        if (dirty) {
+            view.rotationX(rotation.x)
+                .rotateY(rotation.y)
+                .rotateZ(rotation.z)
+                .translate(-position.x, -position.y, -position.z);
+            dirty = false;
+        }
+        return view;
+    }
+
+    /**
+     * The getter method for the position.
+     * @return - A read-only view of the position of the camera.
+     */
+    public Vector3fc getPosition() {
+        return position;
+    }
+
+    /**
+     * The getter method for the rotation.
+     * @return - A read-only view of the pitch, yaw, and roll of the camera in radians.
+     */
+    public Vector3fc getRotation() {
+        return rotation;
+    }
+}
@@ -0,0 +1,146 @@
+package javagl.core.entity;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+
+import javagl.core.mesh.VertexFormat;
+import javagl.core.render.StreamingBuffer;
+
+/**
+ * A model whose geometry can be rewritten every frame. Its vertices and indices
+ * live in streaming buffers, and each update writes into the next frame's region
+ * and moves the model's draw range there, so the vertex array is created once and
+ * nothing is allocated or reallocated while it is in use.
+ */
+public class DynamicModel extends Model {
+    // The buffers holding the vertices and indices of each frame.
+    private final StreamingBuffer vertexBuffer;
+    private final StreamingBuffer indexBuffer;
+
+    // The largest number of vertices and indices that can be written in a frame.
+    private final int maxVertices, maxIndices;
+
+    // The vertex and index ranges being written by the current update.
+    private ByteBuffer vertices, indices;
+    private int vertexCount, indexCount;
+
+    /**
+     * Initializes a new dynamic model.
+     *
+     * @param format - The vertex format of the model.
+     * @param maxVertices - The largest number of vertices that can be written in a frame.
+     * @param maxIndices - The largest number of indices that can be written in a frame.
+     */
+    public DynamicModel(VertexFormat format, int maxVertices, int maxIndices) {
+        super(GL30.glGenVertexArrays(), 0, format);
+        this.maxVertices = maxVertices;
+        this.maxIndices = maxIndices;
+
+        vertexBuffer = new StreamingBuffer((long) maxVertices * format.getStride());
+        indexBuffer = new StreamingBuffer((long) maxIndices * Integer.BYTES);
+
+        // Points the vertex array at the start of both buffers; each frame is reached through the draw range.
+        GL30.glBindVertexArray(getId());
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, indexBuffer.getId());
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vertexBuffer.getId());
+        format.setup(0);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        GL30.glBindVertexArray(0);
+    }
+
+    /**
+     * Begins rewriting the model's geometry for a new frame. The buffers from
+     * getVertices and getIndices must be filled between their positions and limits, with vertices
+     * packed in the model's format and indices as native-order ints starting
+     * from zero, before end is called.
+     *
+     * @param vertexCount - The number of vertices to write.
+     * @param indexCount - The number of indices to write.
+     */
+    public void begin(int vertexCount, int indexCount) {
+        if (vertexCount > maxVertices || indexCount > maxIndices) {
+            throw new IllegalArgumentException("Dynamic model limited to " + maxVertices + " vertices and " + maxIndices + " indices");
+        }
+
+        this.vertexCount = vertexCount;
+        this.indexCount = indexCount;
+        vertexBuffer.nextFrame();
+        indexBuffer.nextFrame();
+
+        int stride = getFormat().getStride();
+        vertices = vertexBuffer.map(vertexCount * stride, stride);
+        indices = indexBuffer.map(indexCount * Integer.BYTES, Integer.BYTES);
+    }
+
+    /**
+     * The getter method for the vertices being written.
+     * @return - The memory to write this frame's vertices through.
+     */
+    public ByteBuffer getVertices() {
+        return vertices;
+    }
+
+    /**
+     * The getter method for the indices being written.
+     * @return - The memory to write this frame's indices through.
+     */
+    public ByteBuffer getIndices() {
+        return indices;
+    }
+
+    /** Finishes rewriting the model's geometry and points the model at it. */
+    public void end() {
+        vertices = null;
+        indices = null;
+
+        vertexBuffer.unmap();
+        indexBuffer.unmap();
+
+        int baseVertex = (int) (vertexBuffer.getMappedOffset() / getFormat().getStride());
+        setDrawRange(indexCount, indexBuffer.getMappedOffset(), baseVertex);
+    }
+
+    /**
+     * Rewrites the model's geometry from separate arrays of attribute data,
+     * interleaving them straight into the streaming buffer.
+     *
+     * @param sources - The data of each attribute of the format, in order.
+     * @param vertexCount - The number of vertices.
+     * @param indices - The order of vertices to render, starting from zero.
+     */
+    public void update(FloatBuffer[] sources, int vertexCount, IntBuffer indices) {
+        begin(vertexCount, indices.remaining());
+
+        getFormat().pack(sources, vertexCount, this.vertices);
+        for (int i = 0; i < indexCount; i++) this.indices.putInt(indices.get(indices.position() + i));
+
+        end();
+    }
+
+    /**
+     * The getter method for the vertex count of the last update.
+     * @return - The number of vertices written by the last update.
+     */
+    public int getDynamicVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * The getter method for the vertex buffer.
+     * @return - The streaming buffer holding the model's vertices.
+     */
+    public StreamingBuffer getVertexBuffer() {
+        return vertexBuffer;
+    }
+
+    /** Deletes the model's vertex array and streaming buffers. */
+    public void cleanup() {
+        GL30.glDeleteVertexArrays(getId());
+        vertexBuffer.cleanup();
+        indexBuffer.cleanup();
+    }
+}
@@ -0,0 +1,214 @@
+package javagl.core.entity;
+
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.joml.Quaternionf;
+import org.joml.Quaternionfc;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.joml.primitives.Spheref;
+
+import javagl.core.culling.Bounds;
+
+/**
+ * A model placed in the world with a position, rotation, and scale. The model
+ * matrix is cached and only rebuilt after the entity changes, in place and
+ * without allocating, so static entities cost nothing per frame.
+ */
+public class Entity {
+    // The model drawn for the entity.
+    private Model model;
+
+    // The position, rotation, and scale of the entity.
+    private final Vector3f position;
+    private final Quaternionf rotation;
+    private final Vector3f scale;
+
+    // The cached model matrix, and if it needs to be rebuilt.
+    private final Matrix4f transform;
+    private boolean dirty;
+
+    // The level of detail the entity was last drawn at, or -1 if it has not been drawn.
+    private int lodLevel;
+
+    /**
+     * Initializes a new entity at the origin with no rotation and a scale of one.
+     *
+     * @param model - The model drawn for the entity.
+     */
+    public Entity(Model model) {
+        this.model = model;
+        position = new Vector3f();
+        rotation = new Quaternionf();
+        scale = new Vector3f(1);
+        transform = new Matrix4f();
+        dirty = true;
+        lodLevel = -1;
+    }
+
+    /**
+     * Sets the position of the entity.
+     *
+     * @param x - The x position.
+     * @param y - The y position.
+     * @param z - The z position.
+     */
+    public void setPosition(float x, float y, float z) {
+        position.set(x, y, z);
+        dirty = true;
+    }
+
+    /**
+     * Moves the entity by an offset.
+     *
+     * @param x - The distance to move along the x axis.
+     * @param y - The distance to move along the y axis.
+     * @param z - The distance to move along the z axis.
+     */
+    public void movePosition(float x, float y, float z) {
+        position.add(x, y, z);
+        dirty = true;
+    }
+
+    /**
+     * Sets the rotation of the entity from Euler angles, applied in x, y, z order.
+     *
+     * @param x - The rotation around the x axis in radians.
+     * @param y - The rotation around the y axis in radians.
+     * @param z - The rotation around the z axis in radians.
+     */
+    public void setRotation(float x, float y, float z) {
+        rotation.rotationXYZ(x, y, z);
+        dirty = true;
+    }
+
+    /**
+     * Sets the rotation of the entity.
+     *
+     * @param rotation - The new rotation.
+     */
+    public void setRotation(Quaternionfc rotation) {
+        this.rotation.set(rotation);
+        dirty = true;
+    }
+
+    /**
+     * Rotates the entity further around an axis.
+     *
+     * @param angle - The angle to rotate by in radians.
+     * @param x - The x component of the axis.
+     * @param y - The y component of the axis.
+     * @param z - The z component of the axis.
+     */
+    public void rotate(float angle, float x, float y, float z) {
+        rotation.rotateAxis(angle, x, y, z);
+        dirty = true;
+    }
+
+    /**
+     * Sets the same scale on every axis.
+     *
+     * @param scale - The new scale.
+     */
+    public void setScale(float scale) {
+        this.scale.set(scale);
+        dirty = true;
+    }
+
+    /**
+     * Sets the scale of each axis.
+     *
+     * @param x - The scale along the x axis.
+     * @param y - The scale along the y axis.
+     * @param z - The scale along the z axis.
+     */
+    public void setScale(float x, float y, float z) {
+        scale.set(x, y, z);
+        dirty = true;
+    }
+
+    /**
+     * Returns the model matrix, rebuilding it first if the entity has changed.
+     *
+     * @return - A read-only view of the model matrix.
+     */
+    public Matrix4fc getTransform() {
+        if (dirty) {
+            transform.translationRotateScale(position, rotation, scale);
+            dirty = false;
+        }
+        return transform;
+    }
+
+    /**
+     * Computes the bounding sphere of the entity in world space, from its
+     * model's bounding sphere and its transform.
+     *
+     * @param dest - The sphere to store the result in.
+     * @return - If the model has bounds and the result was stored.
+     */
+    public boolean getWorldSphere(Spheref dest) {
+        Spheref sphere = model.getBoundingSphere();
+        if (sphere == null) return false;
+
+        Bounds.transform(sphere, getTransform(), dest);
+        return true;
+    }
+
+    /**
+     * The getter method for the level of detail.
+     * @return - The level of detail the entity was last drawn at, or -1 if it has not been drawn.
+     */
+    public int getLodLevel() {
+        return lodLevel;
+    }
+
+    /**
+     * The setter method for the level of detail, which the renderer sets when it picks one.
+     * @param lodLevel - The level of detail the entity was drawn at.
+     */
+    public void setLodLevel(int lodLevel) {
+        this.lodLevel = lodLevel;
+    }
+
+    /**
+     * The getter method for the model.
+     * @return - The model drawn for the entity.
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * The setter method for the model.
+     * @param model - The new model to draw for the entity.
+     */
+    public void setModel(Model model) {
+        this.model = model;
+        lodLevel = -1;
+    }
+
+    /**
+     * The getter method for the position.
+     * @return - A read-only view of the position of the entity.
+     */
+    public Vector3fc getPosition() {
+        return position;
+    }
+
+    /**
+     * The getter method for the rotation.
+     * @return - A read-only view of the rotation of the entity.
+     */
+    public Quaternionfc getRotation() {
+        return rotation;
+    }
+
+    /**
+     * The getter method for the scale.
+     * @return - A read-only view of the scale of the entity.
+     */
+    public Vector3fc getScale() {
+        return scale;
+    }
+}
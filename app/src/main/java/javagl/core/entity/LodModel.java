@@ -0,0 +1,148 @@
+package javagl.core.entity;
+
+import org.joml.primitives.AABBf;
+import org.joml.primitives.Spheref;
+import org.lwjgl.opengl.GL11;
+
+import javagl.core.mesh.VertexFormat;
+
+/**
+ * A model with several levels of detail, each a range of the same index
+ * buffer drawn from the same vertices. Each level has a plain Model, so the
+ * renderer submits the level it picks like any other model, and drawn on its
+ * own the LodModel draws its full detail level.
+ *
+ * A level is picked from the size of the model on screen, measured as the
+ * radius of its bounding sphere over the distance to it, scaled by the
+ * projection so that 1 is half the height of the screen. To stop models
+ * flickering between levels near a threshold, a model only changes level once
+ * its size is past the threshold by the hysteresis fraction.
+ */
+public class LodModel extends Model {
+    // The fraction past a threshold a model's size must be before it changes level.
+    public static final float DEFAULT_HYSTERESIS = 0.15f;
+
+    // The screen size of the full detail level, halved for each level after it.
+    public static final float DEFAULT_FULL_DETAIL_SIZE = 0.25f;
+
+    // The model drawing each level, from full to least detail.
+    private final Model[] levels;
+
+    // The smallest screen size each level is used at, where the last is always 0.
+    private final float[] thresholds;
+
+    // The fraction past a threshold a model's size must be before it changes level.
+    private float hysteresis;
+
+    /**
+     * Initializes a new model whose levels are consecutive ranges of its index buffer.
+     *
+     * @param id - The ID of the model.
+     * @param format - The vertex format of the model.
+     * @param indexType - The type of the model's indices, either GL_UNSIGNED_INT or GL_UNSIGNED_SHORT.
+     * @param indexCounts - The number of indices of each level, from full to least detail, stored one after another.
+     */
+    public LodModel(int id, VertexFormat format, int indexType, int[] indexCounts) {
+        super(id, indexCounts[0], format, indexType);
+        levels = new Model[indexCounts.length];
+        thresholds = new float[indexCounts.length];
+        hysteresis = DEFAULT_HYSTERESIS;
+
+        int indexSize = indexType == GL11.GL_UNSIGNED_SHORT ? Short.BYTES : Integer.BYTES;
+        long offset = 0;
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new Model(id, indexCounts[i], format, indexType);
+            levels[i].setDrawRange(indexCounts[i], offset, 0);
+            offset += (long) indexCounts[i] * indexSize;
+            thresholds[i] = i == levels.length - 1 ? 0 : DEFAULT_FULL_DETAIL_SIZE / (1 << i);
+        }
+    }
+
+    /**
+     * Picks the level to draw the model at, staying at the current level
+     * until the size is clearly past the threshold of another.
+     *
+     * @param screenSize - The size of the model on screen, where 1 is half the height of the screen.
+     * @param current - The level the model was last drawn at, or -1 if it has not been drawn.
+     * @return - The level to draw.
+     */
+    public int selectLevel(float screenSize, int current) {
+        int target = 0;
+        while (target < levels.length - 1 && screenSize < thresholds[target]) target++;
+        if (current < 0 || current >= levels.length) return target;
+
+        // Dropping detail needs the size below the current level's threshold by the hysteresis.
+        if (target > current && screenSize >= thresholds[current] * (1 - hysteresis)) return current;
+
+        // Adding detail needs the size above the next level's threshold by the hysteresis.
+        if (target < current && screenSize <= thresholds[current - 1] * (1 + hysteresis)) return current;
+        return target;
+    }
+
+    /**
+     * Returns the model drawing one level.
+     *
+     * @param level - The level, where 0 is full detail.
+     * @return - The model of the level.
+     */
+    public Model getLevel(int level) {
+        return levels[level];
+    }
+
+    /**
+     * The getter method for the level count.
+     * @return - The number of levels of detail.
+     */
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * Returns the smallest screen size a level is used at.
+     *
+     * @param level - The level.
+     * @return - The threshold of the level.
+     */
+    public float getThreshold(int level) {
+        return thresholds[level];
+    }
+
+    /**
+     * Sets the smallest screen size each level is used at. The last level is
+     * always used below the threshold of the level before it.
+     *
+     * @param thresholds - The threshold of every level but the last, in decreasing order.
+     */
+    public void setThresholds(float... thresholds) {
+        if (thresholds.length != levels.length - 1) throw new IllegalArgumentException("Expected " + (levels.length - 1) + " thresholds");
+        System.arraycopy(thresholds, 0, this.thresholds, 0, thresholds.length);
+    }
+
+    /**
+     * The getter method for the hysteresis.
+     * @return - The fraction past a threshold a model's size must be before it changes level.
+     */
+    public float getHysteresis() {
+        return hysteresis;
+    }
+
+    /**
+     * The setter method for the hysteresis.
+     * @param hysteresis - The fraction past a threshold a model's size must be before it changes level.
+     */
+    public void setHysteresis(float hysteresis) {
+        this.hysteresis = hysteresis;
+    }
+
+    @Override
+    public void setTexture(Texture texture) {
+        super.setTexture(texture);
+        for (Model level : levels) level.setTexture(texture);
+    }
+
+    @Override
+    public void setBounds(AABBf bounds, Spheref boundingSphere) {
+        super.setBounds(bounds, boundingSphere);
+        for (Model level : levels) level.setBounds(bounds, boundingSphere);
+    }
+}
@@ -1,5 +1,12 @@
 package javagl.core.entity;
 
+import org.joml.primitives.AABBf;
+import org.joml.primitives.AABBfc;
+import org.joml.primitives.Spheref;
+import org.lwjgl.opengl.GL11;
+
+import javagl.core.mesh.VertexFormat;
+
 /** A class for handling 2D or 3D models. */
 public class Model {
     // The id of the model.
@@ -10,6 +17,20 @@ public class Model {
 
     private Texture texture;
 
+    // The layout of the model's interleaved vertices.
+    private VertexFormat format;
+
+    // The type of the model's indices, either GL_UNSIGNED_INT or GL_UNSIGNED_SHORT.
+    private int indexType = GL11.GL_UNSIGNED_INT;
+
+    // The byte offset of the first index and the value added to every index when drawing.
+    private long indexOffset;
+    private int baseVertex;
+
+    // The bounds of the model's vertices in model space, or null if the model is never culled.
+    private AABBf bounds;
+    private Spheref boundingSphere;
+
     /**
      * Initializes a new model with a specified id
      * and a set number of vertices.
@@ -22,6 +43,34 @@ public class Model {
         this.vertexCount = vertexCount;
     }
 
+    /**
+     * Initializes a new model with a specified id, a set
+     * number of vertices, and the format of its vertices.
+     * 
+     * @param id - The ID of the model.
+     * @param vertexCount - The number of vertices of the model.
+     * @param format - The vertex format of the model.
+     */
+    public Model(int id, int vertexCount, VertexFormat format) {
+        this.id = id;
+        this.vertexCount = vertexCount;
+        this.format = format;
+    }
+
+    /**
+     * Initializes a new model with a specified id, a set number
+     * of vertices, the format of its vertices, and the type of its indices.
+     * 
+     * @param id - The ID of the model.
+     * @param vertexCount - The number of vertices of the model.
+     * @param format - The vertex format of the model.
+     * @param indexType - The type of the model's indices, either GL_UNSIGNED_INT or GL_UNSIGNED_SHORT.
+     */
+    public Model(int id, int vertexCount, VertexFormat format, int indexType) {
+        this(id, vertexCount, format);
+        this.indexType = indexType;
+    }
+
     public Model(int id, int vertexCount, Texture texture) {
         this.id = id;
         this.vertexCount = vertexCount;
@@ -31,6 +80,12 @@ public class Model {
     public Model(Model model, Texture texture) {
         this.id = model.id;
         this.vertexCount = model.vertexCount;
+        this.format = model.format;
+        this.indexType = model.indexType;
+        this.indexOffset = model.indexOffset;
+        this.baseVertex = model.baseVertex;
+        this.bounds = model.bounds;
+        this.boundingSphere = model.boundingSphere;
         this.texture = texture;
     }
 
@@ -50,6 +105,79 @@ public class Model {
         return vertexCount;
     }
 
+    /**
+     * The getter method for the vertex format.
+     * @return - The layout of the model's vertices.
+     */
+    public VertexFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * The getter method for the index type.
+     * @return - The type of the model's indices, either GL_UNSIGNED_INT or GL_UNSIGNED_SHORT.
+     */
+    public int getIndexType() {
+        return indexType;
+    }
+
+    /**
+     * The getter method for the index offset.
+     * @return - The byte offset of the first index in the index buffer.
+     */
+    public long getIndexOffset() {
+        return indexOffset;
+    }
+
+    /**
+     * The getter method for the base vertex.
+     * @return - The value added to every index when drawing.
+     */
+    public int getBaseVertex() {
+        return baseVertex;
+    }
+
+    /**
+     * Changes the range of the model's buffers that is drawn.
+     * 
+     * @param vertexCount - The number of indices to draw.
+     * @param indexOffset - The byte offset of the first index.
+     * @param baseVertex - The value added to every index.
+     */
+    protected void setDrawRange(int vertexCount, long indexOffset, int baseVertex) {
+        this.vertexCount = vertexCount;
+        this.indexOffset = indexOffset;
+        this.baseVertex = baseVertex;
+    }
+
+    /**
+     * The getter method for the bounding box.
+     * @return - The box around the model's vertices in model space, or null if it has no bounds.
+     */
+    public AABBfc getBounds() {
+        return bounds;
+    }
+
+    /**
+     * The getter method for the bounding sphere.
+     * @return - The sphere around the model's vertices in model space, or null if it has no bounds.
+     */
+    public Spheref getBoundingSphere() {
+        return boundingSphere;
+    }
+
+    /**
+     * Sets the bounds of the model's vertices, which are shared with any copies
+     * of the model made afterwards.
+     * 
+     * @param bounds - The box around the vertices in model space, or null to never cull the model.
+     * @param boundingSphere - The sphere around the vertices in model space, or null to never cull the model.
+     */
+    public void setBounds(AABBf bounds, Spheref boundingSphere) {
+        this.bounds = bounds;
+        this.boundingSphere = boundingSphere;
+    }
+
     public Texture getTexture() { 
         return texture;
     }
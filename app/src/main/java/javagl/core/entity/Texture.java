@@ -1,17 +1,33 @@
 package javagl.core.entity;
 
+import org.lwjgl.opengl.GL11;
+
 /** A class for handling textures. */
 public class Texture {
     // The ID of the texture.
     private final int id;
 
+    // The target the texture is bound to, such as GL_TEXTURE_2D or GL_TEXTURE_2D_ARRAY.
+    private final int target;
+
     /**
-     * Initializes a new texture with a new ID.
+     * Initializes a new 2D texture with a new ID.
      * 
      * @param id - The ID of the texture.
      */
     public Texture(int id) {
+        this(id, GL11.GL_TEXTURE_2D);
+    }
+
+    /**
+     * Initializes a new texture with a new ID and a specific target.
+     * 
+     * @param id - The ID of the texture.
+     * @param target - The target the texture is bound to.
+     */
+    public Texture(int id, int target) {
         this.id = id;
+        this.target = target;
     }
     
     /**
@@ -22,4 +38,13 @@ public class Texture {
     public int getId() {
         return id;
     }
+
+    /**
+     * The getter method for the texture target.
+     * 
+     * @return - The target the texture is bound to.
+     */
+    public int getTarget() {
+        return target;
+    }
 }
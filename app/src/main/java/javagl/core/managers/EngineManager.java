@@ -2,27 +2,49 @@ package javagl.core.managers;
 
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWErrorCallback;
+import org.lwjgl.glfw.GLFWVidMode;
+import org.lwjgl.system.MemoryUtil;
 
 import javagl.App;
 import javagl.core.Logic;
+import javagl.core.ThreadedLogic;
+import javagl.core.memory.NativeAllocator;
+import javagl.core.memory.ScratchArena;
+import javagl.core.utils.Clock;
 import javagl.core.utils.Constants;
+import javagl.core.utils.FixedTimestep;
+import javagl.core.utils.SnapshotBuffer;
+import javagl.core.utils.SystemClock;
 
 /** The class for handling runtime of the game engine. */
 public class EngineManager {
     // The amount of nanoseconds in one second.
     public static final long NANOSECOND = 1000000000L;
     
-    // The number of desires frames per second.
-    public static final float FRAMERATE = 1000;
+    // The frame cap used when the refresh rate of the monitor can't be read.
+    public static final float DEFAULT_FRAMERATE = 60;
+
+    // The default number of game logic updates per second.
+    public static final float UPDATE_RATE = 60;
+
+    // The most updates that can be run between two frames before the backlog is dropped.
+    public static final int MAX_UPDATES_PER_FRAME = 5;
 
     // The number of actual frames per second.
     private static int fps;
     
-    // The amount of time in between one frame.
-    public static float frametime = 1.0f / FRAMERATE;
+    // The most frames rendered per second, 0 for no cap, or -1 to match the monitor once the window opens.
+    private float frameRate = -1;
+
+    // Checks if the engine is running. This is read by the simulation thread in threaded mode.
+    private volatile boolean isRunning;
 
-    // Checks if the engine is running.
-    private boolean isRunning;
+    // Checks if game logic should run on its own simulation thread.
+    private final boolean threaded;
+
+    // Counts the frames rendered since the frame counter was last reset.
+    private int frames;
+    private long frameCounter;
 
     // Fetches the window and establishes an error callback for debugging.
     private WindowManager window;
@@ -31,8 +53,38 @@ public class EngineManager {
     // Creates a new set of Logic rules to run.
     private Logic gameLogic;
 
-    /** A basic constructor with no member variables. */
-    public EngineManager() {}
+    // The clock that the engine loop reads time from.
+    private final Clock clock;
+
+    // The scheduler that decides how many updates to run each frame.
+    private final FixedTimestep timestep;
+
+    /** Initializes an engine that updates at the default rate using the system clock. */
+    public EngineManager() {
+        this(UPDATE_RATE, new SystemClock(), false);
+    }
+
+    /**
+     * Initializes an engine that updates at the default rate using the system clock.
+     * 
+     * @param threaded - If game logic should be updated on a separate simulation thread.
+     */
+    public EngineManager(boolean threaded) {
+        this(UPDATE_RATE, new SystemClock(), threaded);
+    }
+
+    /**
+     * Initializes an engine with a custom update rate and clock.
+     * 
+     * @param updateRate - The number of game logic updates per second.
+     * @param clock - The clock to read time from.
+     * @param threaded - If game logic should be updated on a separate simulation thread.
+     */
+    public EngineManager(float updateRate, Clock clock, boolean threaded) {
+        this.clock = clock;
+        this.threaded = threaded;
+        this.timestep = new FixedTimestep(updateRate, MAX_UPDATES_PER_FRAME);
+    }
 
     /**
      * Starts the window and sets up the error callback.
@@ -45,9 +97,23 @@ public class EngineManager {
         gameLogic = App.getGame();
         
         window.init();
+        if (frameRate < 0) frameRate = getMonitorRefreshRate();
         gameLogic.init();
     }
 
+    /**
+     * Reads the refresh rate of the primary monitor, so frames aren't rendered faster than they can be shown.
+     * 
+     * @return - The refresh rate in hertz, or the default frame rate if there is no monitor.
+     */
+    private static float getMonitorRefreshRate() {
+        long monitor = GLFW.glfwGetPrimaryMonitor();
+        if (monitor == MemoryUtil.NULL) return DEFAULT_FRAMERATE;
+
+        GLFWVidMode mode = GLFW.glfwGetVideoMode(monitor);
+        return mode != null && mode.refreshRate() > 0 ? mode.refreshRate() : DEFAULT_FRAMERATE;
+    }
+
     /**
      * Attempts to open and begin rendering in the game window.
      * 
@@ -59,62 +125,145 @@ public class EngineManager {
         run();
     }
 
-    /** Runs the window, counting frames and performing render and input checks. */
+    /** 
+     * Runs the window, counting frames and performing render and input checks.
+     * Game logic updates at a fixed rate no matter how fast frames are rendered,
+     * and the loop waits between frames instead of spinning.
+     */
     public void run() {
         // Enables the window's running state.
         this.isRunning = true;
 
-        // Counts the current number of frames.
-        int frames = 0;
-        long frameCounter = 0;
+        if (threaded) {
+            if (gameLogic instanceof ThreadedLogic) {
+                runThreaded((ThreadedLogic<?>) gameLogic);
+                cleanup();
+                return;
+            }
 
-        // Calculates the number of nanoseconds passed since the last tick.
-        long lastTime = System.nanoTime();
+            System.err.println("Game logic does not support threading, running on a single thread");
+        }
 
-        // Counts the amount of time that has not been processed by the renderer.
-        double unprocessedTime = 0;
+        // The length of a single frame, 0 when uncapped, and the time that the last frame started.
+        long frameLength = getFrameLength();
+        long lastTime = clock.nanoTime();
 
         while (isRunning) {
-            boolean render = false;
-
-            // Calculates the amount of time passed since the last render cycle.
-            long startTime = System.nanoTime();
+            // Calculates the amount of time passed since the last frame.
+            long startTime = clock.nanoTime();
             long passedTime = startTime - lastTime;
             lastTime = startTime;
 
-            // Counts the number of frames passed.
-            unprocessedTime += passedTime / (double) NANOSECOND;
-            frameCounter += passedTime;
-
             // Helps with input and output.
             input();
 
-            // Continues rendering until the amount of unprocessed time has passed the frame time.
-            // This accounts for dropped frames in the case of a render delay.
-            while (unprocessedTime > frametime) {
-                render = true;
-                unprocessedTime -= frametime;
+            // Runs one update for every fixed step of time that has passed.
+            // This keeps the simulation speed independent of the frame rate.
+            int steps = timestep.advance(startTime);
+            for (int i = 0; i < steps; i++) update();
+
+            // Renders the frame, interpolating between the last two updates.
+            render(timestep.getAlpha());
+            countFrame(passedTime);
+
+            // Waits for the rest of the frame instead of spinning.
+            clock.sleepUntil(startTime + frameLength);
+        }
+
+        // Cleans up the window once the engine is done.
+        cleanup();
+    }
+
+    /**
+     * Runs game logic updates on a simulation thread while this thread handles
+     * input and rendering. The simulation publishes a snapshot after each batch
+     * of updates and the renderer always draws the latest complete snapshot,
+     * so GL is only ever touched from this thread.
+     * 
+     * @param logic - The game logic to run.
+     */
+    private <S> void runThreaded(ThreadedLogic<S> logic) {
+        SnapshotBuffer<S> snapshots = new SnapshotBuffer<S>(logic::createSnapshot);
+
+        Thread simulation = new Thread(() -> simulate(logic, snapshots), "Simulation");
+        simulation.setDaemon(true);
+        simulation.start();
+
+        long frameLength = getFrameLength();
+        long lastTime = clock.nanoTime();
+
+        while (isRunning) {
+            long startTime = clock.nanoTime();
+            long passedTime = startTime - lastTime;
+            lastTime = startTime;
+
+            input();
+
+            // Renders the newest snapshot, extrapolating by the time since it was published.
+            S snapshot = snapshots.acquire();
+            float alpha = Math.min(1.0f, (startTime - snapshots.getTime()) / (float) timestep.getStep());
+            logic.render(snapshot, Math.max(0.0f, alpha));
+            window.update();
+            countFrame(passedTime);
 
-                if (window.windowShouldClose()) stop();
-                if (frameCounter >= NANOSECOND) {
-                    setFps(frames);
-                    window.setTitle(Constants.TITLE + " - " + fps + " fps");
+            clock.sleepUntil(startTime + frameLength);
+        }
 
-                    frames = 0;
-                    frameCounter = 0;
+        // Waits for the simulation to finish its current step before cleaning up.
+        try {
+            simulation.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The loop of the simulation thread. Runs fixed updates and publishes a
+     * snapshot whenever at least one update has run.
+     * 
+     * @param logic - The game logic to update.
+     * @param snapshots - The buffer to publish snapshots into.
+     */
+    private <S> void simulate(ThreadedLogic<S> logic, SnapshotBuffer<S> snapshots) {
+        try {
+            while (isRunning) {
+                long now = clock.nanoTime();
+
+                int steps = timestep.advance(now);
+                for (int i = 0; i < steps; i++) update();
+
+                if (steps > 0) {
+                    logic.writeSnapshot(snapshots.getWriteBuffer());
+                    snapshots.publish(now);
                 }
-            }
 
-            // Updates the frame renderer and increases the frame ticker.
-            if (render) {
-                update();
-                render();
-                frames++;
+                // Waits until the next update is due.
+                clock.sleepUntil(now + timestep.getTimeUntilNextStep());
             }
+        } catch (Throwable e) {
+            e.printStackTrace();
+            stop();
         }
+    }
 
-        // Cleans up the window once the engine is done.
-        cleanup();
+    /**
+     * Counts a rendered frame, updating the FPS once a second and closing
+     * the engine if the window has been asked to close.
+     * 
+     * @param passedTime - The time since the last frame in nanoseconds.
+     */
+    private void countFrame(long passedTime) {
+        frames++;
+        frameCounter += passedTime;
+
+        if (window.windowShouldClose()) stop();
+        if (frameCounter >= NANOSECOND) {
+            setFps(frames);
+            window.setTitle(Constants.TITLE + " - " + fps + " fps");
+
+            frames = 0;
+            frameCounter = 0;
+        }
     }
 
     /** Turns off the engine. */
@@ -128,9 +277,13 @@ public class EngineManager {
         gameLogic.input();
     }
 
-    /** Updates the content of the window. */
-    private void render() {
-        gameLogic.render();
+    /** 
+     * Updates the content of the window.
+     * 
+     * @param alpha - How far the frame is between the last update and the next one.
+     */
+    private void render(float alpha) {
+        gameLogic.render(alpha);
         window.update();
     }
 
@@ -145,6 +298,38 @@ public class EngineManager {
         gameLogic.cleanup();
         errorCallback.free();
         GLFW.glfwTerminate();
+
+        // Reports any native memory that was never freed.
+        ScratchArena.get().release();
+        if (NativeAllocator.isTracking()) System.out.print(NativeAllocator.report());
+    }
+
+    /**
+     * Returns the length of a frame at the frame cap.
+     * 
+     * @return - The length of a frame in nanoseconds, or 0 if frames are not capped.
+     */
+    private long getFrameLength() {
+        return frameRate > 0 ? (long) (NANOSECOND / frameRate) : 0;
+    }
+
+    /**
+     * The setter method for the frame cap. Unless it is set before the
+     * engine starts, frames are capped at the monitor's refresh rate.
+     * 
+     * @param frameRate - The most frames to render per second, or 0 to render as fast as possible.
+     */
+    public void setFrameRate(float frameRate) {
+        if (frameRate < 0) throw new IllegalArgumentException("Frame rate must not be negative");
+        this.frameRate = frameRate;
+    }
+
+    /**
+     * The getter method for the frame cap.
+     * @return - The most frames rendered per second, 0 if uncapped, or -1 until the monitor's rate is read.
+     */
+    public float getFrameRate() {
+        return frameRate;
     }
 
     /**
@@ -0,0 +1,166 @@
+package javagl.core.managers;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.glfw.GLFWErrorCallback;
+import org.lwjgl.system.MemoryUtil;
+
+import javagl.core.render.Framebuffer;
+import javagl.core.render.PixelReader;
+
+/**
+ * A window manager that never shows a window. A hidden GLFW window only provides
+ * the GL context, and every frame is rendered into an offscreen framebuffer. When
+ * a frame listener is set, each frame is read back asynchronously through a ring
+ * of pixel buffer objects.
+ *
+ * GLFW still needs a display to create a context, so on a machine without a GPU
+ * this is meant to be run under a virtual display such as Xvfb with Mesa. Setting
+ * the "javagl.headless.egl" system property creates the context through EGL instead of GLX.
+ */
+public class HeadlessWindowManager extends WindowManager {
+    // The number of frames that can be read back at once.
+    private static final int READBACK_SLOTS = 3;
+
+    // The number of frames to render before closing, or 0 to render forever.
+    private final int frameLimit;
+    private int frame;
+
+    // The framebuffer that every frame is rendered into.
+    private Framebuffer framebuffer;
+
+    // The pixel reader and the listener receiving each finished frame.
+    private PixelReader reader;
+    private PixelReader.PixelConsumer frameListener;
+
+    /**
+     * Initializes the variables necessary to render offscreen.
+     *
+     * @param title - The title of the hidden window.
+     * @param width - The width of the framebuffer.
+     * @param height - The height of the framebuffer.
+     * @param frameLimit - The number of frames to render before closing, or 0 to render forever.
+     */
+    public HeadlessWindowManager(String title, int width, int height, int frameLimit) {
+        super(title, width, height, false);
+        this.frameLimit = frameLimit;
+    }
+
+    /** Initializes a hidden window for its GL context and binds an offscreen framebuffer. */
+    @Override
+    public void init() {
+        GLFWErrorCallback.createPrint(System.err).set();
+
+        if (!GLFW.glfwInit()) throw new IllegalStateException("Unable to initialize GLFW");
+
+        // Establishes the same context as the visible window, but never shows it.
+        GLFW.glfwDefaultWindowHints();
+        GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, GLFW.GLFW_FALSE);
+        GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MAJOR, 3);
+        GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MINOR, 2);
+        GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_PROFILE, GLFW.GLFW_OPENGL_CORE_PROFILE);
+        GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_FORWARD_COMPAT, GLFW.GLFW_TRUE);
+        if (Boolean.getBoolean("javagl.headless.egl")) {
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_CREATION_API, GLFW.GLFW_EGL_CONTEXT_API);
+        }
+
+        if (width == 0 || height == 0) throw new IllegalArgumentException("Headless windows need a size");
+
+        // The hidden window is as small as possible since it is never drawn to.
+        window = GLFW.glfwCreateWindow(1, 1, title, MemoryUtil.NULL, MemoryUtil.NULL);
+        if (window == MemoryUtil.NULL) throw new RuntimeException("Failed to create hidden GLFW window");
+
+        GLFW.glfwMakeContextCurrent(window);
+        initGL();
+
+        // Renders every frame into the offscreen framebuffer.
+        try {
+            framebuffer = new Framebuffer(width, height);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create offscreen framebuffer", e);
+        }
+        framebuffer.bind();
+        reader = new PixelReader(READBACK_SLOTS);
+    }
+
+    /**
+     * Finishes the frame, capturing it if capturing is enabled, starting an asynchronous
+     * readback if a listener is set, and handing any finished readbacks to it.
+     */
+    @Override
+    public void update() {
+        if (capture != null) capture.capture(width, height);
+        if (frameListener != null) {
+            reader.read(width, height, frameListener);
+            reader.poll(frameListener);
+        }
+
+        GLFW.glfwPollEvents();
+        frame++;
+    }
+
+    /** Delivers any outstanding frames and cleans up the framebuffer and the hidden window. */
+    @Override
+    public void cleanup() {
+        if (frameListener != null) reader.finish(frameListener);
+
+        reader.cleanup();
+        framebuffer.cleanup();
+        super.cleanup();
+    }
+
+    /**
+     * Sets the listener that receives the pixels of every rendered frame.
+     *
+     * @param frameListener - The frame listener, or null to stop reading frames back.
+     */
+    public void setFrameListener(PixelReader.PixelConsumer frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    /**
+     * Checks to see if the frame limit has been reached.
+     *
+     * @return - If the window should close.
+     */
+    @Override
+    public boolean windowShouldClose() {
+        return (frameLimit > 0 && frame >= frameLimit) || super.windowShouldClose();
+    }
+
+    /**
+     * Keys are never pressed without a visible window.
+     *
+     * @param key - The keycode of the desired key.
+     * @return - Always false.
+     */
+    @Override
+    public boolean isKeyPressed(int key) {
+        return false;
+    }
+
+    /**
+     * Ignores the title, since there is no visible window to show it.
+     *
+     * @param title - The new title of the window.
+     */
+    @Override
+    public void setTitle(String title) {}
+
+    /**
+     * The getter method for the offscreen framebuffer.
+     *
+     * @return - The framebuffer that frames are rendered into.
+     */
+    public Framebuffer getFramebuffer() {
+        return framebuffer;
+    }
+
+    /**
+     * The getter method for the number of rendered frames.
+     *
+     * @return - The number of frames rendered so far.
+     */
+    public int getFrame() {
+        return frame;
+    }
+}
@@ -1,76 +1,365 @@
 package javagl.core.managers;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.joml.primitives.Spheref;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
 
 import javagl.App;
+import javagl.core.culling.FrustumCuller;
+import javagl.core.culling.SceneIndex;
+import javagl.core.entity.Camera;
+import javagl.core.entity.Entity;
+import javagl.core.entity.LodModel;
 import javagl.core.entity.Model;
-import javagl.core.utils.Utils;
+import javagl.core.render.RenderQueue;
+import javagl.core.render.RenderStats;
+import javagl.core.shader.FrameUniforms;
+import javagl.core.shader.Matrix4Uniform;
+import javagl.core.shader.ShaderCache;
 
 /** The class for rendering components onto the screen. */
 public class RenderManager {
-    @SuppressWarnings("unused")
     // The currently running window containing the app.
     private final WindowManager window;
 
     // The currently running shader context.
     private ShaderManager shader;
 
+    // The shader for models textured from a texture array.
+    private ShaderManager arrayShader;
+
+    // The cache the shaders are loaded through.
+    private ShaderCache shaderCache;
+
+    // The model matrix of models submitted without an entity.
+    private static final Matrix4fc IDENTITY = new Matrix4f();
+
+    // The uniform buffer shared by every shader.
+    private FrameUniforms frameUniforms;
+
+    // The camera the scene is viewed from.
+    private Camera camera;
+
+    // The projection matrix and the window size it was built for, so it is only rebuilt on resize.
+    private final Matrix4f projection;
+    private int projectionWidth, projectionHeight;
+
+    // The projection multiplied by the camera's view, which the frustum is taken from.
+    private final Matrix4f viewProjection;
+
+    // The culler testing submitted entities against the frustum, and the indices of the visible ones.
+    private final FrustumCuller culler;
+    private int[] visible;
+
+    // The entities found by the last scene index query.
+    private final List<Entity> found;
+
+    // The world bounding sphere of the entity being added to the culler.
+    private final Spheref worldSphere;
+
+    // The number of entities culled since the last flush.
+    private int culled;
+
+    // The number of triangles left out by levels of detail since the last flush.
+    private long lodSavedTriangles;
+
+    // The "model" matrix uniform of each shader that has one, which follows the shader through hot reloads.
+    private final Map<ShaderManager, Matrix4Uniform> modelUniforms;
+
+    // The program each shader without a model matrix had when it was checked, so it is checked again once reloaded.
+    private final Map<ShaderManager, Integer> programsWithoutModel;
+
+    // The time the renderer was initialized, which the frame's time is measured from.
+    private long startTime;
+
+    // The queue of models submitted for drawing this frame.
+    private final RenderQueue queue;
+
+    // The draw call and state change counters of the last flushed frame.
+    private final RenderStats stats;
+
     /** Initializes a new RenderManager by fetching the window from the app. */
     public RenderManager() {
         window = App.getWindow();
+        queue = new RenderQueue();
+        stats = new RenderStats();
+        camera = new Camera();
+        projection = new Matrix4f();
+        viewProjection = new Matrix4f();
+        culler = new FrustumCuller();
+        visible = new int[0];
+        worldSphere = new Spheref();
+        found = new ArrayList<Entity>();
+        modelUniforms = new IdentityHashMap<ShaderManager, Matrix4Uniform>();
+        programsWithoutModel = new IdentityHashMap<ShaderManager, Integer>();
     }
 
     /** Initializes a new RenderManager. */
     public void init() throws Exception {
-        shader = new ShaderManager();
-        
-        // Creates two new shaders (vertex + fragment).
-        shader.createVertexShader(Utils.loadResource("/shaders/vertex.vs"));
-        shader.createFragmentShader(Utils.loadResource("/shaders/fragment.fs"));
+        // Loads the shaders through the cache, which skips compiling them if a linked binary was saved.
+        shaderCache = new ShaderCache();
+        shader = shaderCache.load("/shaders/vertex.vs", "/shaders/fragment.fs");
 
-        // Links the shader to the window.
-        shader.link();
+        // Creates the shader for models using the POSITION_UV_LAYER format.
+        arrayShader = shaderCache.load("/shaders/array.vs", "/shaders/array.fs");
 
-        // Creates a new uniform for the texture sampler.
-        shader.createUniform("textureSampler");
+        // Samplers are program state, so the texture unit is set once instead of on every shader change.
+        for (ShaderManager program : new ShaderManager[] {shader, arrayShader}) {
+            program.bind();
+            program.createIntUniform("textureSampler").set(0);
+            program.unbind();
+        }
+
+        frameUniforms = new FrameUniforms();
+        startTime = System.nanoTime();
     }
 
     /**
-     * Renders a given Model to the screen by binding a new vertex array
-     * to the GL context and drawing the model's vertex array to the screen.
+     * Renders a given Model to the screen by clearing the buffer and
+     * immediately flushing the model on its own.
      * 
      * @param model - The model to render.
      */
     public void render(Model model) {
-        // Clears the current GL11 buffer.
         clear();
-        
-        // Sets the value of the texture sampler and binds the shader.
-        shader.bind();
-        shader.setUniform("textureSampler", 0);
+        submit(model);
+        flush();
+    }
+
+    /**
+     * Submits a model to be drawn with the default shader when the frame is flushed.
+     * 
+     * @param model - The model to draw.
+     */
+    public void submit(Model model) {
+        queue.submit(model, shader, IDENTITY);
+    }
+
+    /**
+     * Submits a model to be drawn with a specific shader when the frame is flushed.
+     * 
+     * @param model - The model to draw.
+     * @param shader - The shader to draw the model with.
+     */
+    public void submit(Model model, ShaderManager shader) {
+        queue.submit(model, shader, IDENTITY);
+    }
+
+    /**
+     * Submits an entity to be drawn with the default shader when the frame is flushed.
+     * 
+     * @param entity - The entity to draw, which must not change until the frame is flushed.
+     */
+    public void submit(Entity entity) {
+        submit(entity, shader);
+    }
+
+    /**
+     * Submits an entity to be drawn with a specific shader when the frame is flushed.
+     * 
+     * @param entity - The entity to draw, which must not change until the frame is flushed.
+     * @param shader - The shader to draw the entity with.
+     */
+    public void submit(Entity entity, ShaderManager shader) {
+        Model model = entity.getModel();
+        if (model instanceof LodModel) model = selectLevel(entity, (LodModel) model);
+        queue.submit(model, shader, entity.getTransform());
+    }
+
+    /**
+     * Picks the level of detail of an entity from its size on screen.
+     * 
+     * @param entity - The entity, whose level is updated.
+     * @param model - The entity's model.
+     * @return - The model of the level to draw.
+     */
+    private Model selectLevel(Entity entity, LodModel model) {
+        // Models without bounds have no size on screen, so they are always drawn in full detail.
+        float screenSize = Float.POSITIVE_INFINITY;
+        if (entity.getWorldSphere(worldSphere)) {
+            updateProjection();
+            float distance = camera.getPosition().distance(worldSphere.x, worldSphere.y, worldSphere.z);
+            if (distance > worldSphere.r) screenSize = worldSphere.r * projection.m11() / distance;
+        }
+
+        int level = model.selectLevel(screenSize, entity.getLodLevel());
+        entity.setLodLevel(level);
+
+        Model selected = model.getLevel(level);
+        lodSavedTriangles += (model.getVertexCount() - selected.getVertexCount()) / 3;
+        return selected;
+    }
+
+    /**
+     * Submits the entities inside the camera's frustum to be drawn with the
+     * default shader, skipping those whose bounding spheres are off screen.
+     * Entities whose models have no bounds are always drawn.
+     * 
+     * @param entities - The entities to draw, which must not change until the frame is flushed.
+     */
+    public void submitVisible(List<Entity> entities) {
+        submitVisible(entities, shader);
+    }
+
+    /**
+     * Submits the entities inside the camera's frustum to be drawn with a
+     * specific shader, skipping those whose bounding spheres are off screen.
+     * Entities whose models have no bounds are always drawn.
+     * 
+     * @param entities - The entities to draw, which must not change until the frame is flushed.
+     * @param shader - The shader to draw the entities with.
+     */
+    public void submitVisible(List<Entity> entities, ShaderManager shader) {
+        culler.clear();
+        for (Entity entity : entities) {
+            if (entity.getWorldSphere(worldSphere)) {
+                culler.add(worldSphere);
+            } else {
+                culler.add(0, 0, 0, Float.POSITIVE_INFINITY);
+            }
+        }
+
+        if (visible.length < entities.size()) visible = new int[entities.size()];
+        int visibleCount = culler.cull(getViewProjection(), visible);
+        for (int i = 0; i < visibleCount; i++) submit(entities.get(visible[i]), shader);
+        culled += entities.size() - visibleCount;
+    }
+
+    /**
+     * Submits the entities of a scene index that may be inside the camera's
+     * frustum, found by walking the index's tree instead of testing every entity.
+     * 
+     * @param index - The index of the scene's entities, updated for any that moved.
+     * @param shader - The shader to draw the entities with.
+     */
+    public void submitVisible(SceneIndex index, ShaderManager shader) {
+        found.clear();
+        index.queryFrustum(getViewProjection(), found);
+        for (int i = 0; i < found.size(); i++) submit(found.get(i), shader);
+        culled += index.size() - found.size();
+        found.clear();
+    }
+
+    /**
+     * Submits the entities of a scene index that may be inside the camera's
+     * frustum to be drawn with the default shader.
+     * 
+     * @param index - The index of the scene's entities, updated for any that moved.
+     */
+    public void submitVisible(SceneIndex index) {
+        submitVisible(index, shader);
+    }
+
+    /**
+     * Returns the projection matrix multiplied by the camera's view matrix,
+     * rebuilding the projection if the window was resized.
+     * 
+     * @return - The current view projection matrix.
+     */
+    public Matrix4fc getViewProjection() {
+        updateProjection();
+        return projection.mul(camera.getViewMatrix(), viewProjection);
+    }
 
-        // Binds the model's vertex array to the GL context.
-        GL30.glBindVertexArray(model.getId());
-        GL20.glEnableVertexAttribArray(0);
-        GL20.glEnableVertexAttribArray(1);
+    /** Rebuilds the projection matrix if the window size changed since it was last built. */
+    private void updateProjection() {
+        if (window.getWidth() != projectionWidth || window.getHeight() != projectionHeight) {
+            projectionWidth = window.getWidth();
+            projectionHeight = window.getHeight();
+            window.updateProjectionMatrix(projection, projectionWidth, projectionHeight);
+        }
+    }
+
+    /**
+     * Draws every submitted model, sorted by shader, texture, and vertex array
+     * so that each piece of GL state is only changed when it actually differs
+     * from the previous draw. The queue is emptied afterwards.
+     */
+    public void flush() {
+        stats.reset();
+        stats.addCulled(culled);
+        stats.addLodSavedTriangles(lodSavedTriangles);
+        culled = 0;
+        lodSavedTriangles = 0;
+        queue.sort();
 
-        // Binds the model's texture to the GL context.
+        // Swaps in any reloaded shaders before the first draw, so a frame never mixes programs.
+        shaderCache.processReloads();
+
+        // Uploads the data shared by every shader once for the whole frame.
+        updateProjection();
+        frameUniforms.update(projection, camera.getViewMatrix(), (System.nanoTime() - startTime) / 1e9f);
+
+        // Tracks the currently bound state to skip redundant changes.
+        ShaderManager boundShader = null;
+        Matrix4Uniform modelUniform = null;
+        int boundTexture = -1;
+        int boundVao = -1;
+
+        // All models sample from the first texture unit.
         GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        if (model.getTexture() != null) GL11.glBindTexture(GL11.GL_TEXTURE_2D, model.getTexture().getId());
 
-        // Draws the vertex array using GL_TRIANGLES and unbinds the vertex attribute array.
-        GL11.glDrawElements(GL11.GL_TRIANGLES, model.getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
-        GL20.glDisableVertexAttribArray(0);
-        GL20.glDisableVertexAttribArray(1);
+        for (int i = 0; i < queue.size(); i++) {
+            Model model = queue.getModel(i);
+            ShaderManager modelShader = queue.getShader(i);
+
+            // Binds the shader, whose sampler and frame block were set up when it was loaded.
+            if (modelShader != boundShader) {
+                modelShader.bind();
+                modelUniform = getModelUniform(modelShader);
+                boundShader = modelShader;
+                stats.addShaderChange();
+            }
+
+            // Binds the model's texture to the GL context, as a 2D texture or a texture array.
+            int texture = model.getTexture() != null ? model.getTexture().getId() : 0;
+            if (texture != boundTexture) {
+                int target = model.getTexture() != null ? model.getTexture().getTarget() : GL11.GL_TEXTURE_2D;
+                GL11.glBindTexture(target, texture);
+                boundTexture = texture;
+                stats.addTextureChange();
+            }
+
+            // Uploads the model matrix, which the uniform skips if it matches the previous draw.
+            if (modelUniform != null) modelUniform.set(queue.getTransform(i));
+
+            // Binds the model's vertex array, which already has its attributes enabled.
+            if (model.getId() != boundVao) {
+                GL30.glBindVertexArray(model.getId());
+                boundVao = model.getId();
+                stats.addVaoChange();
+            }
+
+            // Draws the model's range of the vertex array using GL_TRIANGLES.
+            GL32.glDrawElementsBaseVertex(GL11.GL_TRIANGLES, model.getVertexCount(), model.getIndexType(),
+                model.getIndexOffset(), model.getBaseVertex());
+            stats.addDrawCall();
+            stats.addTriangles(model.getVertexCount() / 3);
+        }
 
-        // Unbinds the model's vertex array from the GL context.
+        // Unbinds the vertex array and the shader.
         GL30.glBindVertexArray(0);
+        if (boundShader != null) boundShader.unbind();
 
-        // Unbinds the shader.
-        shader.unbind();
+        queue.clear();
+    }
+
+    /**
+     * Returns the draw call and state change counters of the last flushed frame.
+     * 
+     * @return - The render statistics of the last frame.
+     */
+    public RenderStats getStats() {
+        return stats;
     }
 
     /**
@@ -82,6 +371,82 @@ public class RenderManager {
         return shader;
     }
     
+    /**
+     * Returns the shader for models whose texture coordinates carry a texture
+     * array layer, to be passed to submit along with the model.
+     * 
+     * @return - The texture array shader manager.
+     */
+    public ShaderManager getArrayShader() {
+        return arrayShader;
+    }
+
+    /**
+     * Returns the cache the renderer's shaders were loaded through, so other
+     * shaders can share its saved binaries.
+     * 
+     * @return - The shader cache.
+     */
+    public ShaderCache getShaderCache() {
+        return shaderCache;
+    }
+
+    /**
+     * Returns the "model" matrix uniform of a shader, resolving it the first
+     * time the shader is drawn with. A shader without one is only checked
+     * again once its program changes, such as after a hot reload adds it.
+     * 
+     * @param shader - The bound shader.
+     * @return - The handle to the uniform, or null if the shader has no model matrix.
+     */
+    private Matrix4Uniform getModelUniform(ShaderManager shader) {
+        Matrix4Uniform uniform = modelUniforms.get(shader);
+        if (uniform != null) return uniform;
+
+        Integer checked = programsWithoutModel.get(shader);
+        if (checked != null && checked == shader.getProgramId()) return null;
+
+        try {
+            if (shader.hasUniform("model")) {
+                uniform = shader.createMatrix4Uniform("model");
+                modelUniforms.put(shader, uniform);
+                programsWithoutModel.remove(shader);
+                return uniform;
+            }
+        } catch (Exception e) {
+            System.err.println("Unable to resolve the model matrix of program " + shader.getProgramId() + ": " + e.getMessage());
+        }
+        programsWithoutModel.put(shader, shader.getProgramId());
+        return null;
+    }
+
+    /**
+     * The getter method for the camera.
+     * 
+     * @return - The camera the scene is viewed from.
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * The setter method for the camera.
+     * 
+     * @param camera - The new camera to view the scene from.
+     */
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+
+    /**
+     * Returns the uniform buffer holding the data shared by every draw of a frame.
+     * 
+     * @return - The frame uniforms.
+     */
+    public FrameUniforms getFrameUniforms() {
+        return frameUniforms;
+    }
+
     /** Clears the current buffer. */
     public void clear() {
         GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
@@ -90,5 +455,8 @@ public class RenderManager {
     /** Cleans up the RenderManager. */
     public void cleanup() {
         shader.cleanup();
+        arrayShader.cleanup();
+        frameUniforms.cleanup();
+        shaderCache.cleanup();
     }
 }
@@ -1,22 +1,35 @@
 package javagl.core.managers;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.joml.Matrix4f;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL31;
 import org.lwjgl.system.MemoryStack;
 
+import javagl.core.shader.FloatUniform;
+import javagl.core.shader.IntUniform;
+import javagl.core.shader.Matrix4Uniform;
+import javagl.core.shader.Uniform;
+import javagl.core.shader.Vector3Uniform;
+import javagl.core.shader.Vector4Uniform;
+
 /** The manager class for shader functionality. */
 public class ShaderManager {
-    // The ID of the program.
-    private final int programID;
+    // The ID of the program, which changes if the program is replaced.
+    private int programID;
 
     // The IDs of the vertex shader and the fragment shader.
     private int vertexShaderID, fragmentShaderID;
 
     private final Map<String, Integer> uniforms;
 
+    // The uniform handles created for the program, which follow it if it is replaced.
+    private final List<Uniform> handles;
+
     /**
      * Initializes a new shader manager.
      * 
@@ -27,6 +40,18 @@ public class ShaderManager {
         if (programID == 0) throw new Exception("Could not create shader");
 
         uniforms = new HashMap<String, Integer>();
+        handles = new ArrayList<Uniform>();
+    }
+
+    /**
+     * Initializes a new shader manager around a program that was already linked.
+     * 
+     * @param programID - The ID of the linked program.
+     */
+    public ShaderManager(int programID) {
+        this.programID = programID;
+        uniforms = new HashMap<String, Integer>();
+        handles = new ArrayList<Uniform>();
     }
 
     /**
@@ -37,10 +62,153 @@ public class ShaderManager {
      * @throws Exception - An exception caused by getting or setting the uniform value.
      */
     public void createUniform(String uniformName) throws Exception {
-        int uniformLocation = GL20.glGetUniformLocation(programID, uniformName);
+        uniforms.put(uniformName, getUniformLocation(uniformName));
+    }
+
+    /**
+     * Creates a handle to an int or sampler uniform. Handles resolve their
+     * location once and skip uploading values that have not changed, so they
+     * should be preferred over the name-based setters for per-draw values.
+     * 
+     * @param uniformName - The name of the uniform.
+     * @return - The handle to the uniform.
+     * @throws Exception - An exception caused by the uniform not existing in the program.
+     */
+    public IntUniform createIntUniform(String uniformName) throws Exception {
+        return track(new IntUniform(uniformName, getUniformLocation(uniformName)));
+    }
+
+    /**
+     * Creates a handle to a float uniform.
+     * 
+     * @param uniformName - The name of the uniform.
+     * @return - The handle to the uniform.
+     * @throws Exception - An exception caused by the uniform not existing in the program.
+     */
+    public FloatUniform createFloatUniform(String uniformName) throws Exception {
+        return track(new FloatUniform(uniformName, getUniformLocation(uniformName)));
+    }
+
+    /**
+     * Creates a handle to a vec3 uniform.
+     * 
+     * @param uniformName - The name of the uniform.
+     * @return - The handle to the uniform.
+     * @throws Exception - An exception caused by the uniform not existing in the program.
+     */
+    public Vector3Uniform createVector3Uniform(String uniformName) throws Exception {
+        return track(new Vector3Uniform(uniformName, getUniformLocation(uniformName)));
+    }
+
+    /**
+     * Creates a handle to a vec4 uniform.
+     * 
+     * @param uniformName - The name of the uniform.
+     * @return - The handle to the uniform.
+     * @throws Exception - An exception caused by the uniform not existing in the program.
+     */
+    public Vector4Uniform createVector4Uniform(String uniformName) throws Exception {
+        return track(new Vector4Uniform(uniformName, getUniformLocation(uniformName)));
+    }
+
+    /**
+     * Creates a handle to a mat4 uniform.
+     * 
+     * @param uniformName - The name of the uniform.
+     * @return - The handle to the uniform.
+     * @throws Exception - An exception caused by the uniform not existing in the program.
+     */
+    public Matrix4Uniform createMatrix4Uniform(String uniformName) throws Exception {
+        return track(new Matrix4Uniform(uniformName, getUniformLocation(uniformName)));
+    }
+
+    /**
+     * Checks if the program has a uniform, for uniforms that only some shaders declare.
+     * 
+     * @param uniformName - The name of the uniform.
+     * @return - If the uniform exists and is used by the program.
+     */
+    public boolean hasUniform(String uniformName) {
+        return GL20.glGetUniformLocation(programID, uniformName) >= 0;
+    }
+
+    /**
+     * Keeps a handle so it can be moved to a replacement program.
+     * 
+     * @param handle - The new handle.
+     * @return - The handle.
+     */
+    private <T extends Uniform> T track(T handle) {
+        handles.add(handle);
+        return handle;
+    }
+
+    /**
+     * Replaces the program with another linked program, such as a reloaded
+     * version of the same shaders. Every uniform and handle is resolved in the
+     * new program, and handles upload their last values into it before the old
+     * one is deleted. Uniforms the new program no longer uses, such as one whose
+     * only use was commented out, get location -1, which GL ignores uploads to,
+     * and pick up their last value again once a later reload uses them.
+     * 
+     * @param replacement - The shader manager holding the new program, which is left empty.
+     */
+    public void replaceProgram(ShaderManager replacement) {
+        int program = replacement.programID;
+        int previous = programID;
+
+        programID = program;
+        replacement.programID = 0;
+        for (Map.Entry<String, Integer> uniform : uniforms.entrySet()) {
+            uniform.setValue(GL20.glGetUniformLocation(program, uniform.getKey()));
+        }
+
+        GL20.glUseProgram(programID);
+        for (Uniform handle : handles) handle.relocate(GL20.glGetUniformLocation(program, handle.getName()));
+        GL20.glUseProgram(0);
+
+        GL20.glDeleteProgram(previous);
+    }
+
+    /**
+     * Returns the location of a uniform in a program.
+     * 
+     * @param program - The ID of the program.
+     * @param uniformName - The name of the uniform.
+     * @return - The location of the uniform.
+     * @throws Exception - An exception caused by the uniform not existing in the program.
+     */
+    private static int findUniform(int program, String uniformName) throws Exception {
+        int uniformLocation = GL20.glGetUniformLocation(program, uniformName);
         if (uniformLocation < 0) throw new Exception("Could not find the uniform " + uniformName);
+        return uniformLocation;
+    }
+
+    /**
+     * Returns the location of a uniform in the program.
+     * 
+     * @param uniformName - The name of the uniform.
+     * @return - The location of the uniform.
+     * @throws Exception - An exception caused by the uniform not existing in the program.
+     */
+    private int getUniformLocation(String uniformName) throws Exception {
+        return findUniform(programID, uniformName);
+    }
+
+    /**
+     * Points a uniform block of the program at a binding point, so it reads
+     * from the uniform buffer attached there.
+     * 
+     * @param blockName - The name of the uniform block.
+     * @param binding - The binding point of the buffer.
+     * @return - If the program has the block; programs without it are left unchanged.
+     */
+    public boolean bindUniformBlock(String blockName, int binding) {
+        int index = GL31.glGetUniformBlockIndex(programID, blockName);
+        if (index == GL31.GL_INVALID_INDEX) return false;
 
-        uniforms.put(uniformName, uniformLocation);
+        GL31.glUniformBlockBinding(programID, index, binding);
+        return true;
     }
 
     /**
@@ -8,6 +8,8 @@ import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.system.MemoryUtil;
 
+import javagl.core.render.FrameCapture;
+
 public class WindowManager {
     // The FOV (field of view) of the window.
     public static final float FOV = (float) Math.toRadians(60);
@@ -21,10 +23,10 @@ public class WindowManager {
     public final String title;
 
     // The width and height of the window.
-    private int width, height;
+    protected int width, height;
     
     // The window, stored as a long value.
-    private long window;
+    protected long window;
 
     // Boolean values to check if the window is reszized and to change VSync.
     private boolean resize, vSync;
@@ -32,6 +34,9 @@ public class WindowManager {
     // A 4x4 matrix of float values to use for projection calculations.
     private final Matrix4f projectionMatrix;
 
+    // The frame capture reading back every frame, if capturing is enabled.
+    protected FrameCapture capture;
+
     /**
      * Initializes the variables necessary to open the window.
      * 
@@ -115,6 +120,11 @@ public class WindowManager {
         // Shows the window and establishes test codes and cull faces.
         GLFW.glfwShowWindow(window);
 
+        initGL();
+    }
+
+    /** Creates the GL capabilities for the current context and enables some GL tests. */
+    protected void initGL() {
         GL.createCapabilities();
 
         // Enables some GL tests.
@@ -123,19 +133,36 @@ public class WindowManager {
         GL11.glEnable(GL11.GL_STENCIL_TEST);
         GL11.glEnable(GL11.GL_CULL_FACE);
         GL11.glCullFace(GL11.GL_BACK);
+
+        // Reads uploaded pixel rows tightly packed, as every image and texture file stores them.
+        GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
     }
 
-    /** Updates the window content. */
+    /** Updates the window content, capturing the frame before it is swapped. */
     public void update() {
+        if (capture != null) capture.capture(width, height);
         GLFW.glfwSwapBuffers(window);
         GLFW.glfwPollEvents();
     }
 
     /** Cleans up the window by destroying it. */
     public void cleanup() {
+        if (capture != null) {
+            capture.cleanup();
+            System.out.println(capture);
+        }
         GLFW.glfwDestroyWindow(window);
     }
 
+    /**
+     * Sets the frame capture that reads back every frame.
+     * 
+     * @param capture - The frame capture, or null to stop capturing.
+     */
+    public void setFrameCapture(FrameCapture capture) {
+        this.capture = capture;
+    }
+
     // Updates the current projection matrix being stored in the window manager.
     public Matrix4f updateProjectionMatrix() {
         float aspectRatio = (float) width / height;
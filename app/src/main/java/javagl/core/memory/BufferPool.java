@@ -0,0 +1,101 @@
+package javagl.core.memory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe pool of native byte buffers, sorted into power of two size
+ * classes. Buffers are rounded up to their class when allocated, so a released
+ * buffer can serve any later request of the same class without reallocating.
+ */
+public class BufferPool {
+    // The smallest and largest size classes, as powers of two.
+    private static final int MIN_SHIFT = 12;
+    private static final int MAX_SHIFT = 30;
+
+    // The free buffers of each size class.
+    private final ConcurrentLinkedQueue<ByteBuffer>[] classes;
+
+    // The number of bytes held by free buffers and by buffers handed out.
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final AtomicLong acquiredBytes = new AtomicLong();
+
+    /** Initializes a new, empty buffer pool. */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BufferPool() {
+        classes = new ConcurrentLinkedQueue[MAX_SHIFT - MIN_SHIFT + 1];
+        for (int i = 0; i < classes.length; i++) classes[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+    }
+
+    /**
+     * Takes a buffer from the pool, allocating one if its size class is empty.
+     *
+     * @param size - The number of bytes needed.
+     * @return - A buffer positioned at zero and limited to the requested size.
+     */
+    public ByteBuffer acquire(int size) {
+        int sizeClass = sizeClass(size);
+        ByteBuffer buffer = classes[sizeClass].poll();
+
+        if (buffer == null) buffer = NativeAllocator.malloc(1 << (sizeClass + MIN_SHIFT));
+        else pooledBytes.addAndGet(-buffer.capacity());
+
+        acquiredBytes.addAndGet(buffer.capacity());
+        buffer.clear().limit(size);
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. The buffer must have come from acquire.
+     *
+     * @param buffer - The buffer to return.
+     */
+    public void release(ByteBuffer buffer) {
+        acquiredBytes.addAndGet(-buffer.capacity());
+        pooledBytes.addAndGet(buffer.capacity());
+        classes[sizeClass(buffer.capacity())].offer(buffer);
+    }
+
+    /** Frees every buffer currently waiting in the pool. */
+    public void clear() {
+        for (ConcurrentLinkedQueue<ByteBuffer> queue : classes) {
+            ByteBuffer buffer;
+            while ((buffer = queue.poll()) != null) {
+                pooledBytes.addAndGet(-buffer.capacity());
+                NativeAllocator.free(buffer);
+            }
+        }
+    }
+
+    /**
+     * The getter method for the pooled bytes.
+     *
+     * @return - The number of bytes held by free buffers in the pool.
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * The getter method for the acquired bytes.
+     *
+     * @return - The number of bytes held by buffers that have not been released.
+     */
+    public long getAcquiredBytes() {
+        return acquiredBytes.get();
+    }
+
+    /**
+     * Finds the size class that fits a number of bytes.
+     *
+     * @param size - The number of bytes.
+     * @return - The index of the smallest class that can hold them.
+     */
+    private static int sizeClass(int size) {
+        if (size > 1 << MAX_SHIFT) throw new IllegalArgumentException("Pooled buffers are limited to " + (1 << MAX_SHIFT) + " bytes");
+
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1);
+        return Math.max(shift, MIN_SHIFT) - MIN_SHIFT;
+    }
+}
@@ -0,0 +1,242 @@
+package javagl.core.memory;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.system.jemalloc.JEmalloc;
+
+/**
+ * The engine's native memory allocator, backed by jemalloc. Every allocation
+ * is counted, and when the "javagl.memory.track" system property is set each
+ * allocation also remembers the call site that made it, so outstanding memory
+ * can be reported by where it came from.
+ */
+public class NativeAllocator {
+    // Checks if allocations should record their call sites.
+    private static final boolean TRACK = Boolean.getBoolean("javagl.memory.track");
+
+    // The number of bytes and allocations that have not been freed yet.
+    private static final AtomicLong outstandingBytes = new AtomicLong();
+    private static final AtomicLong outstandingCount = new AtomicLong();
+
+    // The size and call site of every live allocation, if tracking is enabled.
+    private static final Map<Long, Allocation> allocations = new ConcurrentHashMap<Long, Allocation>();
+
+    // A live allocation recorded while tracking.
+    private static class Allocation {
+        private final long size;
+        private final String site;
+
+        private Allocation(long size, String site) {
+            this.size = size;
+            this.site = site;
+        }
+    }
+
+    private NativeAllocator() {}
+
+    /**
+     * Allocates a block of native memory.
+     *
+     * @param size - The size of the block in bytes.
+     * @return - The address of the block.
+     */
+    public static long nmalloc(long size) {
+        long address = JEmalloc.nje_malloc(Math.max(size, 1));
+        if (address == MemoryUtil.NULL) throw new OutOfMemoryError("Unable to allocate " + size + " bytes");
+
+        record(address);
+        return address;
+    }
+
+    /**
+     * Resizes a block of native memory, keeping its contents.
+     *
+     * @param address - The address of the block, or NULL to allocate a new one.
+     * @param size - The new size of the block in bytes.
+     * @return - The new address of the block.
+     */
+    public static long nrealloc(long address, long size) {
+        if (address != MemoryUtil.NULL) forget(address);
+
+        long resized = JEmalloc.nje_realloc(address, Math.max(size, 1));
+        if (resized == MemoryUtil.NULL) {
+            if (address != MemoryUtil.NULL) record(address);
+            throw new OutOfMemoryError("Unable to reallocate " + size + " bytes");
+        }
+
+        record(resized);
+        return resized;
+    }
+
+    /**
+     * Frees a block of native memory.
+     *
+     * @param address - The address of the block.
+     */
+    public static void nfree(long address) {
+        if (address == MemoryUtil.NULL) return;
+
+        forget(address);
+        JEmalloc.nje_free(address);
+    }
+
+    /**
+     * Allocates a byte buffer.
+     *
+     * @param size - The capacity of the buffer in bytes.
+     * @return - The new buffer.
+     */
+    public static ByteBuffer malloc(int size) {
+        return MemoryUtil.memByteBuffer(nmalloc(size), size);
+    }
+
+    /**
+     * Allocates a float buffer.
+     *
+     * @param capacity - The capacity of the buffer in floats.
+     * @return - The new buffer.
+     */
+    public static FloatBuffer mallocFloat(int capacity) {
+        return MemoryUtil.memFloatBuffer(nmalloc((long) capacity * Float.BYTES), capacity);
+    }
+
+    /**
+     * Allocates an int buffer.
+     *
+     * @param capacity - The capacity of the buffer in ints.
+     * @return - The new buffer.
+     */
+    public static IntBuffer mallocInt(int capacity) {
+        return MemoryUtil.memIntBuffer(nmalloc((long) capacity * Integer.BYTES), capacity);
+    }
+
+    /**
+     * Resizes a byte buffer, keeping its contents.
+     *
+     * @param buffer - The buffer to resize.
+     * @param size - The new capacity of the buffer in bytes.
+     * @return - The resized buffer.
+     */
+    public static ByteBuffer realloc(ByteBuffer buffer, int size) {
+        return MemoryUtil.memByteBuffer(nrealloc(MemoryUtil.memAddress0(buffer), size), size);
+    }
+
+    /**
+     * Resizes a float buffer, keeping its contents.
+     *
+     * @param buffer - The buffer to resize.
+     * @param capacity - The new capacity of the buffer in floats.
+     * @return - The resized buffer.
+     */
+    public static FloatBuffer realloc(FloatBuffer buffer, int capacity) {
+        return MemoryUtil.memFloatBuffer(nrealloc(MemoryUtil.memAddress0(buffer), (long) capacity * Float.BYTES), capacity);
+    }
+
+    /**
+     * Resizes an int buffer, keeping its contents.
+     *
+     * @param buffer - The buffer to resize.
+     * @param capacity - The new capacity of the buffer in ints.
+     * @return - The resized buffer.
+     */
+    public static IntBuffer realloc(IntBuffer buffer, int capacity) {
+        return MemoryUtil.memIntBuffer(nrealloc(MemoryUtil.memAddress0(buffer), (long) capacity * Integer.BYTES), capacity);
+    }
+
+    /**
+     * Frees a buffer allocated by this allocator.
+     *
+     * @param buffer - The buffer to free, or null.
+     */
+    public static void free(Buffer buffer) {
+        if (buffer != null) nfree(MemoryUtil.memAddress0(buffer));
+    }
+
+    /**
+     * Checks if allocations are recording their call sites.
+     *
+     * @return - If the "javagl.memory.track" system property is set.
+     */
+    public static boolean isTracking() {
+        return TRACK;
+    }
+
+    /**
+     * The getter method for the outstanding bytes.
+     *
+     * @return - The number of bytes allocated and not yet freed.
+     */
+    public static long getOutstandingBytes() {
+        return outstandingBytes.get();
+    }
+
+    /**
+     * The getter method for the outstanding allocations.
+     *
+     * @return - The number of allocations not yet freed.
+     */
+    public static long getOutstandingCount() {
+        return outstandingCount.get();
+    }
+
+    /**
+     * Returns a report of the outstanding native memory, grouped by the call site
+     * that allocated it. Call sites are only known while tracking is enabled.
+     *
+     * @return - A line per call site with its outstanding bytes and allocations.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(outstandingBytes.get()).append(" bytes outstanding in ")
+            .append(outstandingCount.get()).append(" allocations\n");
+
+        if (!TRACK) return report.append("  (set -Djavagl.memory.track=true to see call sites)\n").toString();
+
+        Map<String, long[]> sites = new TreeMap<String, long[]>();
+        for (Allocation allocation : allocations.values()) {
+            long[] totals = sites.computeIfAbsent(allocation.site, site -> new long[2]);
+            totals[0] += allocation.size;
+            totals[1]++;
+        }
+
+        for (Map.Entry<String, long[]> entry : sites.entrySet()) {
+            report.append("  ").append(entry.getValue()[0]).append(" bytes in ")
+                .append(entry.getValue()[1]).append(" allocations at ").append(entry.getKey()).append('\n');
+        }
+        return report.toString();
+    }
+
+    /** Counts a new allocation, remembering its call site if tracking is enabled. */
+    private static void record(long address) {
+        long size = JEmalloc.nje_malloc_usable_size(address);
+        outstandingBytes.addAndGet(size);
+        outstandingCount.incrementAndGet();
+
+        if (TRACK) allocations.put(address, new Allocation(size, findCallSite()));
+    }
+
+    /** Stops counting an allocation that is about to be freed or moved. */
+    private static void forget(long address) {
+        outstandingBytes.addAndGet(-JEmalloc.nje_malloc_usable_size(address));
+        outstandingCount.decrementAndGet();
+
+        if (TRACK) allocations.remove(address);
+    }
+
+    /** Finds the first stack frame outside of the memory package. */
+    private static String findCallSite() {
+        return StackWalker.getInstance().walk(frames -> frames
+            .filter(frame -> !frame.getClassName().startsWith("javagl.core.memory."))
+            .findFirst()
+            .map(frame -> frame.getClassName() + "." + frame.getMethodName() + ":" + frame.getLineNumber())
+            .orElse("unknown"));
+    }
+}
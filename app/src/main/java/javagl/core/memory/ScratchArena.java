@@ -0,0 +1,201 @@
+package javagl.core.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * A thread-local bump allocator for short-lived staging memory, such as data
+ * waiting to be uploaded to the GPU. Like MemoryStack, it is used by pushing a
+ * frame in a try-with-resources block; everything allocated inside the frame is
+ * released at once when the frame is popped. Unlike MemoryStack, it grows by
+ * adding chunks, so it can hold whole meshes.
+ */
+public class ScratchArena implements AutoCloseable {
+    // The size of a regular chunk and the alignment of every allocation.
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int ALIGNMENT = 16;
+
+    // The largest number of frames that can be pushed at once.
+    private static final int MAX_DEPTH = 32;
+
+    // The arena of each thread.
+    private static final ThreadLocal<ScratchArena> ARENA = ThreadLocal.withInitial(ScratchArena::new);
+
+    // The addresses and sizes of the chunks, and how many are in use.
+    private long[] chunks = new long[4];
+    private long[] chunkSizes = new long[4];
+    private int chunkCount;
+
+    // The chunk currently being allocated from and the offset of its next free byte.
+    private int chunk = -1;
+    private long offset;
+
+    // The chunk and offset saved by each pushed frame.
+    private final int[] frameChunks = new int[MAX_DEPTH];
+    private final long[] frameOffsets = new long[MAX_DEPTH];
+    private int depth;
+
+    private ScratchArena() {}
+
+    /**
+     * Returns the arena of the current thread.
+     *
+     * @return - The thread's arena.
+     */
+    public static ScratchArena get() {
+        return ARENA.get();
+    }
+
+    /**
+     * Pushes a new frame onto the current thread's arena.
+     *
+     * @return - The arena, to be closed when the frame is done.
+     */
+    public static ScratchArena stackPush() {
+        return get().push();
+    }
+
+    /**
+     * Pushes a new frame, saving the current allocation position.
+     *
+     * @return - This arena.
+     */
+    public ScratchArena push() {
+        if (depth == MAX_DEPTH) throw new IllegalStateException("Scratch arena frames nested too deeply");
+
+        frameChunks[depth] = chunk;
+        frameOffsets[depth] = offset;
+        depth++;
+        return this;
+    }
+
+    /**
+     * Pops the last frame, releasing everything allocated since it was pushed.
+     *
+     * @return - This arena.
+     */
+    public ScratchArena pop() {
+        if (depth == 0) throw new IllegalStateException("No scratch arena frame to pop");
+
+        depth--;
+        chunk = frameChunks[depth];
+        offset = frameOffsets[depth];
+        return this;
+    }
+
+    /** Pops the last frame. */
+    @Override
+    public void close() {
+        pop();
+    }
+
+    /**
+     * Allocates memory in the current frame.
+     *
+     * @param size - The size of the allocation in bytes.
+     * @return - The address of the allocation.
+     */
+    public long nmalloc(long size) {
+        if (depth == 0) throw new IllegalStateException("Scratch memory must be allocated inside a pushed frame");
+
+        long aligned = (offset + ALIGNMENT - 1) & -ALIGNMENT;
+        if (chunk < 0 || aligned + size > chunkSizes[chunk]) {
+            nextChunk(size);
+            aligned = 0;
+        }
+
+        offset = aligned + size;
+        return chunks[chunk] + aligned;
+    }
+
+    /**
+     * Allocates a byte buffer in the current frame.
+     *
+     * @param size - The capacity of the buffer in bytes.
+     * @return - The new buffer.
+     */
+    public ByteBuffer malloc(int size) {
+        return MemoryUtil.memByteBuffer(nmalloc(size), size);
+    }
+
+    /**
+     * Allocates a float buffer in the current frame.
+     *
+     * @param capacity - The capacity of the buffer in floats.
+     * @return - The new buffer.
+     */
+    public FloatBuffer mallocFloat(int capacity) {
+        return MemoryUtil.memFloatBuffer(nmalloc((long) capacity * Float.BYTES), capacity);
+    }
+
+    /**
+     * Allocates an int buffer in the current frame.
+     *
+     * @param capacity - The capacity of the buffer in ints.
+     * @return - The new buffer.
+     */
+    public IntBuffer mallocInt(int capacity) {
+        return MemoryUtil.memIntBuffer(nmalloc((long) capacity * Integer.BYTES), capacity);
+    }
+
+    /**
+     * Frees every chunk of the arena back to the native allocator. This can only
+     * be done when no frames are pushed, and the arena grows again on next use.
+     */
+    public void release() {
+        if (depth != 0) throw new IllegalStateException("Cannot release a scratch arena with pushed frames");
+
+        for (int i = 0; i < chunkCount; i++) NativeAllocator.nfree(chunks[i]);
+        chunkCount = 0;
+        chunk = -1;
+        offset = 0;
+    }
+
+    /**
+     * Returns the total size of the chunks held by this arena.
+     *
+     * @return - The reserved size in bytes.
+     */
+    public long getReservedBytes() {
+        long total = 0;
+        for (int i = 0; i < chunkCount; i++) total += chunkSizes[i];
+        return total;
+    }
+
+    /**
+     * Moves to the next chunk that can fit an allocation, reusing a chunk
+     * from an earlier frame if it is large enough and creating one if not.
+     *
+     * @param size - The size of the allocation in bytes.
+     */
+    private void nextChunk(long size) {
+        int next = chunk + 1;
+
+        // Replaces a reusable chunk that is too small for this allocation.
+        if (next < chunkCount && chunkSizes[next] < size) {
+            NativeAllocator.nfree(chunks[next]);
+            long chunkSize = Math.max(CHUNK_SIZE, size);
+            chunks[next] = NativeAllocator.nmalloc(chunkSize);
+            chunkSizes[next] = chunkSize;
+        }
+
+        if (next == chunkCount) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+                chunkSizes = Arrays.copyOf(chunkSizes, chunkCount * 2);
+            }
+
+            long chunkSize = Math.max(CHUNK_SIZE, size);
+            chunks[next] = NativeAllocator.nmalloc(chunkSize);
+            chunkSizes[next] = chunkSize;
+            chunkCount++;
+        }
+
+        chunk = next;
+        offset = 0;
+    }
+}
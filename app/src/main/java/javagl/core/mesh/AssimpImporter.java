@@ -0,0 +1,95 @@
+package javagl.core.mesh;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.assimp.AIFace;
+import org.lwjgl.assimp.AIMesh;
+import org.lwjgl.assimp.AIScene;
+import org.lwjgl.assimp.AIVector3D;
+import org.lwjgl.assimp.Assimp;
+
+/**
+ * An importer for any mesh format that Assimp can read. Assimp triangulates
+ * the faces and joins identical vertices, and each of its meshes is copied
+ * into off-heap mesh data.
+ */
+public class AssimpImporter {
+    // The post-processing steps applied to every imported scene.
+    private static final int FLAGS = Assimp.aiProcess_Triangulate
+        | Assimp.aiProcess_JoinIdenticalVertices
+        | Assimp.aiProcess_GenSmoothNormals
+        | Assimp.aiProcess_FlipUVs;
+
+    /**
+     * Imports every mesh in a file.
+     *
+     * @param filename - The path of the file to import.
+     * @return - The mesh data of each mesh, which must be freed by the caller.
+     * @throws Exception - An exception caused by Assimp failing to read the file.
+     */
+    public static List<MeshData> load(String filename) throws Exception {
+        AIScene scene = Assimp.aiImportFile(filename, FLAGS);
+        if (scene == null) throw new Exception("Mesh file " + filename + " unable to be loaded: " + Assimp.aiGetErrorString());
+
+        try {
+            List<MeshData> meshes = new ArrayList<MeshData>(scene.mNumMeshes());
+            PointerBuffer pointers = scene.mMeshes();
+            for (int i = 0; i < scene.mNumMeshes(); i++) {
+                meshes.add(copy(AIMesh.create(pointers.get(i))));
+            }
+            return meshes;
+        } finally {
+            Assimp.aiReleaseImport(scene);
+        }
+    }
+
+    /**
+     * Copies the vertices and faces of an Assimp mesh into mesh data.
+     *
+     * @param source - The Assimp mesh.
+     * @return - The copied mesh data.
+     */
+    private static MeshData copy(AIMesh source) {
+        int vertexCount = source.mNumVertices();
+        MeshData mesh = new MeshData(vertexCount, source.mNumFaces() * 3);
+
+        AIVector3D.Buffer positions = source.mVertices();
+        AIVector3D.Buffer textureCoords = source.mTextureCoords(0);
+        AIVector3D.Buffer normals = source.mNormals();
+
+        for (int i = 0; i < vertexCount; i++) {
+            AIVector3D p = positions.get(i);
+            float u = 0, v = 0, nx = 0, ny = 0, nz = 0;
+
+            if (textureCoords != null) {
+                AIVector3D t = textureCoords.get(i);
+                u = t.x();
+                v = t.y();
+            }
+            if (normals != null) {
+                AIVector3D n = normals.get(i);
+                nx = n.x();
+                ny = n.y();
+                nz = n.z();
+            }
+
+            mesh.addVertex(p.x(), p.y(), p.z(), u, v, nx, ny, nz);
+        }
+
+        AIFace.Buffer faces = source.mFaces();
+        for (int i = 0; i < source.mNumFaces(); i++) {
+            IntBuffer indices = faces.get(i).mIndices();
+
+            // Skips points and lines that could not be triangulated.
+            if (indices.remaining() != 3) continue;
+            mesh.addIndex(indices.get(0));
+            mesh.addIndex(indices.get(1));
+            mesh.addIndex(indices.get(2));
+        }
+
+        return mesh;
+    }
+}
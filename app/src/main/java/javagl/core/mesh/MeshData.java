@@ -0,0 +1,159 @@
+package javagl.core.mesh;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+
+import javagl.core.memory.NativeAllocator;
+
+/**
+ * Off-heap vertex and index data of a mesh, ready to be uploaded to the GPU.
+ * Every vertex has a position, a texture coordinate, and a normal, and the
+ * buffers grow as vertices and indices are added.
+ */
+public class MeshData {
+    // The vertex attributes and the indices of the mesh.
+    private FloatBuffer positions, textureCoords, normals;
+    private IntBuffer indices;
+
+    // The number of vertices and indices added so far.
+    private int vertexCount, indexCount;
+
+    /**
+     * Initializes new empty mesh data.
+     *
+     * @param vertexCapacity - The number of vertices the mesh can hold before growing.
+     * @param indexCapacity - The number of indices the mesh can hold before growing.
+     */
+    public MeshData(int vertexCapacity, int indexCapacity) {
+        vertexCapacity = Math.max(vertexCapacity, 1);
+        indexCapacity = Math.max(indexCapacity, 1);
+
+        positions = NativeAllocator.mallocFloat(vertexCapacity * 3);
+        textureCoords = NativeAllocator.mallocFloat(vertexCapacity * 2);
+        normals = NativeAllocator.mallocFloat(vertexCapacity * 3);
+        indices = NativeAllocator.mallocInt(indexCapacity);
+    }
+
+    /**
+     * Adds a vertex to the mesh.
+     *
+     * @return - The index of the new vertex.
+     */
+    public int addVertex(float x, float y, float z, float u, float v, float nx, float ny, float nz) {
+        if (vertexCount * 3 == positions.capacity()) {
+            int capacity = positions.capacity() / 3 * 2;
+            positions = NativeAllocator.realloc(positions, capacity * 3);
+            textureCoords = NativeAllocator.realloc(textureCoords, capacity * 2);
+            normals = NativeAllocator.realloc(normals, capacity * 3);
+        }
+
+        int p = vertexCount * 3, t = vertexCount * 2;
+        positions.put(p, x).put(p + 1, y).put(p + 2, z);
+        textureCoords.put(t, u).put(t + 1, v);
+        normals.put(p, nx).put(p + 1, ny).put(p + 2, nz);
+
+        return vertexCount++;
+    }
+
+    /**
+     * Adds an index to the mesh.
+     *
+     * @param index - The index of a vertex.
+     */
+    public void addIndex(int index) {
+        if (indexCount == indices.capacity()) indices = NativeAllocator.realloc(indices, indices.capacity() * 2);
+        indices.put(indexCount++, index);
+    }
+
+    /**
+     * Returns the positions of the mesh, limited to the vertices added.
+     *
+     * @return - Three floats per vertex.
+     */
+    public FloatBuffer getPositions() {
+        return positions.duplicate().clear().limit(vertexCount * 3);
+    }
+
+    /**
+     * Returns the texture coordinates of the mesh, limited to the vertices added.
+     *
+     * @return - Two floats per vertex.
+     */
+    public FloatBuffer getTextureCoords() {
+        return textureCoords.duplicate().clear().limit(vertexCount * 2);
+    }
+
+    /**
+     * Returns the normals of the mesh, limited to the vertices added.
+     *
+     * @return - Three floats per vertex.
+     */
+    public FloatBuffer getNormals() {
+        return normals.duplicate().clear().limit(vertexCount * 3);
+    }
+
+    /**
+     * Returns the indices of the mesh, limited to the indices added.
+     *
+     * @return - One int per index.
+     */
+    public IntBuffer getIndices() {
+        return indices.duplicate().clear().limit(indexCount);
+    }
+
+    /**
+     * The getter method for the number of vertices.
+     *
+     * @return - The number of vertices in the mesh.
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * The getter method for the number of indices.
+     *
+     * @return - The number of indices in the mesh.
+     */
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    /**
+     * Combines several meshes into one, offsetting the indices of each mesh
+     * by the number of vertices that came before it.
+     *
+     * @param meshes - The meshes to combine.
+     * @return - The combined mesh data.
+     */
+    public static MeshData merge(List<MeshData> meshes) {
+        int vertexCapacity = 0, indexCapacity = 0;
+        for (MeshData mesh : meshes) {
+            vertexCapacity += mesh.vertexCount;
+            indexCapacity += mesh.indexCount;
+        }
+
+        MeshData merged = new MeshData(vertexCapacity, indexCapacity);
+        for (MeshData mesh : meshes) {
+            int base = merged.vertexCount;
+            for (int i = 0; i < mesh.vertexCount; i++) {
+                merged.addVertex(
+                    mesh.positions.get(i * 3), mesh.positions.get(i * 3 + 1), mesh.positions.get(i * 3 + 2),
+                    mesh.textureCoords.get(i * 2), mesh.textureCoords.get(i * 2 + 1),
+                    mesh.normals.get(i * 3), mesh.normals.get(i * 3 + 1), mesh.normals.get(i * 3 + 2)
+                );
+            }
+            for (int i = 0; i < mesh.indexCount; i++) merged.addIndex(base + mesh.indices.get(i));
+        }
+        return merged;
+    }
+
+    /** Frees the off-heap memory of the mesh. */
+    public void free() {
+        NativeAllocator.free(positions.clear());
+        NativeAllocator.free(textureCoords.clear());
+        NativeAllocator.free(normals.clear());
+        NativeAllocator.free(indices.clear());
+    }
+}
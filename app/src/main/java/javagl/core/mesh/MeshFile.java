@@ -0,0 +1,244 @@
+package javagl.core.mesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.lwjgl.util.lz4.LZ4;
+import org.lwjgl.util.zstd.Zstd;
+
+import javagl.core.memory.NativeAllocator;
+
+/**
+ * The precompiled binary mesh format. A file holds a fixed-size header, then the
+ * interleaved vertices, then 32-bit indices, optionally compressed as a single
+ * block with LZ4 or Zstandard. Uncompressed files are memory-mapped and their
+ * contents are handed to the GPU without being copied.
+ *
+ * Header layout, little-endian ints: magic, version, compression, vertex count,
+ * index count, vertex stride, uncompressed payload size, stored payload size.
+ */
+public class MeshFile {
+    // The magic number at the start of every mesh file ("JGLM").
+    public static final int MAGIC = 0x4D4C474A;
+    public static final int VERSION = 1;
+
+    // The size of the header in bytes.
+    public static final int HEADER_SIZE = 8 * Integer.BYTES;
+
+    // The compression modes of the payload.
+    public static final int COMPRESSION_NONE = 0;
+    public static final int COMPRESSION_LZ4 = 1;
+    public static final int COMPRESSION_ZSTD = 2;
+
+    // The interleaved vertex layout: a position, a texture coordinate, and a normal.
+    public static final int VERTEX_FLOATS = 3 + 2 + 3;
+    public static final int VERTEX_STRIDE = VERTEX_FLOATS * Float.BYTES;
+
+    // The compression level used for Zstandard.
+    private static final int ZSTD_LEVEL = 19;
+
+    // The values read from the header of a file.
+    private final int vertexCount, indexCount, stride;
+
+    // The vertices and indices of the mesh.
+    private final ByteBuffer vertices, indices;
+
+    // The decompressed payload, if the file was compressed and had to be copied.
+    private final ByteBuffer decompressed;
+
+    private MeshFile(int vertexCount, int indexCount, int stride, ByteBuffer payload, ByteBuffer decompressed) {
+        this.vertexCount = vertexCount;
+        this.indexCount = indexCount;
+        this.stride = stride;
+        this.decompressed = decompressed;
+
+        int vertexBytes = vertexCount * stride;
+        vertices = payload.duplicate().position(0).limit(vertexBytes).slice().order(ByteOrder.LITTLE_ENDIAN);
+        indices = payload.duplicate().position(vertexBytes).limit(vertexBytes + indexCount * Integer.BYTES).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Opens a mesh file. Uncompressed files are memory-mapped and used in place,
+     * while compressed files are decompressed into off-heap memory.
+     *
+     * @param path - The path of the mesh file.
+     * @return - The opened mesh file, which must be closed by the caller.
+     * @throws Exception - An exception caused by reading an invalid file.
+     */
+    public static MeshFile open(Path path) throws Exception {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path.toString());
+        } catch (IOException e) {
+            throw new Exception("Mesh file " + path + " unable to be loaded", e);
+        }
+    }
+
+    /**
+     * Reads a mesh file that is already in memory. Uncompressed files are used
+     * in place, so the contents must stay allocated until the file is closed.
+     *
+     * @param contents - The contents of the mesh file, between their position and limit.
+     * @param name - The name of the file, for errors.
+     * @return - The mesh file, which must be closed by the caller.
+     * @throws Exception - An exception caused by reading an invalid file.
+     */
+    public static MeshFile read(ByteBuffer contents, String name) throws Exception {
+        ByteBuffer file = contents.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (file.remaining() < HEADER_SIZE || file.getInt(0) != MAGIC) throw new Exception("Not a mesh file: " + name);
+        if (file.getInt(4) != VERSION) throw new Exception("Unsupported mesh file version " + file.getInt(4));
+
+        int compression = file.getInt(8);
+        int vertexCount = file.getInt(12);
+        int indexCount = file.getInt(16);
+        int stride = file.getInt(20);
+        int payloadSize = file.getInt(24);
+        int storedSize = file.getInt(28);
+
+        if (HEADER_SIZE + (long) storedSize > file.capacity()) throw new Exception("Truncated mesh file: " + name);
+        ByteBuffer stored = file.position(HEADER_SIZE).limit(HEADER_SIZE + storedSize).slice();
+
+        if (compression == COMPRESSION_NONE) return new MeshFile(vertexCount, indexCount, stride, stored, null);
+
+        // Decompresses the payload into off-heap memory.
+        ByteBuffer payload = NativeAllocator.malloc(payloadSize);
+        long result;
+        if (compression == COMPRESSION_LZ4) {
+            result = LZ4.LZ4_decompress_safe(stored, payload);
+        } else if (compression == COMPRESSION_ZSTD) {
+            result = Zstd.ZSTD_decompress(payload, stored);
+            if (Zstd.ZSTD_isError(result)) result = -1;
+        } else {
+            result = -1;
+        }
+
+        if (result != payloadSize) {
+            NativeAllocator.free(payload);
+            throw new Exception("Unable to decompress mesh file: " + name);
+        }
+        return new MeshFile(vertexCount, indexCount, stride, payload, payload);
+    }
+
+    /**
+     * Writes mesh data to a mesh file, interleaving its vertex attributes. The
+     * triangles are reordered for the vertex cache and the vertices into the
+     * order they are drawn, so loading the file needs no optimization.
+     *
+     * @param mesh - The mesh data to write.
+     * @param path - The path of the mesh file.
+     * @param compression - The compression mode of the payload.
+     * @throws Exception - An exception caused by writing or compressing the file.
+     */
+    public static void write(MeshData mesh, Path path, int compression) throws Exception {
+        int vertexCount = mesh.getVertexCount();
+        int indexCount = mesh.getIndexCount();
+        int payloadSize = vertexCount * VERTEX_STRIDE + indexCount * Integer.BYTES;
+
+        ByteBuffer payload = NativeAllocator.malloc(payloadSize).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer compressed = null;
+
+        try {
+            // Interleaves the attributes of each vertex.
+            FloatBuffer positions = mesh.getPositions();
+            FloatBuffer textureCoords = mesh.getTextureCoords();
+            FloatBuffer normals = mesh.getNormals();
+            for (int i = 0; i < vertexCount; i++) {
+                payload.putFloat(positions.get(i * 3)).putFloat(positions.get(i * 3 + 1)).putFloat(positions.get(i * 3 + 2));
+                payload.putFloat(textureCoords.get(i * 2)).putFloat(textureCoords.get(i * 2 + 1));
+                payload.putFloat(normals.get(i * 3)).putFloat(normals.get(i * 3 + 1)).putFloat(normals.get(i * 3 + 2));
+            }
+
+            IntBuffer indices = mesh.getIndices();
+            IntBuffer optimized = payload.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            for (int i = 0; i < indexCount; i++) optimized.put(i, indices.get(i));
+            MeshOptimizer.optimizeVertexCache(optimized, vertexCount);
+            MeshOptimizer.optimizeVertexFetch(optimized, payload.duplicate().position(0), VERTEX_STRIDE, vertexCount);
+            payload.position(payloadSize).flip();
+
+            // Compresses the payload if requested.
+            ByteBuffer stored = payload;
+            if (compression == COMPRESSION_LZ4) {
+                compressed = NativeAllocator.malloc(LZ4.LZ4_compressBound(payloadSize));
+                int size = LZ4.LZ4_compress_default(payload, compressed);
+                if (size <= 0) throw new Exception("Unable to compress mesh with LZ4");
+                stored = compressed.limit(size);
+            } else if (compression == COMPRESSION_ZSTD) {
+                compressed = NativeAllocator.malloc((int) Zstd.ZSTD_compressBound(payloadSize));
+                long size = Zstd.ZSTD_compress(compressed, payload, ZSTD_LEVEL);
+                if (Zstd.ZSTD_isError(size)) throw new Exception("Unable to compress mesh with Zstandard");
+                stored = compressed.limit((int) size);
+            } else if (compression != COMPRESSION_NONE) {
+                throw new IllegalArgumentException("Unknown compression mode " + compression);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(compression)
+                .putInt(vertexCount).putInt(indexCount).putInt(VERTEX_STRIDE)
+                .putInt(payloadSize).putInt(stored.remaining()).flip();
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (header.hasRemaining()) channel.write(header);
+                while (stored.hasRemaining()) channel.write(stored);
+            }
+        } finally {
+            NativeAllocator.free(payload);
+            if (compressed != null) NativeAllocator.free(compressed);
+        }
+    }
+
+    /**
+     * Returns the interleaved vertices, ready to be passed to glBufferData.
+     *
+     * @return - The vertex data.
+     */
+    public ByteBuffer getVertices() {
+        return vertices;
+    }
+
+    /**
+     * Returns the 32-bit indices, ready to be passed to glBufferData.
+     *
+     * @return - The index data.
+     */
+    public ByteBuffer getIndices() {
+        return indices;
+    }
+
+    /**
+     * The getter method for the number of vertices.
+     *
+     * @return - The number of vertices in the mesh.
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * The getter method for the number of indices.
+     *
+     * @return - The number of indices in the mesh.
+     */
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    /**
+     * The getter method for the vertex stride.
+     *
+     * @return - The size of one vertex in bytes.
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /** Frees the decompressed payload. Mapped files are released by the garbage collector. */
+    public void close() {
+        if (decompressed != null) NativeAllocator.free(decompressed);
+    }
+}
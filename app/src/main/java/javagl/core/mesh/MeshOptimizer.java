@@ -0,0 +1,243 @@
+package javagl.core.mesh;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import org.lwjgl.system.MemoryUtil;
+
+import javagl.core.memory.NativeAllocator;
+
+/**
+ * Reorders meshes to draw faster without changing how they look. Triangles
+ * are reordered so that vertices are reused while they are still in the GPU's
+ * post-transform cache, using Tom Forsyth's linear-speed vertex cache
+ * optimization, and vertices are then reordered into the order they are first
+ * used, so the vertex fetches of each draw walk through memory in order.
+ */
+public class MeshOptimizer {
+    // The size of the simulated cache, which suits every GPU without tuning for one.
+    private static final int CACHE_SIZE = 32;
+
+    // The score of the three vertices of the last triangle, kept lower so the same triangle's edges aren't favoured.
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+
+    // How quickly a vertex's score falls as it moves through the cache.
+    private static final float CACHE_DECAY_POWER = 1.5f;
+
+    // The boost given to vertices with few triangles left, so they are finished off and never reloaded.
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    // The largest number of remaining triangles given its own precomputed valence score.
+    private static final int MAX_VALENCE = 64;
+
+    // The score of each cache position and of each number of remaining triangles.
+    private static final float[] CACHE_SCORES = new float[CACHE_SIZE];
+    private static final float[] VALENCE_SCORES = new float[MAX_VALENCE + 1];
+
+    static {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            CACHE_SCORES[i] = i < 3 ? LAST_TRIANGLE_SCORE
+                : (float) Math.pow(1 - (i - 3) / (float) (CACHE_SIZE - 3), CACHE_DECAY_POWER);
+        }
+        for (int i = 1; i <= MAX_VALENCE; i++) VALENCE_SCORES[i] = VALENCE_BOOST_SCALE * (float) Math.pow(i, -VALENCE_BOOST_POWER);
+    }
+
+    private MeshOptimizer() {}
+
+    /**
+     * Reorders the triangles of a mesh for the post-transform vertex cache, in place.
+     *
+     * @param indices - The triangle indices, between their position and limit.
+     * @param vertexCount - The number of vertices the indices refer to.
+     */
+    public static void optimizeVertexCache(IntBuffer indices, int vertexCount) {
+        int base = indices.position();
+        int triangleCount = indices.remaining() / 3;
+        if (triangleCount < 2) return;
+
+        // Lists the triangles of every vertex, packed into one array by vertex.
+        int[] remaining = new int[vertexCount];
+        for (int i = 0; i < triangleCount * 3; i++) remaining[indices.get(base + i)]++;
+        int[] offsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) offsets[v + 1] = offsets[v] + remaining[v];
+        int[] vertexTriangles = new int[triangleCount * 3];
+        int[] fill = Arrays.copyOf(offsets, vertexCount);
+        for (int t = 0; t < triangleCount; t++) {
+            for (int c = 0; c < 3; c++) vertexTriangles[fill[indices.get(base + t * 3 + c)]++] = t;
+        }
+
+        int[] cachePosition = new int[vertexCount];
+        Arrays.fill(cachePosition, -1);
+        float[] vertexScores = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++) vertexScores[v] = score(-1, remaining[v]);
+
+        int[] triangles = new int[triangleCount * 3];
+        for (int i = 0; i < triangles.length; i++) triangles[i] = indices.get(base + i);
+        boolean[] added = new boolean[triangleCount];
+        int best = 0;
+        float bestScore = -1;
+        for (int t = 0; t < triangleCount; t++) {
+            float score = vertexScores[triangles[t * 3]] + vertexScores[triangles[t * 3 + 1]] + vertexScores[triangles[t * 3 + 2]];
+            if (score > bestScore) {
+                bestScore = score;
+                best = t;
+            }
+        }
+
+        // The cache holds three extra entries for the vertices pushed in before the oldest are evicted.
+        int[] cache = new int[CACHE_SIZE + 3], nextCache = new int[CACHE_SIZE + 3];
+        int cacheSize = 0;
+
+        // Every vertex pushed into the cache, so a dead end restarts next to recent work instead of searching the mesh.
+        int[] deadEnd = new int[triangleCount * 3];
+        int deadEndSize = 0;
+        int scan = 0;
+
+        for (int out = 0; out < triangleCount; out++) {
+            // Restarts at the most recent vertex with triangles left, or else the next triangle in input order.
+            while (best < 0 && deadEndSize > 0) {
+                int v = deadEnd[--deadEndSize];
+                if (remaining[v] > 0) best = vertexTriangles[offsets[v]];
+            }
+            if (best < 0) {
+                while (added[scan]) scan++;
+                best = scan;
+            }
+
+            int a = triangles[best * 3], b = triangles[best * 3 + 1], c = triangles[best * 3 + 2];
+            indices.put(base + out * 3, a).put(base + out * 3 + 1, b).put(base + out * 3 + 2, c);
+            added[best] = true;
+
+            // Removes the triangle from the lists of its vertices.
+            for (int corner = 0; corner < 3; corner++) {
+                int v = triangles[best * 3 + corner];
+                int end = offsets[v] + remaining[v] - 1;
+                for (int i = offsets[v]; i <= end; i++) {
+                    if (vertexTriangles[i] == best) {
+                        vertexTriangles[i] = vertexTriangles[end];
+                        break;
+                    }
+                }
+                remaining[v]--;
+            }
+
+            // Pushes the triangle's vertices to the front of the cache.
+            int nextSize = 0;
+            nextCache[nextSize++] = a;
+            nextCache[nextSize++] = b;
+            nextCache[nextSize++] = c;
+            deadEnd[deadEndSize++] = a;
+            deadEnd[deadEndSize++] = b;
+            deadEnd[deadEndSize++] = c;
+            for (int i = 0; i < cacheSize; i++) {
+                int v = cache[i];
+                if (v != a && v != b && v != c) nextCache[nextSize++] = v;
+            }
+            int[] swap = cache;
+            cache = nextCache;
+            nextCache = swap;
+            cacheSize = nextSize;
+
+            // Rescores every vertex in the cache, including those just pushed out of it.
+            for (int i = 0; i < cacheSize; i++) {
+                int v = cache[i];
+                cachePosition[v] = i < CACHE_SIZE ? i : -1;
+                vertexScores[v] = score(cachePosition[v], remaining[v]);
+            }
+
+            // Rescores the triangles of those vertices, picking the best one to add next.
+            best = -1;
+            bestScore = -1;
+            for (int i = 0; i < cacheSize; i++) {
+                int v = cache[i];
+                for (int j = offsets[v]; j < offsets[v] + remaining[v]; j++) {
+                    int t = vertexTriangles[j];
+                    float score = vertexScores[triangles[t * 3]] + vertexScores[triangles[t * 3 + 1]] + vertexScores[triangles[t * 3 + 2]];
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = t;
+                    }
+                }
+            }
+            cacheSize = Math.min(cacheSize, CACHE_SIZE);
+        }
+    }
+
+    /**
+     * Reorders the vertices of a mesh into the order the indices first use
+     * them, in place, and rewrites the indices to match. Vertices no index
+     * uses are moved to the end.
+     *
+     * @param indices - The triangle indices, between their position and limit.
+     * @param vertices - The interleaved vertices, from their position.
+     * @param stride - The size of each vertex in bytes.
+     * @param vertexCount - The number of vertices.
+     */
+    public static void optimizeVertexFetch(IntBuffer indices, ByteBuffer vertices, int stride, int vertexCount) {
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+
+        int next = 0;
+        for (int i = indices.position(); i < indices.limit(); i++) {
+            int v = indices.get(i);
+            if (remap[v] < 0) remap[v] = next++;
+            indices.put(i, remap[v]);
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            if (remap[v] < 0) remap[v] = next++;
+        }
+
+        // Copies the vertices aside, then writes each one back at its new place.
+        long address = MemoryUtil.memAddress(vertices);
+        ByteBuffer original = NativeAllocator.malloc(vertexCount * stride);
+        try {
+            long copy = MemoryUtil.memAddress(original);
+            MemoryUtil.memCopy(address, copy, (long) vertexCount * stride);
+            for (int v = 0; v < vertexCount; v++) {
+                MemoryUtil.memCopy(copy + (long) v * stride, address + (long) remap[v] * stride, stride);
+            }
+        } finally {
+            NativeAllocator.free(original);
+        }
+    }
+
+    /**
+     * Measures how well indices use a first-in first-out vertex cache.
+     *
+     * @param indices - The triangle indices, between their position and limit.
+     * @param vertexCount - The number of vertices the indices refer to.
+     * @param cacheSize - The number of vertices the simulated cache holds.
+     * @return - The average number of cache misses per triangle, from 0.5 at best to 3 at worst.
+     */
+    public static float getAcmr(IntBuffer indices, int vertexCount, int cacheSize) {
+        int triangleCount = indices.remaining() / 3;
+        if (triangleCount == 0) return 0;
+
+        // Each vertex remembers when it entered the cache, so a hit is a recent enough entry.
+        int[] entered = new int[vertexCount];
+        Arrays.fill(entered, Integer.MIN_VALUE / 2);
+        int misses = 0;
+        for (int i = indices.position(); i < indices.position() + triangleCount * 3; i++) {
+            int v = indices.get(i);
+            if (misses - entered[v] >= cacheSize) entered[v] = misses++;
+        }
+        return misses / (float) triangleCount;
+    }
+
+    /**
+     * Scores a vertex by its place in the cache and its remaining triangles.
+     *
+     * @param position - The position of the vertex in the cache, or -1 if it isn't cached.
+     * @param remaining - The number of triangles left to add that use the vertex.
+     * @return - The score, or -1 for vertices with nothing left to add.
+     */
+    private static float score(int position, int remaining) {
+        if (remaining == 0) return -1;
+
+        float score = position < 0 ? 0 : CACHE_SCORES[position];
+        return score + (remaining <= MAX_VALENCE ? VALENCE_SCORES[remaining]
+            : VALENCE_BOOST_SCALE * (float) Math.pow(remaining, -VALENCE_BOOST_POWER));
+    }
+}
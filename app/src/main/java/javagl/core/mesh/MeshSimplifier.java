@@ -0,0 +1,133 @@
+package javagl.core.mesh;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import javagl.core.memory.NativeAllocator;
+
+/**
+ * Simplifies meshes by vertex clustering. The bounds of the mesh are split
+ * into a grid, every vertex in a cell is replaced by the one vertex of the
+ * cell closest to their average, and triangles that collapse are dropped.
+ * Only the indices change, so every level of detail shares the original
+ * vertex buffer, and the kept vertices keep their texture coordinates and
+ * normals.
+ */
+public class MeshSimplifier {
+    // The largest number of cells along each axis, so every cell index fits in 31 bits.
+    public static final int MAX_GRID_SIZE = 1024;
+
+    private MeshSimplifier() {}
+
+    /**
+     * Simplifies a mesh by clustering its vertices into a grid.
+     *
+     * @param positions - The positions of the mesh, three floats per vertex from index 0.
+     * @param indices - The triangle indices of the mesh, between their position and limit.
+     * @param vertexCount - The number of vertices.
+     * @param gridSize - The number of cells along each axis, where fewer cells remove more triangles.
+     * @return - The simplified indices, which must be freed with NativeAllocator.free.
+     */
+    public static IntBuffer simplify(FloatBuffer positions, IntBuffer indices, int vertexCount, int gridSize) {
+        if (gridSize < 1 || gridSize > MAX_GRID_SIZE) throw new IllegalArgumentException("Grid size must be between 1 and " + MAX_GRID_SIZE);
+        int[] remap = cluster(positions, vertexCount, gridSize);
+
+        IntBuffer simplified = NativeAllocator.mallocInt(Math.max(indices.remaining(), 1));
+        for (int i = indices.position(); i + 2 < indices.limit(); i += 3) {
+            int a = remap[indices.get(i)], b = remap[indices.get(i + 1)], c = remap[indices.get(i + 2)];
+
+            // Triangles with two corners in the same cell have collapsed into a line or a point.
+            if (a == b || b == c || c == a) continue;
+            simplified.put(a).put(b).put(c);
+        }
+        simplified.flip();
+        return simplified;
+    }
+
+    /**
+     * Picks a grid size expected to keep about a quarter of the triangles of
+     * each previous level, assuming the mesh is a closed surface.
+     *
+     * @param vertexCount - The number of vertices of the full mesh.
+     * @param level - The level of detail, where 0 is the full mesh.
+     * @return - The number of cells along each axis.
+     */
+    public static int getGridSize(int vertexCount, int level) {
+        // A surface crosses roughly three times as many cells as there are along one face of the grid squared.
+        double cells = vertexCount / Math.pow(4, level) / 3;
+        return (int) Math.max(2, Math.min(MAX_GRID_SIZE, Math.round(Math.sqrt(cells))));
+    }
+
+    /**
+     * Finds the vertex each vertex is replaced by.
+     *
+     * @param positions - The positions of the mesh, three floats per vertex.
+     * @param vertexCount - The number of vertices.
+     * @param gridSize - The number of cells along each axis.
+     * @return - The replacement of every vertex.
+     */
+    private static int[] cluster(FloatBuffer positions, int vertexCount, int gridSize) {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int v = 0; v < vertexCount; v++) {
+            float x = positions.get(v * 3), y = positions.get(v * 3 + 1), z = positions.get(v * 3 + 2);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+
+        // Flat meshes have no extent along an axis, which gets a single cell.
+        float scaleX = maxX > minX ? gridSize / (maxX - minX) : 0;
+        float scaleY = maxY > minY ? gridSize / (maxY - minY) : 0;
+        float scaleZ = maxZ > minZ ? gridSize / (maxZ - minZ) : 0;
+
+        // Sorts the vertices by cell, packing the cell above the vertex so each cell is a contiguous run.
+        long[] keys = new long[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            int cx = Math.min(gridSize - 1, (int) ((positions.get(v * 3) - minX) * scaleX));
+            int cy = Math.min(gridSize - 1, (int) ((positions.get(v * 3 + 1) - minY) * scaleY));
+            int cz = Math.min(gridSize - 1, (int) ((positions.get(v * 3 + 2) - minZ) * scaleZ));
+            long cell = ((long) cx * gridSize + cy) * gridSize + cz;
+            keys[v] = cell << 32 | v;
+        }
+        Arrays.sort(keys);
+
+        int[] remap = new int[vertexCount];
+        int start = 0;
+        while (start < vertexCount) {
+            long cell = keys[start] >>> 32;
+            int end = start;
+            float sumX = 0, sumY = 0, sumZ = 0;
+            while (end < vertexCount && keys[end] >>> 32 == cell) {
+                int v = (int) keys[end];
+                sumX += positions.get(v * 3);
+                sumY += positions.get(v * 3 + 1);
+                sumZ += positions.get(v * 3 + 2);
+                end++;
+            }
+
+            // Keeps the vertex nearest the average, so the surface moves as little as possible.
+            int count = end - start;
+            float meanX = sumX / count, meanY = sumY / count, meanZ = sumZ / count;
+            int representative = (int) keys[start];
+            float nearest = Float.POSITIVE_INFINITY;
+            for (int i = start; i < end; i++) {
+                int v = (int) keys[i];
+                float dx = positions.get(v * 3) - meanX, dy = positions.get(v * 3 + 1) - meanY, dz = positions.get(v * 3 + 2) - meanZ;
+                float distance = dx * dx + dy * dy + dz * dz;
+                if (distance < nearest) {
+                    nearest = distance;
+                    representative = v;
+                }
+            }
+
+            for (int i = start; i < end; i++) remap[(int) keys[i]] = representative;
+            start = end;
+        }
+        return remap;
+    }
+}
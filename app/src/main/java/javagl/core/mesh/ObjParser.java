@@ -0,0 +1,321 @@
+package javagl.core.mesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import javagl.core.memory.NativeAllocator;
+import javagl.core.utils.LongIntMap;
+
+/**
+ * A streaming parser for Wavefront OBJ files. The file is memory-mapped and read
+ * byte by byte, with numbers parsed in place and every attribute written straight
+ * into off-heap buffers. Each unique combination of position, texture coordinate,
+ * and normal becomes one vertex, and faces are triangulated into an index buffer.
+ */
+public class ObjParser {
+    // The number of bits used by each part of a packed face corner.
+    private static final int CORNER_BITS = 21;
+    private static final long CORNER_MASK = (1L << CORNER_BITS) - 1;
+
+    // The mapped contents of the file and the current read position.
+    private final ByteBuffer data;
+    private int position;
+
+    // The raw attributes declared in the file, before deduplication.
+    private FloatBuffer positions, textureCoords, normals;
+    private int positionCount, textureCoordCount, normalCount;
+
+    // The deduplicated output mesh and the map from face corners to its vertices.
+    private final MeshData mesh;
+    private final LongIntMap corners;
+
+    // The vertex indices of the polygon currently being read.
+    private int[] polygon = new int[8];
+
+    /**
+     * Parses an OBJ file into mesh data.
+     *
+     * @param filename - The path of the OBJ file.
+     * @return - The mesh data, which must be freed by the caller.
+     * @throws Exception - An exception caused by reading or parsing the file.
+     */
+    public static MeshData parse(String filename) throws Exception {
+        Path path = Paths.get(filename);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ObjParser(data).parse();
+        } catch (IOException e) {
+            throw new Exception("OBJ file " + filename + " unable to be loaded", e);
+        }
+    }
+
+    /**
+     * Parses the contents of an OBJ file that is already in memory.
+     *
+     * @param contents - The contents of the file, between their position and limit.
+     * @return - The mesh data, which must be freed by the caller.
+     * @throws Exception - An exception caused by parsing the file.
+     */
+    public static MeshData parse(ByteBuffer contents) throws Exception {
+        return new ObjParser(contents.slice()).parse();
+    }
+
+    /**
+     * Initializes a new parser over the contents of a file.
+     *
+     * @param data - The contents of the file.
+     */
+    private ObjParser(ByteBuffer data) {
+        this.data = data;
+
+        // Guesses the size of the mesh from the size of the file.
+        int estimate = Math.max(data.remaining() / 64, 16);
+        positions = NativeAllocator.mallocFloat(estimate * 3);
+        textureCoords = NativeAllocator.mallocFloat(estimate * 2);
+        normals = NativeAllocator.mallocFloat(estimate * 3);
+
+        mesh = new MeshData(estimate, estimate * 3);
+        corners = new LongIntMap(estimate);
+    }
+
+    /**
+     * Reads every line of the file.
+     *
+     * @return - The parsed mesh data.
+     * @throws Exception - An exception caused by a malformed line.
+     */
+    private MeshData parse() throws Exception {
+        try {
+            int limit = data.limit();
+            while (position < limit) {
+                skipSpaces();
+                if (position >= limit) break;
+
+                byte first = data.get(position);
+                byte second = position + 1 < limit ? data.get(position + 1) : 0;
+
+                if (first == 'v' && second == ' ') {
+                    position += 2;
+                    positions = ensure(positions, positionCount * 3, 3);
+                    positions.put(positionCount * 3, parseFloat());
+                    positions.put(positionCount * 3 + 1, parseFloat());
+                    positions.put(positionCount * 3 + 2, parseFloat());
+                    positionCount++;
+                } else if (first == 'v' && second == 't') {
+                    position += 2;
+                    textureCoords = ensure(textureCoords, textureCoordCount * 2, 2);
+                    textureCoords.put(textureCoordCount * 2, parseFloat());
+
+                    // Flips the V coordinate, since images are loaded top row first.
+                    textureCoords.put(textureCoordCount * 2 + 1, 1.0f - parseFloat());
+                    textureCoordCount++;
+                } else if (first == 'v' && second == 'n') {
+                    position += 2;
+                    normals = ensure(normals, normalCount * 3, 3);
+                    normals.put(normalCount * 3, parseFloat());
+                    normals.put(normalCount * 3 + 1, parseFloat());
+                    normals.put(normalCount * 3 + 2, parseFloat());
+                    normalCount++;
+                } else if (first == 'f' && second == ' ') {
+                    position += 2;
+                    parseFace();
+                }
+
+                skipLine();
+            }
+
+            return mesh;
+        } catch (Exception e) {
+            mesh.free();
+            throw e;
+        } finally {
+            NativeAllocator.free(positions);
+            NativeAllocator.free(textureCoords);
+            NativeAllocator.free(normals);
+        }
+    }
+
+    /**
+     * Reads the corners of a face and triangulates it as a fan.
+     *
+     * @throws Exception - An exception caused by a face with missing or invalid indices.
+     */
+    private void parseFace() throws Exception {
+        int count = 0;
+
+        skipSpaces();
+        while (position < data.limit() && !isLineEnd(data.get(position))) {
+            int v = resolve(parseInt(), positionCount);
+            int vt = 0, vn = 0;
+
+            // Reads the optional texture coordinate and normal indices.
+            if (position < data.limit() && data.get(position) == '/') {
+                position++;
+                if (data.get(position) != '/') vt = resolve(parseInt(), textureCoordCount);
+                if (position < data.limit() && data.get(position) == '/') {
+                    position++;
+                    vn = resolve(parseInt(), normalCount);
+                }
+            }
+
+            if (count == polygon.length) polygon = Arrays.copyOf(polygon, count * 2);
+            polygon[count++] = vertex(v, vt, vn);
+            skipSpaces();
+        }
+
+        if (count < 3) throw new Exception("Face with fewer than three corners");
+
+        for (int i = 1; i < count - 1; i++) {
+            mesh.addIndex(polygon[0]);
+            mesh.addIndex(polygon[i]);
+            mesh.addIndex(polygon[i + 1]);
+        }
+    }
+
+    /**
+     * Returns the output vertex for a face corner, creating it the first time
+     * that combination of attributes is seen.
+     *
+     * @param v - The one-based position index.
+     * @param vt - The one-based texture coordinate index, or 0 if there is none.
+     * @param vn - The one-based normal index, or 0 if there is none.
+     * @return - The index of the output vertex.
+     */
+    private int vertex(int v, int vt, int vn) {
+        long key = ((long) v << (CORNER_BITS * 2)) | ((long) vt << CORNER_BITS) | vn;
+        int index = corners.get(key, -1);
+        if (index >= 0) return index;
+
+        int p = (v - 1) * 3;
+        float u = 0, tv = 0, nx = 0, ny = 0, nz = 0;
+        if (vt > 0) {
+            u = textureCoords.get((vt - 1) * 2);
+            tv = textureCoords.get((vt - 1) * 2 + 1);
+        }
+        if (vn > 0) {
+            nx = normals.get((vn - 1) * 3);
+            ny = normals.get((vn - 1) * 3 + 1);
+            nz = normals.get((vn - 1) * 3 + 2);
+        }
+
+        index = mesh.addVertex(positions.get(p), positions.get(p + 1), positions.get(p + 2), u, tv, nx, ny, nz);
+        corners.put(key, index);
+        return index;
+    }
+
+    /**
+     * Turns a possibly negative OBJ index into a positive one-based index.
+     *
+     * @param index - The index as written in the file.
+     * @param count - The number of elements declared so far.
+     * @return - The one-based index.
+     * @throws Exception - An exception caused by an index that is out of range.
+     */
+    private static int resolve(int index, int count) throws Exception {
+        if (index < 0) index = count + index + 1;
+        if (index <= 0 || index > count || index > CORNER_MASK) throw new Exception("Face index " + index + " out of range");
+        return index;
+    }
+
+    /** Parses a signed integer at the current position. */
+    private int parseInt() throws Exception {
+        boolean negative = false;
+        if (data.get(position) == '-') {
+            negative = true;
+            position++;
+        }
+
+        int start = position;
+        int value = 0;
+        while (position < data.limit()) {
+            int digit = data.get(position) - '0';
+            if (digit < 0 || digit > 9) break;
+            value = value * 10 + digit;
+            position++;
+        }
+
+        if (position == start) throw new Exception("Expected a number at byte " + position);
+        return negative ? -value : value;
+    }
+
+    /** Parses a decimal number, with an optional sign and exponent, at the current position. */
+    private float parseFloat() throws Exception {
+        skipSpaces();
+        int limit = data.limit();
+
+        boolean negative = false;
+        byte c = data.get(position);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            position++;
+        }
+
+        int start = position;
+        double value = 0;
+        while (position < limit && (c = data.get(position)) >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            position++;
+        }
+
+        if (position < limit && data.get(position) == '.') {
+            position++;
+            double scale = 0.1;
+            while (position < limit && (c = data.get(position)) >= '0' && c <= '9') {
+                value += (c - '0') * scale;
+                scale *= 0.1;
+                position++;
+            }
+        }
+
+        if (position == start) throw new Exception("Expected a number at byte " + position);
+
+        if (position < limit && ((c = data.get(position)) == 'e' || c == 'E')) {
+            position++;
+            if (data.get(position) == '+') position++;
+            value *= Math.pow(10, parseInt());
+        }
+
+        return (float) (negative ? -value : value);
+    }
+
+    /** Skips spaces and tabs. */
+    private void skipSpaces() {
+        while (position < data.limit()) {
+            byte c = data.get(position);
+            if (c != ' ' && c != '\t') break;
+            position++;
+        }
+    }
+
+    /** Skips to the start of the next line. */
+    private void skipLine() {
+        while (position < data.limit() && data.get(position) != '\n') position++;
+        position++;
+    }
+
+    /** Checks if a byte ends a line or starts a comment. */
+    private static boolean isLineEnd(byte c) {
+        return c == '\n' || c == '\r' || c == '#';
+    }
+
+    /**
+     * Makes sure a buffer has room for more floats, doubling it if it does not.
+     *
+     * @param buffer - The buffer to check.
+     * @param used - The number of floats already in the buffer.
+     * @param needed - The number of floats about to be added.
+     * @return - The buffer, or a larger copy of it.
+     */
+    private static FloatBuffer ensure(FloatBuffer buffer, int used, int needed) {
+        if (used + needed <= buffer.capacity()) return buffer;
+        return NativeAllocator.realloc(buffer, Math.max(buffer.capacity() * 2, used + needed));
+    }
+}
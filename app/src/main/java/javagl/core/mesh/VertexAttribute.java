@@ -0,0 +1,62 @@
+package javagl.core.mesh;
+
+/** A class describing one attribute of a vertex, such as its position or texture coordinate. */
+public class VertexAttribute {
+    // The shader location of the attribute and the number of components it has.
+    private final int location, components;
+
+    // How each component is stored on the GPU.
+    private final VertexEncoding encoding;
+
+    /**
+     * Initializes a new vertex attribute.
+     *
+     * @param location - The shader location of the attribute.
+     * @param components - The number of components, from 1 to 4.
+     * @param encoding - How each component is stored on the GPU.
+     */
+    public VertexAttribute(int location, int components, VertexEncoding encoding) {
+        if (components < 1 || components > 4) throw new IllegalArgumentException("Attributes have 1 to 4 components");
+
+        this.location = location;
+        this.components = components;
+        this.encoding = encoding;
+    }
+
+    /**
+     * Returns the size of the attribute, padded to four bytes so that every
+     * attribute in an interleaved vertex stays aligned.
+     *
+     * @return - The size of the attribute in bytes.
+     */
+    public int getSize() {
+        return (components * encoding.getSize() + 3) & ~3;
+    }
+
+    /**
+     * The getter method for the shader location.
+     *
+     * @return - The shader location of the attribute.
+     */
+    public int getLocation() {
+        return location;
+    }
+
+    /**
+     * The getter method for the number of components.
+     *
+     * @return - The number of components of the attribute.
+     */
+    public int getComponents() {
+        return components;
+    }
+
+    /**
+     * The getter method for the encoding.
+     *
+     * @return - How each component is stored on the GPU.
+     */
+    public VertexEncoding getEncoding() {
+        return encoding;
+    }
+}
@@ -0,0 +1,124 @@
+package javagl.core.mesh;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+
+/**
+ * The ways a single vertex attribute component can be stored on the GPU. Smaller
+ * encodings trade precision for memory and bandwidth: half floats suit texture
+ * coordinates, and normalized integers suit colors and normals.
+ */
+public enum VertexEncoding {
+    FLOAT(GL11.GL_FLOAT, 4, false),
+    HALF_FLOAT(GL30.GL_HALF_FLOAT, 2, false),
+    NORMALIZED_BYTE(GL11.GL_BYTE, 1, true),
+    NORMALIZED_UNSIGNED_BYTE(GL11.GL_UNSIGNED_BYTE, 1, true),
+    NORMALIZED_SHORT(GL11.GL_SHORT, 2, true),
+    NORMALIZED_UNSIGNED_SHORT(GL11.GL_UNSIGNED_SHORT, 2, true);
+
+    // The GL type of the component, its size in bytes, and if GL should normalize it.
+    private final int glType, size;
+    private final boolean normalized;
+
+    VertexEncoding(int glType, int size, boolean normalized) {
+        this.glType = glType;
+        this.size = size;
+        this.normalized = normalized;
+    }
+
+    /**
+     * Writes a single component into a buffer using this encoding.
+     *
+     * @param buffer - The buffer to write into.
+     * @param offset - The byte offset to write at.
+     * @param value - The value of the component.
+     */
+    public void write(ByteBuffer buffer, int offset, float value) {
+        switch (this) {
+            case FLOAT:
+                buffer.putFloat(offset, value);
+                break;
+            case HALF_FLOAT:
+                buffer.putShort(offset, toHalf(value));
+                break;
+            case NORMALIZED_BYTE:
+                buffer.put(offset, (byte) Math.round(clamp(value, -1, 1) * 127));
+                break;
+            case NORMALIZED_UNSIGNED_BYTE:
+                buffer.put(offset, (byte) Math.round(clamp(value, 0, 1) * 255));
+                break;
+            case NORMALIZED_SHORT:
+                buffer.putShort(offset, (short) Math.round(clamp(value, -1, 1) * 32767));
+                break;
+            case NORMALIZED_UNSIGNED_SHORT:
+                buffer.putShort(offset, (short) Math.round(clamp(value, 0, 1) * 65535));
+                break;
+        }
+    }
+
+    /**
+     * The getter method for the GL type.
+     *
+     * @return - The GL type passed to glVertexAttribPointer.
+     */
+    public int getGlType() {
+        return glType;
+    }
+
+    /**
+     * The getter method for the component size.
+     *
+     * @return - The size of one component in bytes.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * The getter method for the normalized flag.
+     *
+     * @return - If GL maps the stored integers to the range 0 to 1 or -1 to 1.
+     */
+    public boolean isNormalized() {
+        return normalized;
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Converts a float to an IEEE 754 half float, rounding to the nearest value.
+     *
+     * @param value - The float to convert.
+     * @return - The bits of the half float.
+     */
+    public static short toHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = ((bits >>> 23) & 0xFF) - 127 + 15;
+        int mantissa = bits & 0x7FFFFF;
+
+        // Keeps NaN as NaN and infinity as infinity.
+        if (((bits >>> 23) & 0xFF) == 0xFF) return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+
+        // Values too large for a half float become infinity.
+        if (exponent >= 0x1F) return (short) (sign | 0x7C00);
+
+        // Values too small for a normal half float become subnormal or zero.
+        if (exponent <= 0) {
+            if (exponent < -10) return (short) sign;
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int half = mantissa >> shift;
+            if (((mantissa >> (shift - 1)) & 1) != 0) half++;
+            return (short) (sign | half);
+        }
+
+        int half = sign | (exponent << 10) | (mantissa >> 13);
+        if ((mantissa & 0x1000) != 0) half++;
+        return (short) half;
+    }
+}
@@ -0,0 +1,146 @@
+package javagl.core.mesh;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.lwjgl.opengl.GL20;
+
+/**
+ * A description of an interleaved vertex. Any number of attributes are packed
+ * one after another into a single vertex buffer, each at its own offset within
+ * a vertex of a fixed stride.
+ */
+public class VertexFormat {
+    // A position and a texture coordinate, stored as floats.
+    public static final VertexFormat POSITION_UV = new VertexFormat(
+        new VertexAttribute(0, 3, VertexEncoding.FLOAT),
+        new VertexAttribute(1, 2, VertexEncoding.FLOAT)
+    );
+
+    // A position, a texture coordinate, and a normal, stored as floats.
+    public static final VertexFormat POSITION_UV_NORMAL = new VertexFormat(
+        new VertexAttribute(0, 3, VertexEncoding.FLOAT),
+        new VertexAttribute(1, 2, VertexEncoding.FLOAT),
+        new VertexAttribute(2, 3, VertexEncoding.FLOAT)
+    );
+
+    // A position and a texture coordinate with a texture array layer as its third component.
+    public static final VertexFormat POSITION_UV_LAYER = new VertexFormat(
+        new VertexAttribute(0, 3, VertexEncoding.FLOAT),
+        new VertexAttribute(1, 3, VertexEncoding.FLOAT)
+    );
+
+    // A float position, a half float texture coordinate, and a normalized byte normal, in 20 bytes instead of 32.
+    public static final VertexFormat POSITION_UV_NORMAL_COMPACT = new VertexFormat(
+        new VertexAttribute(0, 3, VertexEncoding.FLOAT),
+        new VertexAttribute(1, 2, VertexEncoding.HALF_FLOAT),
+        new VertexAttribute(2, 3, VertexEncoding.NORMALIZED_BYTE)
+    );
+
+    // The attributes of the vertex and the byte offset of each one.
+    private final VertexAttribute[] attributes;
+    private final int[] offsets;
+
+    // The size of a whole vertex in bytes.
+    private final int stride;
+
+    /**
+     * Initializes a new vertex format.
+     *
+     * @param attributes - The attributes of the vertex, in the order they are packed.
+     */
+    public VertexFormat(VertexAttribute... attributes) {
+        this.attributes = attributes.clone();
+        this.offsets = new int[attributes.length];
+
+        int offset = 0;
+        for (int i = 0; i < attributes.length; i++) {
+            offsets[i] = offset;
+            offset += attributes[i].getSize();
+        }
+        stride = offset;
+    }
+
+    /**
+     * Points every attribute at the vertex buffer currently bound to
+     * GL_ARRAY_BUFFER and enables it in the bound vertex array.
+     *
+     * @param baseOffset - The byte offset of the first vertex in the buffer.
+     */
+    public void setup(long baseOffset) {
+        for (int i = 0; i < attributes.length; i++) {
+            VertexAttribute attribute = attributes[i];
+            VertexEncoding encoding = attribute.getEncoding();
+
+            GL20.glVertexAttribPointer(attribute.getLocation(), attribute.getComponents(),
+                encoding.getGlType(), encoding.isNormalized(), stride, baseOffset + offsets[i]);
+            GL20.glEnableVertexAttribArray(attribute.getLocation());
+        }
+    }
+
+    /**
+     * Interleaves separate arrays of attribute data into a buffer, encoding each
+     * component. There must be one source buffer per attribute, in order.
+     *
+     * @param sources - The data of each attribute, with one entry per component per vertex.
+     * @param vertexCount - The number of vertices to pack.
+     * @param destination - The buffer to write into, starting at its position.
+     */
+    public void pack(FloatBuffer[] sources, int vertexCount, ByteBuffer destination) {
+        if (sources.length != attributes.length) throw new IllegalArgumentException("Expected " + attributes.length + " attributes");
+
+        int base = destination.position();
+        for (int i = 0; i < attributes.length; i++) {
+            VertexAttribute attribute = attributes[i];
+            VertexEncoding encoding = attribute.getEncoding();
+            int components = attribute.getComponents();
+            FloatBuffer source = sources[i];
+
+            for (int v = 0; v < vertexCount; v++) {
+                int offset = base + v * stride + offsets[i];
+                for (int c = 0; c < components; c++) {
+                    encoding.write(destination, offset + c * encoding.getSize(), source.get(v * components + c));
+                }
+            }
+        }
+        destination.position(base + vertexCount * stride);
+    }
+
+    /**
+     * The getter method for the vertex stride.
+     *
+     * @return - The size of one vertex in bytes.
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * The getter method for the number of attributes.
+     *
+     * @return - The number of attributes in the vertex.
+     */
+    public int getAttributeCount() {
+        return attributes.length;
+    }
+
+    /**
+     * The getter method for an attribute.
+     *
+     * @param i - The index of the attribute.
+     * @return - The attribute at that index.
+     */
+    public VertexAttribute getAttribute(int i) {
+        return attributes[i];
+    }
+
+    /**
+     * The getter method for the offset of an attribute.
+     *
+     * @param i - The index of the attribute.
+     * @return - The byte offset of the attribute within a vertex.
+     */
+    public int getOffset(int i) {
+        return offsets[i];
+    }
+}
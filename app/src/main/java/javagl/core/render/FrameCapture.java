@@ -0,0 +1,212 @@
+package javagl.core.render;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.lwjgl.stb.STBImageWrite;
+import org.lwjgl.system.MemoryUtil;
+
+import javagl.core.memory.BufferPool;
+
+/**
+ * A subsystem for capturing rendered frames to PNG files. Frames are read back
+ * asynchronously through a PixelReader, copied into pooled off-heap buffers, and
+ * encoded and written to disk by a background thread pool, so the render thread
+ * only ever pays for a memory copy.
+ */
+public class FrameCapture implements PixelReader.PixelConsumer {
+    // The number of frames that can be read back at once.
+    private static final int READBACK_SLOTS = 3;
+
+    // The directory that frames are written to.
+    private final File directory;
+
+    // The reader copying frames out of the framebuffer.
+    private PixelReader reader;
+
+    // The pool encoding and writing frames, and the limit on frames waiting to be encoded.
+    private final ExecutorService encoders;
+    private final Semaphore queued;
+
+    // Buffers that have finished encoding and can be reused.
+    private final BufferPool pool;
+
+    // The number of frames requested, written, and failed to write, and the time that the first frame was requested.
+    private long requested;
+    private final AtomicLong written, failed;
+    private long startTime;
+
+    // The total time and frames between requesting a frame and its pixels arriving.
+    private long latencyTime, latencyFrames, readbacks;
+
+    // The total time spent encoding and writing frames.
+    private final AtomicLong encodeTime;
+
+    /**
+     * Initializes a new frame capture.
+     *
+     * @param directory - The directory to write frames to.
+     * @param threads - The number of threads encoding frames.
+     * @param maxQueued - The most frames that can wait to be encoded before the render thread waits.
+     */
+    public FrameCapture(String directory, int threads, int maxQueued) {
+        this.directory = new File(directory);
+        this.directory.mkdirs();
+
+        encoders = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Frame Encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        queued = new Semaphore(maxQueued);
+        pool = new BufferPool();
+
+        written = new AtomicLong();
+        failed = new AtomicLong();
+        encodeTime = new AtomicLong();
+
+        // Frames are read bottom row first, so they are flipped as they are written.
+        STBImageWrite.stbi_flip_vertically_on_write(true);
+    }
+
+    /**
+     * Starts capturing the currently bound framebuffer and hands any frames
+     * that have finished reading back to the encoders. This should be called
+     * after rendering, before the buffers are swapped.
+     *
+     * @param width - The width of the framebuffer.
+     * @param height - The height of the framebuffer.
+     */
+    public void capture(int width, int height) {
+        if (reader == null) {
+            reader = new PixelReader(READBACK_SLOTS);
+            startTime = System.nanoTime();
+        }
+
+        reader.read(width, height, this);
+        requested++;
+        reader.poll(this);
+    }
+
+    /**
+     * Copies the pixels of a finished read into a pooled buffer and queues it to be written.
+     */
+    @Override
+    public void accept(ByteBuffer pixels, int width, int height, long frame, long requestTime) {
+        latencyTime += System.nanoTime() - requestTime;
+        latencyFrames += requested - frame;
+        readbacks++;
+
+        // Waits if the encoders have fallen too far behind.
+        queued.acquireUninterruptibly();
+
+        int size = width * height * 4;
+        ByteBuffer copy = pool.acquire(size);
+        MemoryUtil.memCopy(MemoryUtil.memAddress(pixels), MemoryUtil.memAddress(copy), size);
+        encoders.execute(() -> encode(copy, width, height, frame));
+    }
+
+    /**
+     * Encodes a frame as a PNG file and returns its buffer to the pool.
+     */
+    private void encode(ByteBuffer image, int width, int height, long frame) {
+        long start = System.nanoTime();
+        try {
+            String filename = new File(directory, String.format("frame_%06d.png", frame)).getPath();
+            if (STBImageWrite.stbi_write_png(filename, width, height, 4, image, width * 4)) {
+                written.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+                System.err.println("Unable to write frame " + filename);
+            }
+        } finally {
+            encodeTime.addAndGet(System.nanoTime() - start);
+            pool.release(image);
+            queued.release();
+        }
+    }
+
+    /**
+     * Returns the rate at which frames have been written to disk since the first capture.
+     *
+     * @return - The number of frames written per second.
+     */
+    public double getCaptureFps() {
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        return seconds > 0 ? written.get() / seconds : 0;
+    }
+
+    /**
+     * Returns the average time between requesting a frame and its pixels arriving on the CPU.
+     *
+     * @return - The average readback latency in milliseconds.
+     */
+    public double getAverageLatency() {
+        return readbacks > 0 ? latencyTime / (double) readbacks / 1e6 : 0;
+    }
+
+    /**
+     * Returns the average number of frames rendered between requesting a frame and its pixels arriving.
+     *
+     * @return - The average readback latency in frames.
+     */
+    public double getAverageLatencyFrames() {
+        return readbacks > 0 ? latencyFrames / (double) readbacks : 0;
+    }
+
+    /**
+     * Returns the average time that an encoder spends writing a single frame.
+     *
+     * @return - The average encode time in milliseconds.
+     */
+    public double getAverageEncodeTime() {
+        long count = written.get() + failed.get();
+        return count > 0 ? encodeTime.get() / (double) count / 1e6 : 0;
+    }
+
+    /**
+     * The getter method for the number of frames written.
+     *
+     * @return - The number of frames written to disk.
+     */
+    public long getWrittenFrames() {
+        return written.get();
+    }
+
+    /**
+     * The getter method for the number of frames that failed to write.
+     *
+     * @return - The number of frames the encoder was unable to write to disk.
+     */
+    public long getFailedFrames() {
+        return failed.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d frames captured at %.1f fps, %d failed, %.2f ms (%.1f frames) readback latency, %.2f ms encode",
+            getWrittenFrames(), getCaptureFps(), getFailedFrames(), getAverageLatency(), getAverageLatencyFrames(), getAverageEncodeTime());
+    }
+
+    /** Finishes every pending read, waits for the encoders, and frees the pooled buffers. */
+    public void cleanup() {
+        if (reader != null) {
+            reader.finish(this);
+            reader.cleanup();
+        }
+
+        encoders.shutdown();
+        try {
+            encoders.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        pool.clear();
+    }
+}
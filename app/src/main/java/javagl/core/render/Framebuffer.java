@@ -0,0 +1,99 @@
+package javagl.core.render;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+
+/** A class for an offscreen framebuffer object with color and depth-stencil attachments. */
+public class Framebuffer {
+    // The IDs of the framebuffer and its color and depth-stencil renderbuffers.
+    private final int id, colorId, depthStencilId;
+
+    // The width and height of the framebuffer.
+    private int width, height;
+
+    /**
+     * Creates a new framebuffer of the specified size.
+     *
+     * @param width - The width of the framebuffer.
+     * @param height - The height of the framebuffer.
+     * @throws Exception - An exception caused by an incomplete framebuffer.
+     */
+    public Framebuffer(int width, int height) throws Exception {
+        id = GL30.glGenFramebuffers();
+        colorId = GL30.glGenRenderbuffers();
+        depthStencilId = GL30.glGenRenderbuffers();
+
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, id);
+        resize(width, height);
+
+        // Attaches the renderbuffers to the framebuffer.
+        GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL30.GL_RENDERBUFFER, colorId);
+        GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_STENCIL_ATTACHMENT, GL30.GL_RENDERBUFFER, depthStencilId);
+
+        int status = GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER);
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+        if (status != GL30.GL_FRAMEBUFFER_COMPLETE) throw new Exception("Framebuffer is incomplete: " + status);
+    }
+
+    /**
+     * Reallocates the storage of the renderbuffers with a new size.
+     *
+     * @param width - The new width of the framebuffer.
+     * @param height - The new height of the framebuffer.
+     */
+    public void resize(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, colorId);
+        GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL11.GL_RGBA8, width, height);
+        GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, depthStencilId);
+        GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL30.GL_DEPTH24_STENCIL8, width, height);
+        GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, 0);
+    }
+
+    /** Binds the framebuffer as the render target and sets the viewport to cover it. */
+    public void bind() {
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, id);
+        GL11.glViewport(0, 0, width, height);
+    }
+
+    /** Binds the default framebuffer as the render target. */
+    public void unbind() {
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+    }
+
+    /**
+     * The getter method for the framebuffer ID.
+     *
+     * @return - The framebuffer ID.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * The getter method for the width of the framebuffer.
+     *
+     * @return - The width of the framebuffer.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * The getter method for the height of the framebuffer.
+     *
+     * @return - The height of the framebuffer.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /** Deletes the framebuffer and its renderbuffers. */
+    public void cleanup() {
+        GL30.glDeleteFramebuffers(id);
+        GL30.glDeleteRenderbuffers(colorId);
+        GL30.glDeleteRenderbuffers(depthStencilId);
+    }
+}
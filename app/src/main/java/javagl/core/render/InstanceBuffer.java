@@ -0,0 +1,100 @@
+package javagl.core.render;
+
+import java.nio.FloatBuffer;
+
+import org.joml.Matrix4fc;
+import org.joml.Vector4fc;
+
+import javagl.core.memory.NativeAllocator;
+
+/**
+ * An off-heap buffer of packed per-instance data. Each instance is stored as a
+ * column-major 4x4 transform followed by an RGBA color, ready to be uploaded
+ * to the GPU without any further conversion.
+ */
+public class InstanceBuffer {
+    // The number of floats and bytes used by a single instance.
+    public static final int INSTANCE_FLOATS = 16 + 4;
+    public static final int INSTANCE_BYTES = INSTANCE_FLOATS * Float.BYTES;
+
+    // The packed instance data.
+    private FloatBuffer buffer;
+
+    // The number of instances currently stored.
+    private int count;
+
+    /**
+     * Initializes a new instance buffer.
+     *
+     * @param capacity - The number of instances the buffer can hold before growing.
+     */
+    public InstanceBuffer(int capacity) {
+        buffer = NativeAllocator.mallocFloat(Math.max(capacity, 1) * INSTANCE_FLOATS);
+    }
+
+    /**
+     * Adds a new instance to the buffer.
+     *
+     * @param transform - The transform of the instance.
+     * @param color - The color the instance is multiplied by.
+     */
+    public void add(Matrix4fc transform, Vector4fc color) {
+        add(transform, color.x(), color.y(), color.z(), color.w());
+    }
+
+    /**
+     * Adds a new instance to the buffer.
+     *
+     * @param transform - The transform of the instance.
+     * @param r - The red component of the instance color.
+     * @param g - The green component of the instance color.
+     * @param b - The blue component of the instance color.
+     * @param a - The alpha component of the instance color.
+     */
+    public void add(Matrix4fc transform, float r, float g, float b, float a) {
+        if ((count + 1) * INSTANCE_FLOATS > buffer.capacity()) grow();
+
+        int offset = count * INSTANCE_FLOATS;
+        transform.get(offset, buffer);
+        buffer.put(offset + 16, r);
+        buffer.put(offset + 17, g);
+        buffer.put(offset + 18, b);
+        buffer.put(offset + 19, a);
+        count++;
+    }
+
+    /** Removes every instance from the buffer, keeping its memory. */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * The getter method for the number of instances.
+     *
+     * @return - The number of instances stored in the buffer.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns a view of the packed instance data, positioned at the first
+     * instance and limited to the last one.
+     *
+     * @return - The packed instance data.
+     */
+    public FloatBuffer getBuffer() {
+        return buffer.duplicate().clear().limit(count * INSTANCE_FLOATS);
+    }
+
+    /** Frees the off-heap memory of the buffer. */
+    public void cleanup() {
+        NativeAllocator.free(buffer);
+        buffer = null;
+    }
+
+    /** Doubles the capacity of the buffer. */
+    private void grow() {
+        buffer = NativeAllocator.realloc(buffer.clear(), buffer.capacity() * 2);
+    }
+}
@@ -0,0 +1,182 @@
+package javagl.core.render;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.system.MemoryUtil;
+
+import javagl.core.entity.Model;
+import javagl.core.managers.ShaderManager;
+import javagl.core.shader.IntUniform;
+import javagl.core.shader.ShaderCache;
+
+/**
+ * A renderer that draws many copies of the same model with a single draw call.
+ * Per-instance data is written into a streaming vertex buffer which is orphaned
+ * once it fills up, so uploads never wait on draws that are still in flight.
+ */
+public class InstanceRenderer {
+    // The first attribute location used by the instance transform and the location of the color.
+    public static final int TRANSFORM_LOCATION = 3;
+    public static final int COLOR_LOCATION = 7;
+
+    // The starting size of the streaming instance buffer in bytes.
+    private static final int INITIAL_CAPACITY = 1024 * InstanceBuffer.INSTANCE_BYTES;
+
+    // The shader used to draw instanced models, and its texture sampler.
+    private ShaderManager shader;
+    private IntUniform textureSampler;
+
+    // The ID of the streaming instance buffer.
+    private int vbo;
+
+    // The size of the streaming buffer and the offset of the next free byte.
+    private long capacity, offset;
+
+    // The draw call and state change counters of the last frame.
+    private final RenderStats stats;
+
+    /** Initializes a new instance renderer. */
+    public InstanceRenderer() {
+        stats = new RenderStats();
+    }
+
+    /**
+     * Creates the instanced shader and the streaming instance buffer.
+     *
+     * @param cache - The cache to load the shader through.
+     * @throws Exception - An exception caused by loading or linking the shader.
+     */
+    public void init(ShaderCache cache) throws Exception {
+        shader = cache.load("/shaders/instanced.vs", "/shaders/instanced.fs");
+        textureSampler = shader.createIntUniform("textureSampler");
+
+        capacity = INITIAL_CAPACITY;
+        vbo = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, capacity, GL15.GL_STREAM_DRAW);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Uploads the instance data to the streaming buffer and draws every instance
+     * of the model with one instanced draw call. The instance attributes are
+     * only enabled in the model's vertex array for the draw, so later regular
+     * draws of the model see it as it was.
+     *
+     * @param model - The model to draw, whose vertex format must leave the instance locations free.
+     * @param instances - The transforms and colors of each instance.
+     */
+    public void render(Model model, InstanceBuffer instances) {
+        int count = instances.getCount();
+        if (count == 0) return;
+        if (model.getFormat() != null && model.getFormat().getAttributeCount() > TRANSFORM_LOCATION) {
+            throw new IllegalArgumentException("Instanced models can use at most " + TRANSFORM_LOCATION + " vertex attributes");
+        }
+
+        // Writes the instance data into the streaming buffer.
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        long base = upload(instances);
+
+        shader.bind();
+        textureSampler.set(0);
+        stats.addShaderChange();
+
+        // Binds the model's vertex array and points the instance attributes at the new data.
+        GL30.glBindVertexArray(model.getId());
+        stats.addVaoChange();
+        for (int column = 0; column < 4; column++) {
+            int location = TRANSFORM_LOCATION + column;
+            GL20.glVertexAttribPointer(location, 4, GL11.GL_FLOAT, false,
+                InstanceBuffer.INSTANCE_BYTES, base + column * 4L * Float.BYTES);
+            GL33.glVertexAttribDivisor(location, 1);
+            GL20.glEnableVertexAttribArray(location);
+        }
+        GL20.glVertexAttribPointer(COLOR_LOCATION, 4, GL11.GL_FLOAT, false,
+            InstanceBuffer.INSTANCE_BYTES, base + 16L * Float.BYTES);
+        GL33.glVertexAttribDivisor(COLOR_LOCATION, 1);
+        GL20.glEnableVertexAttribArray(COLOR_LOCATION);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+        // Binds the model's texture to the GL context.
+        GL13.glActiveTexture(GL13.GL_TEXTURE0);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, model.getTexture() != null ? model.getTexture().getId() : 0);
+        stats.addTextureChange();
+
+        // Draws every instance at once.
+        GL32.glDrawElementsInstancedBaseVertex(GL11.GL_TRIANGLES, model.getVertexCount(), model.getIndexType(),
+            model.getIndexOffset(), count, model.getBaseVertex());
+        stats.addDrawCall();
+
+        // Clears the instance attributes from the model's vertex array, which regular draws share.
+        for (int location = TRANSFORM_LOCATION; location <= COLOR_LOCATION; location++) {
+            GL20.glDisableVertexAttribArray(location);
+            GL33.glVertexAttribDivisor(location, 0);
+        }
+
+        GL30.glBindVertexArray(0);
+        shader.unbind();
+    }
+
+    /**
+     * Writes the instances into the next free range of the streaming buffer,
+     * orphaning the buffer when there is not enough room left.
+     *
+     * @param instances - The instances to upload.
+     * @return - The byte offset of the uploaded data in the buffer.
+     */
+    private long upload(InstanceBuffer instances) {
+        long size = (long) instances.getCount() * InstanceBuffer.INSTANCE_BYTES;
+
+        if (offset + size > capacity) {
+            // Orphans the buffer, growing it if a single upload would not fit.
+            while (size > capacity) capacity *= 2;
+            GL15.glBufferData(GL15.GL_ARRAY_BUFFER, capacity, GL15.GL_STREAM_DRAW);
+            offset = 0;
+        }
+
+        ByteBuffer mapped = GL30.glMapBufferRange(GL15.GL_ARRAY_BUFFER, offset, size,
+            GL30.GL_MAP_WRITE_BIT | GL30.GL_MAP_INVALIDATE_RANGE_BIT | GL30.GL_MAP_UNSYNCHRONIZED_BIT);
+
+        if (mapped != null) {
+            MemoryUtil.memCopy(MemoryUtil.memAddress(instances.getBuffer()), MemoryUtil.memAddress(mapped), size);
+            GL15.glUnmapBuffer(GL15.GL_ARRAY_BUFFER);
+        } else {
+            GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, offset, instances.getBuffer());
+        }
+
+        long base = offset;
+        offset += size;
+        return base;
+    }
+
+    /**
+     * Returns the draw call and state change counters since they were last reset.
+     *
+     * @return - The render statistics of the instanced renderer.
+     */
+    public RenderStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the shader used to draw instanced models.
+     *
+     * @return - The instanced shader manager.
+     */
+    public ShaderManager getShaderManager() {
+        return shader;
+    }
+
+    /** Cleans up the instance renderer. */
+    public void cleanup() {
+        if (shader != null) shader.cleanup();
+        GL15.glDeleteBuffers(vbo);
+    }
+}
@@ -0,0 +1,174 @@
+package javagl.core.render;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+
+/**
+ * An asynchronous pixel reader backed by a ring of pixel buffer objects. Each
+ * read copies the bound framebuffer into the next PBO without waiting, and a
+ * fence marks when the copy is done. Finished reads are mapped and handed to a
+ * consumer a few frames later, so the CPU never stalls waiting on the GPU.
+ */
+public class PixelReader {
+    /** A callback receiving the pixels of a finished read. */
+    public interface PixelConsumer {
+        /**
+         * Accepts the RGBA pixels of a finished read. The buffer is only
+         * valid until this method returns.
+         *
+         * @param pixels - The pixels, bottom row first.
+         * @param width - The width of the image.
+         * @param height - The height of the image.
+         * @param frame - The frame number that the read was requested on.
+         * @param requestTime - The time that the read was requested in nanoseconds.
+         */
+        void accept(ByteBuffer pixels, int width, int height, long frame, long requestTime);
+    }
+
+    // The PBO IDs of each slot in the ring.
+    private final int[] pbos;
+
+    // The fence, size, frame number, and request time of each slot; a fence of 0 means the slot is free.
+    private final long[] fences;
+    private final int[] widths, heights;
+    private final long[] frames, requestTimes;
+
+    // The capacity of each PBO in bytes.
+    private final long[] capacities;
+
+    // The next slot to write into and the oldest slot still pending.
+    private int head, tail;
+    private int pending;
+
+    // The number of reads requested so far.
+    private long frameCount;
+
+    /**
+     * Creates a new pixel reader.
+     *
+     * @param slots - The number of reads that can be in flight at once.
+     */
+    public PixelReader(int slots) {
+        pbos = new int[slots];
+        fences = new long[slots];
+        widths = new int[slots];
+        heights = new int[slots];
+        frames = new long[slots];
+        requestTimes = new long[slots];
+        capacities = new long[slots];
+
+        for (int i = 0; i < slots; i++) pbos[i] = GL15.glGenBuffers();
+    }
+
+    /**
+     * Starts reading the pixels of the currently bound read framebuffer. If every
+     * slot is in flight, the oldest read is finished first so no frame is lost.
+     *
+     * @param width - The width of the area to read.
+     * @param height - The height of the area to read.
+     * @param consumer - The consumer of the oldest read, if it has to be finished early.
+     */
+    public void read(int width, int height, PixelConsumer consumer) {
+        if (pending == pbos.length) complete(true, consumer);
+
+        int slot = head;
+        long size = (long) width * height * 4;
+
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, pbos[slot]);
+
+        // Grows the PBO if the image no longer fits, orphaning the old storage either way.
+        if (size > capacities[slot]) capacities[slot] = size;
+        GL15.glBufferData(GL21.GL_PIXEL_PACK_BUFFER, capacities[slot], GL15.GL_STREAM_READ);
+
+        // Copies the framebuffer into the PBO; this returns immediately.
+        GL11.glPixelStorei(GL11.GL_PACK_ALIGNMENT, 1);
+        GL11.glReadPixels(0, 0, width, height, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, 0);
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+
+        fences[slot] = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        widths[slot] = width;
+        heights[slot] = height;
+        frames[slot] = frameCount++;
+        requestTimes[slot] = System.nanoTime();
+
+        head = (head + 1) % pbos.length;
+        pending++;
+    }
+
+    /**
+     * Hands every finished read to the consumer without waiting on the GPU.
+     *
+     * @param consumer - The consumer of the finished reads.
+     * @return - The number of reads that were handed to the consumer.
+     */
+    public int poll(PixelConsumer consumer) {
+        int count = 0;
+        while (pending > 0 && complete(false, consumer)) count++;
+        return count;
+    }
+
+    /**
+     * Waits for every pending read and hands them all to the consumer.
+     *
+     * @param consumer - The consumer of the finished reads.
+     */
+    public void finish(PixelConsumer consumer) {
+        while (pending > 0) complete(true, consumer);
+    }
+
+    /**
+     * Maps the oldest pending read and hands it to the consumer.
+     *
+     * @param wait - If the method should wait for the GPU to finish the read.
+     * @param consumer - The consumer of the read.
+     * @return - If the read was finished and handed to the consumer.
+     */
+    private boolean complete(boolean wait, PixelConsumer consumer) {
+        int slot = tail;
+
+        // Checks the fence, flushing and waiting for it if requested.
+        int result = GL32.glClientWaitSync(fences[slot], wait ? GL32.GL_SYNC_FLUSH_COMMANDS_BIT : 0, wait ? Long.MAX_VALUE : 0);
+        if (result == GL32.GL_TIMEOUT_EXPIRED || result == GL32.GL_WAIT_FAILED) {
+            if (!wait) return false;
+        }
+
+        GL32.glDeleteSync(fences[slot]);
+        fences[slot] = 0;
+
+        // Maps the PBO and passes its contents to the consumer.
+        long size = (long) widths[slot] * heights[slot] * 4;
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, pbos[slot]);
+        ByteBuffer pixels = GL30.glMapBufferRange(GL21.GL_PIXEL_PACK_BUFFER, 0, size, GL30.GL_MAP_READ_BIT);
+        if (pixels != null) {
+            consumer.accept(pixels, widths[slot], heights[slot], frames[slot], requestTimes[slot]);
+            GL15.glUnmapBuffer(GL21.GL_PIXEL_PACK_BUFFER);
+        }
+        GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+
+        tail = (tail + 1) % pbos.length;
+        pending--;
+        return true;
+    }
+
+    /**
+     * The getter method for the number of reads in flight.
+     *
+     * @return - The number of reads that have not been handed to a consumer yet.
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /** Deletes the PBOs and any fences that are still pending. */
+    public void cleanup() {
+        for (int i = 0; i < pbos.length; i++) {
+            if (fences[i] != 0) GL32.glDeleteSync(fences[i]);
+            GL15.glDeleteBuffers(pbos[i]);
+        }
+    }
+}
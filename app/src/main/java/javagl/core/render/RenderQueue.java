@@ -0,0 +1,147 @@
+package javagl.core.render;
+
+import java.util.Arrays;
+
+import org.joml.Matrix4fc;
+
+import javagl.core.entity.Model;
+import javagl.core.managers.ShaderManager;
+
+/**
+ * A frame-scoped queue of models waiting to be drawn. Models are submitted
+ * in any order and then sorted by shader, texture, and vertex array so that
+ * the renderer changes GL state as rarely as possible.
+ */
+public class RenderQueue {
+    // The number of bits in a sort key used by each part of the draw state.
+    private static final int INDEX_BITS = 24;
+    private static final int VAO_BITS = 14;
+    private static final int TEXTURE_BITS = 14;
+    private static final int SHADER_BITS = 11;
+
+    // The largest number of models that can be submitted in one frame.
+    public static final int MAX_ENTRIES = 1 << INDEX_BITS;
+
+    // The models, shaders, and model matrices that have been submitted this frame.
+    private Model[] models;
+    private ShaderManager[] shaders;
+    private Matrix4fc[] transforms;
+
+    // The sort keys of the submitted models, with the submission index in the low bits.
+    private long[] keys;
+
+    // The number of models submitted this frame.
+    private int size;
+
+    /** Initializes a new render queue with a small starting capacity. */
+    public RenderQueue() {
+        this(256);
+    }
+
+    /**
+     * Initializes a new render queue with the specified starting capacity.
+     *
+     * @param capacity - The number of models the queue can hold before growing.
+     */
+    public RenderQueue(int capacity) {
+        models = new Model[capacity];
+        shaders = new ShaderManager[capacity];
+        transforms = new Matrix4fc[capacity];
+        keys = new long[capacity];
+    }
+
+    /**
+     * Adds a model to the queue to be drawn with the specified shader.
+     *
+     * @param model - The model to draw.
+     * @param shader - The shader to draw the model with.
+     * @param transform - The model matrix to draw the model with, which must not change until the queue is flushed.
+     */
+    public void submit(Model model, ShaderManager shader, Matrix4fc transform) {
+        if (size == MAX_ENTRIES) throw new IllegalStateException("Render queue is full");
+        if (size == keys.length) grow();
+
+        int texture = model.getTexture() != null ? model.getTexture().getId() : 0;
+
+        models[size] = model;
+        shaders[size] = shader;
+        transforms[size] = transform;
+        keys[size] = createKey(shader.getProgramId(), texture, model.getId(), size);
+        size++;
+    }
+
+    /**
+     * Sorts the submitted models by their draw state. The IDs are masked to fit
+     * inside the key, so very large IDs may sort imperfectly, but never draw incorrectly.
+     */
+    public void sort() {
+        Arrays.sort(keys, 0, size);
+    }
+
+    /** Removes every model from the queue, ready for the next frame. */
+    public void clear() {
+        Arrays.fill(models, 0, size, null);
+        Arrays.fill(shaders, 0, size, null);
+        Arrays.fill(transforms, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * The getter method for a model in sorted order.
+     *
+     * @param i - The position of the model in the sorted queue.
+     * @return - The model at that position.
+     */
+    public Model getModel(int i) {
+        return models[(int) (keys[i] & (MAX_ENTRIES - 1))];
+    }
+
+    /**
+     * The getter method for a shader in sorted order.
+     *
+     * @param i - The position of the shader in the sorted queue.
+     * @return - The shader at that position.
+     */
+    public ShaderManager getShader(int i) {
+        return shaders[(int) (keys[i] & (MAX_ENTRIES - 1))];
+    }
+
+    /**
+     * The getter method for a model matrix in sorted order.
+     *
+     * @param i - The position of the model in the sorted queue.
+     * @return - The model matrix of the model at that position.
+     */
+    public Matrix4fc getTransform(int i) {
+        return transforms[(int) (keys[i] & (MAX_ENTRIES - 1))];
+    }
+
+    /**
+     * The getter method for the number of submitted models.
+     *
+     * @return - The number of models in the queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /** Doubles the capacity of the queue. */
+    private void grow() {
+        int capacity = Math.min(Math.max(keys.length * 2, 16), MAX_ENTRIES);
+        models = Arrays.copyOf(models, capacity);
+        shaders = Arrays.copyOf(shaders, capacity);
+        transforms = Arrays.copyOf(transforms, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    /**
+     * Packs the draw state and the submission index into a single sortable key.
+     * The shader is the most significant part, followed by the texture and the VAO.
+     */
+    private static long createKey(int shader, int texture, int vao, int index) {
+        long key = shader & ((1L << SHADER_BITS) - 1);
+        key = (key << TEXTURE_BITS) | (texture & ((1L << TEXTURE_BITS) - 1));
+        key = (key << VAO_BITS) | (vao & ((1L << VAO_BITS) - 1));
+        return (key << INDEX_BITS) | index;
+    }
+}
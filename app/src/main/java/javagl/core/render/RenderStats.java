@@ -0,0 +1,151 @@
+package javagl.core.render;
+
+/** A class for counting the work done by the renderer during a single frame. */
+public class RenderStats {
+    // The number of draw calls issued this frame.
+    private int drawCalls;
+
+    // The number of times the shader, texture, and vertex array were changed this frame.
+    private int shaderChanges, textureChanges, vaoChanges;
+
+    // The number of entities skipped by frustum culling this frame.
+    private int culled;
+
+    // The number of triangles drawn, and the number left out by drawing simpler levels of detail.
+    private long triangles, lodSavedTriangles;
+
+    /** Resets all of the counters back to zero for a new frame. */
+    public void reset() {
+        drawCalls = 0;
+        shaderChanges = 0;
+        textureChanges = 0;
+        vaoChanges = 0;
+        culled = 0;
+        triangles = 0;
+        lodSavedTriangles = 0;
+    }
+
+    /** Counts a single draw call. */
+    public void addDrawCall() {
+        drawCalls++;
+    }
+
+    /** Counts a single shader program change. */
+    public void addShaderChange() {
+        shaderChanges++;
+    }
+
+    /** Counts a single texture binding change. */
+    public void addTextureChange() {
+        textureChanges++;
+    }
+
+    /** Counts a single vertex array binding change. */
+    public void addVaoChange() {
+        vaoChanges++;
+    }
+
+    /**
+     * Counts entities skipped by frustum culling.
+     *
+     * @param count - The number of entities culled.
+     */
+    public void addCulled(int count) {
+        culled += count;
+    }
+
+    /**
+     * Counts the triangles of a draw call.
+     *
+     * @param count - The number of triangles drawn.
+     */
+    public void addTriangles(int count) {
+        triangles += count;
+    }
+
+    /**
+     * Counts the triangles left out by drawing a simpler level of detail.
+     *
+     * @param count - The number of triangles the full detail level has over the level drawn.
+     */
+    public void addLodSavedTriangles(long count) {
+        lodSavedTriangles += count;
+    }
+
+    /**
+     * The getter method for the number of draw calls.
+     *
+     * @return - The number of draw calls issued this frame.
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * The getter method for the number of shader changes.
+     *
+     * @return - The number of shader program changes this frame.
+     */
+    public int getShaderChanges() {
+        return shaderChanges;
+    }
+
+    /**
+     * The getter method for the number of texture changes.
+     *
+     * @return - The number of texture binding changes this frame.
+     */
+    public int getTextureChanges() {
+        return textureChanges;
+    }
+
+    /**
+     * The getter method for the number of vertex array changes.
+     *
+     * @return - The number of vertex array binding changes this frame.
+     */
+    public int getVaoChanges() {
+        return vaoChanges;
+    }
+
+    /**
+     * The getter method for the number of culled entities.
+     *
+     * @return - The number of entities skipped by frustum culling this frame.
+     */
+    public int getCulled() {
+        return culled;
+    }
+
+    /**
+     * The getter method for the number of triangles.
+     *
+     * @return - The number of triangles drawn this frame.
+     */
+    public long getTriangles() {
+        return triangles;
+    }
+
+    /**
+     * The getter method for the number of triangles saved by levels of detail.
+     *
+     * @return - The number of triangles the full detail levels would have added this frame.
+     */
+    public long getLodSavedTriangles() {
+        return lodSavedTriangles;
+    }
+
+    /**
+     * The getter method for the total number of state changes.
+     *
+     * @return - The sum of the shader, texture, and vertex array changes this frame.
+     */
+    public int getStateChanges() {
+        return shaderChanges + textureChanges + vaoChanges;
+    }
+
+    @Override
+    public String toString() {
+        return drawCalls + " draws, " + triangles + " triangles, " + getStateChanges() + " state changes, " + culled + " culled";
+    }
+}
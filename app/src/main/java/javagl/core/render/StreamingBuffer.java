@@ -0,0 +1,278 @@
+package javagl.core.render;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL44;
+import org.lwjgl.system.MemoryUtil;
+
+import javagl.core.memory.NativeAllocator;
+
+/**
+ * A GPU buffer for data that is rewritten every frame. The buffer is a ring of
+ * regions, one per frame in flight, and each region is fenced once the frame
+ * using it has been submitted. A region is only written again after its fence
+ * has signalled, so writes never race draws and the driver never has to stall.
+ *
+ * When buffer storage is available the whole buffer is mapped once and kept
+ * mapped. Otherwise each write maps its range unsynchronized, and if mapping
+ * fails the data is staged and uploaded with glBufferSubData, orphaning the
+ * buffer each time the ring wraps.
+ */
+public class StreamingBuffer {
+    // The number of frames that can be in flight at once.
+    public static final int REGIONS = 3;
+
+    // The ways data can be written into the buffer.
+    public static final int MODE_PERSISTENT = 0;
+    public static final int MODE_MAPPED = 1;
+    public static final int MODE_SUBDATA = 2;
+
+    // The buffer is always written through this target, so binding it never disturbs a vertex array.
+    private static final int WRITE_TARGET = GL31.GL_COPY_WRITE_BUFFER;
+
+    // How long a single wait on a fence lasts before checking again, in nanoseconds.
+    private static final long FENCE_TIMEOUT = 1_000_000;
+
+    // The ID of the buffer, the way it is written, and the size of each region in bytes.
+    private final int id;
+    private final int mode;
+    private final long regionSize;
+
+    // The persistent mapping of the whole buffer, if there is one.
+    private ByteBuffer persistent;
+
+    // The staging memory used when the buffer cannot be mapped.
+    private ByteBuffer staging;
+
+    // The fence protecting each region, or NULL if the region is free.
+    private final long[] fences = new long[REGIONS];
+
+    // The region being written, the offset of the next free byte in it, and the range currently mapped.
+    private int region;
+    private long used;
+    private long mappedOffset, mappedSize;
+    private boolean mapped, staged;
+
+    // The number of times a region was still in use when it came around again.
+    private long stalls;
+
+    /**
+     * Initializes a new streaming buffer, choosing the best write mode the context supports.
+     *
+     * @param regionSize - The number of bytes that can be written each frame.
+     */
+    public StreamingBuffer(long regionSize) {
+        this(regionSize, bestMode());
+    }
+
+    /**
+     * Initializes a new streaming buffer with a specific write mode.
+     *
+     * @param regionSize - The number of bytes that can be written each frame.
+     * @param mode - One of MODE_PERSISTENT, MODE_MAPPED, or MODE_SUBDATA.
+     */
+    public StreamingBuffer(long regionSize, int mode) {
+        this.regionSize = regionSize;
+        this.mode = mode;
+        long capacity = regionSize * REGIONS;
+
+        id = GL15.glGenBuffers();
+        GL15.glBindBuffer(WRITE_TARGET, id);
+
+        if (mode == MODE_PERSISTENT) {
+            int flags = GL30.GL_MAP_WRITE_BIT | GL44.GL_MAP_PERSISTENT_BIT | GL44.GL_MAP_COHERENT_BIT;
+            GL44.glBufferStorage(WRITE_TARGET, capacity, flags);
+            persistent = GL30.glMapBufferRange(WRITE_TARGET, 0, capacity, flags);
+            if (persistent == null) throw new IllegalStateException("Unable to persistently map streaming buffer");
+        } else {
+            GL15.glBufferData(WRITE_TARGET, capacity, GL15.GL_STREAM_DRAW);
+            if (mode == MODE_SUBDATA) staging = NativeAllocator.malloc((int) regionSize);
+        }
+
+        GL15.glBindBuffer(WRITE_TARGET, 0);
+    }
+
+    /**
+     * Finds the best write mode supported by the current context.
+     *
+     * @return - MODE_PERSISTENT if buffer storage is available, and MODE_MAPPED if not.
+     */
+    public static int bestMode() {
+        GLCapabilities caps = GL.getCapabilities();
+        return caps.OpenGL44 || caps.GL_ARB_buffer_storage ? MODE_PERSISTENT : MODE_MAPPED;
+    }
+
+    /**
+     * Moves on to the next region of the ring. Everything submitted so far is
+     * fenced, then the next region is waited on if the GPU is still reading it.
+     * This should be called once per frame, before the frame's first write.
+     */
+    public void nextFrame() {
+        if (mapped) throw new IllegalStateException("Streaming buffer is still mapped");
+
+        if (mode != MODE_SUBDATA) {
+            if (fences[region] != MemoryUtil.NULL) GL32.glDeleteSync(fences[region]);
+            fences[region] = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        }
+
+        region = (region + 1) % REGIONS;
+        used = 0;
+
+        if (mode == MODE_SUBDATA) {
+            // Orphans the whole buffer each time the ring wraps, letting the driver hand out fresh storage.
+            if (region == 0) {
+                GL15.glBindBuffer(WRITE_TARGET, id);
+                GL15.glBufferData(WRITE_TARGET, regionSize * REGIONS, GL15.GL_STREAM_DRAW);
+                GL15.glBindBuffer(WRITE_TARGET, 0);
+            }
+        } else if (fences[region] != MemoryUtil.NULL) {
+            waitFor(fences[region]);
+            GL32.glDeleteSync(fences[region]);
+            fences[region] = MemoryUtil.NULL;
+        }
+    }
+
+    /**
+     * Reserves a range of the current region and returns memory to write it
+     * through. The data must be written between the position and limit of the
+     * returned buffer, which is only valid until unmap is called.
+     *
+     * @param size - The number of bytes to write.
+     * @param alignment - The alignment of the range's offset in the whole buffer.
+     * @return - The memory to write the range through.
+     */
+    public ByteBuffer map(int size, int alignment) {
+        if (mapped) throw new IllegalStateException("Streaming buffer is already mapped");
+
+        long start = region * regionSize;
+        long offset = (start + used + alignment - 1) / alignment * alignment;
+        if (offset + size > start + regionSize) throw new IllegalStateException("Streaming buffer region overflow: " + size + " bytes");
+
+        used = offset + size - start;
+        mappedOffset = offset;
+        mappedSize = size;
+        mapped = true;
+
+        if (mode == MODE_PERSISTENT) {
+            return persistent.limit((int) (offset + size)).position((int) offset);
+        } else if (mode == MODE_MAPPED) {
+            GL15.glBindBuffer(WRITE_TARGET, id);
+            ByteBuffer range = GL30.glMapBufferRange(WRITE_TARGET, offset, size,
+                GL30.GL_MAP_WRITE_BIT | GL30.GL_MAP_INVALIDATE_RANGE_BIT | GL30.GL_MAP_UNSYNCHRONIZED_BIT);
+            GL15.glBindBuffer(WRITE_TARGET, 0);
+
+            if (range != null) {
+                staged = false;
+                return range;
+            }
+        }
+
+        // Falls back to staging the data in native memory when the range cannot be mapped.
+        if (staging == null) staging = NativeAllocator.malloc((int) regionSize);
+        staged = true;
+        return staging.clear().limit(size);
+    }
+
+    /** Finishes writing the range returned by map, uploading it if it was staged. */
+    public void unmap() {
+        if (!mapped) throw new IllegalStateException("Streaming buffer is not mapped");
+        mapped = false;
+
+        if (mode == MODE_PERSISTENT) return;
+
+        GL15.glBindBuffer(WRITE_TARGET, id);
+        if (staged) {
+            GL15.nglBufferSubData(WRITE_TARGET, mappedOffset, mappedSize, MemoryUtil.memAddress0(staging));
+        } else {
+            GL15.glUnmapBuffer(WRITE_TARGET);
+        }
+        GL15.glBindBuffer(WRITE_TARGET, 0);
+    }
+
+    /**
+     * The getter method for the offset of the last mapped range.
+     *
+     * @return - The byte offset of the range in the whole buffer.
+     */
+    public long getMappedOffset() {
+        return mappedOffset;
+    }
+
+    /**
+     * The getter method for the buffer id.
+     *
+     * @return - The ID of the GL buffer.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * The getter method for the write mode.
+     *
+     * @return - One of MODE_PERSISTENT, MODE_MAPPED, or MODE_SUBDATA.
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * The getter method for the region size.
+     *
+     * @return - The number of bytes that can be written each frame.
+     */
+    public long getRegionSize() {
+        return regionSize;
+    }
+
+    /**
+     * Returns how many times a region was still being read by the GPU when it
+     * was needed again. This should stay at zero unless the GPU falls more than
+     * two frames behind.
+     *
+     * @return - The number of stalls so far.
+     */
+    public long getStalls() {
+        return stalls;
+    }
+
+    /** Deletes the buffer, its fences, and any staging memory. */
+    public void cleanup() {
+        for (int i = 0; i < REGIONS; i++) {
+            if (fences[i] != MemoryUtil.NULL) GL32.glDeleteSync(fences[i]);
+            fences[i] = MemoryUtil.NULL;
+        }
+
+        if (persistent != null) {
+            GL15.glBindBuffer(WRITE_TARGET, id);
+            GL15.glUnmapBuffer(WRITE_TARGET);
+            GL15.glBindBuffer(WRITE_TARGET, 0);
+            persistent = null;
+        }
+
+        GL15.glDeleteBuffers(id);
+        NativeAllocator.free(staging);
+        staging = null;
+    }
+
+    /**
+     * Blocks until a fence has signalled, counting a stall if it had not already.
+     *
+     * @param fence - The fence to wait on.
+     */
+    private void waitFor(long fence) {
+        int result = GL32.glClientWaitSync(fence, 0, 0);
+        if (result == GL32.GL_ALREADY_SIGNALED || result == GL32.GL_CONDITION_SATISFIED) return;
+
+        stalls++;
+        while (result == GL32.GL_TIMEOUT_EXPIRED) {
+            result = GL32.glClientWaitSync(fence, GL32.GL_SYNC_FLUSH_COMMANDS_BIT, FENCE_TIMEOUT);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package javagl.core.shader;
+
+import org.lwjgl.opengl.GL20;
+
+/** A handle to a float uniform. */
+public class FloatUniform extends Uniform {
+    // The value last uploaded.
+    private float value;
+
+    public FloatUniform(String name, int location) {
+        super(name, location);
+    }
+
+    /**
+     * Sets the value of the uniform, if it differs from the value last uploaded.
+     *
+     * @param value - The new value.
+     */
+    public void set(float value) {
+        if (!needsUpload(Float.compare(value, this.value) != 0)) return;
+
+        this.value = value;
+        upload();
+    }
+
+    @Override
+    protected void upload() {
+        GL20.glUniform1f(getLocation(), value);
+    }
+}
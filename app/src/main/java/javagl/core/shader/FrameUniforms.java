@@ -0,0 +1,51 @@
+package javagl.core.shader;
+
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+
+/**
+ * The uniform buffer holding the data shared by every draw of a frame. Shaders
+ * read it through this std140 block:
+ *
+ * layout(std140) uniform Frame {
+ *     mat4 projection;
+ *     mat4 view;
+ *     mat4 viewProjection;
+ *     float time;
+ * };
+ */
+public class FrameUniforms extends UniformBuffer {
+    // The name of the block in the shaders and the binding point it reads from.
+    public static final String BLOCK_NAME = "Frame";
+    public static final int BINDING = 0;
+
+    // The std140 offsets of each member and the size of the block.
+    private static final int PROJECTION = 0;
+    private static final int VIEW = 64;
+    private static final int VIEW_PROJECTION = 128;
+    private static final int TIME = 192;
+    private static final int SIZE = 208;
+
+    // The product of the projection and view matrices.
+    private final Matrix4f viewProjection;
+
+    public FrameUniforms() {
+        super(SIZE, BINDING);
+        viewProjection = new Matrix4f();
+    }
+
+    /**
+     * Writes the data of a frame and uploads it once for every program.
+     *
+     * @param projection - The projection matrix.
+     * @param view - The view matrix.
+     * @param time - The time in seconds.
+     */
+    public void update(Matrix4fc projection, Matrix4fc view, float time) {
+        put(PROJECTION, projection);
+        put(VIEW, view);
+        put(VIEW_PROJECTION, projection.mul(view, viewProjection));
+        put(TIME, time);
+        upload();
+    }
+}
@@ -0,0 +1,30 @@
+package javagl.core.shader;
+
+import org.lwjgl.opengl.GL20;
+
+/** A handle to an int or sampler uniform. */
+public class IntUniform extends Uniform {
+    // The value last uploaded.
+    private int value;
+
+    public IntUniform(String name, int location) {
+        super(name, location);
+    }
+
+    /**
+     * Sets the value of the uniform, if it differs from the value last uploaded.
+     *
+     * @param value - The new value.
+     */
+    public void set(int value) {
+        if (!needsUpload(value != this.value)) return;
+
+        this.value = value;
+        upload();
+    }
+
+    @Override
+    protected void upload() {
+        GL20.glUniform1i(getLocation(), value);
+    }
+}
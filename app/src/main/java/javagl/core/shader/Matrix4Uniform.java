@@ -0,0 +1,35 @@
+package javagl.core.shader;
+
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.lwjgl.opengl.GL20;
+
+/** A handle to a mat4 uniform. */
+public class Matrix4Uniform extends Uniform {
+    // The value last uploaded, and the same value as the column-major array passed to GL.
+    private final Matrix4f value;
+    private final float[] columns;
+
+    public Matrix4Uniform(String name, int location) {
+        super(name, location);
+        value = new Matrix4f();
+        columns = new float[16];
+    }
+
+    /**
+     * Sets the value of the uniform, if it differs from the value last uploaded.
+     *
+     * @param value - The new value.
+     */
+    public void set(Matrix4fc value) {
+        if (!needsUpload(!value.equals(this.value))) return;
+
+        this.value.set(value);
+        upload();
+    }
+
+    @Override
+    protected void upload() {
+        GL20.glUniformMatrix4fv(getLocation(), false, value.get(columns));
+    }
+}
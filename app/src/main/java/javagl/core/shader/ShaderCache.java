@@ -0,0 +1,334 @@
+package javagl.core.shader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL41;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.util.xxhash.XXHash;
+
+import javagl.core.managers.ShaderManager;
+import javagl.core.memory.NativeAllocator;
+import javagl.core.memory.ScratchArena;
+import javagl.core.utils.Utils;
+
+/**
+ * A cache of linked shader programs. Programs are keyed by a hash of their
+ * sources, their defines, and the driver, and the linked binary of every program
+ * compiled from source is saved to the cache directory. Later launches load the
+ * binary with glProgramBinary instead of compiling, and fall back to compiling
+ * from source whenever the driver rejects a binary, such as after an update.
+ *
+ * Every program loaded has its Frame uniform block, if it has one, pointed at
+ * the binding point of the FrameUniforms buffer.
+ *
+ * The directory is taken from the "javagl.shader.cache" system property, and
+ * defaults to ".javagl/shaders" in the user's home directory. Setting the
+ * "javagl.shader.watch" property to the directory the shader resources live in,
+ * such as "app/src/main/resources", reloads programs whenever their sources
+ * are edited.
+ */
+public class ShaderCache {
+    // The magic number at the start of every cached binary ("JGLS").
+    private static final int MAGIC = 0x534C474A;
+
+    // The size of the header of a cached binary: magic, binary format, and length.
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    // The directory the binaries are saved in.
+    private final Path directory;
+
+    // If the driver can save and load program binaries.
+    private final boolean supported;
+
+    // The renderer and version of the driver, which binaries are only valid for.
+    private final String driver;
+
+    // The programs loaded from binaries, compiled from source, and rejected binaries.
+    private int hits, misses, rejected;
+
+    // The total time spent loading programs, in nanoseconds.
+    private long loadTime;
+
+    // The reloader watching the sources of every program, if reloading is enabled.
+    private ShaderReloader reloader;
+
+    /** Initializes a new shader cache in the default directory. */
+    public ShaderCache() {
+        this(Paths.get(System.getProperty("javagl.shader.cache",
+            Paths.get(System.getProperty("user.home"), ".javagl", "shaders").toString())));
+    }
+
+    /**
+     * Initializes a new shader cache in a specific directory. This must be
+     * called on the GL thread, as it checks the driver for binary support.
+     *
+     * @param directory - The directory the binaries are saved in.
+     */
+    public ShaderCache(Path directory) {
+        this.directory = directory;
+
+        GLCapabilities caps = GL.getCapabilities();
+        supported = caps.glProgramBinary != 0 && caps.glGetProgramBinary != 0
+            && GL11.glGetInteger(GL41.GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+        driver = GL11.glGetString(GL11.GL_RENDERER) + "\n" + GL11.glGetString(GL11.GL_VERSION);
+
+        String watch = System.getProperty("javagl.shader.watch");
+        if (watch != null) {
+            try {
+                reloader = new ShaderReloader(Paths.get(watch));
+            } catch (IOException e) {
+                System.err.println("Unable to watch shaders in " + watch + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Loads a program from a vertex and fragment shader resource.
+     *
+     * @param vertexName - The classpath resource of the vertex shader.
+     * @param fragmentName - The classpath resource of the fragment shader.
+     * @return - The linked program.
+     * @throws Exception - An exception caused by compiling or linking the shaders.
+     */
+    public ShaderManager load(String vertexName, String fragmentName) throws Exception {
+        return load(vertexName, fragmentName, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Loads a program from a vertex and fragment shader resource, with a set of
+     * defines added to both shaders. Every combination of defines is a separate
+     * program in the cache.
+     *
+     * @param vertexName - The classpath resource of the vertex shader.
+     * @param fragmentName - The classpath resource of the fragment shader.
+     * @param defines - The names and values of the defines, added after the version directive.
+     * @return - The linked program.
+     * @throws Exception - An exception caused by compiling or linking the shaders.
+     */
+    public ShaderManager load(String vertexName, String fragmentName, Map<String, String> defines) throws Exception {
+        long start = System.nanoTime();
+        String vertexSource = preprocess(Utils.loadResource(vertexName), defines);
+        String fragmentSource = preprocess(Utils.loadResource(fragmentName), defines);
+
+        try {
+            // Block bindings are not part of a program binary, so they are set on every load.
+            ShaderManager shader = load(vertexSource, fragmentSource, hash(vertexSource + "\0" + fragmentSource + "\0" + driver));
+            shader.bindUniformBlock(FrameUniforms.BLOCK_NAME, FrameUniforms.BINDING);
+            if (reloader != null) reloader.track(shader, vertexName, fragmentName, defines);
+            return shader;
+        } finally {
+            loadTime += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Loads a program from its cached binary, or compiles it and saves the binary.
+     *
+     * @param vertexSource - The preprocessed vertex shader.
+     * @param fragmentSource - The preprocessed fragment shader.
+     * @param hash - The key of the program.
+     * @return - The linked program.
+     * @throws Exception - An exception caused by compiling or linking the shaders.
+     */
+    private ShaderManager load(String vertexSource, String fragmentSource, long hash) throws Exception {
+        Path path = directory.resolve(String.format("%016x.bin", hash));
+
+        if (supported && Files.isRegularFile(path)) {
+            ShaderManager shader = loadBinary(path);
+            if (shader != null) {
+                hits++;
+                return shader;
+            }
+
+            // The driver no longer accepts the binary, so it is replaced below.
+            rejected++;
+            Files.deleteIfExists(path);
+        }
+
+        ShaderManager shader = new ShaderManager();
+        if (supported) GL41.glProgramParameteri(shader.getProgramId(), GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL11.GL_TRUE);
+        shader.createVertexShader(vertexSource);
+        shader.createFragmentShader(fragmentSource);
+        shader.link();
+        misses++;
+
+        if (supported) saveBinary(shader, path);
+        return shader;
+    }
+
+    /**
+     * Creates a program from a cached binary.
+     *
+     * @param path - The path of the cached binary.
+     * @return - The linked program, or null if the file is invalid or the driver rejected it.
+     * @throws Exception - An exception caused by creating the program.
+     */
+    private ShaderManager loadBinary(Path path) throws Exception {
+        ByteBuffer contents = Utils.loadBinaryResource(path.toString());
+        try {
+            contents.order(ByteOrder.LITTLE_ENDIAN);
+            if (contents.remaining() < HEADER_SIZE || contents.getInt(0) != MAGIC) return null;
+
+            int format = contents.getInt(4);
+            int length = contents.getInt(8);
+            if (HEADER_SIZE + length > contents.remaining()) return null;
+
+            ShaderManager shader = new ShaderManager();
+            GL41.glProgramBinary(shader.getProgramId(), format, contents.position(HEADER_SIZE).limit(HEADER_SIZE + length));
+            if (GL20.glGetProgrami(shader.getProgramId(), GL20.GL_LINK_STATUS) == 0) {
+                shader.cleanup();
+                return null;
+            }
+            return shader;
+        } finally {
+            NativeAllocator.free(contents);
+        }
+    }
+
+    /**
+     * Saves the binary of a linked program. A failure to save is not fatal, as
+     * the program is simply compiled again next time.
+     *
+     * @param shader - The linked program.
+     * @param path - The path to save the binary to.
+     */
+    private void saveBinary(ShaderManager shader, Path path) {
+        int length = GL20.glGetProgrami(shader.getProgramId(), GL41.GL_PROGRAM_BINARY_LENGTH);
+        if (length <= 0) return;
+
+        ByteBuffer contents = NativeAllocator.malloc(HEADER_SIZE + length).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            int[] written = new int[1], format = new int[1];
+            GL41.glGetProgramBinary(shader.getProgramId(), written, format, contents.position(HEADER_SIZE).slice());
+            contents.putInt(0, MAGIC).putInt(4, format[0]).putInt(8, written[0]);
+            contents.position(0).limit(HEADER_SIZE + written[0]);
+
+            // Writes to a temporary file first, so a crash never leaves a partial binary behind.
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "shader", ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (contents.hasRemaining()) channel.write(contents);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Unable to save shader binary " + path + ": " + e.getMessage());
+        } finally {
+            NativeAllocator.free(contents);
+        }
+    }
+
+    /**
+     * Adds defines to a shader, directly after its version directive.
+     *
+     * @param source - The source of the shader.
+     * @param defines - The names and values of the defines.
+     * @return - The source with the defines added.
+     */
+    public static String preprocess(String source, Map<String, String> defines) {
+        if (defines.isEmpty()) return source;
+
+        // Sorts the defines, so the same set always produces the same source and hash.
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, String> define : new TreeMap<String, String>(defines).entrySet()) {
+            lines.append("#define ").append(define.getKey()).append(' ').append(define.getValue()).append('\n');
+        }
+
+        // The version directive must stay the first line, so the defines go after it.
+        if (!source.startsWith("#version")) return lines + source;
+        int end = source.indexOf('\n');
+        if (end < 0) return source + "\n" + lines;
+        return source.substring(0, end + 1) + lines + source.substring(end + 1);
+    }
+
+    /**
+     * Hashes a string with xxHash.
+     *
+     * @param key - The string to hash.
+     * @return - The 64-bit hash of its UTF-8 bytes.
+     */
+    private static long hash(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        try (ScratchArena arena = ScratchArena.stackPush()) {
+            ByteBuffer buffer = arena.malloc(bytes.length);
+            buffer.put(bytes).flip();
+            return XXHash.XXH64(buffer, 0);
+        }
+    }
+
+    /**
+     * Advances any shader reloads, swapping in programs that finished compiling.
+     * This should be called at the start of every frame, and does nothing when
+     * reloading is disabled.
+     */
+    public void processReloads() {
+        if (reloader != null) reloader.processReloads();
+    }
+
+    /**
+     * The getter method for the reloader.
+     * @return - The reloader watching the shader sources, or null if reloading is disabled.
+     */
+    public ShaderReloader getReloader() {
+        return reloader;
+    }
+
+    /**
+     * The getter method for the support of program binaries.
+     * @return - If the driver can save and load program binaries.
+     */
+    public boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * The getter method for the hits.
+     * @return - The number of programs loaded from a cached binary.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * The getter method for the misses.
+     * @return - The number of programs compiled from source.
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * The getter method for the rejected binaries.
+     * @return - The number of cached binaries the driver would not load.
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * The getter method for the load time.
+     * @return - The total time spent loading programs, in nanoseconds.
+     */
+    public long getLoadTime() {
+        return loadTime;
+    }
+
+    /** Stops watching the shader sources. */
+    public void cleanup() {
+        if (reloader != null) reloader.cleanup();
+    }
+}
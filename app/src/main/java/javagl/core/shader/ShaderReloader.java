@@ -0,0 +1,373 @@
+package javagl.core.shader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.KHRParallelShaderCompile;
+import org.lwjgl.util.shaderc.Shaderc;
+
+import javagl.core.managers.ShaderManager;
+
+/**
+ * Reloads shaders while the app runs, for iterating on them without restarts.
+ * A background thread watches the directories of every tracked shader, and
+ * when a source changes it is read and validated with shaderc on that thread,
+ * so broken edits never reach the driver. Valid sources are compiled on the GL
+ * thread at the start of a frame, in parallel with rendering where the driver
+ * supports KHR_parallel_shader_compile, and the program is swapped in once it
+ * has linked. Any failure keeps the old program running.
+ */
+public class ShaderReloader {
+    // The time to wait after a change for the editor to finish writing, in milliseconds.
+    private static final long DEBOUNCE_MILLIS = 100;
+
+    // A program being watched, with the shaders it was loaded from.
+    private static class Program {
+        private final ShaderManager shader;
+        private final Path vertexPath, fragmentPath;
+        private final Map<String, String> defines;
+
+        private Program(ShaderManager shader, Path vertexPath, Path fragmentPath, Map<String, String> defines) {
+            this.shader = shader;
+            this.vertexPath = vertexPath;
+            this.fragmentPath = fragmentPath;
+            this.defines = defines;
+        }
+    }
+
+    // The validated sources of a program, and the GL objects compiling them.
+    private static class Reload {
+        private final Program program;
+        private final String vertexSource, fragmentSource;
+        private int programId, vertexId, fragmentId;
+
+        private Reload(Program program, String vertexSource, String fragmentSource) {
+            this.program = program;
+            this.vertexSource = vertexSource;
+            this.fragmentSource = fragmentSource;
+        }
+    }
+
+    // The directory the shader resources are read from.
+    private final Path root;
+
+    // The service watching the directories and the thread waiting on it.
+    private final WatchService watcher;
+    private final Thread thread;
+
+    // The tracked programs and the directories already being watched.
+    private final CopyOnWriteArrayList<Program> programs;
+    private final Set<Path> directories;
+
+    // The sources that passed validation, waiting for the GL thread.
+    private final ConcurrentLinkedQueue<Reload> validated;
+
+    // The reload being compiled on the GL thread.
+    private Reload compiling;
+
+    // If the driver compiles shaders in the background.
+    private final boolean parallel;
+
+    // The number of programs swapped in and the number of reloads that failed.
+    private int reloads;
+    private final AtomicInteger failures;
+
+    /**
+     * Initializes a new shader reloader and starts watching. This must be called on the GL thread.
+     *
+     * @param root - The directory the shader resources are read from, such as "app/src/main/resources".
+     * @throws IOException - An exception caused by creating the watch service.
+     */
+    public ShaderReloader(Path root) throws IOException {
+        this.root = root;
+        watcher = root.getFileSystem().newWatchService();
+        programs = new CopyOnWriteArrayList<Program>();
+        directories = ConcurrentHashMap.newKeySet();
+        validated = new ConcurrentLinkedQueue<Reload>();
+        failures = new AtomicInteger();
+
+        // Lets the driver pick the number of compiler threads.
+        parallel = GL.getCapabilities().GL_KHR_parallel_shader_compile;
+        if (parallel) KHRParallelShaderCompile.glMaxShaderCompilerThreadsKHR(0xFFFFFFFF);
+
+        thread = new Thread(this::watch, "Shader Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts watching the shaders of a program.
+     *
+     * @param shader - The program to reload.
+     * @param vertexName - The resource name of the vertex shader.
+     * @param fragmentName - The resource name of the fragment shader.
+     * @param defines - The defines the program was loaded with.
+     * @throws IOException - An exception caused by watching the shaders' directories.
+     */
+    public void track(ShaderManager shader, String vertexName, String fragmentName, Map<String, String> defines) throws IOException {
+        Program program = new Program(shader, resolve(vertexName), resolve(fragmentName), defines);
+        watch(program.vertexPath.getParent());
+        watch(program.fragmentPath.getParent());
+        programs.add(program);
+    }
+
+    /**
+     * Returns the path of a shader resource within the root directory.
+     *
+     * @param name - The resource name, such as "/shaders/vertex.vs".
+     * @return - The path of the source file.
+     */
+    private Path resolve(String name) {
+        return root.resolve(name.startsWith("/") ? name.substring(1) : name).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Registers a directory with the watch service, if it is not registered already.
+     *
+     * @param directory - The directory to watch.
+     * @throws IOException - An exception caused by registering the directory.
+     */
+    private void watch(Path directory) throws IOException {
+        if (directories.add(directory)) {
+            // Editors that save by replacing the file create it rather than modifying it.
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        }
+    }
+
+    /** Waits for changes to shader sources and validates the programs using them. */
+    private void watch() {
+        long compiler = 0, options = 0;
+        try {
+            compiler = Shaderc.shaderc_compiler_initialize();
+            options = Shaderc.shaderc_compile_options_initialize();
+            Shaderc.shaderc_compile_options_set_target_env(options, Shaderc.shaderc_target_env_opengl, 0);
+            Shaderc.shaderc_compile_options_set_auto_map_locations(options, true);
+            Shaderc.shaderc_compile_options_set_auto_bind_uniforms(options, true);
+        } catch (Throwable e) {
+            // Without shaderc the driver's compile is the only check, which still keeps the old program on failure.
+            System.err.println("shaderc is unavailable, reloaded shaders will not be validated: " + e);
+            compiler = 0;
+        }
+
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Thread.sleep(DEBOUNCE_MILLIS);
+
+                // Collects every change that arrived during the wait, so each program is validated once.
+                Set<Path> changed = new HashSet<Path>();
+                do {
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() instanceof Path) changed.add(directory.resolve((Path) event.context()).normalize());
+                    }
+                    key.reset();
+                } while ((key = watcher.poll()) != null);
+
+                for (Program program : programs) {
+                    if (changed.contains(program.vertexPath) || changed.contains(program.fragmentPath)) {
+                        validate(program, compiler, options);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The reloader was cleaned up.
+        } finally {
+            if (options != 0) Shaderc.shaderc_compile_options_release(options);
+            if (compiler != 0) Shaderc.shaderc_compiler_release(compiler);
+        }
+    }
+
+    /**
+     * Reads and validates the sources of a program, queueing them for the GL thread if they are valid.
+     *
+     * @param program - The program whose sources changed.
+     * @param compiler - The shaderc compiler, or 0 to skip validation.
+     * @param options - The shaderc compile options.
+     */
+    private void validate(Program program, long compiler, long options) {
+        String vertexSource, fragmentSource;
+        try {
+            vertexSource = ShaderCache.preprocess(new String(Files.readAllBytes(program.vertexPath), StandardCharsets.UTF_8), program.defines);
+            fragmentSource = ShaderCache.preprocess(new String(Files.readAllBytes(program.fragmentPath), StandardCharsets.UTF_8), program.defines);
+        } catch (IOException e) {
+            fail(program, e.toString());
+            return;
+        }
+
+        if (compiler != 0) {
+            String error = check(compiler, options, vertexSource, Shaderc.shaderc_vertex_shader, program.vertexPath);
+            if (error == null) error = check(compiler, options, fragmentSource, Shaderc.shaderc_fragment_shader, program.fragmentPath);
+            if (error != null) {
+                fail(program, error);
+                return;
+            }
+        }
+
+        validated.offer(new Reload(program, vertexSource, fragmentSource));
+    }
+
+    /**
+     * Compiles a shader with shaderc to check it for errors.
+     *
+     * @param compiler - The shaderc compiler.
+     * @param options - The shaderc compile options.
+     * @param source - The preprocessed source.
+     * @param kind - The shaderc kind of the shader.
+     * @param path - The path of the shader, for error messages.
+     * @return - The errors of the shader, or null if it compiled.
+     */
+    private static String check(long compiler, long options, String source, int kind, Path path) {
+        long result = Shaderc.shaderc_compile_into_spv(compiler, source, kind, path.getFileName().toString(), "main", options);
+        try {
+            if (Shaderc.shaderc_result_get_compilation_status(result) == Shaderc.shaderc_compilation_status_success) return null;
+            return Shaderc.shaderc_result_get_error_message(result);
+        } finally {
+            Shaderc.shaderc_result_release(result);
+        }
+    }
+
+    /**
+     * Reports a reload that failed, leaving the old program in place.
+     *
+     * @param program - The program that failed to reload.
+     * @param error - The reason it failed.
+     */
+    private void fail(Program program, String error) {
+        failures.incrementAndGet();
+        System.err.println("Reloading " + program.vertexPath.getFileName() + " and " + program.fragmentPath.getFileName()
+            + " failed, keeping the old program:\n" + error);
+    }
+
+    /**
+     * Advances the reloads waiting for the GL thread. This should be called at
+     * the start of a frame, so programs are never swapped between draws. At most
+     * one program compiles at a time, and with parallel compiling the frame only
+     * checks if the driver has finished instead of waiting for it.
+     */
+    public void processReloads() {
+        if (compiling == null) {
+            compiling = validated.poll();
+            if (compiling == null) return;
+            start(compiling);
+        }
+
+        if (parallel && GL20.glGetProgrami(compiling.programId, KHRParallelShaderCompile.GL_COMPLETION_STATUS_KHR) == GL11.GL_FALSE) return;
+
+        Reload reload = compiling;
+        compiling = null;
+        finish(reload);
+    }
+
+    /**
+     * Issues the compile and link of a reload without waiting for their results.
+     *
+     * @param reload - The reload to compile.
+     */
+    private static void start(Reload reload) {
+        reload.programId = GL20.glCreateProgram();
+        reload.vertexId = compile(reload.programId, reload.vertexSource, GL20.GL_VERTEX_SHADER);
+        reload.fragmentId = compile(reload.programId, reload.fragmentSource, GL20.GL_FRAGMENT_SHADER);
+        GL20.glLinkProgram(reload.programId);
+    }
+
+    /**
+     * Issues the compile of a shader and attaches it to a program.
+     *
+     * @param program - The ID of the program.
+     * @param source - The source of the shader.
+     * @param type - The type of the shader.
+     * @return - The ID of the shader.
+     */
+    private static int compile(int program, String source, int type) {
+        int shader = GL20.glCreateShader(type);
+        GL20.glShaderSource(shader, source);
+        GL20.glCompileShader(shader);
+        GL20.glAttachShader(program, shader);
+        return shader;
+    }
+
+    /**
+     * Checks the result of a compiled reload and swaps it into its program if it linked.
+     *
+     * @param reload - The compiled reload.
+     */
+    private void finish(Reload reload) {
+        String error = null;
+        if (GL20.glGetShaderi(reload.vertexId, GL20.GL_COMPILE_STATUS) == 0) error = GL20.glGetShaderInfoLog(reload.vertexId);
+        else if (GL20.glGetShaderi(reload.fragmentId, GL20.GL_COMPILE_STATUS) == 0) error = GL20.glGetShaderInfoLog(reload.fragmentId);
+        else if (GL20.glGetProgrami(reload.programId, GL20.GL_LINK_STATUS) == 0) error = GL20.glGetProgramInfoLog(reload.programId);
+
+        for (int shader : new int[] {reload.vertexId, reload.fragmentId}) {
+            GL20.glDetachShader(reload.programId, shader);
+            GL20.glDeleteShader(shader);
+        }
+
+        ShaderManager replacement = new ShaderManager(reload.programId);
+        if (error == null) {
+            try {
+                replacement.bindUniformBlock(FrameUniforms.BLOCK_NAME, FrameUniforms.BINDING);
+                reload.program.shader.replaceProgram(replacement);
+                reloads++;
+                System.out.println("Reloaded " + reload.program.vertexPath.getFileName() + " and " + reload.program.fragmentPath.getFileName());
+                return;
+            } catch (Exception e) {
+                error = e.getMessage();
+            }
+        }
+
+        GL20.glDeleteProgram(reload.programId);
+        fail(reload.program, error);
+    }
+
+    /**
+     * The getter method for the reloads.
+     * @return - The number of programs swapped in.
+     */
+    public int getReloads() {
+        return reloads;
+    }
+
+    /**
+     * The getter method for the failures.
+     * @return - The number of reloads that failed validation, compiling, or linking.
+     */
+    public int getFailures() {
+        return failures.get();
+    }
+
+    /** Stops watching and deletes any program still compiling. */
+    public void cleanup() {
+        thread.interrupt();
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        if (compiling != null) {
+            GL20.glDeleteShader(compiling.vertexId);
+            GL20.glDeleteShader(compiling.fragmentId);
+            GL20.glDeleteProgram(compiling.programId);
+            compiling = null;
+        }
+        validated.clear();
+    }
+}
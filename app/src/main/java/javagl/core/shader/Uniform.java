@@ -0,0 +1,96 @@
+package javagl.core.shader;
+
+/**
+ * A handle to a uniform of a linked program, with its location resolved once
+ * when the handle is created. Each handle keeps a shadow copy of the value last
+ * uploaded, so setting the same value again makes no GL call. A uniform belongs
+ * to its program, so its program must be bound when the value is set.
+ */
+public abstract class Uniform {
+    // The number of uploads made and skipped by every uniform.
+    private static int uploads, skips;
+
+    // The name and location of the uniform.
+    private final String name;
+    private int location;
+
+    // Checks if a value has been uploaded, as the shadow copy is meaningless until then.
+    private boolean uploaded;
+
+    protected Uniform(String name, int location) {
+        this.name = name;
+        this.location = location;
+    }
+
+    /**
+     * Checks if a new value needs to be uploaded, counting the upload or skip.
+     *
+     * @param changed - If the new value differs from the shadow copy.
+     * @return - If the value must be uploaded.
+     */
+    protected boolean needsUpload(boolean changed) {
+        if (uploaded && !changed) {
+            skips++;
+            return false;
+        }
+
+        uploaded = true;
+        uploads++;
+        return true;
+    }
+
+    /** Sends the shadow copy of the value to the current program. */
+    protected abstract void upload();
+
+    /**
+     * Moves the uniform to a new location after its program was replaced, such
+     * as by a shader reload. The last value set is uploaded again, so the new
+     * program starts with the same state. The new program must be bound.
+     *
+     * @param location - The location of the uniform in the new program.
+     */
+    public void relocate(int location) {
+        this.location = location;
+        if (uploaded) upload();
+    }
+
+    /**
+     * The getter method for the name.
+     * @return - The name of the uniform in the shader.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The getter method for the location.
+     * @return - The location of the uniform in its program.
+     */
+    public int getLocation() {
+        return location;
+    }
+
+    /**
+     * Returns the number of values every uniform has uploaded.
+     *
+     * @return - The number of uploads since the counters were reset.
+     */
+    public static int getUploads() {
+        return uploads;
+    }
+
+    /**
+     * Returns the number of values every uniform skipped for being unchanged.
+     *
+     * @return - The number of skipped uploads since the counters were reset.
+     */
+    public static int getSkips() {
+        return skips;
+    }
+
+    /** Resets the upload and skip counters. */
+    public static void resetCounters() {
+        uploads = 0;
+        skips = 0;
+    }
+}
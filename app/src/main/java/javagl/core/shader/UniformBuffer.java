@@ -0,0 +1,155 @@
+package javagl.core.shader;
+
+import java.nio.ByteBuffer;
+
+import org.joml.Matrix4fc;
+import org.joml.Vector4f;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.system.MemoryUtil;
+
+import javagl.core.memory.NativeAllocator;
+
+/**
+ * A uniform buffer object laid out with the std140 rules, bound to a fixed
+ * binding point that every program's matching uniform block reads from. Values
+ * are written into a CPU copy and only the range that changed is uploaded, so
+ * data shared by many programs is sent once however many programs use it.
+ *
+ * Offsets are in bytes and must follow std140: scalars align to 4 bytes, vec4
+ * and mat4 columns to 16.
+ */
+public class UniformBuffer {
+    // The ID of the buffer and the binding point it is attached to.
+    private final int id;
+    private final int binding;
+
+    // The CPU copy of the buffer.
+    private final ByteBuffer data;
+
+    // The range of bytes changed since the last upload.
+    private int dirtyStart, dirtyEnd;
+
+    // The number of uploads made.
+    private int uploads;
+
+    /**
+     * Initializes a new uniform buffer and attaches it to a binding point.
+     *
+     * @param size - The size of the block, in bytes.
+     * @param binding - The binding point of the block.
+     */
+    public UniformBuffer(int size, int binding) {
+        this.binding = binding;
+        data = NativeAllocator.malloc(size);
+        MemoryUtil.memSet(data, 0);
+
+        id = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, id);
+        GL15.glBufferData(GL31.GL_UNIFORM_BUFFER, data, GL15.GL_DYNAMIC_DRAW);
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+        GL30.glBindBufferBase(GL31.GL_UNIFORM_BUFFER, binding, id);
+
+        dirtyStart = size;
+        dirtyEnd = 0;
+    }
+
+    /**
+     * Writes a mat4 into the buffer.
+     *
+     * @param offset - The byte offset of the matrix, a multiple of 16.
+     * @param value - The matrix to write.
+     */
+    public void put(int offset, Matrix4fc value) {
+        value.get(offset, data);
+        markDirty(offset, 64);
+    }
+
+    /**
+     * Writes a vec4 into the buffer.
+     *
+     * @param offset - The byte offset of the vector, a multiple of 16.
+     * @param value - The vector to write.
+     */
+    public void put(int offset, Vector4f value) {
+        value.get(offset, data);
+        markDirty(offset, 16);
+    }
+
+    /**
+     * Writes a float into the buffer.
+     *
+     * @param offset - The byte offset of the value, a multiple of 4.
+     * @param value - The value to write.
+     */
+    public void put(int offset, float value) {
+        data.putFloat(offset, value);
+        markDirty(offset, 4);
+    }
+
+    /**
+     * Writes an int into the buffer.
+     *
+     * @param offset - The byte offset of the value, a multiple of 4.
+     * @param value - The value to write.
+     */
+    public void put(int offset, int value) {
+        data.putInt(offset, value);
+        markDirty(offset, 4);
+    }
+
+    /**
+     * Extends the range of bytes to upload.
+     *
+     * @param offset - The byte offset of the change.
+     * @param size - The size of the change in bytes.
+     */
+    private void markDirty(int offset, int size) {
+        dirtyStart = Math.min(dirtyStart, offset);
+        dirtyEnd = Math.max(dirtyEnd, offset + size);
+    }
+
+    /** Uploads every byte changed since the last upload, doing nothing if none were. */
+    public void upload() {
+        if (dirtyEnd <= dirtyStart) return;
+
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, id);
+        GL15.glBufferSubData(GL31.GL_UNIFORM_BUFFER, dirtyStart, data.duplicate().position(dirtyStart).limit(dirtyEnd));
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+
+        dirtyStart = data.capacity();
+        dirtyEnd = 0;
+        uploads++;
+    }
+
+    /**
+     * The getter method for the ID.
+     * @return - The ID of the buffer.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * The getter method for the binding.
+     * @return - The binding point the buffer is attached to.
+     */
+    public int getBinding() {
+        return binding;
+    }
+
+    /**
+     * The getter method for the uploads.
+     * @return - The number of times the buffer has been uploaded.
+     */
+    public int getUploads() {
+        return uploads;
+    }
+
+    /** Deletes the buffer and frees its CPU copy. */
+    public void cleanup() {
+        GL15.glDeleteBuffers(id);
+        NativeAllocator.free(data);
+    }
+}
@@ -0,0 +1,32 @@
+package javagl.core.shader;
+
+import org.joml.Vector3f;
+import org.lwjgl.opengl.GL20;
+
+/** A handle to a vec3 uniform. */
+public class Vector3Uniform extends Uniform {
+    // The value last uploaded.
+    private final Vector3f value;
+
+    public Vector3Uniform(String name, int location) {
+        super(name, location);
+        value = new Vector3f();
+    }
+
+    /**
+     * Sets the value of the uniform, if it differs from the value last uploaded.
+     *
+     * @param value - The new value.
+     */
+    public void set(Vector3f value) {
+        if (!needsUpload(!value.equals(this.value))) return;
+
+        this.value.set(value);
+        upload();
+    }
+
+    @Override
+    protected void upload() {
+        GL20.glUniform3f(getLocation(), value.x, value.y, value.z);
+    }
+}
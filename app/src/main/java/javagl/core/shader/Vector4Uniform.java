@@ -0,0 +1,32 @@
+package javagl.core.shader;
+
+import org.joml.Vector4f;
+import org.lwjgl.opengl.GL20;
+
+/** A handle to a vec4 uniform. */
+public class Vector4Uniform extends Uniform {
+    // The value last uploaded.
+    private final Vector4f value;
+
+    public Vector4Uniform(String name, int location) {
+        super(name, location);
+        value = new Vector4f();
+    }
+
+    /**
+     * Sets the value of the uniform, if it differs from the value last uploaded.
+     *
+     * @param value - The new value.
+     */
+    public void set(Vector4f value) {
+        if (!needsUpload(!value.equals(this.value))) return;
+
+        this.value.set(value);
+        upload();
+    }
+
+    @Override
+    protected void upload() {
+        GL20.glUniform4f(getLocation(), value.x, value.y, value.z, value.w);
+    }
+}
@@ -0,0 +1,139 @@
+package javagl.core.texture;
+
+import java.nio.FloatBuffer;
+
+/**
+ * A single image packed into a texture atlas. Texture coordinates that covered
+ * the original image from 0 to 1 are remapped into the region's part of the atlas.
+ */
+public class AtlasRegion {
+    // The name the image was added to the atlas with.
+    private final String name;
+
+    // The size of the image and its position in the atlas, in pixels.
+    private final int width, height;
+    private int x, y;
+
+    // The texture coordinates of the region's corners in the atlas.
+    private float u0, v0, u1, v1;
+
+    /**
+     * Initializes a new region that has not been packed yet.
+     *
+     * @param name - The name of the image.
+     * @param width - The width of the image.
+     * @param height - The height of the image.
+     */
+    AtlasRegion(String name, int width, int height) {
+        this.name = name;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Places the region in the atlas once it has been packed.
+     *
+     * @param x - The x position of the region in pixels.
+     * @param y - The y position of the region in pixels.
+     * @param atlasWidth - The width of the atlas.
+     * @param atlasHeight - The height of the atlas.
+     */
+    void place(int x, int y, int atlasWidth, int atlasHeight) {
+        this.x = x;
+        this.y = y;
+
+        // Insets the corners by half a texel so filtering never reads a neighbouring region.
+        u0 = (x + 0.5f) / atlasWidth;
+        v0 = (y + 0.5f) / atlasHeight;
+        u1 = (x + width - 0.5f) / atlasWidth;
+        v1 = (y + height - 0.5f) / atlasHeight;
+    }
+
+    /**
+     * Remaps a horizontal texture coordinate into the atlas.
+     *
+     * @param u - The coordinate within the original image.
+     * @return - The coordinate within the atlas.
+     */
+    public float remapU(float u) {
+        return u0 + u * (u1 - u0);
+    }
+
+    /**
+     * Remaps a vertical texture coordinate into the atlas.
+     *
+     * @param v - The coordinate within the original image.
+     * @return - The coordinate within the atlas.
+     */
+    public float remapV(float v) {
+        return v0 + v * (v1 - v0);
+    }
+
+    /**
+     * Remaps an array of interleaved u, v texture coordinates into the atlas.
+     *
+     * @param textureCoords - The coordinates within the original image.
+     * @return - A new array of coordinates within the atlas.
+     */
+    public float[] remap(float[] textureCoords) {
+        float[] remapped = new float[textureCoords.length];
+        for (int i = 0; i + 1 < textureCoords.length; i += 2) {
+            remapped[i] = remapU(textureCoords[i]);
+            remapped[i + 1] = remapV(textureCoords[i + 1]);
+        }
+        return remapped;
+    }
+
+    /**
+     * Remaps a buffer of interleaved u, v texture coordinates into the atlas in place,
+     * between the buffer's position and limit.
+     *
+     * @param textureCoords - The coordinates to remap.
+     */
+    public void remap(FloatBuffer textureCoords) {
+        for (int i = textureCoords.position(); i + 1 < textureCoords.limit(); i += 2) {
+            textureCoords.put(i, remapU(textureCoords.get(i)));
+            textureCoords.put(i + 1, remapV(textureCoords.get(i + 1)));
+        }
+    }
+
+    /**
+     * The getter method for the name.
+     * @return - The name the image was added with.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The getter method for the x position.
+     * @return - The x position of the region in the atlas, in pixels.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * The getter method for the y position.
+     * @return - The y position of the region in the atlas, in pixels.
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * The getter method for the width.
+     * @return - The width of the region in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * The getter method for the height.
+     * @return - The height of the region in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+}
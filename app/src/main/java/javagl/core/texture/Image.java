@@ -0,0 +1,145 @@
+package javagl.core.texture;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.stb.STBImageResize;
+import org.lwjgl.system.MemoryStack;
+
+import javagl.core.memory.NativeAllocator;
+
+/** An RGBA image held in native memory, waiting to be uploaded to a texture. */
+public class Image {
+    // The tightly packed RGBA pixels of the image.
+    private ByteBuffer pixels;
+
+    // The dimensions of the image.
+    private final int width, height;
+
+    // Checks if the pixels were allocated by stb_image rather than the native allocator.
+    private final boolean decoded;
+
+    /**
+     * Initializes a new image over a buffer of pixels.
+     *
+     * @param pixels - The RGBA pixels of the image.
+     * @param width - The width of the image.
+     * @param height - The height of the image.
+     * @param decoded - If the pixels were allocated by stb_image.
+     */
+    private Image(ByteBuffer pixels, int width, int height, boolean decoded) {
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        this.decoded = decoded;
+    }
+
+    /**
+     * Loads and decodes an image file into RGBA pixels.
+     *
+     * @param filename - The path of the image file.
+     * @return - The decoded image.
+     * @throws Exception - An exception caused by reading or decoding the file.
+     */
+    public static Image load(String filename) throws Exception {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer c = stack.mallocInt(1);
+
+            ByteBuffer pixels = STBImage.stbi_load(filename, w, h, c, 4);
+            if (pixels == null) throw new Exception("Image file " + filename + " unable to be loaded: " + STBImage.stbi_failure_reason());
+
+            return new Image(pixels, w.get(0), h.get(0), true);
+        }
+    }
+
+    /**
+     * Decodes an image that has already been read into memory.
+     *
+     * @param data - The encoded contents of the image file.
+     * @param name - The name of the image, used in error messages.
+     * @return - The decoded image.
+     * @throws Exception - An exception caused by decoding the data.
+     */
+    public static Image decode(ByteBuffer data, String name) throws Exception {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer c = stack.mallocInt(1);
+
+            ByteBuffer pixels = STBImage.stbi_load_from_memory(data, w, h, c, 4);
+            if (pixels == null) throw new Exception("Image " + name + " unable to be decoded: " + STBImage.stbi_failure_reason());
+
+            return new Image(pixels, w.get(0), h.get(0), true);
+        }
+    }
+
+    /**
+     * Creates an image filled with a single color.
+     *
+     * @param width - The width of the image.
+     * @param height - The height of the image.
+     * @param rgba - The color of every pixel, packed as 0xRRGGBBAA.
+     * @return - The new image.
+     */
+    public static Image solid(int width, int height, int rgba) {
+        ByteBuffer pixels = NativeAllocator.malloc(width * height * 4);
+        for (int i = 0; i < width * height; i++) {
+            pixels.put(i * 4, (byte) (rgba >>> 24)).put(i * 4 + 1, (byte) (rgba >>> 16));
+            pixels.put(i * 4 + 2, (byte) (rgba >>> 8)).put(i * 4 + 3, (byte) rgba);
+        }
+        return new Image(pixels, width, height, false);
+    }
+
+    /**
+     * Creates a resized copy of the image.
+     *
+     * @param width - The width of the copy.
+     * @param height - The height of the copy.
+     * @return - The resized image.
+     * @throws Exception - An exception caused by a failed resize.
+     */
+    public Image resize(int width, int height) throws Exception {
+        ByteBuffer resized = NativeAllocator.malloc(width * height * 4);
+        if (!STBImageResize.stbir_resize_uint8(pixels, this.width, this.height, 0, resized, width, height, 0, 4)) {
+            NativeAllocator.free(resized);
+            throw new Exception("Unable to resize image to " + width + "x" + height);
+        }
+        return new Image(resized, width, height, false);
+    }
+
+    /**
+     * The getter method for the pixels.
+     * @return - The tightly packed RGBA pixels of the image.
+     */
+    public ByteBuffer getPixels() {
+        return pixels;
+    }
+
+    /**
+     * The getter method for the width.
+     * @return - The width of the image in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * The getter method for the height.
+     * @return - The height of the image in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /** Frees the pixels of the image. */
+    public void free() {
+        if (pixels == null) return;
+
+        if (decoded) STBImage.stbi_image_free(pixels);
+        else NativeAllocator.free(pixels);
+        pixels = null;
+    }
+}
@@ -0,0 +1,150 @@
+package javagl.core.texture;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL30;
+
+import javagl.core.entity.Texture;
+
+/**
+ * A GL_TEXTURE_2D_ARRAY holding many images of the same size as layers of one
+ * texture. Geometry picks its image with a layer index in its texture
+ * coordinates, so draws using different images never need to rebind.
+ */
+public class TextureArray {
+    // The size of every layer and the number of layers the array can hold.
+    private final int width, height, capacity;
+
+    // The number of layers that have been filled.
+    private int count;
+
+    // The array texture.
+    private Texture texture;
+
+    /**
+     * Initializes a new, empty texture array.
+     *
+     * @param width - The width of every layer in pixels.
+     * @param height - The height of every layer in pixels.
+     * @param capacity - The number of layers the array can hold.
+     */
+    public TextureArray(int width, int height, int capacity) {
+        this.width = width;
+        this.height = height;
+        this.capacity = capacity;
+
+        int id = GL11.glGenTextures();
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, id);
+        GL12.glTexImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0, GL11.GL_RGBA8, width, height, capacity, 0,
+            GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+
+        // Only the first level is allocated, so the array is sampled without mipmaps until they are generated.
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL12.GL_TEXTURE_MAX_LEVEL, 0);
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+
+        texture = new Texture(id, GL30.GL_TEXTURE_2D_ARRAY);
+    }
+
+    /**
+     * Loads an image file into the next free layer.
+     *
+     * @param filename - The path of the image file.
+     * @return - The layer index of the image.
+     * @throws Exception - An exception caused by loading the image or a full array.
+     */
+    public int add(String filename) throws Exception {
+        Image image = Image.load(filename);
+        try {
+            return add(image);
+        } finally {
+            image.free();
+        }
+    }
+
+    /**
+     * Uploads an image into the next free layer, resizing it to the layer size if needed.
+     *
+     * @param image - The image to upload.
+     * @return - The layer index of the image.
+     * @throws Exception - An exception caused by resizing the image or a full array.
+     */
+    public int add(Image image) throws Exception {
+        if (count == capacity) throw new Exception("Texture array is full at " + capacity + " layers");
+
+        Image layer = image.getWidth() == width && image.getHeight() == height ? image : image.resize(width, height);
+        try {
+            GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, texture.getId());
+            GL12.glTexSubImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0, 0, 0, count, width, height, 1,
+                GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, layer.getPixels());
+            GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+        } finally {
+            if (layer != image) layer.free();
+        }
+
+        return count++;
+    }
+
+    /**
+     * Generates mipmaps for every layer, once all of the layers have been
+     * added, and switches the array to sampling them.
+     */
+    public void generateMipmaps() {
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, texture.getId());
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL12.GL_TEXTURE_MAX_LEVEL, 1000);
+        GL30.glGenerateMipmap(GL30.GL_TEXTURE_2D_ARRAY);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR_MIPMAP_LINEAR);
+        GL11.glBindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+    /**
+     * Expands interleaved u, v texture coordinates into u, v, layer coordinates
+     * for the POSITION_UV_LAYER vertex format.
+     *
+     * @param textureCoords - The coordinates within the image.
+     * @param layer - The layer of the image.
+     * @return - A new array of coordinates within the texture array.
+     */
+    public static float[] remap(float[] textureCoords, int layer) {
+        float[] remapped = new float[textureCoords.length / 2 * 3];
+        for (int i = 0, j = 0; i + 1 < textureCoords.length; i += 2, j += 3) {
+            remapped[j] = textureCoords[i];
+            remapped[j + 1] = textureCoords[i + 1];
+            remapped[j + 2] = layer;
+        }
+        return remapped;
+    }
+
+    /**
+     * The getter method for the array texture.
+     * @return - The GL_TEXTURE_2D_ARRAY texture.
+     */
+    public Texture getTexture() {
+        return texture;
+    }
+
+    /**
+     * The getter method for the layer count.
+     * @return - The number of layers that have been filled.
+     */
+    public int getLayerCount() {
+        return count;
+    }
+
+    /**
+     * The getter method for the capacity.
+     * @return - The number of layers the array can hold.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Deletes the array texture. */
+    public void cleanup() {
+        if (texture != null) GL11.glDeleteTextures(texture.getId());
+        texture = null;
+    }
+}
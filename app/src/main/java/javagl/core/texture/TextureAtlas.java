@@ -0,0 +1,222 @@
+package javagl.core.texture;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.stb.STBRPContext;
+import org.lwjgl.stb.STBRPNode;
+import org.lwjgl.stb.STBRPRect;
+import org.lwjgl.stb.STBRectPack;
+
+import javagl.core.entity.Texture;
+
+/**
+ * Many images packed into one texture, so models and UI that use different
+ * images can still share a single texture binding. Images are added first and
+ * then packed together with stb_rect_pack when the atlas is built; each image
+ * gets a region that remaps its texture coordinates into the atlas.
+ */
+public class TextureAtlas {
+    // The name of the plain white region every atlas contains.
+    public static final String WHITE = "white";
+
+    // The size of the atlas, which can grow until it is built.
+    private int width, height;
+
+    // The empty border kept around every image, in pixels.
+    private final int padding;
+
+    // The regions of the atlas, in the order their images were added, and by name.
+    private final List<AtlasRegion> regions;
+    private final Map<String, AtlasRegion> names;
+
+    // The images waiting to be packed, in the same order as their regions.
+    private final List<Image> images;
+
+    // The packed texture, once the atlas is built.
+    private Texture texture;
+
+    /**
+     * Initializes a new, empty texture atlas with a plain white region.
+     *
+     * @param width - The width of the atlas in pixels.
+     * @param height - The height of the atlas in pixels.
+     * @param padding - The empty border kept around every image, in pixels.
+     */
+    public TextureAtlas(int width, int height, int padding) {
+        this.width = width;
+        this.height = height;
+        this.padding = padding;
+
+        regions = new ArrayList<AtlasRegion>();
+        names = new HashMap<String, AtlasRegion>();
+        images = new ArrayList<Image>();
+
+        add(WHITE, Image.solid(4, 4, 0xFFFFFFFF));
+    }
+
+    /**
+     * Loads an image file and adds it to the atlas.
+     *
+     * @param name - The name to look the region up by.
+     * @param filename - The path of the image file.
+     * @return - The region the image will be packed into.
+     * @throws Exception - An exception caused by loading the image.
+     */
+    public AtlasRegion add(String name, String filename) throws Exception {
+        return add(name, Image.load(filename));
+    }
+
+    /**
+     * Adds an image to the atlas. The atlas frees the image once it is built.
+     *
+     * @param name - The name to look the region up by.
+     * @param image - The image to add.
+     * @return - The region the image will be packed into.
+     */
+    public AtlasRegion add(String name, Image image) {
+        if (texture != null) throw new IllegalStateException("Texture atlas has already been built");
+        if (names.containsKey(name)) throw new IllegalArgumentException("Texture atlas already has a region named " + name);
+
+        AtlasRegion region = new AtlasRegion(name, image.getWidth(), image.getHeight());
+        regions.add(region);
+        names.put(name, region);
+        images.add(image);
+        return region;
+    }
+
+    /**
+     * Packs every image into the atlas, uploads them into one texture, and
+     * places every region. The images are freed once they are uploaded, and
+     * kept if they do not fit, so the atlas can be resized and built again.
+     *
+     * @return - The atlas texture.
+     * @throws Exception - An exception thrown if the images do not fit in the atlas.
+     */
+    public Texture build() throws Exception {
+        if (texture != null) return texture;
+
+        STBRPContext context = STBRPContext.malloc();
+        STBRPNode.Buffer nodes = STBRPNode.malloc(width);
+        STBRPRect.Buffer rects = STBRPRect.malloc(images.size());
+
+        try {
+            for (int i = 0; i < images.size(); i++) {
+                Image image = images.get(i);
+                rects.get(i).id(i)
+                    .w((short) (image.getWidth() + padding * 2))
+                    .h((short) (image.getHeight() + padding * 2));
+            }
+
+            STBRectPack.stbrp_init_target(context, width, height, nodes);
+            if (STBRectPack.stbrp_pack_rects(context, rects) == 0) {
+                throw new Exception("Texture atlas of " + width + "x" + height + " is too small for " + images.size() + " images");
+            }
+
+            int id = GL11.glGenTextures();
+            GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
+            GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, width, height, 0,
+                GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+
+            // Uploads each image into its packed rectangle.
+            for (int i = 0; i < images.size(); i++) {
+                STBRPRect rect = rects.get(i);
+                Image image = images.get(i);
+                int x = rect.x() + padding;
+                int y = rect.y() + padding;
+
+                GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, x, y, image.getWidth(), image.getHeight(),
+                    GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, image.getPixels());
+                regions.get(rect.id()).place(x, y, width, height);
+            }
+
+            GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
+            GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+
+            texture = new Texture(id);
+            for (Image image : images) image.free();
+            images.clear();
+            return texture;
+        } finally {
+            context.free();
+            nodes.free();
+            rects.free();
+        }
+    }
+
+    /**
+     * Changes the size of the atlas, such as after it was too small to build.
+     *
+     * @param width - The new width of the atlas in pixels.
+     * @param height - The new height of the atlas in pixels.
+     */
+    public void setSize(int width, int height) {
+        if (texture != null) throw new IllegalStateException("Texture atlas has already been built");
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Finds a region by the name its image was added with.
+     *
+     * @param name - The name of the region.
+     * @return - The region, or null if there is none with that name.
+     */
+    public AtlasRegion getRegion(String name) {
+        return names.get(name);
+    }
+
+    /**
+     * The getter method for the white region.
+     * @return - A plain white region, for drawing untextured geometry from the atlas.
+     */
+    public AtlasRegion getWhiteRegion() {
+        return names.get(WHITE);
+    }
+
+    /**
+     * The getter method for the regions.
+     * @return - Every region, in the order their images were added.
+     */
+    public List<AtlasRegion> getRegions() {
+        return regions;
+    }
+
+    /**
+     * The getter method for the atlas texture.
+     * @return - The packed texture, or null if the atlas has not been built.
+     */
+    public Texture getTexture() {
+        return texture;
+    }
+
+    /**
+     * The getter method for the width.
+     * @return - The width of the atlas in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * The getter method for the height.
+     * @return - The height of the atlas in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /** Deletes the atlas texture and frees any images that were never packed. */
+    public void cleanup() {
+        for (Image image : images) image.free();
+        images.clear();
+
+        if (texture != null) GL11.glDeleteTextures(texture.getId());
+        texture = null;
+    }
+}
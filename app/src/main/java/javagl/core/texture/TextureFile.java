@@ -0,0 +1,309 @@
+package javagl.core.texture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.lwjgl.opengl.EXTTextureCompressionS3TC;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GLCapabilities;
+
+import javagl.core.memory.NativeAllocator;
+import javagl.core.utils.Utils;
+
+/**
+ * The cooked texture format. A file holds a whole mip chain that has already
+ * been generated and optionally block-compressed offline, so every level can
+ * be uploaded as it is without decoding or generating mipmaps at load time.
+ *
+ * Header layout, little-endian ints: magic, version, format, width, height,
+ * level count, data size. The header is followed by the offset and size of each
+ * level within the data, and then the data itself.
+ */
+public class TextureFile {
+    // The magic number at the start of every texture file ("JGLT").
+    public static final int MAGIC = 0x544C474A;
+    public static final int VERSION = 1;
+
+    // The size of the header and of each entry in the level table, in bytes.
+    public static final int HEADER_SIZE = 7 * Integer.BYTES;
+    public static final int LEVEL_ENTRY_SIZE = 2 * Integer.BYTES;
+
+    // The formats texels can be stored in.
+    public static final int FORMAT_RGBA8 = 0;
+    public static final int FORMAT_BC1 = 1;
+    public static final int FORMAT_BC3 = 2;
+    public static final int FORMAT_BC4 = 3;
+    public static final int FORMAT_BC5 = 4;
+
+    // The names of each format, for reports.
+    private static final String[] FORMAT_NAMES = {"RGBA8", "BC1", "BC3", "BC4", "BC5"};
+
+    // The values read from the header of the file.
+    private final int format, width, height, levelCount;
+
+    // The offset and size of each level within the data.
+    private final int[] offsets, sizes;
+
+    // The level data, and the copy of the file if it had to be read rather than mapped.
+    private final ByteBuffer data;
+    private ByteBuffer owned;
+
+    private TextureFile(ByteBuffer file, ByteBuffer owned, String name) throws Exception {
+        this.owned = owned;
+        file = file.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (file.remaining() < HEADER_SIZE || file.getInt(0) != MAGIC) throw new Exception("Not a texture file: " + name);
+        if (file.getInt(4) != VERSION) throw new Exception("Unsupported texture file version " + file.getInt(4));
+
+        format = file.getInt(8);
+        width = file.getInt(12);
+        height = file.getInt(16);
+        levelCount = file.getInt(20);
+        int dataSize = file.getInt(24);
+        if (format < 0 || format >= FORMAT_NAMES.length) throw new Exception("Unknown texture format " + format);
+
+        int dataStart = HEADER_SIZE + levelCount * LEVEL_ENTRY_SIZE;
+        if ((long) dataStart + dataSize > file.capacity()) throw new Exception("Truncated texture file: " + name);
+
+        offsets = new int[levelCount];
+        sizes = new int[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            offsets[i] = file.getInt(HEADER_SIZE + i * LEVEL_ENTRY_SIZE);
+            sizes[i] = file.getInt(HEADER_SIZE + i * LEVEL_ENTRY_SIZE + 4);
+            if ((long) offsets[i] + sizes[i] > dataSize) throw new Exception("Corrupt level table in texture file: " + name);
+        }
+
+        data = file.duplicate().position(dataStart).limit(dataStart + dataSize).slice();
+    }
+
+    /**
+     * Opens a texture file. Files on disk are memory-mapped and used in place,
+     * while classpath resources are read into native memory.
+     *
+     * @param name - The file path or classpath resource of the texture file.
+     * @return - The opened texture file, which must be closed by the caller.
+     * @throws Exception - An exception caused by reading an invalid file.
+     */
+    public static TextureFile open(String name) throws Exception {
+        Path path = Paths.get(name);
+        if (Files.isRegularFile(path)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return new TextureFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), null, name);
+            } catch (IOException e) {
+                throw new Exception("Texture file " + name + " unable to be loaded", e);
+            }
+        }
+
+        ByteBuffer contents = Utils.loadBinaryResource(name);
+        try {
+            return new TextureFile(contents, contents, name);
+        } catch (Exception e) {
+            NativeAllocator.free(contents);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a texture file that is already in memory. The levels are used in
+     * place, so the contents must stay allocated until the file is closed.
+     *
+     * @param contents - The contents of the texture file, between their position and limit.
+     * @param name - The name of the file, for errors.
+     * @return - The texture file, which must be closed by the caller.
+     * @throws Exception - An exception caused by reading an invalid file.
+     */
+    public static TextureFile read(ByteBuffer contents, String name) throws Exception {
+        return new TextureFile(contents.slice(), null, name);
+    }
+
+    /**
+     * Writes a mip chain to a texture file.
+     *
+     * @param path - The path of the texture file.
+     * @param format - The format of the level data.
+     * @param width - The width of the first level.
+     * @param height - The height of the first level.
+     * @param levels - The data of each level, from largest to smallest.
+     * @throws Exception - An exception caused by writing the file.
+     */
+    public static void write(Path path, int format, int width, int height, List<ByteBuffer> levels) throws Exception {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + levels.size() * LEVEL_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        int dataSize = 0;
+        for (ByteBuffer level : levels) dataSize += level.remaining();
+        header.putInt(MAGIC).putInt(VERSION).putInt(format).putInt(width).putInt(height)
+            .putInt(levels.size()).putInt(dataSize);
+
+        int offset = 0;
+        for (ByteBuffer level : levels) {
+            header.putInt(offset).putInt(level.remaining());
+            offset += level.remaining();
+        }
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) channel.write(header);
+            for (ByteBuffer level : levels) {
+                ByteBuffer view = level.duplicate();
+                while (view.hasRemaining()) channel.write(view);
+            }
+        } catch (IOException e) {
+            throw new Exception("Texture file " + path + " unable to be written", e);
+        }
+    }
+
+    /**
+     * Returns the size of one 4x4 block of a compressed format.
+     *
+     * @param format - The texture format.
+     * @return - The size of a block in bytes, or 0 if the format is not compressed.
+     */
+    public static int getBlockSize(int format) {
+        switch (format) {
+            case FORMAT_BC1: case FORMAT_BC4: return 8;
+            case FORMAT_BC3: case FORMAT_BC5: return 16;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Returns the size of a level in a format.
+     *
+     * @param format - The texture format.
+     * @param width - The width of the level.
+     * @param height - The height of the level.
+     * @return - The size of the level's data in bytes.
+     */
+    public static int getLevelSize(int format, int width, int height) {
+        int blockSize = getBlockSize(format);
+        if (blockSize == 0) return width * height * 4;
+        return ((width + 3) / 4) * ((height + 3) / 4) * blockSize;
+    }
+
+    /**
+     * Returns the GL internal format a texture format is uploaded as.
+     *
+     * @param format - The texture format.
+     * @return - The GL internal format.
+     */
+    public static int getGlFormat(int format) {
+        switch (format) {
+            case FORMAT_BC1: return EXTTextureCompressionS3TC.GL_COMPRESSED_RGB_S3TC_DXT1_EXT;
+            case FORMAT_BC3: return EXTTextureCompressionS3TC.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT;
+            case FORMAT_BC4: return GL30.GL_COMPRESSED_RED_RGTC1;
+            case FORMAT_BC5: return GL30.GL_COMPRESSED_RG_RGTC2;
+            default: return GL11.GL_RGBA8;
+        }
+    }
+
+    /**
+     * Checks if the current context can sample a texture format.
+     *
+     * @param format - The texture format.
+     * @return - If textures in the format can be uploaded.
+     */
+    public static boolean isSupported(int format) {
+        GLCapabilities caps = GL.getCapabilities();
+        switch (format) {
+            case FORMAT_BC1: case FORMAT_BC3: return caps.GL_EXT_texture_compression_s3tc;
+            case FORMAT_BC4: case FORMAT_BC5: return caps.OpenGL30;
+            default: return true;
+        }
+    }
+
+    /**
+     * Returns the name of a texture format.
+     *
+     * @param format - The texture format.
+     * @return - A short name such as "BC1".
+     */
+    public static String getFormatName(int format) {
+        return FORMAT_NAMES[format];
+    }
+
+    /**
+     * Returns the data of a level, ready to be passed to glCompressedTexImage2D.
+     *
+     * @param level - The index of the level, with 0 being the largest.
+     * @return - The level data.
+     */
+    public ByteBuffer getLevel(int level) {
+        return data.duplicate().position(offsets[level]).limit(offsets[level] + sizes[level]).slice();
+    }
+
+    /**
+     * Returns the width of a level.
+     *
+     * @param level - The index of the level.
+     * @return - The width of the level in pixels.
+     */
+    public int getLevelWidth(int level) {
+        return Math.max(1, width >> level);
+    }
+
+    /**
+     * Returns the height of a level.
+     *
+     * @param level - The index of the level.
+     * @return - The height of the level in pixels.
+     */
+    public int getLevelHeight(int level) {
+        return Math.max(1, height >> level);
+    }
+
+    /**
+     * The getter method for the format.
+     * @return - The format of the level data.
+     */
+    public int getFormat() {
+        return format;
+    }
+
+    /**
+     * The getter method for the width.
+     * @return - The width of the first level.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * The getter method for the height.
+     * @return - The height of the first level.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * The getter method for the level count.
+     * @return - The number of levels in the mip chain.
+     */
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    /**
+     * The getter method for the data size.
+     * @return - The size of every level together, which is the memory the texture uses on the GPU.
+     */
+    public int getDataSize() {
+        return data.capacity();
+    }
+
+    /** Frees the contents of the file if it was read rather than mapped. */
+    public void close() {
+        if (owned != null) NativeAllocator.free(owned);
+        owned = null;
+    }
+}
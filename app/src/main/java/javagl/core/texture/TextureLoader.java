@@ -0,0 +1,162 @@
+package javagl.core.texture;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+
+import javagl.core.entity.Texture;
+import javagl.core.memory.NativeAllocator;
+import javagl.core.utils.Utils;
+
+/**
+ * Loads textures without blocking the GL thread. Files and classpath resources
+ * are read and decoded by a pool of worker threads, and only the final upload
+ * happens on the GL thread, a few at a time within a per-frame time budget.
+ * Each load returns a future that completes with the texture once it is uploaded.
+ */
+public class TextureLoader {
+    // A decoded image waiting to be uploaded, and the future it completes.
+    private static class Upload {
+        private final Image image;
+        private final CompletableFuture<Texture> future;
+
+        private Upload(Image image, CompletableFuture<Texture> future) {
+            this.image = image;
+            this.future = future;
+        }
+    }
+
+    // The threads reading and decoding images.
+    private final ExecutorService decoders;
+
+    // The decoded images waiting for the GL thread.
+    private final ConcurrentLinkedQueue<Upload> uploads;
+
+    // The IDs of every texture this loader has uploaded.
+    private final List<Integer> textures;
+
+    /**
+     * Initializes a new texture loader.
+     *
+     * @param threads - The number of threads decoding images.
+     */
+    public TextureLoader(int threads) {
+        decoders = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Texture Decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        uploads = new ConcurrentLinkedQueue<Upload>();
+        textures = new ArrayList<Integer>();
+    }
+
+    /**
+     * Starts loading a texture in the background.
+     *
+     * @param name - The file path or classpath resource of the image.
+     * @return - A future completed on the GL thread with the uploaded texture.
+     */
+    public CompletableFuture<Texture> load(String name) {
+        CompletableFuture<Texture> future = new CompletableFuture<Texture>();
+
+        decoders.execute(() -> {
+            try {
+                ByteBuffer data = Utils.loadBinaryResource(name);
+                try {
+                    uploads.offer(new Upload(Image.decode(data, name), future));
+                } finally {
+                    NativeAllocator.free(data);
+                }
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Uploads decoded images on the GL thread until the time budget runs out.
+     * At least one image is uploaded per call, so loading always makes progress.
+     *
+     * @param budgetNanos - The time that can be spent uploading, in nanoseconds.
+     * @return - The number of textures uploaded.
+     */
+    public int processUploads(long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int uploaded = 0;
+
+        Upload upload;
+        while ((uploaded == 0 || System.nanoTime() < deadline) && (upload = uploads.poll()) != null) {
+            try {
+                int id = upload(upload.image);
+                textures.add(id);
+                upload.future.complete(new Texture(id));
+            } catch (Throwable e) {
+                upload.future.completeExceptionally(e);
+            } finally {
+                upload.image.free();
+            }
+            uploaded++;
+        }
+
+        return uploaded;
+    }
+
+    /**
+     * Uploads an image into a new mipmapped 2D texture. This must be called on the GL thread.
+     *
+     * @param image - The image to upload.
+     * @return - The ID of the new texture.
+     */
+    public static int upload(Image image) {
+        int id = GL11.glGenTextures();
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
+
+        GL11.glTexImage2D(
+            GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA,
+            image.getWidth(), image.getHeight(), 0,
+            GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, image.getPixels()
+        );
+        GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
+
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        return id;
+    }
+
+    /**
+     * Returns the number of decoded images waiting to be uploaded.
+     *
+     * @return - The number of pending uploads.
+     */
+    public int getPendingUploads() {
+        return uploads.size();
+    }
+
+    /** Stops the decoders, frees any images never uploaded, and deletes the loaded textures. */
+    public void cleanup() {
+        decoders.shutdownNow();
+        try {
+            decoders.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Upload upload;
+        while ((upload = uploads.poll()) != null) {
+            upload.image.free();
+            upload.future.cancel(false);
+        }
+
+        for (int id : textures) GL11.glDeleteTextures(id);
+        textures.clear();
+    }
+}
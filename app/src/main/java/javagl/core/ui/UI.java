@@ -1,41 +1,285 @@
 package javagl.core.ui;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import javagl.core.ObjectLoader;
-import javagl.core.entity.Model;
 
+import org.joml.Vector4f;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.system.MemoryStack;
+
+import javagl.core.entity.DynamicModel;
+import javagl.core.entity.Texture;
+import javagl.core.managers.RenderManager;
+import javagl.core.managers.ShaderManager;
+import javagl.core.mesh.VertexAttribute;
+import javagl.core.mesh.VertexEncoding;
+import javagl.core.mesh.VertexFormat;
+import javagl.core.shader.ShaderCache;
+import javagl.core.texture.AtlasRegion;
+import javagl.core.texture.TextureAtlas;
+
+/**
+ * A batched renderer for UI rectangles. Every template is written as a quad into
+ * one dynamic model with a per-vertex color and texture coordinate, so the whole
+ * UI is drawn with a single draw call. Rectangles showing images take them from
+ * one texture atlas, so textured and plain rectangles still share the draw. The
+ * batch is only rebuilt when templates are added or removed.
+ */
 public class UI {
-    private ObjectLoader loader;
+    // A 2D position, a texture coordinate, and an RGBA color packed into four bytes.
+    public static final VertexFormat FORMAT = new VertexFormat(
+        new VertexAttribute(0, 2, VertexEncoding.FLOAT),
+        new VertexAttribute(1, 2, VertexEncoding.FLOAT),
+        new VertexAttribute(2, 4, VertexEncoding.NORMALIZED_UNSIGNED_BYTE)
+    );
+
+    // The number of rectangles the batch can hold before it grows.
+    private static final int INITIAL_CAPACITY = 256;
+
+    // The texture coordinates of the top left, bottom left, bottom right, and top right corners.
+    private static final float[] TEXTURE_COORDS = {0, 0, 0, 1, 1, 1, 1, 0};
+
     private List<UITemplate> templates;
 
-    private int[] rectangleIndices = {0, 1, 3, 0, 2, 3};
-    float[] textureCoords = {0, 0, 0, 1, 1, 1, 1, 0};
-    
-    public UI(ObjectLoader loader) {
-        this.loader = loader;
-        this.templates = new ArrayList<UITemplate>();
+    // Checks if the templates have changed since the batch was last built.
+    private boolean dirty;
+
+    // The shader, the batched geometry, and the plain white texture it samples.
+    private ShaderManager shader;
+    private DynamicModel batch;
+    private Texture white;
+
+    // The atlas that textured rectangles take their images from, if there is one.
+    private TextureAtlas atlas;
+
+    // The number of rectangles the batch can currently hold.
+    private int capacity;
+
+    // The vertices and draw calls of the last rendered frame, and the number of times the batch was rebuilt.
+    private int vertexCount, drawCalls, rebuilds;
+
+    public UI() {
+        this(new ArrayList<UITemplate>());
     }
 
-    public UI(ObjectLoader loader, List<UITemplate> templates) {
-        this.loader = loader;
+    public UI(List<UITemplate> templates) {
         this.templates = templates;
+        this.dirty = true;
     }
 
-    public Model renderUI(UITemplate t) throws Exception {
-        float x = t.getX();
-        float y = t.getY();
+    /**
+     * Creates the UI shader, the white texture, and the batch.
+     *
+     * @param cache - The cache to load the shader through.
+     * @throws Exception - An exception caused by loading or linking the shader.
+     */
+    public void init(ShaderCache cache) throws Exception {
+        shader = cache.load("/shaders/ui.vs", "/shaders/ui.fs");
+
+        // Samplers are program state, so the texture unit only needs to be set once.
+        shader.bind();
+        shader.createIntUniform("textureSampler").set(0);
+        shader.unbind();
+
+        white = new Texture(createWhiteTexture());
+        createBatch(INITIAL_CAPACITY);
+    }
 
-        float dx = t.getWidth();
-        float dy = t.getHeight();
+    /**
+     * Adds a rectangle to the UI.
+     *
+     * @param template - The rectangle to add.
+     */
+    public void add(UITemplate template) {
+        templates.add(template);
+        dirty = true;
+    }
+
+    /**
+     * Removes a rectangle from the UI.
+     *
+     * @param template - The rectangle to remove.
+     */
+    public void remove(UITemplate template) {
+        if (templates.remove(template)) dirty = true;
+    }
+
+    /** Removes every rectangle from the UI. */
+    public void clear() {
+        templates.clear();
+        dirty = true;
+    }
+
+    /**
+     * Sets the atlas that rectangles with a region are textured from. Plain
+     * rectangles then use the atlas's white region, so the whole UI is drawn
+     * from the one texture.
+     *
+     * @param atlas - The built texture atlas, or null to draw plain colors only.
+     */
+    public void setAtlas(TextureAtlas atlas) {
+        this.atlas = atlas;
+        if (batch != null) batch.setTexture(atlas != null ? atlas.getTexture() : white);
+        dirty = true;
+    }
+
+    /** Marks the batch to be rebuilt, for when the template list was changed directly. */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Submits the whole UI to the renderer as one model, rebuilding the batch first if it is dirty.
+     *
+     * @param renderer - The renderer to submit the UI to.
+     */
+    public void render(RenderManager renderer) {
+        if (dirty) rebuild();
+
+        vertexCount = templates.size() * 4;
+        drawCalls = templates.isEmpty() ? 0 : 1;
+        if (drawCalls > 0) renderer.submit(batch, shader);
+    }
 
-        float[] vertices = {
-            x - 0.5f, y + dy - 0.5f, 0f,
-            x - 0.5f, y - 0.5f, 0f,
-            x + dx - 0.5f, y - 0.5f, 0f,
-            x + dx - 0.5f, y + dy - 0.5f, 0f,
-        };
+    /** Writes every template into the batch as a quad. */
+    private void rebuild() {
+        if (templates.size() > capacity) {
+            batch.cleanup();
+            createBatch(Math.max(capacity * 2, templates.size()));
+        }
+
+        batch.begin(templates.size() * 4, templates.size() * 6);
+        ByteBuffer vertices = batch.getVertices();
+        ByteBuffer indices = batch.getIndices();
+
+        int vertex = vertices.position();
+        int index = indices.position();
+        for (int i = 0; i < templates.size(); i++) {
+            UITemplate t = templates.get(i);
+            float x = t.getX() - 0.5f;
+            float y = t.getY() - 0.5f;
+            float dx = t.getWidth();
+            float dy = t.getHeight();
+            AtlasRegion region = atlas == null ? null : t.getRegion() != null ? t.getRegion() : atlas.getWhiteRegion();
+
+            vertex = writeVertex(vertices, vertex, x, y + dy, 0, region, t.getColor());
+            vertex = writeVertex(vertices, vertex, x, y, 1, region, t.getColor());
+            vertex = writeVertex(vertices, vertex, x + dx, y, 2, region, t.getColor());
+            vertex = writeVertex(vertices, vertex, x + dx, y + dy, 3, region, t.getColor());
+
+            // Two counter-clockwise triangles covering the quad.
+            int first = i * 4;
+            indices.putInt(index, first).putInt(index + 4, first + 1).putInt(index + 8, first + 2);
+            indices.putInt(index + 12, first).putInt(index + 16, first + 2).putInt(index + 20, first + 3);
+            index += 24;
+        }
+
+        batch.end();
+        dirty = false;
+        rebuilds++;
+    }
+
+    /**
+     * Writes a single UI vertex.
+     *
+     * @param buffer - The buffer to write into.
+     * @param offset - The byte offset of the vertex.
+     * @param x - The x position of the vertex.
+     * @param y - The y position of the vertex.
+     * @param corner - The corner of the quad, used to pick the texture coordinate.
+     * @param region - The atlas region to remap the texture coordinate into, or null.
+     * @param color - The color of the vertex.
+     * @return - The byte offset of the next vertex.
+     */
+    private static int writeVertex(ByteBuffer buffer, int offset, float x, float y, int corner, AtlasRegion region, Vector4f color) {
+        float u = TEXTURE_COORDS[corner * 2];
+        float v = TEXTURE_COORDS[corner * 2 + 1];
+        if (region != null) {
+            u = region.remapU(u);
+            v = region.remapV(v);
+        }
+
+        buffer.putFloat(offset, x).putFloat(offset + 4, y);
+        buffer.putFloat(offset + 8, u).putFloat(offset + 12, v);
+
+        VertexEncoding encoding = VertexEncoding.NORMALIZED_UNSIGNED_BYTE;
+        encoding.write(buffer, offset + 16, color.x);
+        encoding.write(buffer, offset + 17, color.y);
+        encoding.write(buffer, offset + 18, color.z);
+        encoding.write(buffer, offset + 19, color.w);
+        return offset + FORMAT.getStride();
+    }
+
+    /**
+     * Creates a new batch that can hold a number of rectangles.
+     *
+     * @param capacity - The number of rectangles.
+     */
+    private void createBatch(int capacity) {
+        this.capacity = capacity;
+        batch = new DynamicModel(FORMAT, capacity * 4, capacity * 6);
+        batch.setTexture(atlas != null ? atlas.getTexture() : white);
+        dirty = true;
+    }
+
+    /**
+     * Creates a 1x1 white texture, so untextured rectangles show their vertex color.
+     *
+     * @return - The ID of the texture.
+     */
+    private static int createWhiteTexture() {
+        int id = GL11.glGenTextures();
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            ByteBuffer pixel = stack.bytes((byte) 255, (byte) 255, (byte) 255, (byte) 255);
+            GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, 1, 1, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, pixel);
+        }
+
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        return id;
+    }
+
+    /**
+     * The getter method for the templates.
+     * @return - A read-only view of the rectangles in the UI.
+     */
+    public List<UITemplate> getTemplates() {
+        return Collections.unmodifiableList(templates);
+    }
+
+    /**
+     * The getter method for the vertex count.
+     * @return - The number of vertices drawn by the last frame.
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * The getter method for the draw calls.
+     * @return - The number of draw calls made by the last frame.
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * The getter method for the rebuild count.
+     * @return - The number of times the batch has been rebuilt.
+     */
+    public int getRebuilds() {
+        return rebuilds;
+    }
 
-        return loader.loadModel(vertices, textureCoords, rectangleIndices);
+    /** Deletes the shader, the batch, and the white texture. */
+    public void cleanup() {
+        if (shader != null) shader.cleanup();
+        if (batch != null) batch.cleanup();
+        if (white != null) GL11.glDeleteTextures(white.getId());
     }
 }
@@ -2,12 +2,17 @@ package javagl.core.ui;
 
 import org.joml.Vector4f;
 
+import javagl.core.texture.AtlasRegion;
+
 public class UITemplate {
     private float width, height;
     private float x, y;
 
     private Vector4f color;
 
+    // The image drawn on the rectangle from the UI's atlas, or null for a plain color.
+    private AtlasRegion region;
+
     public UITemplate(float x, float y, float width, float height, Vector4f color) {
         this.width = width;
         this.height = height;
@@ -16,12 +21,17 @@ public class UITemplate {
         this.color = color;
     }
 
+    public UITemplate(float x, float y, float width, float height, Vector4f color, AtlasRegion region) {
+        this(x, y, width, height, color);
+        this.region = region;
+    }
+
     public UITemplate(float x, float y, float width, float height) {
         this.width = width;
         this.height = height;
         this.x = x;
         this.y = y;
-        this.color = new Vector4f(0.0f, 0.0f, 0.0f, 0.0f);
+        this.color = new Vector4f(1.0f, 1.0f, 1.0f, 1.0f);
     }
 
     public float getWidth() {
@@ -43,4 +53,8 @@ public class UITemplate {
     public Vector4f getColor() {
         return color;
     }
+
+    public AtlasRegion getRegion() {
+        return region;
+    }
 }
@@ -0,0 +1,22 @@
+package javagl.core.utils;
+
+/**
+ * An interface for reading and waiting on time. The engine loop only
+ * ever asks a clock for the time, so a fake clock can drive it without
+ * a real window or any real waiting.
+ */
+public interface Clock {
+    /**
+     * Returns the current time of the clock.
+     * 
+     * @return - The current time in nanoseconds.
+     */
+    long nanoTime();
+
+    /**
+     * Waits until the clock reaches the specified time.
+     * 
+     * @param deadline - The time to wait until in nanoseconds.
+     */
+    void sleepUntil(long deadline);
+}
@@ -0,0 +1,100 @@
+package javagl.core.utils;
+
+/**
+ * A fixed timestep scheduler. Elapsed time is collected into an accumulator
+ * and handed out as a whole number of fixed-length updates, with the leftover
+ * fraction of a step exposed as an interpolation alpha for rendering.
+ */
+public class FixedTimestep {
+    // The length of a single update in nanoseconds.
+    private final long step;
+
+    // The most updates that can be run for a single frame.
+    private final int maxSteps;
+
+    // The amount of time that has not been turned into updates yet.
+    private long accumulator;
+
+    // The time of the last call to advance.
+    private long lastTime;
+    private boolean started;
+
+    /**
+     * Initializes a new fixed timestep scheduler.
+     * 
+     * @param updateRate - The number of updates per second.
+     * @param maxSteps - The most updates to run for a single frame before dropping the backlog.
+     */
+    public FixedTimestep(float updateRate, int maxSteps) {
+        if (updateRate <= 0) throw new IllegalArgumentException("Update rate must be positive");
+        if (maxSteps <= 0) throw new IllegalArgumentException("Max steps must be positive");
+
+        this.step = (long) (1000000000L / updateRate);
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Adds the time passed since the last call to the accumulator and returns
+     * how many updates should be run. If the backlog grows beyond the maximum
+     * number of steps, the excess whole steps are dropped so that a slow frame
+     * cannot cause an ever-growing number of updates.
+     * 
+     * @param now - The current time in nanoseconds.
+     * @return - The number of updates to run.
+     */
+    public int advance(long now) {
+        if (!started) {
+            started = true;
+            lastTime = now;
+            return 0;
+        }
+
+        accumulator += now - lastTime;
+        lastTime = now;
+
+        long steps = accumulator / step;
+        if (steps > maxSteps) {
+            accumulator %= step;
+            return maxSteps;
+        }
+
+        accumulator -= steps * step;
+        return (int) steps;
+    }
+
+    /**
+     * Returns how far the current time is between the last update and the next one.
+     * 
+     * @return - The interpolation alpha, from 0 (inclusive) to 1 (exclusive).
+     */
+    public float getAlpha() {
+        return accumulator / (float) step;
+    }
+
+    /**
+     * Returns the time until the next update is due.
+     * 
+     * @return - The remaining time in nanoseconds.
+     */
+    public long getTimeUntilNextStep() {
+        return step - accumulator;
+    }
+
+    /**
+     * The getter method for the length of a step.
+     * 
+     * @return - The length of a single update in nanoseconds.
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * The getter method for the length of a step in seconds.
+     * 
+     * @return - The length of a single update in seconds.
+     */
+    public float getStepSeconds() {
+        return step / 1e9f;
+    }
+}
@@ -0,0 +1,109 @@
+package javagl.core.utils;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from long keys to int values. Keys and values are
+ * stored in primitive arrays, so lookups never box and never allocate.
+ */
+public class LongIntMap {
+    // The key marking an empty slot; it can never be stored in the map.
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    // The keys and values of every slot.
+    private long[] keys;
+    private int[] values;
+
+    // The number of entries stored and the mask used to wrap slot indices.
+    private int size, mask;
+
+    /**
+     * Initializes a new map.
+     *
+     * @param expected - The number of entries the map can hold before growing.
+     */
+    public LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected * 2, 16) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Returns the value stored for a key.
+     *
+     * @param key - The key to look up.
+     * @param missing - The value to return if the key is not in the map.
+     * @return - The value of the key, or the missing value.
+     */
+    public int get(long key, int missing) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return missing;
+    }
+
+    /**
+     * Stores a value for a key, replacing any previous value.
+     *
+     * @param key - The key to store.
+     * @param value - The value to store.
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) throw new IllegalArgumentException("Key " + key + " cannot be stored");
+        if ((size + 1) * 2 > keys.length) grow();
+
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    /**
+     * The getter method for the number of entries.
+     *
+     * @return - The number of entries in the map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /** Removes every entry from the map. */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /** Doubles the number of slots and reinserts every entry. */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+        Arrays.fill(keys, EMPTY);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    /** Mixes the bits of a key so that nearby keys land in different slots. */
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,83 @@
+package javagl.core.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A lock-free triple buffer for handing snapshots from one producer thread to one
+ * consumer thread. The producer always has a buffer to write into and the consumer
+ * always has a complete buffer to read from, so neither thread ever waits on the other.
+ * 
+ * @param <T> - The type of the snapshots.
+ */
+public class SnapshotBuffer<T> {
+    // The bit marking the shared buffer as newer than the one the consumer holds.
+    private static final int FRESH = 4;
+    private static final int INDEX_MASK = 3;
+
+    // The three snapshots and the time that each one was published.
+    private final T[] buffers;
+    private final long[] times;
+
+    // The index of the shared buffer, along with the fresh bit.
+    private final AtomicInteger shared;
+
+    // The index of the buffer owned by the producer and the buffer owned by the consumer.
+    private int back, front;
+
+    /**
+     * Initializes a new snapshot buffer.
+     * 
+     * @param factory - A function creating each of the three snapshots.
+     */
+    @SuppressWarnings("unchecked")
+    public SnapshotBuffer(Supplier<T> factory) {
+        buffers = (T[]) new Object[] {factory.get(), factory.get(), factory.get()};
+        times = new long[3];
+
+        back = 0;
+        shared = new AtomicInteger(1);
+        front = 2;
+    }
+
+    /**
+     * Returns the snapshot that the producer should write into.
+     * 
+     * @return - The producer's snapshot.
+     */
+    public T getWriteBuffer() {
+        return buffers[back];
+    }
+
+    /**
+     * Publishes the producer's snapshot, swapping it with the shared buffer.
+     * 
+     * @param time - The time that the snapshot was taken in nanoseconds.
+     */
+    public void publish(long time) {
+        times[back] = time;
+        back = shared.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Returns the latest complete snapshot, taking the shared buffer if a newer
+     * one has been published since the last call.
+     * 
+     * @return - The consumer's snapshot.
+     */
+    public T acquire() {
+        if ((shared.get() & FRESH) != 0) {
+            front = shared.getAndSet(front) & INDEX_MASK;
+        }
+        return buffers[front];
+    }
+
+    /**
+     * Returns the time that the consumer's snapshot was published.
+     * 
+     * @return - The publish time in nanoseconds.
+     */
+    public long getTime() {
+        return times[front];
+    }
+}
@@ -0,0 +1,35 @@
+package javagl.core.utils;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A clock backed by System.nanoTime(). Waiting parks the thread for all but
+ * the last fraction of a millisecond and then yields for the final stretch,
+ * which is far more precise than a single sleep without burning a whole core.
+ */
+public class SystemClock implements Clock {
+    // The amount of time left at which the clock stops parking and starts yielding, well under a frame.
+    private static final long YIELD_THRESHOLD = 200000L;
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void sleepUntil(long deadline) {
+        long remaining;
+
+        // Parks the thread while there is plenty of time left.
+        while ((remaining = deadline - System.nanoTime()) > YIELD_THRESHOLD) {
+            LockSupport.parkNanos(remaining - YIELD_THRESHOLD);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        // Yields the thread for the last 200 microseconds, which parking may overshoot.
+        while (deadline - System.nanoTime() > 0) Thread.yield();
+    }
+}
@@ -1,25 +1,37 @@
 package javagl.core.utils;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Scanner;
-import org.lwjgl.system.MemoryUtil;
+
+import javagl.core.memory.NativeAllocator;
+import javagl.core.memory.ScratchArena;
 
 /** A utilities class for useful methods. */
 public class Utils {
     /**
      * Stores a data of float values into a float buffer. Float
      * buffers are useful for accelerating graphics performance
-     * with OpenGL and LWJGL.
+     * with OpenGL and LWJGL. The buffer is staging memory in a
+     * scratch arena, so it is freed when the arena's frame is popped.
      * 
+     * @param arena - The pushed arena to allocate the buffer in.
      * @param data - A one-dimensional array of float values.
      * @return - A float buffer containing these values.
      */
-    public static FloatBuffer storeDataInFloatBuffer(float[] data) {
-        // Allocates memory for a float buffer that can fit data.
-        FloatBuffer buffer = MemoryUtil.memAllocFloat(data.length);
+    public static FloatBuffer storeDataInFloatBuffer(ScratchArena arena, float[] data) {
+        // Allocates scratch memory for a float buffer that can fit data.
+        FloatBuffer buffer = arena.mallocFloat(data.length);
 
         // Flips the buffer, enabling new read-write operations, and returns it.
         buffer.put(data).flip();
@@ -29,14 +41,16 @@ public class Utils {
     /**
      * Stores a data of int values into a int buffer. Int
      * buffers are useful for accelerating graphics performance
-     * with OpenGL and LWJGL.
+     * with OpenGL and LWJGL. The buffer is staging memory in a
+     * scratch arena, so it is freed when the arena's frame is popped.
      * 
+     * @param arena - The pushed arena to allocate the buffer in.
      * @param data - A one-dimensional array of int values.
-     * @return - A float buffer containing these values.
+     * @return - An int buffer containing these values.
      */
-    public static IntBuffer storeDataInIntBuffer(int[] data) {
-        // Allocates memory for an int buffer that can fit data.
-        IntBuffer buffer = MemoryUtil.memAllocInt(data.length);
+    public static IntBuffer storeDataInIntBuffer(ScratchArena arena, int[] data) {
+        // Allocates scratch memory for an int buffer that can fit data.
+        IntBuffer buffer = arena.mallocInt(data.length);
 
         // Flips the buffer, enabling new read-write operations, and returns it.
         buffer.put(data).flip();
@@ -62,4 +76,48 @@ public class Utils {
         
         return result;
     }
+
+    /**
+     * Reads the bytes of a file or classpath resource into native memory. The
+     * name is tried as a file path first, then as a resource on the classpath,
+     * so both absolute paths and paths like "/textures/cobblestone.png" work.
+     * The returned buffer must be freed with NativeAllocator.free.
+     * 
+     * @param name - The file path or resource name to read.
+     * @return - A buffer holding the whole contents.
+     * @throws Exception - An error caused by a missing or unreadable file.
+     */
+    public static ByteBuffer loadBinaryResource(String name) throws Exception {
+        Path path = Paths.get(name);
+        if (Files.isRegularFile(path)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) throw new Exception("File " + name + " is too large to load");
+
+                ByteBuffer buffer = NativeAllocator.malloc((int) size);
+                try {
+                    while (buffer.hasRemaining() && channel.read(buffer) >= 0);
+                } catch (Exception e) {
+                    NativeAllocator.free(buffer);
+                    throw e;
+                }
+                return buffer.flip();
+            }
+        }
+
+        InputStream in = Utils.class.getResourceAsStream(name.startsWith("/") ? name : "/" + name);
+        if (in == null) throw new Exception("Resource " + name + " unable to be found");
+
+        // Reads the stream in chunks, doubling the buffer whenever it fills.
+        ByteBuffer buffer = NativeAllocator.malloc(Math.max(in.available(), 8192));
+        try (ReadableByteChannel channel = Channels.newChannel(in)) {
+            while (channel.read(buffer) >= 0) {
+                if (!buffer.hasRemaining()) buffer = NativeAllocator.realloc(buffer, buffer.capacity() * 2).position(buffer.position());
+            }
+        } catch (Exception e) {
+            NativeAllocator.free(buffer);
+            throw e;
+        }
+        return buffer.flip();
+    }
 }
@@ -0,0 +1,91 @@
+package javagl.tools;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import javagl.core.mesh.AssimpImporter;
+import javagl.core.mesh.MeshData;
+import javagl.core.mesh.MeshFile;
+import javagl.core.mesh.MeshOptimizer;
+import javagl.core.mesh.ObjParser;
+
+/**
+ * An offline tool converting source meshes into precompiled binary mesh files.
+ * OBJ files are read with the streaming parser and every other format is read
+ * with Assimp, with all of the meshes in a file merged into one.
+ *
+ * Usage: MeshConverter INPUT OUTPUT [--lz4 | --zstd]
+ */
+public class MeshConverter {
+    // The size of the first-in first-out cache the vertex cache misses are measured with.
+    private static final int ACMR_CACHE_SIZE = 16;
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: MeshConverter INPUT OUTPUT [--lz4 | --zstd]");
+            System.exit(1);
+        }
+
+        int compression = MeshFile.COMPRESSION_NONE;
+        if (args.length > 2 && args[2].equals("--lz4")) compression = MeshFile.COMPRESSION_LZ4;
+        if (args.length > 2 && args[2].equals("--zstd")) compression = MeshFile.COMPRESSION_ZSTD;
+
+        try {
+            long start = System.nanoTime();
+            MeshData mesh = load(args[0]);
+
+            try {
+                Path output = Paths.get(args[1]);
+                MeshFile.write(mesh, output, compression);
+
+                System.out.printf("%s: %d vertices, %d indices, %d bytes in %.1f ms%n",
+                    output, mesh.getVertexCount(), mesh.getIndexCount(), Files.size(output),
+                    (System.nanoTime() - start) / 1e6);
+                printAcmr(mesh, output);
+            } finally {
+                mesh.free();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints how well the source mesh and the written file use the vertex cache.
+     *
+     * @param mesh - The source mesh.
+     * @param output - The path of the written mesh file.
+     * @throws Exception - An exception caused by reading the mesh file.
+     */
+    private static void printAcmr(MeshData mesh, Path output) throws Exception {
+        MeshFile file = MeshFile.open(output);
+        try {
+            float before = MeshOptimizer.getAcmr(mesh.getIndices(), mesh.getVertexCount(), ACMR_CACHE_SIZE);
+            float after = MeshOptimizer.getAcmr(file.getIndices().asIntBuffer(), file.getVertexCount(), ACMR_CACHE_SIZE);
+            System.out.printf("vertex cache misses per triangle: %.3f before, %.3f after%n", before, after);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Loads a source mesh, using the OBJ parser for OBJ files and Assimp for everything else.
+     *
+     * @param filename - The path of the source mesh.
+     * @return - The mesh data, which must be freed by the caller.
+     * @throws Exception - An exception caused by reading the source mesh.
+     */
+    public static MeshData load(String filename) throws Exception {
+        if (filename.toLowerCase().endsWith(".obj")) return ObjParser.parse(filename);
+
+        List<MeshData> meshes = AssimpImporter.load(filename);
+        try {
+            return MeshData.merge(meshes);
+        } finally {
+            for (MeshData mesh : meshes) mesh.free();
+        }
+    }
+}
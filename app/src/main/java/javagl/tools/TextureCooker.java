@@ -0,0 +1,181 @@
+package javagl.tools;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.lwjgl.stb.STBDXT;
+import org.lwjgl.system.MemoryUtil;
+
+import javagl.core.memory.NativeAllocator;
+import javagl.core.texture.Image;
+import javagl.core.texture.TextureFile;
+
+/**
+ * An offline tool baking images into cooked texture files. The full mip chain
+ * is generated with stb_image_resize and every level is block-compressed with
+ * stb_dxt, so loading the texture is a straight upload of each level.
+ *
+ * Without a format flag, images with any transparency are cooked as BC3 and
+ * opaque images as BC1. BC4 keeps only the red channel and BC5 keeps red and
+ * green, for masks and normal maps.
+ *
+ * Usage: TextureCooker INPUT OUTPUT [--rgba | --bc1 | --bc3 | --bc4 | --bc5]
+ */
+public class TextureCooker {
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: TextureCooker INPUT OUTPUT [--rgba | --bc1 | --bc3 | --bc4 | --bc5]");
+            System.exit(1);
+        }
+
+        int format = -1;
+        if (args.length > 2 && args[2].equals("--rgba")) format = TextureFile.FORMAT_RGBA8;
+        if (args.length > 2 && args[2].equals("--bc1")) format = TextureFile.FORMAT_BC1;
+        if (args.length > 2 && args[2].equals("--bc3")) format = TextureFile.FORMAT_BC3;
+        if (args.length > 2 && args[2].equals("--bc4")) format = TextureFile.FORMAT_BC4;
+        if (args.length > 2 && args[2].equals("--bc5")) format = TextureFile.FORMAT_BC5;
+
+        try {
+            long start = System.nanoTime();
+            Path output = Paths.get(args[1]);
+            Image image = Image.load(args[0]);
+
+            try {
+                if (format < 0) format = hasTransparency(image) ? TextureFile.FORMAT_BC3 : TextureFile.FORMAT_BC1;
+                int levels = cook(image, output, format);
+
+                long uncompressed = (long) image.getWidth() * image.getHeight() * 4;
+                System.out.printf("%s: %dx%d %s, %d levels, %d bytes (%d bytes as RGBA8 without mipmaps) in %.1f ms%n",
+                    output, image.getWidth(), image.getHeight(), TextureFile.getFormatName(format), levels,
+                    Files.size(output), uncompressed, (System.nanoTime() - start) / 1e6);
+            } finally {
+                image.free();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Bakes an image into a texture file with a full mip chain.
+     *
+     * @param image - The image to cook.
+     * @param output - The path of the texture file.
+     * @param format - The format to store the levels in.
+     * @return - The number of levels written.
+     * @throws Exception - An exception caused by resizing the image or writing the file.
+     */
+    public static int cook(Image image, Path output, int format) throws Exception {
+        List<ByteBuffer> levels = new ArrayList<ByteBuffer>();
+        Image level = image;
+
+        try {
+            while (true) {
+                levels.add(encode(level, format));
+                if (level.getWidth() == 1 && level.getHeight() == 1) break;
+
+                // Each level is resized from the previous one, halving it down to 1x1.
+                Image next = level.resize(Math.max(1, level.getWidth() / 2), Math.max(1, level.getHeight() / 2));
+                if (level != image) level.free();
+                level = next;
+            }
+
+            TextureFile.write(output, format, image.getWidth(), image.getHeight(), levels);
+            return levels.size();
+        } finally {
+            if (level != image) level.free();
+            for (ByteBuffer data : levels) NativeAllocator.free(data);
+        }
+    }
+
+    /**
+     * Encodes a single level in a format.
+     *
+     * @param image - The level to encode.
+     * @param format - The format to encode it in.
+     * @return - The encoded level, which must be freed by the caller.
+     */
+    public static ByteBuffer encode(Image image, int format) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        ByteBuffer encoded = NativeAllocator.malloc(TextureFile.getLevelSize(format, width, height));
+
+        if (format == TextureFile.FORMAT_RGBA8) {
+            MemoryUtil.memCopy(MemoryUtil.memAddress(image.getPixels()), MemoryUtil.memAddress(encoded), encoded.capacity());
+            return encoded;
+        }
+
+        int blockSize = TextureFile.getBlockSize(format);
+        ByteBuffer block = NativeAllocator.malloc(16 * 4);
+        ByteBuffer pixels = image.getPixels();
+        long destination = MemoryUtil.memAddress(encoded);
+
+        try {
+            for (int by = 0; by < height; by += 4) {
+                for (int bx = 0; bx < width; bx += 4) {
+                    gatherBlock(pixels, width, height, bx, by, format, block);
+
+                    long address = MemoryUtil.memAddress(block);
+                    if (format == TextureFile.FORMAT_BC4) {
+                        STBDXT.nstb_compress_bc4_block(destination, address);
+                    } else if (format == TextureFile.FORMAT_BC5) {
+                        STBDXT.nstb_compress_bc5_block(destination, address);
+                    } else {
+                        int alpha = format == TextureFile.FORMAT_BC3 ? 1 : 0;
+                        STBDXT.nstb_compress_dxt_block(destination, address, alpha, STBDXT.STB_DXT_HIGHQUAL);
+                    }
+                    destination += blockSize;
+                }
+            }
+        } finally {
+            NativeAllocator.free(block);
+        }
+
+        return encoded;
+    }
+
+    /**
+     * Copies a 4x4 block of pixels into the layout the block compressor expects,
+     * repeating the edge pixels where the block runs past the image.
+     *
+     * @param pixels - The RGBA pixels of the image.
+     * @param width - The width of the image.
+     * @param height - The height of the image.
+     * @param bx - The x position of the block.
+     * @param by - The y position of the block.
+     * @param format - The format being encoded, which decides how many channels are kept.
+     * @param block - The buffer to copy the block into.
+     */
+    private static void gatherBlock(ByteBuffer pixels, int width, int height, int bx, int by, int format, ByteBuffer block) {
+        int channels = format == TextureFile.FORMAT_BC4 ? 1 : format == TextureFile.FORMAT_BC5 ? 2 : 4;
+
+        for (int y = 0; y < 4; y++) {
+            int py = Math.min(by + y, height - 1);
+            for (int x = 0; x < 4; x++) {
+                int px = Math.min(bx + x, width - 1);
+                int source = (py * width + px) * 4;
+                int target = (y * 4 + x) * channels;
+                for (int c = 0; c < channels; c++) block.put(target + c, pixels.get(source + c));
+            }
+        }
+    }
+
+    /**
+     * Checks if any pixel of an image is not fully opaque.
+     *
+     * @param image - The image to check.
+     * @return - If the image has any transparency.
+     */
+    private static boolean hasTransparency(Image image) {
+        ByteBuffer pixels = image.getPixels();
+        for (int i = 3; i < image.getWidth() * image.getHeight() * 4; i += 4) {
+            if (pixels.get(i) != (byte) 255) return true;
+        }
+        return false;
+    }
+}
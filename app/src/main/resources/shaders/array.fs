@@ -0,0 +1,10 @@
+#version 400 core
+
+in vec3 fragTextureCoords;
+out vec4 fragmentColor;
+
+uniform sampler2DArray textureSampler;
+
+void main() {
+    fragmentColor = texture(textureSampler, fragTextureCoords);
+}
\ No newline at end of file
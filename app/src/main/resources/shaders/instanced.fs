@@ -0,0 +1,11 @@
+#version 400 core
+
+in vec2 fragTextureCoords;
+in vec4 fragColor;
+out vec4 fragmentColor;
+
+uniform sampler2D textureSampler;
+
+void main() {
+    fragmentColor = texture(textureSampler, fragTextureCoords) * fragColor;
+}
\ No newline at end of file
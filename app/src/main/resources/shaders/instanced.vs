@@ -0,0 +1,25 @@
+#version 400 core
+
+layout(location = 0) in vec3 position;
+layout(location = 1) in vec2 textureCoords;
+
+// The per-instance transform occupies locations 3 to 6, one per matrix column.
+layout(location = 3) in mat4 instanceTransform;
+layout(location = 7) in vec4 instanceColor;
+
+out vec2 fragTextureCoords;
+out vec4 fragColor;
+
+// The data shared by every draw of the frame, uploaded once per frame.
+layout(std140) uniform Frame {
+    mat4 projection;
+    mat4 view;
+    mat4 viewProjection;
+    float time;
+};
+
+void main() {
+    gl_Position = viewProjection * instanceTransform * vec4(position, 1.0);
+    fragTextureCoords = textureCoords;
+    fragColor = instanceColor;
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+#version 400 core
+
+layout(location = 0) in vec2 position;
+layout(location = 1) in vec2 textureCoords;
+layout(location = 2) in vec4 color;
+
+out vec2 fragTextureCoords;
+out vec4 fragColor;
+
+void main() {
+    gl_Position = vec4(position, 0.0, 1.0);
+    fragTextureCoords = textureCoords;
+    fragColor = color;
+}
\ No newline at end of file
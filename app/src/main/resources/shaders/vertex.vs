@@ -1,13 +1,22 @@
 #version 400 core
 
-in vec3 position;
-in vec2 textureCoords;
+layout(location = 0) in vec3 position;
+layout(location = 1) in vec2 textureCoords;
 
 out vec2 fragTextureCoords;
 
-uniform float time;
+// The data shared by every draw of the frame, uploaded once per frame.
+layout(std140) uniform Frame {
+    mat4 projection;
+    mat4 view;
+    mat4 viewProjection;
+    float time;
+};
+
+// The transform of the model being drawn.
+uniform mat4 model;
 
 void main() {
-    gl_Position = vec4(position, 1.0);
+    gl_Position = viewProjection * model * vec4(position, 1.0);
     fragTextureCoords = textureCoords;
 }
\ No newline at end of file
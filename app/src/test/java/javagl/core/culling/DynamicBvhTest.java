@@ -0,0 +1,176 @@
+package javagl.core.culling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.joml.primitives.AABBf;
+import org.joml.primitives.Intersectionf;
+import org.joml.primitives.Rayf;
+import org.joml.primitives.Spheref;
+import org.junit.jupiter.api.Test;
+
+class DynamicBvhTest {
+    // The side of the cube the random boxes are spread over.
+    private static final float WORLD_SIZE = 100;
+
+    @Test
+    void staysValidThroughRandomAddsMovesAndRemoves() {
+        Random random = new Random(1);
+        DynamicBvh<Integer> tree = new DynamicBvh<Integer>(0.5f, 16);
+        List<Integer> ids = new ArrayList<Integer>();
+
+        for (int step = 0; step < 5000; step++) {
+            int action = random.nextInt(10);
+            if (ids.isEmpty() || action < 4) {
+                ids.add(tree.add(randomBox(random), step));
+            } else if (action < 8) {
+                tree.move(ids.get(random.nextInt(ids.size())), randomBox(random));
+            } else {
+                tree.remove(ids.remove(random.nextInt(ids.size())));
+            }
+            tree.validate();
+            assertEquals(ids.size(), tree.size());
+        }
+
+        // A balanced tree stays within a small multiple of the ideal height.
+        assertTrue(tree.getHeight() <= 3 * (32 - Integer.numberOfLeadingZeros(ids.size())), "height " + tree.getHeight());
+    }
+
+    @Test
+    void smallMovesStayInTheirFatBox() {
+        DynamicBvh<String> tree = new DynamicBvh<String>(0.5f, 16);
+        int id = tree.add(new AABBf(0, 0, 0, 1, 1, 1), "a");
+
+        assertFalse(tree.move(id, new AABBf(0.25f, 0, 0, 1.25f, 1, 1)));
+        assertTrue(tree.move(id, new AABBf(5, 0, 0, 6, 1, 1)));
+        assertEquals(new AABBf(4.5f, -0.5f, -0.5f, 6.5f, 1.5f, 1.5f), tree.getFatBounds(id, new AABBf()));
+        tree.validate();
+    }
+
+    @Test
+    void reusesRemovedNodes() {
+        Random random = new Random(2);
+        DynamicBvh<Integer> tree = new DynamicBvh<Integer>(0.1f, 16);
+        int largest = 0;
+
+        List<Integer> ids = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) ids.add(tree.add(randomBox(random), i));
+        for (int id : ids) largest = Math.max(largest, id);
+
+        // Removing and adding the same number of items takes every node from the free list.
+        for (int id : ids) tree.remove(id);
+        tree.validate();
+        assertEquals(0, tree.getHeight());
+        for (int i = 0; i < 1000; i++) assertTrue(tree.add(randomBox(random), i) < 2 * 1000);
+        tree.validate();
+
+        tree.clear();
+        tree.validate();
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    void rejectsIdsThatAreNotLeaves() {
+        DynamicBvh<String> tree = new DynamicBvh<String>();
+        int a = tree.add(new AABBf(0, 0, 0, 1, 1, 1), "a");
+        tree.add(new AABBf(2, 0, 0, 3, 1, 1), "b");
+        tree.remove(a);
+
+        assertThrows(IllegalArgumentException.class, () -> tree.remove(a));
+        assertThrows(IllegalArgumentException.class, () -> tree.move(-1, new AABBf()));
+    }
+
+    @Test
+    void queriesMatchBruteForce() {
+        Random random = new Random(3);
+        DynamicBvh<Integer> tree = new DynamicBvh<Integer>();
+        List<Integer> ids = new ArrayList<Integer>();
+        for (int i = 0; i < 2000; i++) ids.add(tree.add(randomBox(random), i));
+        for (int i = 0; i < 500; i++) tree.move(ids.get(random.nextInt(ids.size())), randomBox(random));
+
+        Vector2f hit = new Vector2f();
+        for (int query = 0; query < 50; query++) {
+            // Frustum queries from a random point looking at a random point.
+            Matrix4f viewProjection = new Matrix4f().perspective(1.0f, 1.5f, 0.1f, 60)
+                .lookAt(randomFloat(random), randomFloat(random), randomFloat(random),
+                    randomFloat(random), randomFloat(random), randomFloat(random), 0, 1, 0);
+            FrustumIntersection frustum = new FrustumIntersection(viewProjection, false);
+            List<Integer> expected = new ArrayList<Integer>(), actual = new ArrayList<Integer>();
+            for (int id : ids) {
+                AABBf box = tree.getFatBounds(id, new AABBf());
+                if (frustum.intersectAab(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ) < 0) expected.add(tree.getItem(id));
+            }
+            tree.queryFrustum(viewProjection, actual);
+            assertSameItems(expected, actual);
+
+            // Ray queries limited to a random distance.
+            Rayf ray = new Rayf(randomFloat(random), randomFloat(random), randomFloat(random),
+                random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+            float maxDistance = random.nextFloat() * 200;
+            expected.clear();
+            actual.clear();
+            for (int id : ids) {
+                AABBf box = tree.getFatBounds(id, new AABBf());
+                if (Intersectionf.intersectRayAab(ray.oX, ray.oY, ray.oZ, ray.dX, ray.dY, ray.dZ,
+                    box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, hit) && hit.x <= maxDistance) expected.add(tree.getItem(id));
+            }
+            tree.queryRay(ray, maxDistance, actual);
+            assertSameItems(expected, actual);
+
+            // Sphere queries of a random size.
+            Spheref sphere = new Spheref(randomFloat(random), randomFloat(random), randomFloat(random), random.nextFloat() * 20);
+            expected.clear();
+            actual.clear();
+            for (int id : ids) {
+                AABBf box = tree.getFatBounds(id, new AABBf());
+                if (Intersectionf.testAabSphere(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ,
+                    sphere.x, sphere.y, sphere.z, sphere.r * sphere.r)) expected.add(tree.getItem(id));
+            }
+            tree.querySphere(sphere, actual);
+            assertSameItems(expected, actual);
+        }
+    }
+
+    /**
+     * Checks two lists hold the same items, in any order.
+     *
+     * @param expected - The expected items.
+     * @param actual - The items found.
+     */
+    private static void assertSameItems(List<Integer> expected, List<Integer> actual) {
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Creates a random box inside the world.
+     *
+     * @param random - The random number generator.
+     * @return - A box up to 4 units along each side.
+     */
+    private static AABBf randomBox(Random random) {
+        float x = randomFloat(random), y = randomFloat(random), z = randomFloat(random);
+        return new AABBf(x, y, z, x + random.nextFloat() * 4, y + random.nextFloat() * 4, z + random.nextFloat() * 4);
+    }
+
+    /**
+     * Creates a random coordinate inside the world.
+     *
+     * @param random - The random number generator.
+     * @return - A coordinate between 0 and the world size.
+     */
+    private static float randomFloat(Random random) {
+        return random.nextFloat() * WORLD_SIZE;
+    }
+}
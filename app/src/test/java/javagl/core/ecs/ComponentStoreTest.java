@@ -0,0 +1,128 @@
+package javagl.core.ecs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ComponentStoreTest {
+    @Test
+    void removeMovesTheLastComponentIntoTheGap() {
+        FloatStore store = new FloatStore(2, 4);
+        for (int entity = 0; entity < 4; entity++) {
+            int index = store.add(entity);
+            store.set(index, 0, entity);
+            store.set(index, 1, entity * 10);
+        }
+
+        assertTrue(store.remove(1));
+        assertFalse(store.remove(1));
+        assertEquals(3, store.size());
+        assertEquals(ComponentStore.ABSENT, store.indexOf(1));
+
+        // The last entity now fills the removed one's dense slot, with its values.
+        assertEquals(1, store.indexOf(3));
+        assertEquals(3, store.getEntity(1));
+        assertEquals(3, store.get(1, 0));
+        assertEquals(30, store.get(1, 1));
+
+        // Removing the last component moves nothing.
+        assertTrue(store.remove(2));
+        assertEquals(0, store.indexOf(0));
+        assertEquals(1, store.indexOf(3));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void randomAddsAndRemovesKeepEveryComponent() {
+        IntStore store = new IntStore(1, 16);
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        Random random = new Random(7);
+
+        for (int step = 0; step < 20000; step++) {
+            int entity = random.nextInt(500);
+            if (random.nextBoolean()) {
+                int index = store.add(entity);
+                if (!expected.containsKey(entity)) {
+                    assertEquals(0, store.get(index, 0));
+                    store.set(index, 0, step);
+                    expected.put(entity, step);
+                }
+            } else {
+                assertEquals(expected.remove(entity) != null, store.remove(entity));
+            }
+        }
+
+        assertEquals(expected.size(), store.size());
+        for (int i = 0; i < store.size(); i++) {
+            int entity = store.getEntity(i);
+            assertEquals(i, store.indexOf(entity));
+            assertEquals(expected.get(entity).intValue(), store.get(i, 0));
+        }
+    }
+
+    @Test
+    void destroyedIdsNeverMatchTheEntityReusingTheirIndex() {
+        World world = new World();
+        FloatStore store = world.createFloatStore(1);
+
+        int old = world.create();
+        store.set(store.add(old), 0, 1);
+        world.destroy(old);
+
+        int reused = world.create();
+        assertEquals(World.getIndex(old), World.getIndex(reused));
+        assertNotEquals(old, reused);
+        assertFalse(world.isAlive(old));
+        assertTrue(world.isAlive(reused));
+
+        int index = store.add(reused);
+        assertEquals(0, store.get(index, 0));
+        store.set(index, 0, 2);
+        assertEquals(ComponentStore.ABSENT, store.indexOf(old));
+        assertFalse(store.remove(old));
+        assertTrue(store.has(reused));
+
+        assertThrows(IllegalArgumentException.class, () -> world.destroy(old));
+        assertEquals(1, world.size());
+    }
+
+    @Test
+    void addingAReusedIndexDropsTheStaleComponent() {
+        World world = new World();
+        IntStore detached = new IntStore(1, 16);
+
+        int old = world.create();
+        detached.add(old);
+        world.destroy(old);
+        int reused = world.create();
+
+        // A store the world doesn't know still holds the old entity until its index is added again.
+        assertEquals(ComponentStore.ABSENT, detached.indexOf(reused));
+        detached.add(reused);
+        assertEquals(1, detached.size());
+        assertEquals(reused, detached.getEntity(0));
+        assertEquals(ComponentStore.ABSENT, detached.indexOf(old));
+    }
+
+    @Test
+    void generationsWrapWithinTheirBits() {
+        World world = new World();
+        int first = world.create();
+        int entity = first;
+        for (int i = 0; i < 1 << World.GENERATION_BITS; i++) {
+            world.destroy(entity);
+            entity = world.create();
+            assertTrue(entity >= 0);
+            assertEquals(World.getIndex(first), World.getIndex(entity));
+        }
+        assertEquals(first, entity);
+    }
+}
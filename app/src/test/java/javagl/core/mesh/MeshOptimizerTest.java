@@ -0,0 +1,126 @@
+package javagl.core.mesh;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.IntBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class MeshOptimizerTest {
+    @Test
+    void reorderingKeepsEveryTriangle() {
+        IntBuffer indices = shuffle(grid(64), new Random(1));
+        long[] before = triangles(indices);
+        MeshOptimizer.optimizeVertexCache(indices, 65 * 65);
+        assertArrayEquals(before, triangles(indices));
+    }
+
+    @Test
+    void reorderingImprovesAShuffledGrid() {
+        IntBuffer indices = shuffle(grid(64), new Random(2));
+        float before = MeshOptimizer.getAcmr(indices, 65 * 65, 16);
+        MeshOptimizer.optimizeVertexCache(indices, 65 * 65);
+        float after = MeshOptimizer.getAcmr(indices, 65 * 65, 16);
+
+        // A shuffled grid misses almost every vertex, and a well ordered one about two thirds of one per triangle.
+        assertTrue(before > 2.5f, "before " + before);
+        assertTrue(after < 0.8f, "after " + after);
+    }
+
+    @Test
+    void disjointQuadsStayLinear() {
+        // Each quad is a dead end, which once made every restart search the whole mesh.
+        int quads = 200000;
+        IntBuffer indices = shuffle(quads(quads), new Random(3));
+        long[] before = triangles(indices);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> MeshOptimizer.optimizeVertexCache(indices, quads * 4));
+        assertArrayEquals(before, triangles(indices));
+
+        // Every quad's two triangles end up next to each other, loading each of its vertices once.
+        assertEquals(2, MeshOptimizer.getAcmr(indices, quads * 4, 16), 1e-6f);
+    }
+
+    @Test
+    void measuresMissesOfAFifoCache() {
+        IntBuffer indices = IntBuffer.wrap(new int[] {0, 1, 2, 2, 1, 3, 4, 5, 6, 0, 1, 2});
+        assertEquals(10 / 4f, MeshOptimizer.getAcmr(indices, 7, 3), 1e-6f);
+        assertEquals(7 / 4f, MeshOptimizer.getAcmr(indices, 7, 16), 1e-6f);
+        assertEquals(0, MeshOptimizer.getAcmr(IntBuffer.allocate(0), 0, 16));
+    }
+
+    /**
+     * Creates the indices of a square grid of quads.
+     *
+     * @param size - The number of quads along each side.
+     * @return - Two triangles per quad, row by row.
+     */
+    private static IntBuffer grid(int size) {
+        IntBuffer indices = IntBuffer.allocate(size * size * 6);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int a = y * (size + 1) + x, b = a + size + 1;
+                indices.put(a).put(b).put(a + 1).put(a + 1).put(b).put(b + 1);
+            }
+        }
+        return indices.flip();
+    }
+
+    /**
+     * Creates the indices of separate quads sharing no vertices.
+     *
+     * @param count - The number of quads.
+     * @return - Two triangles per quad.
+     */
+    private static IntBuffer quads(int count) {
+        IntBuffer indices = IntBuffer.allocate(count * 6);
+        for (int i = 0; i < count; i++) {
+            int a = i * 4;
+            indices.put(a).put(a + 1).put(a + 2).put(a + 2).put(a + 1).put(a + 3);
+        }
+        return indices.flip();
+    }
+
+    /**
+     * Shuffles the order of the triangles.
+     *
+     * @param indices - The triangle indices.
+     * @param random - The random number generator.
+     * @return - The same indices.
+     */
+    private static IntBuffer shuffle(IntBuffer indices, Random random) {
+        for (int t = indices.remaining() / 3 - 1; t > 0; t--) {
+            int other = random.nextInt(t + 1);
+            for (int c = 0; c < 3; c++) {
+                int swap = indices.get(t * 3 + c);
+                indices.put(t * 3 + c, indices.get(other * 3 + c));
+                indices.put(other * 3 + c, swap);
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Lists the triangles of a mesh independent of their order and starting corner.
+     *
+     * @param indices - The triangle indices.
+     * @return - One sorted key per triangle, keeping its winding.
+     */
+    private static long[] triangles(IntBuffer indices) {
+        long[] keys = new long[indices.remaining() / 3];
+        for (int t = 0; t < keys.length; t++) {
+            int[] corners = {indices.get(t * 3), indices.get(t * 3 + 1), indices.get(t * 3 + 2)};
+            int first = 0;
+            for (int c = 1; c < 3; c++) if (corners[c] < corners[first]) first = c;
+            keys[t] = (long) corners[first] << 42 | (long) corners[(first + 1) % 3] << 21 | corners[(first + 2) % 3];
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+}
@@ -0,0 +1,111 @@
+package javagl.core.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import javagl.core.managers.EngineManager;
+
+class FixedTimestepTest {
+    // An update rate whose step is a whole number of nanoseconds.
+    private static final float RATE = 100;
+    private static final long STEP = 10000000L;
+
+    @Test
+    void advanceRunsOneTickPerWholeStepOfBacklog() {
+        FakeClock clock = new FakeClock();
+        FixedTimestep timestep = new FixedTimestep(RATE, EngineManager.MAX_UPDATES_PER_FRAME);
+        assertEquals(STEP, timestep.getStep());
+
+        // The first call only starts the timer.
+        assertEquals(0, timestep.advance(clock.nanoTime()));
+
+        clock.advance(STEP * 7 / 2);
+        assertEquals(3, timestep.advance(clock.nanoTime()));
+        assertEquals(0.5f, timestep.getAlpha(), 1e-6f);
+        assertEquals(STEP / 2, timestep.getTimeUntilNextStep());
+
+        clock.advance(STEP / 4);
+        assertEquals(0, timestep.advance(clock.nanoTime()));
+        assertEquals(0.75f, timestep.getAlpha(), 1e-6f);
+        assertEquals(STEP / 4, timestep.getTimeUntilNextStep());
+
+        clock.advance(STEP / 4);
+        assertEquals(1, timestep.advance(clock.nanoTime()));
+        assertEquals(0, timestep.getAlpha());
+        assertEquals(STEP, timestep.getTimeUntilNextStep());
+    }
+
+    @Test
+    void advanceDropsWholeStepsBeyondTheCap() {
+        FakeClock clock = new FakeClock();
+        FixedTimestep timestep = new FixedTimestep(RATE, EngineManager.MAX_UPDATES_PER_FRAME);
+        timestep.advance(clock.nanoTime());
+
+        // A long stall runs the capped number of updates and keeps only the fraction of a step.
+        clock.advance(STEP * 12 + STEP / 4);
+        assertEquals(EngineManager.MAX_UPDATES_PER_FRAME, timestep.advance(clock.nanoTime()));
+        assertEquals(0.25f, timestep.getAlpha(), 1e-6f);
+        assertEquals(STEP * 3 / 4, timestep.getTimeUntilNextStep());
+
+        // The dropped backlog doesn't come back on the next frame.
+        clock.advance(STEP / 2);
+        assertEquals(0, timestep.advance(clock.nanoTime()));
+        assertEquals(0.75f, timestep.getAlpha(), 1e-6f);
+
+        // A backlog of exactly the cap is run in full.
+        clock.advance(STEP * EngineManager.MAX_UPDATES_PER_FRAME);
+        assertEquals(EngineManager.MAX_UPDATES_PER_FRAME, timestep.advance(clock.nanoTime()));
+        assertEquals(0.75f, timestep.getAlpha(), 1e-6f);
+    }
+
+    @Test
+    void sleepingUntilTheNextStepRunsOneTickPerWake() {
+        FakeClock clock = new FakeClock();
+        FixedTimestep timestep = new FixedTimestep(RATE, EngineManager.MAX_UPDATES_PER_FRAME);
+        timestep.advance(clock.nanoTime());
+
+        // Mirrors the simulation thread, which sleeps until the next update is due.
+        int ticks = 0;
+        for (int i = 0; i < 100; i++) {
+            clock.sleepUntil(clock.nanoTime() + timestep.getTimeUntilNextStep());
+            int steps = timestep.advance(clock.nanoTime());
+            assertEquals(1, steps);
+            ticks += steps;
+        }
+        assertEquals(100, ticks);
+        assertEquals(STEP * 100, clock.nanoTime());
+    }
+
+    @Test
+    void constructorRejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new FixedTimestep(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new FixedTimestep(RATE, 0));
+    }
+
+    /** A clock that only moves when told to, and jumps straight to any time it is asked to wait for. */
+    private static class FakeClock implements Clock {
+        // The current time in nanoseconds.
+        private long now;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        @Override
+        public void sleepUntil(long deadline) {
+            now = Math.max(now, deadline);
+        }
+
+        /**
+         * Moves the clock forward.
+         *
+         * @param nanos - The time to move forward by in nanoseconds.
+         */
+        void advance(long nanos) {
+            now += nanos;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package javagl.core.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class SnapshotBufferTest {
+    @Test
+    void acquireKeepsTheSameSnapshotUntilOneIsPublished() {
+        SnapshotBuffer<long[]> buffer = new SnapshotBuffer<long[]>(() -> new long[1]);
+        long[] first = buffer.acquire();
+        assertSame(first, buffer.acquire());
+
+        buffer.getWriteBuffer()[0] = 7;
+        buffer.publish(100);
+        long[] second = buffer.acquire();
+        assertNotSame(first, second);
+        assertEquals(7, second[0]);
+        assertEquals(100, buffer.getTime());
+        assertSame(second, buffer.acquire());
+    }
+
+    @Test
+    void acquireTakesTheLatestOfSeveralPublishes() {
+        SnapshotBuffer<long[]> buffer = new SnapshotBuffer<long[]>(() -> new long[1]);
+        for (int i = 1; i <= 5; i++) {
+            buffer.getWriteBuffer()[0] = i;
+            buffer.publish(i);
+        }
+        assertEquals(5, buffer.acquire()[0]);
+        assertEquals(5, buffer.getTime());
+    }
+
+    @Test
+    void producerNeverWritesIntoTheConsumersSnapshot() {
+        SnapshotBuffer<long[]> buffer = new SnapshotBuffer<long[]>(() -> new long[1]);
+        for (int i = 0; i < 20; i++) {
+            long[] front = buffer.acquire();
+            assertNotSame(front, buffer.getWriteBuffer());
+            buffer.getWriteBuffer()[0] = i;
+            buffer.publish(i);
+            if (i % 3 == 0) assertNotSame(buffer.acquire(), buffer.getWriteBuffer());
+        }
+    }
+
+    @Test
+    void consumerOnlySeesCompleteSnapshotsAcrossThreads() throws Exception {
+        // Each snapshot holds the same value twice, written one after the other, so a torn read shows as a mismatch.
+        SnapshotBuffer<long[]> buffer = new SnapshotBuffer<long[]>(() -> new long[2]);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            for (long i = 1; i <= 200000; i++) {
+                long[] snapshot = buffer.getWriteBuffer();
+                snapshot[0] = i;
+                snapshot[1] = i;
+                buffer.publish(i);
+            }
+            done.set(true);
+        });
+        producer.start();
+
+        long last = 0;
+        while (!done.get() || last < 200000) {
+            long[] snapshot = buffer.acquire();
+            assertEquals(snapshot[0], snapshot[1]);
+            assertTrue(snapshot[0] >= last, "went back from " + last + " to " + snapshot[0]);
+            last = snapshot[0];
+        }
+        producer.join();
+    }
+}